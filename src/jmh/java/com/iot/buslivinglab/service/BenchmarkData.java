@@ -0,0 +1,130 @@
+package com.iot.buslivinglab.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iot.buslivinglab.entity.MeasurementType;
+import com.iot.buslivinglab.entity.SensorData;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Realistični podaci za benchmarke: 7-in-1 senzor zemljišta sa merenjem na svakih 5 minuta.
+ */
+final class BenchmarkData {
+
+    static final String[][] SOIL_TYPES = {
+            {"ll:soilTemperature", "unit:DEG_C", "°C"},
+            {"ll:soilMoisture", "unit:PERCENT", "%"},
+            {"ll:soilConductivity", "unit:MicroS-PER-CentiM", "µS/cm"},
+            {"ll:soilPH", "unit:PH", "pH"},
+            {"ll:soilNitrogen", "unit:MilliGM-PER-KiloGM", "mg/kg"},
+            {"ll:soilPhosphorus", "unit:MilliGM-PER-KiloGM", "mg/kg"},
+            {"ll:soilPotassium", "unit:MilliGM-PER-KiloGM", "mg/kg"}
+    };
+
+    static final long INTERVAL_SECONDS = 300;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * ObjectMapper podešen kao Spring-ov (JavaTimeModule, datumi kao ISO string)
+     */
+    static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    /**
+     * SOSA payload sa zadatim brojem merenja (članova) kao što ga šalje gateway
+     */
+    static String observationJson(int members) {
+        StringBuilder json = new StringBuilder(512 + members * 256);
+        json.append("""
+                {
+                  "@context": {
+                    "sosa": "http://www.w3.org/ns/sosa/",
+                    "ssn": "http://www.w3.org/ns/ssn/",
+                    "qudt": "http://qudt.org/schema/qudt/",
+                    "unit": "http://qudt.org/vocab/unit/",
+                    "xsd": "http://www.w3.org/2001/XMLSchema#",
+                    "rdfs": "http://www.w3.org/2000/01/rdf-schema#",
+                    "ll": "https://buslivinglab.com/ns#"
+                  },
+                  "@type": "sosa:ObservationCollection",
+                  "sosa:madeBySensor": {
+                    "@id": "ll:sensor-7in1-001",
+                    "@type": "sosa:Sensor",
+                    "rdfs:label": "7-in-1 Soil Sensor",
+                    "sosa:observes": [{"@id": "ll:soilTemperature"}, {"@id": "ll:soilMoisture"}]
+                  },
+                  "sosa:hasFeatureOfInterest": {
+                    "@type": "sosa:FeatureOfInterest",
+                    "rdfs:label": "Field A",
+                    "ll:location": "44.7866,20.4489"
+                  },
+                  "sosa:hasMember": [""");
+
+        Instant time = Instant.parse("2025-06-01T10:00:00Z");
+        for (int i = 0; i < members; i++) {
+            String[] type = SOIL_TYPES[i % SOIL_TYPES.length];
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("""
+                    {"@type": "sosa:Observation",
+                     "sosa:observedProperty": {"@id": "%s"},
+                     "sosa:phenomenonTime": "%s",
+                     "sosa:hasResult": {"@type": "qudt:QuantityValue", "qudt:numericValue": %s, "qudt:unit": "%s"}}"""
+                    .formatted(type[0], time.plusSeconds(i / SOIL_TYPES.length * INTERVAL_SECONDS),
+                            20.0 + (i % 13) * 0.37, type[1]));
+        }
+        json.append("]}");
+        return json.toString();
+    }
+
+    /**
+     * Redovi iz sensor_data za jedan senzor: rowsPerType merenja za svaki od 7 tipova,
+     * sortirani od najnovijeg kao što ih vraća repository
+     */
+    static List<SensorData> sensorRows(int rowsPerType) {
+        Random random = new Random(42);
+        Instant start = Instant.parse("2025-06-01T00:00:00Z");
+        List<SensorData> rows = new ArrayList<>(rowsPerType * SOIL_TYPES.length);
+        long id = 1;
+        for (int i = rowsPerType - 1; i >= 0; i--) {
+            Instant timestamp = start.plusSeconds(i * INTERVAL_SECONDS);
+            for (String[] type : SOIL_TYPES) {
+                rows.add(SensorData.builder()
+                        .dataId(id++)
+                        .sensorId("sensor-7in1-001")
+                        .measurementType(type[0])
+                        .value(10 + random.nextDouble() * 20)
+                        .unit(type[1])
+                        .timestamp(timestamp)
+                        .receivedAt(timestamp.plusMillis(150))
+                        .location("44.7866,20.4489")
+                        .build());
+            }
+        }
+        return rows;
+    }
+
+    static MeasurementType measurementType(String typeId) {
+        for (int i = 0; i < SOIL_TYPES.length; i++) {
+            if (SOIL_TYPES[i][0].equals(typeId)) {
+                return MeasurementType.builder()
+                        .typeId(typeId)
+                        .displayName(SensorDataService.convertTypeIdToDisplayName(typeId))
+                        .unit(SOIL_TYPES[i][1])
+                        .unitLabel(SOIL_TYPES[i][2])
+                        .dataType("NUMERIC")
+                        .orderNumber(i + 1)
+                        .build();
+            }
+        }
+        throw new IllegalArgumentException("Unknown type " + typeId);
+    }
+}
@@ -0,0 +1,60 @@
+package com.iot.buslivinglab.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iot.buslivinglab.dto.request.SensorObservationRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU deo ingest-a: parsiranje payload-a, naziv tipa merenja i raw_data JSON po merenju.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class IngestParsingBenchmark {
+
+    /**
+     * Broj merenja u jednom payload-u (1 tip, jedan 7-in-1 senzor, batch od 4 očitavanja)
+     */
+    @Param({"1", "7", "28"})
+    public int members;
+
+    private ObjectMapper objectMapper;
+    private String payload;
+    private SensorObservationRequest request;
+
+    @Setup
+    public void setup() throws Exception {
+        objectMapper = BenchmarkData.objectMapper();
+        payload = BenchmarkData.observationJson(members);
+        request = objectMapper.readValue(payload, SensorObservationRequest.class);
+    }
+
+    @Benchmark
+    public SensorObservationRequest deserializeRequest() throws Exception {
+        return objectMapper.readValue(payload, SensorObservationRequest.class);
+    }
+
+    @Benchmark
+    public int convertTypeIdToDisplayName() {
+        int length = 0;
+        for (SensorObservationRequest.Observation observation : request.getHasMember()) {
+            length += SensorDataService.convertTypeIdToDisplayName(
+                    observation.getObservedProperty().getId()).length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public int serializeRawData() throws Exception {
+        int length = 0;
+        for (SensorObservationRequest.Observation observation : request.getHasMember()) {
+            length += objectMapper.writeValueAsString(observation).length();
+        }
+        return length;
+    }
+}
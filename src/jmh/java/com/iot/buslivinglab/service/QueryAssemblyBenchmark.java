@@ -0,0 +1,101 @@
+package com.iot.buslivinglab.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iot.buslivinglab.dto.response.SensorDataResponse;
+import com.iot.buslivinglab.entity.Sensor;
+import com.iot.buslivinglab.entity.SensorData;
+import com.iot.buslivinglab.observability.SensorMetrics;
+import com.iot.buslivinglab.repository.MeasurementTypeRepository;
+import com.iot.buslivinglab.repository.SensorMeasurementTypeRepository;
+import com.iot.buslivinglab.repository.SensorRepository;
+import com.iot.buslivinglab.unit.UnitMappingSnapshot;
+import com.iot.buslivinglab.unit.UnitTargets;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * CPU deo upita: SensorQueryService.getSensorDataByDateRange (grupisanje po tipu, sortiranje, ValueData,
+ * metrike) nad stub repository-jima koji vraćaju unapred napravljene redove, i serijalizacija odgovora.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class QueryAssemblyBenchmark {
+
+    private static final String SENSOR_ID = "sensor-7in1-001";
+    private static final String FROM = "2025-06-01T00:00:00Z";
+    private static final String TO = "2025-07-02T00:00:00Z";
+
+    /**
+     * Merenja po tipu: 1 dan, 7 dana (default upit) i 30 dana na 5 minuta
+     */
+    @Param({"288", "2016", "8640"})
+    public int rowsPerType;
+
+    private ObjectMapper objectMapper;
+    private SensorQueryService queryService;
+    private SensorDataResponse response;
+
+    @Setup
+    public void setup() {
+        objectMapper = BenchmarkData.objectMapper();
+        List<SensorData> rows = BenchmarkData.sensorRows(rowsPerType);
+
+        // stubOnly: mock ne pamti pozive, pa memorija ne raste tokom merenja
+        SensorDataStore sensorDataStore = stub(SensorDataStore.class);
+        when(sensorDataStore.findBySensorIdAndTimestampBetweenOrderByTimestampDesc(eq(SENSOR_ID), any(), any()))
+                .thenReturn(rows);
+
+        MeasurementTypeRepository measurementTypeRepository = stub(MeasurementTypeRepository.class);
+        for (String[] type : BenchmarkData.SOIL_TYPES) {
+            when(measurementTypeRepository.findById(type[0]))
+                    .thenReturn(Optional.of(BenchmarkData.measurementType(type[0])));
+        }
+
+        SensorRepository sensorRepository = stub(SensorRepository.class);
+        when(sensorRepository.findById(SENSOR_ID)).thenReturn(Optional.of(Sensor.builder()
+                .sensorId(SENSOR_ID)
+                .sensorName("7-in-1 Soil Sensor")
+                .build()));
+
+        // Bez deadband serija (prazne politike), jedinice iz praznog snimka unit_mappings
+        UnitMappingService unitMappingService = stub(UnitMappingService.class);
+        when(unitMappingService.current()).thenReturn(new UnitMappingSnapshot(0, Map.of(), Instant.EPOCH));
+
+        queryService = new SensorQueryService(sensorDataStore, measurementTypeRepository, sensorRepository,
+                stub(SensorMeasurementTypeRepository.class), stub(DeadbandService.class),
+                new SensorMetrics(new SimpleMeterRegistry()), unitMappingService);
+        response = assemble();
+    }
+
+    @Benchmark
+    public SensorDataResponse assembleResponse() {
+        return assemble();
+    }
+
+    @Benchmark
+    public byte[] serializeResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    private SensorDataResponse assemble() {
+        return queryService.getSensorDataByDateRange(SENSOR_ID, FROM, TO, UnitTargets.NONE);
+    }
+
+    private static <T> T stub(Class<T> type) {
+        return mock(type, withSettings().stubOnly());
+    }
+}
@@ -0,0 +1,133 @@
+package com.iot.buslivinglab.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limit istovremenih zahteva koji se prilagođava izmerenoj latenciji (gradient pristup).
+ *
+ * Jednom po prozoru prosečna latencija prozora se poredi sa dugoročnim prosekom: kada latencija raste
+ * (baza se zagušuje), limit se smanjuje proporcionalno; kada je stabilna, limit raste za sqrt(limit).
+ * Ulaz/izlaz je jedan CAS na brojaču, uzorci idu u LongAdder, a ponovni proračun radi samo thread
+ * koji osvoji CAS na vremenu sledećeg prozora.
+ */
+public final class AdaptiveConcurrencyLimit {
+
+    /**
+     * Koliko brzo dugoročni prosek prati novu latenciju (oko 20 prozora)
+     */
+    private static final double LONG_TERM_WEIGHT = 0.05;
+    private static final double SMOOTHING = 0.2;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final int MIN_SAMPLES = 10;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final long windowNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final LongAdder samples = new LongAdder();
+    private final LongAdder sampleNanos = new LongAdder();
+    private final AtomicLong nextUpdate;
+
+    private volatile int limit;
+    private volatile double estimatedLimit;
+    private volatile double longTermLatencyNanos;
+    private volatile long lastLatencyNanos;
+
+    /**
+     * @param tolerance koliko puta latencija sme da bude veća od dugoročnog proseka pre nego što limit počne da pada
+     */
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance,
+                                    long windowNanos, long nowNanos) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Concurrency limit needs 1 <= min <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = Math.max(1.0, tolerance);
+        this.windowNanos = windowNanos;
+        this.estimatedLimit = Math.clamp(initialLimit, minLimit, maxLimit);
+        this.limit = (int) estimatedLimit;
+        this.nextUpdate = new AtomicLong(nowNanos + windowNanos);
+    }
+
+    /**
+     * @return true ako je zahtev primljen; pozivalac mora da pozove release()
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                peakInFlight.accumulateAndGet(current + 1, Math::max);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param latencyNanos trajanje zahteva; negativna vrednost znači da se zahtev ne računa kao uzorak
+     *                     (npr. odbijen kasnije u lancu, pa latencija ne govori ništa o bazi)
+     */
+    public void release(long latencyNanos, long nowNanos) {
+        inFlight.decrementAndGet();
+        if (latencyNanos >= 0) {
+            samples.increment();
+            sampleNanos.add(latencyNanos);
+        }
+
+        long update = nextUpdate.get();
+        if (nowNanos - update >= 0 && nextUpdate.compareAndSet(update, nowNanos + windowNanos)) {
+            recalculate();
+        }
+    }
+
+    private void recalculate() {
+        long count = samples.sumThenReset();
+        long total = sampleNanos.sumThenReset();
+        int peak = peakInFlight.getAndSet(inFlight.get());
+        if (count < MIN_SAMPLES) {
+            return;
+        }
+
+        double latency = (double) total / count;
+        lastLatencyNanos = (long) latency;
+        double longTerm = longTermLatencyNanos == 0
+                ? latency
+                : longTermLatencyNanos * (1 - LONG_TERM_WEIGHT) + latency * LONG_TERM_WEIGHT;
+        longTermLatencyNanos = longTerm;
+
+        double current = estimatedLimit;
+        double gradient = Math.clamp(tolerance * longTerm / latency, MIN_GRADIENT, 1.0);
+        double target = current * gradient + Math.sqrt(current);
+        if (peak < current / 2) {
+            // Limit nije ni približno iskorišćen - nema osnova za rast
+            target = Math.min(target, current);
+        }
+
+        double next = Math.clamp(current * (1 - SMOOTHING) + target * SMOOTHING, minLimit, maxLimit);
+        estimatedLimit = next;
+        limit = (int) next;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Prosečna latencija poslednjeg izračunatog prozora (0 dok nema dovoljno uzoraka)
+     */
+    public long getLatencyNanos() {
+        return lastLatencyNanos;
+    }
+}
@@ -0,0 +1,61 @@
+package com.iot.buslivinglab.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket (GCRA varijanta): umesto broja tokena čuva se samo "teorijsko vreme dolaska"
+ * sledećeg zahteva, pa je provera jedan CAS na AtomicLong-u, bez zaključavanja i bez pozadinskog punjenja.
+ */
+public final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * @param ratePerSecond prosečan broj dozvoljenih zahteva u sekundi
+     * @param burst         koliko zahteva može da prođe odjednom kada je bucket pun
+     */
+    public TokenBucket(double ratePerSecond, int burst, long nowNanos) {
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Token bucket needs rate > 0 and burst >= 1");
+        }
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / ratePerSecond));
+        this.toleranceNanos = intervalNanos * burst;
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Uzima jedan token.
+     *
+     * @return 0 ako je token uzet, inače koliko nanosekundi treba sačekati do sledećeg tokena
+     */
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            long next = (arrival - nowNanos > 0 ? arrival : nowNanos) + intervalNanos;
+            long ahead = next - nowNanos;
+            if (ahead > toleranceNanos) {
+                return ahead - toleranceNanos;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Teorijsko vreme dolaska sledećeg zahteva; raste sa svakim uzetim tokenom, pa je najmanje kod bucket-a
+     * koji najduže nije korišćen
+     */
+    public long getTheoreticalArrival() {
+        return theoreticalArrival.get();
+    }
+
+    /**
+     * Bucket je pun (nije korišćen) bar zadato vreme; takvi se mogu izbaciti iz mape
+     */
+    public boolean isIdleSince(long nowNanos, long idleNanos) {
+        return nowNanos - theoreticalArrival.get() >= idleNanos;
+    }
+}
@@ -0,0 +1,79 @@
+package com.iot.buslivinglab.alert;
+
+import java.time.Instant;
+
+/**
+ * Alarm jedne serije od otvaranja do zatvaranja. Polja menja ThresholdAlertEngine, a upisuje ih writer;
+ * oba pristupaju pod zaključavanjem ovog objekta.
+ */
+public final class ActiveAlert {
+
+    private final String sensorId;
+    private final String measurementType;
+    private final AlertKind kind;
+    private final Instant openedAt;
+
+    Long id;
+    double threshold;
+    double peakValue;
+    double lastValue;
+    Instant lastObservedAt;
+    long sampleCount;
+    Instant closedAt;
+    boolean queued;
+
+    public ActiveAlert(Long id, String sensorId, String measurementType, AlertKind kind, double threshold,
+                       Instant openedAt, double peakValue, double lastValue, Instant lastObservedAt, long sampleCount) {
+        this.id = id;
+        this.sensorId = sensorId;
+        this.measurementType = measurementType;
+        this.kind = kind;
+        this.threshold = threshold;
+        this.openedAt = openedAt;
+        this.peakValue = peakValue;
+        this.lastValue = lastValue;
+        this.lastObservedAt = lastObservedAt;
+        this.sampleCount = sampleCount;
+    }
+
+    /**
+     * Nepromenljiv snimak za upis u bazu
+     */
+    public record Snapshot(Long id, String sensorId, String measurementType, AlertKind kind, double threshold,
+                           Instant openedAt, double peakValue, double lastValue, Instant lastObservedAt,
+                           long sampleCount, Instant closedAt) {
+    }
+
+    /**
+     * Uzima stanje za upis; izmene posle ovog poziva ponovo stavljaju alarm u red
+     */
+    public synchronized Snapshot takeSnapshot() {
+        queued = false;
+        return new Snapshot(id, sensorId, measurementType, kind, threshold, openedAt, peakValue, lastValue,
+                lastObservedAt, sampleCount, closedAt);
+    }
+
+    public synchronized void assignId(Long id) {
+        this.id = id;
+    }
+
+    public synchronized boolean hasId() {
+        return id != null;
+    }
+
+    public String getSensorId() {
+        return sensorId;
+    }
+
+    public String getMeasurementType() {
+        return measurementType;
+    }
+
+    public AlertKind getKind() {
+        return kind;
+    }
+
+    public synchronized boolean isClosed() {
+        return closedAt != null;
+    }
+}
@@ -0,0 +1,18 @@
+package com.iot.buslivinglab.alert;
+
+public enum AlertKind {
+    /** Vrednost ispod donjeg praga */
+    BELOW_MIN("below_min"),
+    /** Vrednost iznad gornjeg praga */
+    ABOVE_MAX("above_max");
+
+    private final String tag;
+
+    AlertKind(String tag) {
+        this.tag = tag;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+}
@@ -0,0 +1,194 @@
+package com.iot.buslivinglab.alert;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Proverava svaku sačuvanu vrednost prema pragovima iz memorije. Prekoračenje postaje alarm tek kada traje
+ * minDurationMillis (po vremenu opservacija), a alarm se zatvara tek posle povratka za histerezis unutar praga.
+ * Serija ima najviše jedan otvoren alarm, pa ponovljena prekoračenja samo ažuriraju postojeći.
+ *
+ * Provera ne alocira: pragovi i stanja su u mapama po senzoru pa po tipu (ključ su postojeći String-ovi),
+ * a objekti nastaju samo na prelazima (prvo prekoračenje serije, otvaranje i zatvaranje alarma).
+ * Alarmi koje treba upisati čekaju u redu koji prazni writer.
+ */
+public final class ThresholdAlertEngine {
+
+    private enum Phase { NORMAL, PENDING, ACTIVE }
+
+    private static final class SeriesState {
+        Phase phase = Phase.NORMAL;
+        AlertKind pendingKind;
+        Instant breachStartedAt;
+        double pendingPeak;
+        long pendingSamples;
+        ActiveAlert alert;
+    }
+
+    private final double hysteresis;
+    private final long minDurationMillis;
+
+    private volatile Map<String, Thresholds> typeThresholds = Map.of();
+    private volatile Map<String, Map<String, Thresholds>> sensorThresholds = Map.of();
+    private final Map<String, Map<String, SeriesState>> states = new ConcurrentHashMap<>();
+    private final Queue<ActiveAlert> changed = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger activeAlerts = new AtomicInteger();
+
+    public ThresholdAlertEngine(double hysteresis, long minDurationMillis) {
+        this.hysteresis = hysteresis;
+        this.minDurationMillis = minDurationMillis;
+    }
+
+    /**
+     * Zamenjuje pragove jednim upisom reference; provera u toku vidi stare ili nove, nikad mešavinu
+     */
+    public void setThresholds(Map<String, Thresholds> byType, Map<String, Map<String, Thresholds>> bySensor) {
+        this.typeThresholds = byType;
+        this.sensorThresholds = bySensor;
+    }
+
+    /**
+     * Vraća otvoren alarm iz baze (posle restarta), da ga nova prekoračenja ne bi otvorila ponovo
+     */
+    public void restore(ActiveAlert alert) {
+        SeriesState state = state(alert.getSensorId(), alert.getMeasurementType());
+        synchronized (state) {
+            if (state.alert == null) {
+                state.phase = Phase.ACTIVE;
+                state.alert = alert;
+                activeAlerts.incrementAndGet();
+            }
+        }
+    }
+
+    public void evaluate(String sensorId, String measurementType, double value, Instant timestamp) {
+        Thresholds thresholds = thresholds(sensorId, measurementType);
+        SeriesState state = existingState(sensorId, measurementType);
+        if (state == null) {
+            if (thresholds == null || thresholds.breach(value) == null) {
+                return;
+            }
+            state = state(sensorId, measurementType);
+        }
+        synchronized (state) {
+            evaluate(state, sensorId, measurementType, thresholds, value, timestamp);
+        }
+    }
+
+    private void evaluate(SeriesState state, String sensorId, String measurementType, Thresholds thresholds,
+                          double value, Instant timestamp) {
+        AlertKind breach = thresholds != null ? thresholds.breach(value) : null;
+
+        if (state.phase == Phase.ACTIVE) {
+            ActiveAlert alert = state.alert;
+            if (thresholds != null && alert.getKind() != oppositeOf(breach)
+                    && !thresholds.cleared(alert.getKind(), value, hysteresis)) {
+                synchronized (alert) {
+                    alert.threshold = thresholds.threshold(alert.getKind());
+                    alert.peakValue = worse(alert.getKind(), alert.peakValue, value);
+                    alert.lastValue = value;
+                    alert.lastObservedAt = timestamp;
+                    alert.sampleCount++;
+                    enqueue(alert);
+                }
+                return;
+            }
+            synchronized (alert) {
+                alert.lastValue = value;
+                alert.lastObservedAt = timestamp;
+                alert.closedAt = timestamp;
+                enqueue(alert);
+            }
+            state.alert = null;
+            state.phase = Phase.NORMAL;
+            activeAlerts.decrementAndGet();
+        }
+
+        if (breach == null) {
+            state.phase = Phase.NORMAL;
+            return;
+        }
+        if (state.phase == Phase.NORMAL || state.pendingKind != breach) {
+            state.phase = Phase.PENDING;
+            state.pendingKind = breach;
+            state.breachStartedAt = timestamp;
+            state.pendingPeak = value;
+            state.pendingSamples = 0;
+        }
+        state.pendingPeak = worse(breach, state.pendingPeak, value);
+        state.pendingSamples++;
+
+        if (timestamp.toEpochMilli() - state.breachStartedAt.toEpochMilli() >= minDurationMillis) {
+            ActiveAlert alert = new ActiveAlert(null, sensorId, measurementType, breach, thresholds.threshold(breach),
+                    state.breachStartedAt, state.pendingPeak, value, timestamp, state.pendingSamples);
+            state.phase = Phase.ACTIVE;
+            state.alert = alert;
+            activeAlerts.incrementAndGet();
+            synchronized (alert) {
+                enqueue(alert);
+            }
+        }
+    }
+
+    /**
+     * @return sledeći alarm za upis ili null
+     */
+    public ActiveAlert pollChanged() {
+        return changed.poll();
+    }
+
+    /**
+     * Neuspeo upis vraća alarm u red
+     */
+    public void requeue(ActiveAlert alert) {
+        synchronized (alert) {
+            enqueue(alert);
+        }
+    }
+
+    public int getActiveAlerts() {
+        return activeAlerts.get();
+    }
+
+    public int getQueued() {
+        return changed.size();
+    }
+
+    private void enqueue(ActiveAlert alert) {
+        if (!alert.queued) {
+            alert.queued = true;
+            changed.add(alert);
+        }
+    }
+
+    private Thresholds thresholds(String sensorId, String measurementType) {
+        Map<String, Thresholds> bySensor = sensorThresholds.get(sensorId);
+        Thresholds thresholds = bySensor != null ? bySensor.get(measurementType) : null;
+        return thresholds != null ? thresholds : typeThresholds.get(measurementType);
+    }
+
+    private SeriesState existingState(String sensorId, String measurementType) {
+        Map<String, SeriesState> bySensor = states.get(sensorId);
+        return bySensor != null ? bySensor.get(measurementType) : null;
+    }
+
+    private SeriesState state(String sensorId, String measurementType) {
+        return states.computeIfAbsent(sensorId, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(measurementType, key -> new SeriesState());
+    }
+
+    private static AlertKind oppositeOf(AlertKind kind) {
+        if (kind == null) {
+            return null;
+        }
+        return kind == AlertKind.ABOVE_MAX ? AlertKind.BELOW_MIN : AlertKind.ABOVE_MAX;
+    }
+
+    private static double worse(AlertKind kind, double current, double value) {
+        return kind == AlertKind.ABOVE_MAX ? Math.max(current, value) : Math.min(current, value);
+    }
+}
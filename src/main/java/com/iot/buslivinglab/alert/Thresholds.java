@@ -0,0 +1,52 @@
+package com.iot.buslivinglab.alert;
+
+/**
+ * Pragovi jedne serije; NaN znači da prag nije zadat
+ */
+public record Thresholds(double min, double max) {
+
+    /**
+     * Prag senzora (sensor_measurement_types) ima prednost nad opsegom tipa (measurement_types), posebno za svaku stranu
+     *
+     * @return null ako nijedan prag nije zadat
+     */
+    public static Thresholds of(Double sensorMin, Double sensorMax, Double typeMin, Double typeMax) {
+        Double min = sensorMin != null ? sensorMin : typeMin;
+        Double max = sensorMax != null ? sensorMax : typeMax;
+        if (min == null && max == null) {
+            return null;
+        }
+        return new Thresholds(min != null ? min : Double.NaN, max != null ? max : Double.NaN);
+    }
+
+    /**
+     * @return vrsta prekoračenja ili null ako je vrednost unutar pragova
+     */
+    public AlertKind breach(double value) {
+        if (value > max) {
+            return AlertKind.ABOVE_MAX;
+        }
+        if (value < min) {
+            return AlertKind.BELOW_MIN;
+        }
+        return null;
+    }
+
+    public double threshold(AlertKind kind) {
+        return kind == AlertKind.ABOVE_MAX ? max : min;
+    }
+
+    /**
+     * Alarm se zatvara tek kada se vrednost vrati za hysteresis (deo širine opsega, ili samog praga kada je
+     * zadata samo jedna strana) unutar praga, da vrednost koja osciluje oko praga ne bi otvarala i zatvarala alarme.
+     */
+    public boolean cleared(AlertKind kind, double value, double hysteresis) {
+        double threshold = threshold(kind);
+        if (Double.isNaN(threshold)) {
+            return true;
+        }
+        double band = Double.isNaN(min) || Double.isNaN(max) ? Math.abs(threshold) : max - min;
+        double margin = band * hysteresis;
+        return kind == AlertKind.ABOVE_MAX ? value <= threshold - margin : value >= threshold + margin;
+    }
+}
@@ -0,0 +1,114 @@
+package com.iot.buslivinglab.bulkhead;
+
+import com.iot.buslivinglab.exception.AdmissionRejectedException;
+import org.slf4j.MDC;
+import org.springframework.http.HttpStatus;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executor jednog workload-a: fiksan broj thread-ova (jednak veličini njegovog connection pool-a),
+ * ograničen red i timeout poziva. Pun red ili istekao timeout znače 503, umesto da zahtev
+ * čeka na konekciju koju drži drugi workload.
+ */
+public class Bulkhead {
+
+    private final Workload workload;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    public Bulkhead(Workload workload, int threads, int queueSize, long timeoutMs) {
+        this.workload = workload;
+        this.timeoutMs = timeoutMs;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+                Thread.ofPlatform().name("bulkhead-" + workload.getTag() + "-", 1).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Izvršava zadatak na thread-u ovog workload-a i čeka rezultat. MDC, workload i read-your-writes
+     * zahtev se prenose na izvršni thread, pa logovi i izbor connection pool-a rade kao da je poziv direktan.
+     *
+     * @throws AdmissionRejectedException (503) ako je red pun ili je poziv trajao duže od timeout-a
+     */
+    public <T> T call(Callable<T> task) throws Exception {
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        boolean primaryRequired = WorkloadContext.isPrimaryRequired();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                Workload previous = WorkloadContext.set(workload);
+                WorkloadContext.setPrimaryRequired(primaryRequired);
+                if (mdc != null) {
+                    MDC.setContextMap(mdc);
+                }
+                try {
+                    return task.call();
+                } finally {
+                    MDC.clear();
+                    WorkloadContext.setPrimaryRequired(false);
+                    WorkloadContext.restore(previous);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new AdmissionRejectedException(HttpStatus.SERVICE_UNAVAILABLE, 1,
+                    "Server busy (" + workload.getTag() + " bulkhead full)");
+        }
+
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timedOut.increment();
+            throw new AdmissionRejectedException(HttpStatus.SERVICE_UNAVAILABLE, Math.max(1, timeoutMs / 1000),
+                    "Request timed out after " + timeoutMs + " ms (" + workload.getTag() + " bulkhead)");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw (Error) e.getCause();
+        }
+    }
+
+    public Workload getWorkload() {
+        return workload;
+    }
+
+    public int getActive() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueued() {
+        return executor.getQueue().size();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getTimedOut() {
+        return timedOut.sum();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,24 @@
+package com.iot.buslivinglab.bulkhead;
+
+/**
+ * Vrste opterećenja koje dobijaju odvojen connection pool i executor (bulkhead),
+ * tako da teški istorijski upiti ne mogu da zauzmu konekcije ingest-a.
+ */
+public enum Workload {
+    /** Upis opservacija (POST /observations i WAL replay) */
+    INGEST("ingest"),
+    /** Dashboard upiti: latest, kratki periodi, mali count */
+    INTERACTIVE("interactive"),
+    /** Dugi periodi i veliki count (istorija, izvoz) */
+    HEAVY("heavy");
+
+    private final String tag;
+
+    Workload(String tag) {
+        this.tag = tag;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+}
@@ -0,0 +1,54 @@
+package com.iot.buslivinglab.bulkhead;
+
+/**
+ * Workload tekućeg thread-a i da li čitanja moraju na primary; po njima WorkloadRoutingDataSource
+ * bira connection pool. Mora biti postavljen pre prvog upita transakcije.
+ */
+public final class WorkloadContext {
+
+    private static final ThreadLocal<Workload> CURRENT = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private WorkloadContext() {
+    }
+
+    /**
+     * @return workload tekućeg thread-a; INTERACTIVE ako nije postavljen (startup, @Scheduled, admin)
+     */
+    public static Workload current() {
+        Workload workload = CURRENT.get();
+        return workload != null ? workload : Workload.INTERACTIVE;
+    }
+
+    /**
+     * Postavlja workload i vraća prethodni, koji treba vratiti sa restore()
+     */
+    public static Workload set(Workload workload) {
+        Workload previous = CURRENT.get();
+        CURRENT.set(workload);
+        return previous;
+    }
+
+    public static void restore(Workload previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Read-your-writes: read-only transakcije ovog thread-a ne idu na replike
+     */
+    public static boolean isPrimaryRequired() {
+        return Boolean.TRUE.equals(PRIMARY_REQUIRED.get());
+    }
+
+    public static void setPrimaryRequired(boolean required) {
+        if (required) {
+            PRIMARY_REQUIRED.set(Boolean.TRUE);
+        } else {
+            PRIMARY_REQUIRED.remove();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.iot.buslivinglab.bulkhead;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Connection pool-ovi po workload-u (svi ka istoj bazi). Namerno nisu DataSource bean-ovi,
+ * da Spring Boot ne bi pravio JPA ili health za svaki; aplikacija vidi samo WorkloadRoutingDataSource.
+ */
+public class WorkloadDataSources implements AutoCloseable {
+
+    private final Map<Workload, HikariDataSource> pools;
+
+    public WorkloadDataSources(Map<Workload, HikariDataSource> pools) {
+        this.pools = Collections.unmodifiableMap(new EnumMap<>(pools));
+    }
+
+    public Map<Workload, HikariDataSource> getPools() {
+        return pools;
+    }
+
+    @Override
+    public void close() {
+        // Bez bulkhead-ova svi workload-i dele isti pool
+        pools.values().stream().distinct().forEach(HikariDataSource::close);
+    }
+}
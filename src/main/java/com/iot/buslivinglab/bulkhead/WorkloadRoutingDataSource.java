@@ -0,0 +1,40 @@
+package com.iot.buslivinglab.bulkhead;
+
+import com.iot.buslivinglab.replica.Replica;
+import com.iot.buslivinglab.replica.ReplicaSet;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Jedan DataSource za JPA koji svaku konekciju uzima iz pool-a workload-a tekućeg thread-a.
+ * Read-only transakcije upita idu na read repliku kada postoji ažurna i kada zahtev ne traži primary.
+ * Koristi se iza LazyConnectionDataSourceProxy-ja, da bi readOnly flag transakcije bio poznat pri izboru.
+ */
+public class WorkloadRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final ReplicaSet replicas;
+
+    /**
+     * @param replicas read replike ili null ako nisu podešene
+     */
+    public WorkloadRoutingDataSource(ReplicaSet replicas) {
+        this.replicas = replicas;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Workload workload = WorkloadContext.current();
+        if (replicas != null && workload != Workload.INGEST
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (WorkloadContext.isPrimaryRequired()) {
+                replicas.recordPrimaryRequired();
+            } else {
+                Replica replica = replicas.select();
+                if (replica != null) {
+                    return replica.getName();
+                }
+            }
+        }
+        return workload;
+    }
+}
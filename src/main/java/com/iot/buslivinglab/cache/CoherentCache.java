@@ -0,0 +1,19 @@
+package com.iot.buslivinglab.cache;
+
+/**
+ * Keš u memoriji instance koji mora da se isprazni kada druga instanca promeni podatke iz kojih je napravljen.
+ * Bean koji implementira ovaj interfejs CacheCoherenceService sam pronalazi.
+ */
+public interface CoherentCache {
+
+    /**
+     * Ime keša u cache_generations; više bean-ova može deliti isto ime
+     */
+    String getCacheName();
+
+    /**
+     * Poziva se sa scheduler thread-a kada je generacija keša u bazi veća od poslednje viđene,
+     * ili kada instanca predugo nije mogla da pročita generacije
+     */
+    void invalidate();
+}
@@ -0,0 +1,79 @@
+package com.iot.buslivinglab.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Podešavanja admission control-a: token bucket po senzoru i po klijentu i adaptivni limit
+ * istovremenih zahteva, posebno za ingest (POST /observations) i za upite (GET /api/sensor-data/**).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "admission")
+public class AdmissionControlProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Najveći broj bucket-a po grupi (npr. ingest po senzoru); preko limita se izbacuju najduže nekorišćeni
+     */
+    private int maxTrackedKeys = 100_000;
+
+    /**
+     * Bucket koji nije korišćen ovoliko dugo se izbacuje iz memorije
+     */
+    private long idleEvictionSeconds = 600;
+
+    /**
+     * Koliko često se adaptivni limit ponovo računa
+     */
+    private long limitWindowMs = 1000;
+
+    private Budget ingest = new Budget(1.0, 20, 200.0, 400, 10, 2, 20, 2.0);
+
+    private Budget query = new Budget(10.0, 40, 50.0, 100, 10, 2, 20, 2.0);
+
+    @Data
+    public static class Budget {
+
+        /**
+         * Zahteva u sekundi po senzoru i koliko ih može proći odjednom
+         */
+        private double sensorRate;
+        private int sensorBurst;
+
+        /**
+         * Zahteva u sekundi po klijentu i koliko ih može proći odjednom
+         */
+        private double clientRate;
+        private int clientBurst;
+
+        /**
+         * Početni, najmanji i najveći broj istovremenih zahteva
+         */
+        private int initialLimit;
+        private int minLimit;
+        private int maxLimit;
+
+        /**
+         * Koliko puta latencija sme da poraste u odnosu na dugoročni prosek pre nego što limit počne da pada
+         */
+        private double latencyTolerance;
+
+        public Budget() {
+        }
+
+        public Budget(double sensorRate, int sensorBurst, double clientRate, int clientBurst,
+                      int initialLimit, int minLimit, int maxLimit, double latencyTolerance) {
+            this.sensorRate = sensorRate;
+            this.sensorBurst = sensorBurst;
+            this.clientRate = clientRate;
+            this.clientBurst = clientBurst;
+            this.initialLimit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.latencyTolerance = latencyTolerance;
+        }
+    }
+}
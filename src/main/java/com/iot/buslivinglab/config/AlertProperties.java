@@ -0,0 +1,32 @@
+package com.iot.buslivinglab.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Alarmi na pragovima iz sensor_measurement_types (min/max_threshold) i measurement_types (min/max_value).
+ * Pragovi se drže u memoriji i osvežavaju periodično; alarmi se upisuju u sensor_alerts van ingest zahteva.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "alerts")
+public class AlertProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Prekoračenje mora da traje ovoliko (po vremenu opservacija) pre nego što postane alarm; 0 = odmah
+     */
+    private long minDurationMs = 300_000;
+
+    /**
+     * Alarm se zatvara kada se vrednost vrati ovoliki deo širine opsega (ili praga, kada je zadata jedna strana)
+     * unutar praga
+     */
+    private double hysteresis = 0.02;
+
+    private long thresholdRefreshIntervalMs = 60_000;
+
+    private long flushIntervalMs = 1000;
+}
@@ -0,0 +1,76 @@
+package com.iot.buslivinglab.config;
+
+import com.iot.buslivinglab.bulkhead.Workload;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Podešavanja bulkhead-ova: odvojen connection pool i executor za ingest, interaktivne i teške upite.
+ * Konekcija ka bazi (url, korisnik, ostala spring.datasource.hikari podešavanja) je zajednička.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "bulkhead")
+public class BulkheadProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Upit za više od ovoliko dana (days ili from/to) ide u heavy pool
+     */
+    private int heavyDays = 31;
+
+    /**
+     * Upit sa count većim od ovoga ide u heavy pool
+     */
+    private int heavyCount = 500;
+
+    private Pool ingest = new Pool(8, 200, 10_000, 5_000);
+
+    private Pool interactive = new Pool(8, 100, 5_000, 3_000);
+
+    private Pool heavy = new Pool(4, 10, 60_000, 30_000);
+
+    public Pool pool(Workload workload) {
+        return switch (workload) {
+            case INGEST -> ingest;
+            case INTERACTIVE -> interactive;
+            case HEAVY -> heavy;
+        };
+    }
+
+    @Data
+    public static class Pool {
+
+        /**
+         * Broj konekcija u pool-u i thread-ova u executor-u
+         */
+        private int poolSize;
+
+        /**
+         * Koliko zahteva može da čeka na slobodan thread pre nego što novi dobiju 503
+         */
+        private int queueSize;
+
+        /**
+         * Najduže trajanje zahteva (čekanje u redu + izvršavanje)
+         */
+        private long timeoutMs;
+
+        /**
+         * Hikari connection-timeout za ovaj pool
+         */
+        private long connectionTimeoutMs;
+
+        public Pool() {
+        }
+
+        public Pool(int poolSize, int queueSize, long timeoutMs, long connectionTimeoutMs) {
+            this.poolSize = poolSize;
+            this.queueSize = queueSize;
+            this.timeoutMs = timeoutMs;
+            this.connectionTimeoutMs = connectionTimeoutMs;
+        }
+    }
+}
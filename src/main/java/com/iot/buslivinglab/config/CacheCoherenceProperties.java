@@ -0,0 +1,25 @@
+package com.iot.buslivinglab.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Usklađivanje keševa između instanci preko tabele cache_generations, bez brokera poruka.
+ * Instanca vidi tuđu izmenu najkasnije posle poll-interval-ms (plus trajanje jednog upita).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "cache-coherence")
+public class CacheCoherenceProperties {
+
+    private boolean enabled = true;
+
+    private long pollIntervalMs = 2000;
+
+    /**
+     * Ako generacije ne mogu da se pročitaju ovoliko dugo, svi keševi se prazne, jer instanca više ne zna
+     * šta su druge promenile; tako zastarelost ostaje ograničena i kada baza nije dostupna
+     */
+    private long maxStalenessMs = 30_000;
+}
@@ -0,0 +1,27 @@
+package com.iot.buslivinglab.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Podešavanja limitera istovremenih zahteva koji koriste bazu.
+ * Namenjeno za rad sa virtual threads, gde broj niti više ne ograničava broj zahteva ka bazi.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "execution.db-limiter")
+public class DbLimiterProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Maksimalan broj istovremenih zahteva ka bazi; 0 znači veličina Hikari pool-a
+     */
+    private int maxConcurrent = 0;
+
+    /**
+     * Koliko dugo zahtev čeka na slobodno mesto pre nego što dobije 503
+     */
+    private long acquireTimeoutMs = 2000;
+}
@@ -0,0 +1,24 @@
+package com.iot.buslivinglab.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Deadband kompresija na ingest-u za serije sa deadband_absolute ili deadband_relative u sensor_measurement_types.
+ * Politike se drže u memoriji i osvežavaju periodično.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "deadband")
+public class DeadbandProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Najduže vreme bez upisa za seriju bez deadband_max_silence_ms; posle toga se vrednost upisuje i bez promene
+     */
+    private long defaultMaxSilenceMs = 3_600_000;
+
+    private long policyRefreshIntervalMs = 60_000;
+}
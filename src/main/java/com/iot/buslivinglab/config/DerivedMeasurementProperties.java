@@ -0,0 +1,40 @@
+package com.iot.buslivinglab.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Izvedeni tipovi merenja iz derived_measurement_types. Definicije se drže u memoriji i osvežavaju periodično,
+ * a vrednosti se računaju na ingest-u iz stanja ograničene veličine po seriji.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "derived")
+public class DerivedMeasurementProperties {
+
+    private boolean enabled = true;
+
+    private long definitionRefreshIntervalMs = 60_000;
+
+    /**
+     * Najveći window_size za moving_average (memorija po seriji)
+     */
+    private int maxWindowSize = 1000;
+
+    /**
+     * Najveća razlika vremena EC vrednosti i temperature za compensated_ec
+     */
+    private long maxTemperatureAgeMs = 900_000;
+
+    /**
+     * Vremenska zona u kojoj daily_sum počinje dan
+     */
+    private String dailySumZone = "UTC";
+
+    /**
+     * Pre svake moving_average i daily_sum vrednosti proverava da li je druga instanca upisala noviju izvedenu
+     * vrednost (jedan upit); isključiti samo kada vrednosti jednog senzora uvek stižu na istu instancu
+     */
+    private boolean checkStoredState = true;
+}
@@ -0,0 +1,17 @@
+package com.iot.buslivinglab.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Uključuje @Async i @Scheduled.
+ * Kada je spring.threads.virtual.enabled=true, Spring Boot automatski prebacuje Tomcat,
+ * applicationTaskExecutor (@Async) i taskScheduler (@Scheduled) na virtual threads.
+ * Bez virtual threads taskScheduler ima spring.task.scheduling.pool.size thread-ova (podrazumevano jedan).
+ */
+@Configuration
+@EnableAsync
+@EnableScheduling
+public class ExecutionConfig {
+}
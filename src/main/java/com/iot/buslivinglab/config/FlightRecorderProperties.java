@@ -0,0 +1,41 @@
+package com.iot.buslivinglab.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Podešavanja stalno uključenog JFR snimanja (Java Flight Recorder).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "jfr")
+public class FlightRecorderProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * JFR podešavanja: "default" (~1% overhead, za stalno snimanje) ili "profile" (više detalja, veći overhead)
+     */
+    private String settings = "default";
+
+    /**
+     * Koliko minuta istorije se čuva na disku
+     */
+    private int maxAgeMinutes = 30;
+
+    /**
+     * Maksimalna veličina snimka na disku
+     */
+    private int maxSizeMb = 250;
+
+    /**
+     * Direktorijum za dump fajlove
+     */
+    private String dumpDirectory = "jfr";
+
+    /**
+     * Koliko dump fajlova se čuva; stariji se brišu
+     */
+    private int maxDumps = 10;
+}
@@ -0,0 +1,25 @@
+package com.iot.buslivinglab.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Podešavanja prepoznavanja ponovljenih opservacija (retry gateway-a). Unique key (sensor_id, measurement_type,
+ * timestamp) i preskakanje duplikata pri INSERT-u važe uvek; Bloom filter nedavnih ključeva omogućava da se ponovljen zahtev
+ * odbaci jednim upitom, bez upisa metapodataka.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "ingest.dedup")
+public class IngestDedupProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Broj ključeva u jednoj generaciji filtera; filter pamti poslednjih expectedKeys do 2 × expectedKeys merenja
+     */
+    private long expectedKeys = 1_000_000;
+
+    private double falsePositiveRate = 0.01;
+}
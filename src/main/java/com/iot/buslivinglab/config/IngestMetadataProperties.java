@@ -0,0 +1,31 @@
+package com.iot.buslivinglab.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Podešavanja keša metapodataka na ingest putanji. Senzor, kontekst, tip merenja i veza senzor-tip se upisuju
+ * samo kada ih instanca ne poznaje (ili su se promenili); last_observed se skuplja u memoriji i upisuje periodično.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "ingest.metadata")
+public class IngestMetadataProperties {
+
+    /**
+     * Posle ovog vremena unos u kešu se ponovo upisuje. Izmene sa drugih instanci stižu preko
+     * CacheCoherenceService-a; TTL samo ograničava štetu ako neka izmena nije objavljena.
+     */
+    private long cacheTtlMs = 3_600_000;
+
+    /**
+     * Najveći broj senzora, tipova i veza u kešu (svaki posebno); preko toga se keš prazni
+     */
+    private int cacheMaxEntries = 100_000;
+
+    /**
+     * Koliko često se nakupljeni last_observed upisuju u sensor_measurement_types
+     */
+    private long flushIntervalMs = 1000;
+}
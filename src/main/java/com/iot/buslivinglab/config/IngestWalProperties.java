@@ -0,0 +1,49 @@
+package com.iot.buslivinglab.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Podešavanja lokalnog write-ahead log-a za ingest. Kada je uključen, POST /observations
+ * potvrđuje opservaciju čim je fsync-ovana u WAL, a upis u bazu radi replay u pozadini.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "ingest.wal")
+public class IngestWalProperties {
+
+    private boolean enabled = false;
+
+    private String directory = "wal";
+
+    /**
+     * Veličina jednog segmenta (memory-mapped fajla)
+     */
+    private int segmentSizeMb = 64;
+
+    /**
+     * Koliko flusher čeka da skupi više zapisa pre fsync-a; 0 = fsync odmah
+     */
+    private long groupCommitMicros = 1000;
+
+    /**
+     * Kada WAL pređe ovu veličinu (baza dugo nedostupna), novi zahtevi dobijaju 503
+     */
+    private long maxSizeMb = 2048;
+
+    /**
+     * Broj opservacija primenjenih u jednoj transakciji
+     */
+    private int replayBatchSize = 100;
+
+    /**
+     * Pauza replay-a kada nema novih zapisa
+     */
+    private long replayIdleMs = 50;
+
+    /**
+     * Pauza replay-a kada baza nije dostupna
+     */
+    private long replayRetryMs = 5000;
+}
@@ -0,0 +1,41 @@
+package com.iot.buslivinglab.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Podešavanja za live stream merenja (Server-Sent Events).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "live.stream")
+public class LiveStreamProperties {
+
+    /**
+     * Maksimalan broj merenja koja čekaju na slanje po pretplatniku
+     */
+    private int bufferSize = 256;
+
+    /**
+     * Šta raditi kada je buffer sporog pretplatnika pun
+     */
+    private SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.COALESCE;
+
+    /**
+     * Maksimalan broj istovremenih pretplatnika po instanci
+     */
+    private int maxSubscribers = 5000;
+
+    /**
+     * Timeout SSE konekcije u milisekundama (klijent se ponovo povezuje)
+     */
+    private long timeoutMs = 1_800_000L;
+
+    public enum SlowConsumerPolicy {
+        /** Odbaci najstarije merenje iz buffera */
+        DROP_OLDEST,
+        /** Zameni starije merenje iste serije (senzor + tip) novijim, inače odbaci najstarije */
+        COALESCE
+    }
+}
@@ -0,0 +1,29 @@
+package com.iot.buslivinglab.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Praćenje živosti serija: svaka veza senzor-tip ima rok (overdue_at) do kog mora da stigne sledeća vrednost.
+ * Serija koja ga prekorači postaje neaktivna i dobija otvoren prekid u sensor_gaps.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "liveness")
+public class LivenessProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Najduža tišina serije bez sopstvenog max_silence_ms u sensor_measurement_types
+     */
+    private long defaultMaxSilenceMs = 3_600_000;
+
+    private long scanIntervalMs = 60_000;
+
+    /**
+     * Koliko zakasnelih serija se obrađuje u jednoj transakciji
+     */
+    private int batchSize = 500;
+}
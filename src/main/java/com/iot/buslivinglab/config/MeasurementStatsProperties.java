@@ -0,0 +1,37 @@
+package com.iot.buslivinglab.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Dnevne statistike merenja. Ingest ih skuplja u memoriji posle commit-a podataka, a flush ih spaja
+ * u measurement_daily_stats; /stats zatim spaja dnevne redove perioda, a /coverage čita njihove brojače.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "stats")
+public class MeasurementStatsProperties {
+
+    /**
+     * Koliko često se nakupljene statistike spajaju u bazu; pad instance gubi najviše ovoliko statistike
+     */
+    private long flushIntervalMs = 5000;
+
+    /**
+     * Period kada /stats nema ni days ni from/to
+     */
+    private int defaultDays = 30;
+
+    private int maxRangeDays = 3660;
+
+    /**
+     * Najduži period /coverage sa satnom rezolucijom (24 brojača po danu i senzoru u odgovoru)
+     */
+    private int maxHourlyCoverageDays = 366;
+
+    /**
+     * Najviše senzora u jednom /coverage zahtevu
+     */
+    private int maxCoverageSensors = 200;
+}
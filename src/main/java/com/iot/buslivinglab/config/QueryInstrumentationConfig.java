@@ -0,0 +1,63 @@
+package com.iot.buslivinglab.config;
+
+import com.iot.buslivinglab.observability.QueryStatistics;
+import com.iot.buslivinglab.observability.RepositoryMethodInterceptor;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import javax.sql.DataSource;
+
+/**
+ * Uključuje JDBC instrumentaciju: DataSource se obmotava datasource-proxy-jem koji prijavljuje
+ * svaki upit u QueryStatistics, a svaki Spring Data repozitorijum dobija interceptor koji
+ * upite obeležava nazivom repository metode.
+ */
+@Configuration
+@ConditionalOnProperty(name = "query-instrumentation.enabled", havingValue = "true", matchIfMissing = true)
+public class QueryInstrumentationConfig {
+
+    @Bean
+    public static BeanPostProcessor queryCountingDataSourcePostProcessor(
+            ObjectProvider<QueryStatistics> queryStatistics,
+            ObjectProvider<QueryInstrumentationProperties> properties) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ProxyDataSource) {
+                    return bean;
+                }
+                QueryStatistics listener = queryStatistics.getObject();
+                ProxyDataSourceBuilder builder = ProxyDataSourceBuilder.create(beanName, dataSource)
+                        .listener(listener);
+                if (properties.getObject().isCountRows()) {
+                    builder.proxyResultSet().methodListener(listener);
+                }
+                return builder.build();
+            }
+        };
+    }
+
+    @Bean
+    public static BeanPostProcessor repositoryMethodTaggingPostProcessor(
+            ObjectProvider<QueryStatistics> queryStatistics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory ->
+                            factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) ->
+                                    proxyFactory.addAdvice(new RepositoryMethodInterceptor(
+                                            queryStatistics.getObject(),
+                                            repositoryInformation.getRepositoryInterface().getSimpleName()))));
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,41 @@
+package com.iot.buslivinglab.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Podešavanja JDBC instrumentacije: broj upita po zahtevu, po repository metodi i spori upiti.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "query-instrumentation")
+public class QueryInstrumentationProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Dodaje X-Query-* headere u odgovor (samo za debug, ne u produkciji)
+     */
+    private boolean debugHeaders = false;
+
+    /**
+     * Broji redove iz ResultSet-a; zahteva proxy za svaki ResultSet
+     */
+    private boolean countRows = true;
+
+    /**
+     * Upiti duži od ovoga se loguju sa parametrima i čuvaju za /api/admin/queries
+     */
+    private long slowThresholdMs = 200;
+
+    /**
+     * Koliko poslednjih sporih upita se čuva
+     */
+    private int slowLogSize = 50;
+
+    /**
+     * Zahtev sa više upita od ovoga se loguje kao WARN sa brojem upita po repository metodi (mogući N+1)
+     */
+    private int warnStatementsPerRequest = 100;
+}
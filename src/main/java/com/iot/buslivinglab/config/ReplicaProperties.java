@@ -0,0 +1,59 @@
+package com.iot.buslivinglab.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Podešavanja read replika. Read-only upiti iz SensorQueryService idu na replike koje su zdrave
+ * i ne kasne više od maxLagMs; ostalo (ingest, read-your-writes) ide na primary.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "replica")
+public class ReplicaProperties {
+
+    private boolean enabled = false;
+
+    private List<Endpoint> datasources = new ArrayList<>();
+
+    /**
+     * Replika koja kasni više od ovoga se ne koristi dok ne sustigne primary
+     */
+    private long maxLagMs = 5000;
+
+    /**
+     * Koliko često se upisuje heartbeat na primary i meri kašnjenje replika
+     */
+    private long healthCheckIntervalMs = 2000;
+
+    /**
+     * Koliko dugo posle upisa za senzor se njegovi upiti čitaju sa primary-ja
+     */
+    private long readYourWritesWindowMs = 10_000;
+
+    /**
+     * Header kojim klijent traži čitanje sa primary-ja (vrednost "primary")
+     */
+    private String consistencyHeader = "X-Read-Consistency";
+
+    @Data
+    public static class Endpoint {
+
+        private String name;
+
+        private String url;
+
+        /**
+         * Ako nisu zadati, koriste se spring.datasource.username/password
+         */
+        private String username;
+
+        private String password;
+
+        private int poolSize = 10;
+    }
+}
@@ -0,0 +1,136 @@
+package com.iot.buslivinglab.config;
+
+import com.iot.buslivinglab.bulkhead.Workload;
+import com.iot.buslivinglab.bulkhead.WorkloadDataSources;
+import com.iot.buslivinglab.bulkhead.WorkloadRoutingDataSource;
+import com.iot.buslivinglab.replica.Replica;
+import com.iot.buslivinglab.replica.ReplicaSet;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Zamenjuje jedan Hikari pool routing DataSource-om kada su uključeni bulkhead-ovi ili read replike.
+ * Bulkhead-ovi: po jedan pool za svaki workload (veličina i connection-timeout iz bulkhead.<workload>.*).
+ * Replike: po jedan pool za svaku repliku iz replica.datasources. Svi pool-ovi nasleđuju
+ * spring.datasource.hikari.*; url/korisnik primary-ja su iz spring.datasource.*.
+ */
+@Configuration
+@ConditionalOnExpression("${bulkhead.enabled:false} or ${replica.enabled:false}")
+public class RoutingDataSourceConfig {
+
+    @Bean
+    public WorkloadDataSources workloadDataSources(DataSourceProperties dataSourceProperties,
+                                                   BulkheadProperties properties,
+                                                   Environment environment) {
+        Map<Workload, HikariDataSource> pools = new EnumMap<>(Workload.class);
+        if (!properties.isEnabled()) {
+            // Samo replike: jedan primary pool za sve workload-e
+            HikariDataSource primary = hikari(dataSourceProperties, environment, "buslab-primary");
+            for (Workload workload : Workload.values()) {
+                pools.put(workload, primary);
+            }
+            return new WorkloadDataSources(pools);
+        }
+
+        for (Workload workload : Workload.values()) {
+            BulkheadProperties.Pool pool = properties.pool(workload);
+            HikariDataSource dataSource = hikari(dataSourceProperties, environment, "buslab-" + workload.getTag());
+            dataSource.setMaximumPoolSize(pool.getPoolSize());
+            dataSource.setMinimumIdle(Math.min(dataSource.getMinimumIdle(), pool.getPoolSize()));
+            dataSource.setConnectionTimeout(pool.getConnectionTimeoutMs());
+            pools.put(workload, dataSource);
+        }
+        return new WorkloadDataSources(pools);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "replica.enabled", havingValue = "true")
+    public ReplicaSet replicaSet(DataSourceProperties dataSourceProperties, ReplicaProperties properties,
+                                 Environment environment) {
+        List<Replica> replicas = new ArrayList<>();
+        for (int i = 0; i < properties.getDatasources().size(); i++) {
+            ReplicaProperties.Endpoint endpoint = properties.getDatasources().get(i);
+            String name = endpoint.getName() != null ? endpoint.getName() : "replica-" + (i + 1);
+
+            HikariDataSource dataSource = hikari(dataSourceProperties, environment, "buslab-" + name);
+            dataSource.setJdbcUrl(endpoint.getUrl());
+            if (endpoint.getUsername() != null) {
+                dataSource.setUsername(endpoint.getUsername());
+                dataSource.setPassword(endpoint.getPassword());
+            }
+            dataSource.setMaximumPoolSize(endpoint.getPoolSize());
+            dataSource.setMinimumIdle(Math.min(dataSource.getMinimumIdle(), endpoint.getPoolSize()));
+            dataSource.setReadOnly(true);
+            replicas.add(new Replica(name, dataSource));
+        }
+        if (replicas.isEmpty()) {
+            throw new IllegalStateException("replica.enabled=true but no replica.datasources configured");
+        }
+        return new ReplicaSet(replicas, properties.getMaxLagMs());
+    }
+
+    /**
+     * Lazy proxy: fizička konekcija se uzima tek pri prvom upitu, kada je readOnly flag transakcije
+     * već postavljen, pa routing može da pošalje read-only transakciju na repliku.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(WorkloadDataSources workloadDataSources, ObjectProvider<ReplicaSet> replicaSet) {
+        ReplicaSet replicas = replicaSet.getIfAvailable();
+        Map<Object, Object> targets = new HashMap<>(workloadDataSources.getPools());
+        if (replicas != null) {
+            replicas.getReplicas().forEach(replica -> targets.put(replica.getName(), replica.getDataSource()));
+        }
+
+        WorkloadRoutingDataSource routing = new WorkloadRoutingDataSource(replicas);
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(workloadDataSources.getPools().get(Workload.INTERACTIVE));
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    /**
+     * hikaricp_* metrike po pool-u (tag pool=buslab-ingest, buslab-replica-1, ...). Spring Boot ih sam
+     * registruje samo za DataSource bean-ove, a routing DataSource nije Hikari.
+     */
+    @Bean
+    public MeterBinder routedPoolMetrics(WorkloadDataSources workloadDataSources,
+                                         ObjectProvider<ReplicaSet> replicaSet) {
+        return registry -> {
+            MicrometerMetricsTrackerFactory factory = new MicrometerMetricsTrackerFactory(registry);
+            workloadDataSources.getPools().values().stream().distinct()
+                    .forEach(pool -> pool.setMetricsTrackerFactory(factory));
+            replicaSet.ifAvailable(replicas -> replicas.getReplicas()
+                    .forEach(replica -> replica.getDataSource().setMetricsTrackerFactory(factory)));
+        };
+    }
+
+    static HikariDataSource hikari(DataSourceProperties dataSourceProperties, Environment environment,
+                                           String poolName) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        dataSource.setPoolName(poolName);
+        return dataSource;
+    }
+}
@@ -0,0 +1,60 @@
+package com.iot.buslivinglab.config;
+
+import com.iot.buslivinglab.shard.Shard;
+import com.iot.buslivinglab.shard.ShardSet;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Po jedan Hikari pool za svaki shard iz sharding.shards. Pool-ovi nasleđuju spring.datasource.hikari.*;
+ * shard-ovi nisu deo JPA DataSource-a, sensor_data se na njima čita i piše preko JdbcTemplate-a.
+ */
+@Configuration
+@ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Bean
+    public ShardSet shardSet(DataSourceProperties dataSourceProperties, ShardingProperties properties,
+                             Environment environment) {
+        List<Shard> shards = new ArrayList<>();
+        for (int i = 0; i < properties.getShards().size(); i++) {
+            ShardingProperties.Endpoint endpoint = properties.getShards().get(i);
+            String name = endpoint.getName() != null ? endpoint.getName() : "shard-" + (i + 1);
+
+            HikariDataSource dataSource = RoutingDataSourceConfig.hikari(dataSourceProperties, environment,
+                    "buslab-" + name);
+            dataSource.setJdbcUrl(endpoint.getUrl());
+            if (endpoint.getUsername() != null) {
+                dataSource.setUsername(endpoint.getUsername());
+                dataSource.setPassword(endpoint.getPassword());
+            }
+            dataSource.setMaximumPoolSize(endpoint.getPoolSize());
+            dataSource.setMinimumIdle(Math.min(dataSource.getMinimumIdle(), endpoint.getPoolSize()));
+            shards.add(new Shard(name, dataSource));
+        }
+        if (shards.isEmpty()) {
+            throw new IllegalStateException("sharding.enabled=true but no sharding.shards configured");
+        }
+        return new ShardSet(shards, properties.getVirtualNodes());
+    }
+
+    /**
+     * hikaricp_* metrike po shard pool-u (tag pool=buslab-shard-1, ...)
+     */
+    @Bean
+    public MeterBinder shardPoolMetrics(ShardSet shardSet) {
+        return registry -> {
+            MicrometerMetricsTrackerFactory factory = new MicrometerMetricsTrackerFactory(registry);
+            shardSet.getShards().forEach(shard -> shard.getDataSource().setMetricsTrackerFactory(factory));
+        };
+    }
+}
@@ -0,0 +1,66 @@
+package com.iot.buslivinglab.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Podešavanja sharding-a sensor_data tabele po sensor_id. Senzor se dodeljuje shard-u preko
+ * consistent hash prstena pri prvom upisu, a dodela se pamti u sensor_shard_assignment na primary-ju.
+ * Metapodaci (sensors, measurement_types, ...) ostaju na primary-ju.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "sharding")
+public class ShardingProperties {
+
+    private boolean enabled = false;
+
+    private List<Endpoint> shards = new ArrayList<>();
+
+    /**
+     * Broj tačaka po shard-u na hash prstenu; više tačaka daje ravnomerniju raspodelu senzora
+     */
+    private int virtualNodes = 128;
+
+    /**
+     * Koliko dugo se čeka na sve shard-ove kod upita preko cele flote
+     */
+    private long scatterTimeoutMs = 10_000;
+
+    /**
+     * Koliko dugo instanca pamti dodelu senzora; rebalans čeka ovoliko između faza
+     * da bi sve instance videle novu dodelu
+     */
+    private long assignmentCacheTtlMs = 30_000;
+
+    /**
+     * Broj redova koji se kopira ili briše u jednom koraku rebalansa
+     */
+    private int rebalanceBatchSize = 1000;
+
+    /**
+     * Kreira sensor_data tabelu na shard-ovima ako ne postoji
+     */
+    private boolean initializeSchema = true;
+
+    @Data
+    public static class Endpoint {
+
+        private String name;
+
+        private String url;
+
+        /**
+         * Ako nisu zadati, koriste se spring.datasource.username/password
+         */
+        private String username;
+
+        private String password;
+
+        private int poolSize = 10;
+    }
+}
@@ -0,0 +1,24 @@
+package com.iot.buslivinglab.config;
+
+import com.iot.buslivinglab.filter.ReadConsistencyInterceptor;
+import com.iot.buslivinglab.filter.SensorLoggingInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private final SensorLoggingInterceptor sensorLoggingInterceptor;
+    private final ObjectProvider<ReadConsistencyInterceptor> readConsistencyInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(sensorLoggingInterceptor).addPathPatterns("/api/sensor-data/**");
+        readConsistencyInterceptor.ifAvailable(interceptor ->
+                registry.addInterceptor(interceptor).addPathPatterns("/api/sensor-data/**"));
+    }
+}
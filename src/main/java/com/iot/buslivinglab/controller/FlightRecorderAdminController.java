@@ -0,0 +1,95 @@
+package com.iot.buslivinglab.controller;
+
+import com.iot.buslivinglab.observability.jfr.FlightRecorderService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/jfr")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Admin - Flight Recorder", description = "Dump the continuous JDK Flight Recorder recording")
+public class FlightRecorderAdminController {
+
+    private final FlightRecorderService flightRecorderService;
+
+    @Operation(
+            summary = "Dump the last N minutes of the JFR recording",
+            description = "Writes the last N minutes (at most jfr.max-age-minutes) of the always-on recording to a " +
+                    ".jfr file. Open it in JDK Mission Control or run 'jfr print --events buslab.IngestStage'."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Dump written"),
+            @ApiResponse(responseCode = "503", description = "Continuous recording is not running")
+    })
+    @PostMapping("/dump")
+    public ResponseEntity<Map<String, Object>> dump(
+            @Parameter(description = "Minutes of history to dump", example = "5")
+            @RequestParam(defaultValue = "5") int minutes) throws IOException {
+
+        Map<String, Object> response = new HashMap<>();
+
+        if (!flightRecorderService.isRecording()) {
+            response.put("success", false);
+            response.put("message", "Continuous JFR recording is not running");
+            response.put("timestamp", Instant.now().toString());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        }
+
+        Path file = flightRecorderService.dump(minutes);
+
+        response.put("success", true);
+        response.put("file", file.getFileName().toString());
+        response.put("path", file.toString());
+        response.put("sizeBytes", Files.size(file));
+        response.put("timestamp", Instant.now().toString());
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(summary = "List JFR dump files, newest first")
+    @GetMapping("/dumps")
+    public ResponseEntity<List<Map<String, Object>>> listDumps() throws IOException {
+        List<Map<String, Object>> dumps = new ArrayList<>();
+        for (Path file : flightRecorderService.listDumps()) {
+            Map<String, Object> dump = new HashMap<>();
+            dump.put("file", file.getFileName().toString());
+            dump.put("sizeBytes", Files.size(file));
+            dumps.add(dump);
+        }
+        return ResponseEntity.ok(dumps);
+    }
+
+    @Operation(summary = "Download a JFR dump file")
+    @GetMapping("/dumps/{fileName}")
+    public ResponseEntity<Resource> downloadDump(@PathVariable String fileName) {
+        Path file = flightRecorderService.resolveDump(fileName);
+        if (file == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"")
+                .body(new FileSystemResource(file));
+    }
+}
@@ -0,0 +1,83 @@
+package com.iot.buslivinglab.controller;
+
+import com.iot.buslivinglab.observability.LogDebugTargets;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/logging")
+@Slf4j
+@Tag(name = "Admin - Logging", description = "Temporarily raise log verbosity for one sensor or request")
+public class LoggingAdminController {
+
+    private static final int MAX_DURATION_SECONDS = 3600;
+
+    @Operation(
+            summary = "Enable DEBUG logging for a sensor or request",
+            description = "All log lines (DEBUG and above) written while handling the given sensor or request ID " +
+                    "are kept, bypassing logger levels and sampling, until the duration expires."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Debug target added"),
+            @ApiResponse(responseCode = "400", description = "Neither sensorId nor requestId given")
+    })
+    @PostMapping("/debug-targets")
+    public ResponseEntity<Map<String, Object>> addDebugTarget(
+            @Parameter(description = "Sensor ID", example = "sensor-7in1-001")
+            @RequestParam(required = false) String sensorId,
+
+            @Parameter(description = "Request ID (X-Request-Id response header)", example = "3f9a1c2b")
+            @RequestParam(required = false) String requestId,
+
+            @Parameter(description = "How long to keep DEBUG logging on, in seconds (max 3600)", example = "300")
+            @RequestParam(defaultValue = "300") int durationSeconds) {
+
+        Map<String, Object> response = new HashMap<>();
+
+        if (sensorId == null && requestId == null) {
+            response.put("success", false);
+            response.put("message", "Provide 'sensorId' or 'requestId'");
+            response.put("timestamp", Instant.now().toString());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+
+        Instant until = Instant.now().plusSeconds(Math.min(Math.max(durationSeconds, 1), MAX_DURATION_SECONDS));
+        if (sensorId != null) {
+            LogDebugTargets.addSensor(sensorId, until);
+        }
+        if (requestId != null) {
+            LogDebugTargets.addRequest(requestId, until);
+        }
+        log.warn("DEBUG logging enabled for sensor: {}, request: {} until {}", sensorId, requestId, until);
+
+        response.put("success", true);
+        response.put("activeTargets", LogDebugTargets.snapshot());
+        response.put("timestamp", Instant.now().toString());
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(summary = "List active debug targets")
+    @GetMapping("/debug-targets")
+    public ResponseEntity<Map<String, Instant>> getDebugTargets() {
+        return ResponseEntity.ok(LogDebugTargets.snapshot());
+    }
+
+    @Operation(summary = "Remove all debug targets")
+    @DeleteMapping("/debug-targets")
+    public ResponseEntity<Void> clearDebugTargets() {
+        LogDebugTargets.clear();
+        log.warn("All DEBUG logging targets cleared");
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,36 @@
+package com.iot.buslivinglab.controller;
+
+import com.iot.buslivinglab.dto.response.QueryStatsResponse;
+import com.iot.buslivinglab.observability.QueryStatistics;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/queries")
+@RequiredArgsConstructor
+@Tag(name = "Admin - Queries", description = "JDBC statement counts per repository method and slow statements")
+public class QueryStatsAdminController {
+
+    private final QueryStatistics queryStatistics;
+
+    @Operation(
+            summary = "Get statement statistics",
+            description = "Statements, rows and time per repository method since startup, sorted by total time, " +
+                    "plus the most recent statements slower than query-instrumentation.slow-threshold-ms " +
+                    "with their bind parameters."
+    )
+    @GetMapping
+    public ResponseEntity<QueryStatsResponse> getQueryStats() {
+        return ResponseEntity.ok(queryStatistics.snapshot());
+    }
+
+    @Operation(summary = "Clear the slow statement log")
+    @DeleteMapping("/slow")
+    public ResponseEntity<Void> clearSlowStatements() {
+        queryStatistics.clearSlowStatements();
+        return ResponseEntity.noContent().build();
+    }
+}
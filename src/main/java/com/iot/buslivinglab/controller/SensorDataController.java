@@ -1,10 +1,26 @@
 package com.iot.buslivinglab.controller;
 
+import com.iot.buslivinglab.bulkhead.Workload;
 import com.iot.buslivinglab.dto.request.SensorObservationRequest;
+import com.iot.buslivinglab.dto.response.CoverageResponse;
+import com.iot.buslivinglab.dto.response.SensorAlertResponse;
 import com.iot.buslivinglab.dto.response.SensorDataResponse;
+import com.iot.buslivinglab.dto.response.SensorGapResponse;
+import com.iot.buslivinglab.dto.response.SensorStatsResponse;
+import com.iot.buslivinglab.exception.AdmissionRejectedException;
+import com.iot.buslivinglab.service.AdmissionControlService;
+import com.iot.buslivinglab.service.AdmissionControlService.TrafficClass;
+import com.iot.buslivinglab.service.AlertService;
+import com.iot.buslivinglab.service.BulkheadService;
+import com.iot.buslivinglab.service.IngestWalService;
+import com.iot.buslivinglab.service.LivenessService;
+import com.iot.buslivinglab.service.MeasurementStatsService;
 import com.iot.buslivinglab.service.SensorDataService;
+import com.iot.buslivinglab.service.SensorDataService.IngestResult;
 import com.iot.buslivinglab.service.SensorQueryService;
-import com.iot.buslivinglab.service.UnitSyncService;
+import com.iot.buslivinglab.service.UnitMappingService;
+import com.iot.buslivinglab.unit.UnitMappingSnapshot;
+import com.iot.buslivinglab.unit.UnitTargets;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -13,12 +29,16 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -30,15 +50,24 @@ public class SensorDataController {
 
     private final SensorDataService sensorDataService;
     private final SensorQueryService sensorQueryService;
-    private final UnitSyncService unitSyncService;
+    private final MeasurementStatsService measurementStatsService;
+    private final AlertService alertService;
+    private final LivenessService livenessService;
+    private final UnitMappingService unitMappingService;
+    private final ObjectProvider<IngestWalService> ingestWalService;
+    private final AdmissionControlService admissionControl;
+    private final BulkheadService bulkheads;
 
     @Operation(
             summary = "Receive sensor observation",
             description = "Process and store sensor observation data from field devices"
     )
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Observation saved successfully"),
+            @ApiResponse(responseCode = "200", description = "Observation saved; 'saved' and 'duplicates' count measurements stored and skipped as already stored (retries are safe), 'compressed' those inside their deadband, 'derived' values computed for derived measurement types"),
+            @ApiResponse(responseCode = "202", description = "Observation stored in the ingest WAL (ingest.wal.enabled=true), applied to the database in the background"),
             @ApiResponse(responseCode = "400", description = "Invalid input data"),
+            @ApiResponse(responseCode = "429", description = "Sensor or client exceeded its ingest rate, retry after Retry-After seconds"),
+            @ApiResponse(responseCode = "503", description = "Ingest WAL unavailable or full, or server at its concurrency limit, retry later"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PostMapping("/observations")
@@ -49,17 +78,32 @@ public class SensorDataController {
         log.info("Received observation request for sensor: {}",
                 request.getMadeBySensor().getId());
 
+        // Budžet klijenta i limit istovremenih zahteva proverava AdmissionControlFilter
+        admissionControl.checkSensor(TrafficClass.INGEST, request.getMadeBySensor().getId());
+
         Map<String, Object> response = new HashMap<>();
 
+        IngestWalService wal = ingestWalService.getIfAvailable();
+        if (wal != null) {
+            return receiveObservationViaWal(wal, request, response);
+        }
+
         try {
-            String result = sensorDataService.processSensorObservation(request);
+            IngestResult result = bulkheads.execute(Workload.INGEST,
+                    () -> sensorDataService.ingest(request));
 
             response.put("success", true);
-            response.put("message", result);
+            response.put("message", result.message());
+            response.put("saved", result.saved());
+            response.put("duplicates", result.duplicates());
+            response.put("compressed", result.compressed());
+            response.put("derived", result.derived());
             response.put("timestamp", java.time.Instant.now().toString()); // Uses UTC with Z suffix
 
             return ResponseEntity.ok(response);
 
+        } catch (AdmissionRejectedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error processing observation: {}", e.getMessage(), e);
 
@@ -71,25 +115,75 @@ public class SensorDataController {
         }
     }
 
+    /**
+     * Potvrđuje opservaciju posle fsync-a u WAL; upis u bazu radi IngestWalService u pozadini
+     */
+    private ResponseEntity<Map<String, Object>> receiveObservationViaWal(IngestWalService wal,
+                                                                         SensorObservationRequest request,
+                                                                         Map<String, Object> response) {
+        response.put("timestamp", java.time.Instant.now().toString()); // Uses UTC with Z suffix
+        try {
+            long sequence = wal.append(request);
+
+            response.put("success", true);
+            response.put("message", "Observation accepted");
+            response.put("sequence", sequence);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", "Failed to process observation: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+
+        } catch (IllegalStateException | IOException e) {
+            log.error("Ingest WAL unavailable: {}", e.getMessage());
+            response.put("success", false);
+            response.put("message", "Ingest temporarily unavailable: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body(response);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.put("success", false);
+            response.put("message", "Ingest interrupted");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        }
+    }
+
     @Operation(
             summary = "Get latest single measurement per type",
             description = "Retrieve only the latest (single) measurement for each measurement type of a specific sensor"
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Latest measurements retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Unknown unit or two units of the same quantity"),
             @ApiResponse(responseCode = "404", description = "Sensor not found"),
+            @ApiResponse(responseCode = "429", description = "Sensor or client exceeded its query rate, retry after Retry-After seconds"),
+            @ApiResponse(responseCode = "503", description = "Server at its query concurrency limit, retry later"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping("/{sensorId}/latest")
     public ResponseEntity<SensorDataResponse> getLatestSensorData(
-            @PathVariable String sensorId) {
+            @PathVariable String sensorId,
+
+            @Parameter(description = "Convert values to these QUDT units, at most one per quantity",
+                    example = "DEG_F,MilliS-PER-CentiM")
+            @RequestParam(required = false) String unit) {
 
         log.info("Getting latest single measurement per type for sensor: {}", sensorId);
 
         try {
-            SensorDataResponse data = sensorQueryService.getLatestSensorData(sensorId);
+            UnitTargets units = UnitTargets.parse(unit);
+            SensorDataResponse data = bulkheads.execute(Workload.INTERACTIVE,
+                    () -> sensorQueryService.getLatestSensorData(sensorId, units));
             return ResponseEntity.ok(data);
 
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid parameters for sensor {}: {}", sensorId, e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (AdmissionRejectedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error retrieving latest data for sensor {}: {}", sensorId, e.getMessage(), e);
             throw new ResponseStatusException(HttpStatus.NOT_FOUND,
@@ -97,6 +191,190 @@ public class SensorDataController {
         }
     }
 
+    @Operation(
+            summary = "Get threshold alerts",
+            description = "Latest threshold alerts (newest first), optionally for one sensor and only open ones. "
+                    + "Thresholds come from sensor_measurement_types min/max_threshold, falling back to measurement_types min/max_value."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Alerts retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid parameters"),
+            @ApiResponse(responseCode = "503", description = "Server at its query concurrency limit, retry later")
+    })
+    @GetMapping("/alerts")
+    public ResponseEntity<List<SensorAlertResponse>> getAlerts(
+            @Parameter(description = "Only alerts of this sensor", example = "sensor-7in1-001")
+            @RequestParam(required = false) String sensorId,
+
+            @Parameter(description = "Only alerts that are still open")
+            @RequestParam(defaultValue = "false") boolean open,
+
+            @Parameter(description = "Maximum number of alerts (1-1000)", example = "100")
+            @RequestParam(defaultValue = "100") int limit) {
+
+        if (limit <= 0 || limit > 1000) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limit must be between 1 and 1000");
+        }
+        try {
+            return ResponseEntity.ok(bulkheads.execute(Workload.INTERACTIVE,
+                    () -> alertService.findAlerts(sensorId, open, limit)));
+        } catch (AdmissionRejectedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error retrieving alerts: {}", e.getMessage(), e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to get alerts: " + e.getMessage());
+        }
+    }
+
+    @Operation(
+            summary = "Get data gaps",
+            description = "Intervals in which a sensor measurement type sent nothing for longer than its maximum silence "
+                    + "(newest first), optionally for one sensor, only open ones, and overlapping ?from=...&to=... (ISO-8601)."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Gaps retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid parameters"),
+            @ApiResponse(responseCode = "503", description = "Server at its query concurrency limit, retry later")
+    })
+    @GetMapping("/gaps")
+    public ResponseEntity<List<SensorGapResponse>> getGaps(
+            @Parameter(description = "Only gaps of this sensor", example = "sensor-7in1-001")
+            @RequestParam(required = false) String sensorId,
+
+            @Parameter(description = "Only gaps that are still open (sensor still silent)")
+            @RequestParam(defaultValue = "false") boolean open,
+
+            @Parameter(description = "Gaps ending at or after this time", example = "2026-01-01T00:00:00Z")
+            @RequestParam(required = false) String from,
+
+            @Parameter(description = "Gaps starting at or before this time", example = "2026-01-31T23:59:59Z")
+            @RequestParam(required = false) String to,
+
+            @Parameter(description = "Maximum number of gaps (1-1000)", example = "100")
+            @RequestParam(defaultValue = "100") int limit) {
+
+        if (limit <= 0 || limit > 1000) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limit must be between 1 and 1000");
+        }
+        try {
+            return ResponseEntity.ok(bulkheads.execute(Workload.INTERACTIVE,
+                    () -> livenessService.findGaps(sensorId, open, from, to, limit)));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (AdmissionRejectedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error retrieving gaps: {}", e.getMessage(), e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to get gaps: " + e.getMessage());
+        }
+    }
+
+    @Operation(
+            summary = "Get data coverage",
+            description = """
+                Number of measurements per UTC day (or hour) for a set of sensors, read from counters maintained
+                at ingest without touching sensor_data. counts[i] is the i-th day (or hour) from 'from' 00:00 UTC.
+                - By days: ?sensorIds=a,b&days=365 (default 30)
+                - By date range: ?sensorIds=a,b&from=2024-01-01&to=2026-12-31 (inclusive)
+                - Per hour: ?resolution=hour (at most one year)
+                - One measurement type: ?measurementType=ll:soilTemperature
+            """
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Coverage retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid parameters"),
+            @ApiResponse(responseCode = "503", description = "Server at its query concurrency limit, retry later")
+    })
+    @GetMapping("/coverage")
+    public ResponseEntity<CoverageResponse> getCoverage(
+            @Parameter(description = "Sensor ids, comma separated", example = "sensor-7in1-001,sensor-7in1-002",
+                    required = true)
+            @RequestParam List<String> sensorIds,
+
+            @Parameter(description = "Only this measurement type", example = "ll:soilTemperature")
+            @RequestParam(required = false) String measurementType,
+
+            @Parameter(description = "Last N UTC days including today", example = "365")
+            @RequestParam(required = false) Integer days,
+
+            @Parameter(description = "First UTC day (yyyy-MM-dd)", example = "2024-01-01")
+            @RequestParam(required = false) String from,
+
+            @Parameter(description = "Last UTC day, inclusive (yyyy-MM-dd)", example = "2026-12-31")
+            @RequestParam(required = false) String to,
+
+            @Parameter(description = "day or hour", example = "day")
+            @RequestParam(defaultValue = "day") String resolution) {
+
+        try {
+            return ResponseEntity.ok(bulkheads.execute(Workload.INTERACTIVE, () ->
+                    measurementStatsService.getCoverage(sensorIds, measurementType, days, from, to, resolution)));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (AdmissionRejectedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error retrieving coverage: {}", e.getMessage(), e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Failed to get coverage: " + e.getMessage());
+        }
+    }
+
+    @Operation(
+            summary = "Get statistics per measurement type",
+            description = """
+                Count, min, max, mean, standard deviation and p5/p50/p95 per measurement type over whole UTC days,
+                merged from daily summaries maintained at ingest (cost grows with days, not with measurements):
+                - By days: ?days=90 (today and the 89 days before, default 30)
+                - By date range: ?from=2026-01-01&to=2026-03-31 (inclusive)
+                - In other units: ?unit=DEG_F
+            """
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Statistics retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid parameters"),
+            @ApiResponse(responseCode = "429", description = "Sensor or client exceeded its query rate, retry after Retry-After seconds"),
+            @ApiResponse(responseCode = "503", description = "Server at its query concurrency limit, retry later"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/{sensorId}/stats")
+    public ResponseEntity<SensorStatsResponse> getSensorStats(
+            @Parameter(description = "ID of the sensor", example = "sensor-7in1-001", required = true)
+            @PathVariable String sensorId,
+
+            @Parameter(description = "Last N UTC days including today", example = "90")
+            @RequestParam(required = false) Integer days,
+
+            @Parameter(description = "First UTC day (yyyy-MM-dd)", example = "2026-01-01")
+            @RequestParam(required = false) String from,
+
+            @Parameter(description = "Last UTC day, inclusive (yyyy-MM-dd)", example = "2026-03-31")
+            @RequestParam(required = false) String to,
+
+            @Parameter(description = "Convert values to these QUDT units, at most one per quantity",
+                    example = "DEG_F")
+            @RequestParam(required = false) String unit) {
+
+        log.info("Getting stats for sensor: {}, days: {}, from: {}, to: {}, unit: {}", sensorId, days, from, to, unit);
+
+        try {
+            UnitTargets units = UnitTargets.parse(unit);
+            SensorStatsResponse stats = bulkheads.execute(Workload.INTERACTIVE,
+                    () -> measurementStatsService.getStats(sensorId, days, from, to, units));
+            return ResponseEntity.ok(stats);
+
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid stats parameters for sensor {}: {}", sensorId, e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (AdmissionRejectedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error retrieving stats for sensor {}: {}", sensorId, e.getMessage(), e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Failed to get stats: " + e.getMessage());
+        }
+    }
+
     @Operation(
             summary = "Get sensor data with flexible filtering options",
             description = """
@@ -104,11 +382,13 @@ public class SensorDataController {
                 - By days: ?days=7 (default if no other filter specified)
                 - By count: ?count=10 (latest N values per measurement type)
                 - By date range: ?from=2025-01-01T00:00:00Z&to=2025-01-31T23:59:59Z
+                - In other units: ?unit=DEG_F,MilliS-PER-CentiM (QUDT codes, combinable with any filter)
                 
                 Usage examples:
                 - /api/sensor-data/sensor-7in1-001?days=7
                 - /api/sensor-data/sensor-7in1-001?count=50
                 - /api/sensor-data/sensor-7in1-001?from=2025-12-01T00:00:00Z&to=2025-12-31T23:59:59Z
+                - /api/sensor-data/sensor-7in1-001?days=1&unit=DEG_F
                 - /api/sensor-data/sensor-7in1-001 (defaults to days=7)
                 
                 Note: 'days' and 'count' parameters are mutually exclusive.
@@ -118,6 +398,8 @@ public class SensorDataController {
             @ApiResponse(responseCode = "200", description = "Data retrieved successfully"),
             @ApiResponse(responseCode = "400", description = "Invalid parameters"),
             @ApiResponse(responseCode = "404", description = "Sensor not found"),
+            @ApiResponse(responseCode = "429", description = "Sensor or client exceeded its query rate, retry after Retry-After seconds"),
+            @ApiResponse(responseCode = "503", description = "Server at its query concurrency limit, retry later"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping("/{sensorId}")
@@ -139,23 +421,30 @@ public class SensorDataController {
 
             @Parameter(description = "Filter by end date (ISO 8601 format)",
                     example = "2025-12-31T23:59:59Z")
-            @RequestParam(required = false) String to) {
+            @RequestParam(required = false) String to,
+
+            @Parameter(description = "Convert values to these QUDT units, at most one per quantity",
+                    example = "DEG_F,MilliS-PER-CentiM")
+            @RequestParam(required = false) String unit) {
 
-        log.info("Getting data for sensor: {}, days: {}, count: {}, from: {}, to: {}",
-                sensorId, days, count, from, to);
+        log.info("Getting data for sensor: {}, days: {}, count: {}, from: {}, to: {}, unit: {}",
+                sensorId, days, count, from, to, unit);
 
         try {
             // Validacija parametara
             validateParameters(days, count, from, to);
+            UnitTargets units = UnitTargets.parse(unit);
 
-            SensorDataResponse data = sensorQueryService.getSensorDataFlexible(
-                    sensorId, days, count, from, to);
+            SensorDataResponse data = bulkheads.execute(bulkheads.classifyQuery(days, count, from, to),
+                    () -> sensorQueryService.getSensorDataFlexible(sensorId, days, count, from, to, units));
 
             return ResponseEntity.ok(data);
 
         } catch (IllegalArgumentException e) {
             log.error("Invalid parameters for sensor {}: {}", sensorId, e.getMessage());
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (AdmissionRejectedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error retrieving data for sensor {}: {}", sensorId, e.getMessage(), e);
             throw new ResponseStatusException(HttpStatus.NOT_FOUND,
@@ -212,7 +501,7 @@ public class SensorDataController {
 
     @Operation(
             summary = "Refresh unit mappings cache",
-            description = "Reload unit mappings from database and sync all measurement_types. Use this after updating unit_label values in the unit_mappings table."
+            description = "Reload unit mappings from database and sync all measurement_types. Changes are also picked up automatically every unit-mappings.refresh-interval-ms; use this to apply them immediately."
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Unit mappings refreshed and synchronized successfully"),
@@ -225,15 +514,14 @@ public class SensorDataController {
         Map<String, Object> response = new HashMap<>();
 
         try {
-            // Refresh unit mappings cache in memory
-            sensorDataService.refreshUnitMappings();
-
-            // Sync all measurement_types with updated unit labels
-            int updatedCount = unitSyncService.syncUnitLabels();
+            // Sync measurement_types and publish a new unit mapping snapshot if the table changed
+            int updatedCount = unitMappingService.refresh();
+            UnitMappingSnapshot snapshot = unitMappingService.current();
 
             response.put("success", true);
             response.put("message", "Unit mappings refreshed and " + updatedCount + " measurement types synchronized");
             response.put("updatedMeasurementTypes", updatedCount);
+            response.put("unitMappingsVersion", snapshot.getVersion());
             response.put("timestamp", java.time.Instant.now().toString()); // Uses UTC with Z suffix
 
             return ResponseEntity.ok(response);
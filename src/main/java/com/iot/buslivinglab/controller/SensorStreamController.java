@@ -0,0 +1,71 @@
+package com.iot.buslivinglab.controller;
+
+import com.iot.buslivinglab.service.ObservationStreamService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/sensor-data")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Live Sensor Data", description = "BUS Living Lab 2026 - push stream of new sensor observations")
+public class SensorStreamController {
+
+    private final ObservationStreamService observationStreamService;
+
+    @Operation(
+            summary = "Subscribe to new observations",
+            description = """
+                Server-Sent Events stream of observations as they are stored.
+                Each event is named 'observation' and carries sensorId, measurementType, unit, time and value.
+
+                Usage examples:
+                - /api/sensor-data/stream (all sensors, all types)
+                - /api/sensor-data/stream?sensorIds=sensor-7in1-001,sensor-7in1-002
+                - /api/sensor-data/stream?sensorIds=sensor-7in1-001&types=ll:soilTemperature
+
+                Slow clients do not block ingest: when a client's buffer is full, older
+                values are dropped or replaced by newer values of the same series.
+            """
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stream opened"),
+            @ApiResponse(responseCode = "503", description = "Too many live subscribers")
+    })
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamObservations(
+            @Parameter(description = "Sensor IDs to subscribe to (all sensors if omitted)",
+                    example = "sensor-7in1-001")
+            @RequestParam(required = false) List<String> sensorIds,
+
+            @Parameter(description = "Measurement type IDs to subscribe to (all types if omitted)",
+                    example = "ll:soilTemperature")
+            @RequestParam(required = false) List<String> types) {
+
+        log.info("Opening live stream for sensors: {}, types: {}", sensorIds, types);
+
+        try {
+            return observationStreamService.subscribe(
+                    sensorIds != null ? Set.copyOf(sensorIds) : Set.of(),
+                    types != null ? Set.copyOf(types) : Set.of());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
+    }
+}
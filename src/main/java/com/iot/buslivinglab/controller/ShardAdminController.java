@@ -0,0 +1,69 @@
+package com.iot.buslivinglab.controller;
+
+import com.iot.buslivinglab.dto.response.ShardingResponse;
+import com.iot.buslivinglab.service.ShardRebalanceService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/shards")
+@ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Admin - Shards", description = "sensor_data shard overview and sensor rebalancing")
+public class ShardAdminController {
+
+    private final ShardRebalanceService rebalanceService;
+
+    @Operation(
+            summary = "Get shard overview",
+            description = "Rows and distinct sensors per shard (queried on all shards in parallel) and sensor " +
+                    "assignments from sensor_shard_assignment."
+    )
+    @GetMapping
+    public ResponseEntity<ShardingResponse.Overview> getOverview() {
+        return ResponseEntity.ok(rebalanceService.overview());
+    }
+
+    @Operation(
+            summary = "Move a sensor's history to another shard",
+            description = "Online: ingest and queries for the sensor keep working while rows are copied. " +
+                    "Waits sharding.assignment-cache-ttl-ms twice so every instance sees the new assignment. " +
+                    "An interrupted move is resumed by calling again with the same target shard."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Sensor moved"),
+            @ApiResponse(responseCode = "400", description = "Unknown shard or sensor already on it"),
+            @ApiResponse(responseCode = "409", description = "Sensor is being moved to a different shard")
+    })
+    @PostMapping("/rebalance")
+    public ResponseEntity<?> rebalance(
+            @Parameter(description = "Sensor ID", example = "sensor-001")
+            @RequestParam String sensorId,
+            @Parameter(description = "Target shard name", example = "shard-2")
+            @RequestParam String targetShard) throws InterruptedException {
+        try {
+            return ResponseEntity.ok(rebalanceService.rebalance(sensorId, targetShard));
+        } catch (IllegalStateException e) {
+            log.warn("Rebalance of sensor {} rejected: {}", sensorId, e.getMessage());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            response.put("timestamp", Instant.now().toString());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+    }
+}
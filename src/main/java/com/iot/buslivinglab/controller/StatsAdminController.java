@@ -0,0 +1,68 @@
+package com.iot.buslivinglab.controller;
+
+import com.iot.buslivinglab.service.MeasurementStatsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/stats")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Admin - Statistics", description = "Backfill of daily statistics and coverage counters")
+public class StatsAdminController {
+
+    private final MeasurementStatsService statsService;
+
+    @Operation(
+            summary = "Backfill daily statistics from sensor_data",
+            description = "Computes measurement_daily_stats rows for whole UTC days before today from the stored " +
+                    "measurements of one sensor, one day at a time. Days that already have a row for a " +
+                    "measurement type are skipped unless replace=true, so the call can be repeated."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Rows written"),
+            @ApiResponse(responseCode = "400", description = "Invalid range or range not in the past")
+    })
+    @PostMapping("/backfill")
+    public ResponseEntity<Map<String, Object>> backfill(
+            @Parameter(description = "Sensor ID", example = "sensor-001")
+            @RequestParam String sensorId,
+
+            @Parameter(description = "First day, yyyy-MM-dd (inclusive)", example = "2024-01-01")
+            @RequestParam String from,
+
+            @Parameter(description = "Last day, yyyy-MM-dd (inclusive, before today)", example = "2026-10-18")
+            @RequestParam String to,
+
+            @Parameter(description = "Recompute days that already have a row")
+            @RequestParam(defaultValue = "false") boolean replace) {
+
+        Map<String, Object> response = new HashMap<>();
+        try {
+            int rows = statsService.backfill(sensorId, from, to, replace);
+            response.put("success", true);
+            response.put("sensorId", sensorId);
+            response.put("rows", rows);
+            response.put("timestamp", Instant.now().toString());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            log.warn("Stats backfill for sensor {} rejected: {}", sensorId, e.getMessage());
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            response.put("timestamp", Instant.now().toString());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
+}
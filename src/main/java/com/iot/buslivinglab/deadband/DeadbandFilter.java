@@ -0,0 +1,133 @@
+package com.iot.buslivinglab.deadband;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Odlučuje da li se vrednost serije sa deadband politikom upisuje. Upisuju se tačke na kojima vrednost izlazi
+ * iz opsega oko poslednje upisane (početak novog nivoa) i tačka posle maxSilenceMillis bez upisa; vrednosti
+ * između njih su unutar tolerancije od poslednje upisane, pa je stepenasta serija upisanih tačaka njihova
+ * verna rekonstrukcija.
+ *
+ * Stanje je u mapama po senzoru pa po tipu i ne alocira se po vrednosti. Instanca bez stanja za seriju (restart,
+ * druga instanca) upisuje prvu vrednost, pa nepoznato stanje znači više redova, nikad izgubljen nivo.
+ *
+ * Vremena poslednjih SUPPRESSED_HISTORY neupisanih vrednosti se pamte, jer ponovljenu neupisanu vrednost dedup ne
+ * može da potvrdi u bazi: zakasneli retry takve vrednosti je DUPLICATE, a ne novi red i novi događaj.
+ */
+public final class DeadbandFilter {
+
+    public enum Decision {
+        /** serija nema politiku */
+        PASS,
+        STORE,
+        /** unutar opsega, ne upisuje se */
+        SUPPRESS,
+        /** isto vreme kao poslednja viđena vrednost serije */
+        DUPLICATE
+    }
+
+    static final int SUPPRESSED_HISTORY = 64;
+
+    private static final class SeriesState {
+        boolean initialized;
+        double storedValue;
+        long storedAt;
+        long lastSeenAt;
+        /** prsten vremena neupisanih vrednosti, alocira se pri prvoj */
+        long[] suppressedAt;
+        int suppressedCount;
+
+        void suppressed(long time) {
+            if (suppressedAt == null) {
+                suppressedAt = new long[SUPPRESSED_HISTORY];
+            }
+            suppressedAt[suppressedCount++ % SUPPRESSED_HISTORY] = time;
+        }
+
+        boolean wasSuppressed(long time) {
+            for (int i = Math.min(suppressedCount, SUPPRESSED_HISTORY) - 1; i >= 0; i--) {
+                if (suppressedAt[i] == time) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private volatile Map<String, Map<String, DeadbandPolicy>> policies = Map.of();
+    private final Map<String, Map<String, SeriesState>> states = new ConcurrentHashMap<>();
+
+    /**
+     * Zamenjuje politike jednim upisom reference; stanje serija koje više nemaju politiku se briše
+     */
+    public void setPolicies(Map<String, Map<String, DeadbandPolicy>> policies) {
+        this.policies = policies;
+        states.forEach((sensorId, bySensor) -> {
+            Map<String, DeadbandPolicy> sensorPolicies = policies.get(sensorId);
+            bySensor.keySet().removeIf(type -> sensorPolicies == null || !sensorPolicies.containsKey(type));
+        });
+        states.values().removeIf(Map::isEmpty);
+    }
+
+    public DeadbandPolicy policy(String sensorId, String measurementType) {
+        Map<String, DeadbandPolicy> bySensor = policies.get(sensorId);
+        return bySensor != null ? bySensor.get(measurementType) : null;
+    }
+
+    /**
+     * @return tipovi merenja senzora sa politikom (prazno ako nema nijednog)
+     */
+    public Map<String, DeadbandPolicy> policies(String sensorId) {
+        return policies.getOrDefault(sensorId, Map.of());
+    }
+
+    public Decision offer(String sensorId, String measurementType, double value, Instant timestamp) {
+        DeadbandPolicy policy = policy(sensorId, measurementType);
+        if (policy == null) {
+            return Decision.PASS;
+        }
+        SeriesState state = states.computeIfAbsent(sensorId, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(measurementType, key -> new SeriesState());
+        long time = timestamp.toEpochMilli();
+        synchronized (state) {
+            if (state.initialized) {
+                if (time == state.lastSeenAt) {
+                    return Decision.DUPLICATE;
+                }
+                if (time < state.lastSeenAt) {
+                    if (state.wasSuppressed(time)) {
+                        return Decision.DUPLICATE;
+                    }
+                    // zakasnela vrednost unutar trenutnog nivoa se ne upisuje; ostale se upisuju, stanje se ne menja
+                    if (time > state.storedAt && policy.inBand(state.storedValue, value)) {
+                        state.suppressed(time);
+                        return Decision.SUPPRESS;
+                    }
+                    return Decision.STORE;
+                }
+                if (policy.inBand(state.storedValue, value) && time - state.storedAt < policy.maxSilenceMillis()) {
+                    state.lastSeenAt = time;
+                    state.suppressed(time);
+                    return Decision.SUPPRESS;
+                }
+            }
+            state.initialized = true;
+            state.storedValue = value;
+            state.storedAt = time;
+            state.lastSeenAt = time;
+            return Decision.STORE;
+        }
+    }
+
+    /**
+     * Zaboravlja stanje serije (npr. posle rollback-a), pa se sledeća vrednost upisuje
+     */
+    public void forget(String sensorId, String measurementType) {
+        Map<String, SeriesState> bySensor = states.get(sensorId);
+        if (bySensor != null) {
+            bySensor.remove(measurementType);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.iot.buslivinglab.deadband;
+
+/**
+ * Deadband jedne serije: vrednost se ne upisuje dok ostaje unutar tolerancije oko poslednje upisane,
+ * a najkasnije posle maxSilenceMillis se upisuje bez obzira na promenu
+ *
+ * @param absolute apsolutna tolerancija u jedinici serije; 0 = nema
+ * @param relative relativna tolerancija (deo poslednje upisane vrednosti); 0 = nema
+ */
+public record DeadbandPolicy(double absolute, double relative, long maxSilenceMillis) {
+
+    /**
+     * @return null ako serija nema nijednu toleranciju
+     */
+    public static DeadbandPolicy of(Double absolute, Double relative, Long maxSilenceMillis, long defaultMaxSilenceMillis) {
+        if (absolute == null && relative == null) {
+            return null;
+        }
+        if ((absolute != null && absolute < 0) || (relative != null && relative < 0)) {
+            throw new IllegalArgumentException("Deadband tolerance must not be negative");
+        }
+        return new DeadbandPolicy(absolute != null ? absolute : 0, relative != null ? relative : 0,
+                maxSilenceMillis != null && maxSilenceMillis > 0 ? maxSilenceMillis : defaultMaxSilenceMillis);
+    }
+
+    /**
+     * Šira od dve tolerancije; NaN nikad nije unutar opsega
+     */
+    public boolean inBand(double reference, double value) {
+        return Math.abs(value - reference) <= Math.max(absolute, relative * Math.abs(reference));
+    }
+}
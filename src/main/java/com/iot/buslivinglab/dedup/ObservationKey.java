@@ -0,0 +1,22 @@
+package com.iot.buslivinglab.dedup;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Prirodni ključ merenja (unique key u sensor_data). Vreme je svedeno na mikrosekunde,
+ * koliko čuva kolona timestamp, da bi se ključ iz zahteva poklopio sa ključem iz baze.
+ */
+public record ObservationKey(String sensorId, String measurementType, Instant timestamp) {
+
+    public ObservationKey {
+        timestamp = timestamp.truncatedTo(ChronoUnit.MICROS);
+    }
+
+    /**
+     * Ključ za Bloom filter; vreme kao epoch mikrosekunde da ne zavisi od formata
+     */
+    public String filterKey() {
+        return sensorId + '|' + measurementType + '|' + ChronoUnit.MICROS.between(Instant.EPOCH, timestamp);
+    }
+}
@@ -0,0 +1,118 @@
+package com.iot.buslivinglab.dedup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom filter nedavnih ključeva u dve generacije. Kada tekuća generacija primi expectedKeys ključeva,
+ * postaje prethodna, a prethodna se odbacuje; ključ se pamti za poslednjih expectedKeys do 2 × expectedKeys upisa.
+ * Nema lažno negativnih odgovora unutar tog prozora; lažno pozitivni su oko falsePositiveRate po generaciji.
+ * Bitovi se postavljaju CAS-om, bez zaključavanja.
+ */
+public class RotatingBloomFilter {
+
+    private final long bits;
+    private final int hashes;
+    private final long expectedKeys;
+
+    private volatile Generation current;
+    private volatile Generation previous;
+
+    public RotatingBloomFilter(long expectedKeys, double falsePositiveRate) {
+        if (expectedKeys <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("expectedKeys must be > 0 and falsePositiveRate in (0, 1)");
+        }
+        this.expectedKeys = expectedKeys;
+        double ln2 = Math.log(2);
+        this.bits = Math.max(64, (long) Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (ln2 * ln2)));
+        this.hashes = Math.max(1, (int) Math.round((double) bits / expectedKeys * ln2));
+        this.current = new Generation(bits);
+        this.previous = new Generation(bits);
+    }
+
+    public boolean mightContain(String key) {
+        long hash = hash(key);
+        return current.contains(hash, bits, hashes) || previous.contains(hash, bits, hashes);
+    }
+
+    public void put(String key) {
+        Generation generation = current;
+        generation.put(hash(key), bits, hashes);
+        generation.count.increment();
+        if (generation.count.sum() >= expectedKeys) {
+            rotate(generation);
+        }
+    }
+
+    /**
+     * Veličina jedne generacije u bajtovima
+     */
+    public long getSizeBytes() {
+        return (bits + 63) / 64 * Long.BYTES;
+    }
+
+    public int getHashes() {
+        return hashes;
+    }
+
+    private synchronized void rotate(Generation full) {
+        if (current == full) {
+            previous = full;
+            current = new Generation(bits);
+        }
+    }
+
+    /**
+     * FNV-1a (64 bit) sa fmix64 iz MurmurHash3; dve 32-bitne polovine se koriste za double hashing
+     */
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Generation {
+
+        private final AtomicLongArray words;
+        private final LongAdder count = new LongAdder();
+
+        private Generation(long bits) {
+            this.words = new AtomicLongArray((int) ((bits + 63) / 64));
+        }
+
+        private boolean contains(long hash, long bits, int hashes) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, bits);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void put(long hash, long bits, int hashes) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, bits);
+                long mask = 1L << bit;
+                int index = (int) (bit >>> 6);
+                long word = words.get(index);
+                while ((word & mask) == 0 && !words.compareAndSet(index, word, word | mask)) {
+                    word = words.get(index);
+                }
+            }
+        }
+    }
+}
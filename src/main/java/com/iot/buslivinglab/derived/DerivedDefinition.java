@@ -0,0 +1,48 @@
+package com.iot.buslivinglab.derived;
+
+/**
+ * Definicija izvedenog tipa merenja
+ *
+ * @param temperatureType tip temperature (°C) za COMPENSATED_EC, inače null
+ * @param windowSize      broj vrednosti za MOVING_AVERAGE, inače 0
+ */
+public record DerivedDefinition(String typeId, DerivedFunction function, String sourceType, String temperatureType,
+                                int windowSize, double coefficient) {
+
+    /**
+     * Uobičajeni temperaturni koeficijent provodljivosti zemljišnog rastvora (2 % po °C)
+     */
+    public static final double DEFAULT_EC_COEFFICIENT = 0.02;
+
+    public static final double REFERENCE_TEMPERATURE = 25.0;
+
+    /**
+     * @throws IllegalArgumentException ako definiciji nedostaje parametar funkcije
+     */
+    public static DerivedDefinition of(String typeId, String function, String sourceType, String temperatureType,
+                                       Integer windowSize, Double coefficient, int maxWindowSize) {
+        DerivedFunction derivedFunction = DerivedFunction.fromTag(function);
+        if (sourceType == null || sourceType.isBlank() || sourceType.equals(typeId)) {
+            throw new IllegalArgumentException("Source type must be set and differ from the derived type");
+        }
+        return switch (derivedFunction) {
+            case MOVING_AVERAGE -> {
+                if (windowSize == null || windowSize < 1 || windowSize > maxWindowSize) {
+                    throw new IllegalArgumentException("moving_average needs window_size between 1 and " + maxWindowSize);
+                }
+                yield new DerivedDefinition(typeId, derivedFunction, sourceType, null, windowSize, 0);
+            }
+            case COMPENSATED_EC -> {
+                if (temperatureType == null || temperatureType.isBlank()) {
+                    throw new IllegalArgumentException("compensated_ec needs temperature_type");
+                }
+                double ecCoefficient = coefficient != null ? coefficient : DEFAULT_EC_COEFFICIENT;
+                if (!(ecCoefficient >= 0)) {
+                    throw new IllegalArgumentException("compensated_ec coefficient must not be negative");
+                }
+                yield new DerivedDefinition(typeId, derivedFunction, sourceType, temperatureType, 0, ecCoefficient);
+            }
+            case DAILY_SUM -> new DerivedDefinition(typeId, derivedFunction, sourceType, null, 0, 0);
+        };
+    }
+}
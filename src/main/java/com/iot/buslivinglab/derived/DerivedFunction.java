@@ -0,0 +1,31 @@
+package com.iot.buslivinglab.derived;
+
+import java.util.Locale;
+
+public enum DerivedFunction {
+    /** Prosek poslednjih window_size vrednosti izvornog tipa */
+    MOVING_AVERAGE("moving_average"),
+    /** EC sveden na 25 °C: EC / (1 + coefficient * (T - 25)) */
+    COMPENSATED_EC("compensated_ec"),
+    /** Zbir vrednosti izvornog tipa od početka dana */
+    DAILY_SUM("daily_sum");
+
+    private final String tag;
+
+    DerivedFunction(String tag) {
+        this.tag = tag;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public static DerivedFunction fromTag(String tag) {
+        for (DerivedFunction function : values()) {
+            if (function.tag.equals(tag != null ? tag.trim().toLowerCase(Locale.ROOT) : null)) {
+                return function;
+            }
+        }
+        throw new IllegalArgumentException("Unknown derived function: " + tag);
+    }
+}
@@ -0,0 +1,315 @@
+package com.iot.buslivinglab.derived;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Računa izvedene vrednosti inkrementalno, iz stanja ograničene veličine po seriji (senzor, izvedeni tip):
+ * prozor od window_size vrednosti sa tekućim zbirom za MOVING_AVERAGE, dan i zbir za DAILY_SUM, a za
+ * COMPENSATED_EC samo poslednja temperatura senzora.
+ *
+ * Serija bez stanja (restart, druga instanca, promenjena definicija) ga puni iz upisanih podataka preko History,
+ * jednom, pa izvedena vrednost posle restarta nastavlja prozor i dnevni zbir. Vrednost koja nije novija od
+ * poslednje obrađene u seriji se preskače, da ponovljena ili zakasnela vrednost ne bi dva puta ušla u zbir.
+ * Ako History zna vreme poslednjeg upisanog izvedenog reda, a ono je novije od stanja, seriju je u međuvremenu
+ * nastavila druga instanca, pa se stanje puni ponovo.
+ */
+public final class DerivedSeriesEngine {
+
+    /**
+     * Upisana vrednost tipa
+     */
+    public record Sample(double value, Instant timestamp) {
+    }
+
+    /**
+     * Izvor upisanih vrednosti za punjenje stanja
+     */
+    @FunctionalInterface
+    public interface History {
+
+        /**
+         * @return najviše n poslednjih vrednosti tipa pre trenutka before, od najnovije
+         */
+        List<Sample> latestBefore(String sensorId, String measurementType, Instant before, int n);
+
+        /**
+         * @return vreme poslednje upisane vrednosti tipa, ili null ako se stanje ne proverava
+         */
+        default Instant lastStoredAt(String sensorId, String measurementType) {
+            return null;
+        }
+    }
+
+    public record DerivedValue(DerivedDefinition definition, double value) {
+    }
+
+    private static final class SeriesState {
+        double[] window;
+        int count;
+        int next;
+        double sum;
+        long day;
+        long lastAt = Long.MIN_VALUE;
+    }
+
+    private static final class Temperature {
+        double value = Double.NaN;
+        long at = Long.MIN_VALUE;
+    }
+
+    private final long maxTemperatureAgeMillis;
+    private final ZoneId dayZone;
+
+    private volatile Map<String, List<DerivedDefinition>> typeDefinitions = Map.of();
+    private volatile Map<String, Map<String, List<DerivedDefinition>>> sensorDefinitions = Map.of();
+    private volatile Set<String> temperatureTypes = Set.of();
+    private volatile Map<String, DerivedDefinition> definitionsById = Map.of();
+    private final Map<String, Map<String, SeriesState>> states = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Temperature>> temperatures = new ConcurrentHashMap<>();
+
+    public DerivedSeriesEngine(long maxTemperatureAgeMillis, ZoneId dayZone) {
+        this.maxTemperatureAgeMillis = maxTemperatureAgeMillis;
+        this.dayZone = dayZone;
+    }
+
+    /**
+     * Zamenjuje definicije; stanje izvedenih tipova čija se definicija promenila ili koji više ne postoje se briše
+     *
+     * @param forAllSensors definicije bez senzora
+     * @param bySensor      definicije jednog senzora
+     */
+    public synchronized void setDefinitions(List<DerivedDefinition> forAllSensors,
+                                            Map<String, List<DerivedDefinition>> bySensor) {
+        Map<String, DerivedDefinition> byId = new HashMap<>();
+        Map<String, List<DerivedDefinition>> byType = bySource(forAllSensors, Map.of(), byId);
+        Map<String, Map<String, List<DerivedDefinition>>> sensorTypes = new HashMap<>();
+        // definicije senzora zajedno sa definicijama za sve senzore, da lookup bude jedan get
+        bySensor.forEach((sensorId, definitions) -> sensorTypes.put(sensorId, bySource(definitions, byType, byId)));
+        Set<String> temperatureTypes = new HashSet<>();
+        byId.values().forEach(definition -> {
+            if (definition.temperatureType() != null) {
+                temperatureTypes.add(definition.temperatureType());
+            }
+        });
+
+        Map<String, DerivedDefinition> previous = definitionsById;
+        this.typeDefinitions = byType;
+        this.sensorDefinitions = Map.copyOf(sensorTypes);
+        this.temperatureTypes = Set.copyOf(temperatureTypes);
+        this.definitionsById = Map.copyOf(byId);
+        previous.forEach((typeId, definition) -> {
+            if (!definition.equals(byId.get(typeId))) {
+                states.values().forEach(bySeries -> bySeries.remove(typeId));
+            }
+        });
+        states.values().removeIf(Map::isEmpty);
+    }
+
+    private static Map<String, List<DerivedDefinition>> bySource(List<DerivedDefinition> definitions,
+                                                                 Map<String, List<DerivedDefinition>> base,
+                                                                 Map<String, DerivedDefinition> byId) {
+        Map<String, List<DerivedDefinition>> bySource = new HashMap<>();
+        base.forEach((type, list) -> bySource.put(type, new ArrayList<>(list)));
+        for (DerivedDefinition definition : definitions) {
+            byId.put(definition.typeId(), definition);
+            bySource.computeIfAbsent(definition.sourceType(), type -> new ArrayList<>()).add(definition);
+        }
+        bySource.replaceAll((type, list) -> List.copyOf(list));
+        return Map.copyOf(bySource);
+    }
+
+    /**
+     * @return izvedeni tipovi koji se računaju iz tipa merenja senzora (prazno ako nijedan)
+     */
+    public List<DerivedDefinition> definitions(String sensorId, String measurementType) {
+        Map<String, List<DerivedDefinition>> bySensor = sensorDefinitions.get(sensorId);
+        List<DerivedDefinition> definitions = (bySensor != null ? bySensor : typeDefinitions).get(measurementType);
+        return definitions != null ? definitions : List.of();
+    }
+
+    /**
+     * Da li je tip merenja temperatura nekog COMPENSATED_EC tipa (pamti se pre računanja, bez obzira na redosled
+     * članova opservacije)
+     */
+    public boolean isTemperature(String measurementType) {
+        return temperatureTypes.contains(measurementType);
+    }
+
+    public void observeTemperature(String sensorId, String measurementType, double value, Instant timestamp) {
+        Temperature temperature = temperature(sensorId, measurementType);
+        long time = timestamp.toEpochMilli();
+        synchronized (temperature) {
+            if (time >= temperature.at && !Double.isNaN(value)) {
+                temperature.value = value;
+                temperature.at = time;
+            }
+        }
+    }
+
+    /**
+     * Izvedene vrednosti za jednu upisanu vrednost izvornog tipa, sa vremenom izvorne vrednosti
+     *
+     * @return prazno ako tip nije izvor ili nijedna funkcija nema vrednost (zakasnela vrednost, nema temperature)
+     */
+    public List<DerivedValue> derive(String sensorId, String measurementType, double value, Instant timestamp,
+                                     History history) {
+        List<DerivedDefinition> definitions = definitions(sensorId, measurementType);
+        if (definitions.isEmpty() || Double.isNaN(value) || Double.isInfinite(value)) {
+            return List.of();
+        }
+        List<DerivedValue> derived = new ArrayList<>(definitions.size());
+        for (DerivedDefinition definition : definitions) {
+            double result = switch (definition.function()) {
+                case MOVING_AVERAGE -> movingAverage(sensorId, definition, value, timestamp, history);
+                case COMPENSATED_EC -> compensatedEc(sensorId, definition, value, timestamp, history);
+                case DAILY_SUM -> dailySum(sensorId, definition, value, timestamp, history);
+            };
+            if (!Double.isNaN(result)) {
+                derived.add(new DerivedValue(definition, result));
+            }
+        }
+        return derived;
+    }
+
+    private double movingAverage(String sensorId, DerivedDefinition definition, double value, Instant timestamp,
+                                 History history) {
+        SeriesState state = state(sensorId, definition.typeId());
+        long time = timestamp.toEpochMilli();
+        synchronized (state) {
+            if (state.window != null && storedAfter(state, sensorId, definition, history)) {
+                state.window = null;
+                state.count = 0;
+                state.next = 0;
+                state.sum = 0;
+                state.lastAt = Long.MIN_VALUE;
+            }
+            if (state.window == null) {
+                state.window = new double[definition.windowSize()];
+                List<Sample> previous = definition.windowSize() > 1 ? history.latestBefore(sensorId,
+                        definition.sourceType(), timestamp, definition.windowSize() - 1) : List.of();
+                for (int i = previous.size() - 1; i >= 0; i--) {
+                    add(state, previous.get(i).value());
+                    state.lastAt = previous.get(i).timestamp().toEpochMilli();
+                }
+            }
+            if (time <= state.lastAt) {
+                return Double.NaN;
+            }
+            add(state, value);
+            state.lastAt = time;
+            return state.sum / state.count;
+        }
+    }
+
+    private static void add(SeriesState state, double value) {
+        double[] window = state.window;
+        if (state.count == window.length) {
+            state.sum -= window[state.next];
+        } else {
+            state.count++;
+        }
+        window[state.next] = value;
+        state.sum += value;
+        state.next = (state.next + 1) % window.length;
+        if (state.next == 0) {
+            // jednom po krugu zbir iz prozora, da se greška zaokruživanja ne bi gomilala
+            double sum = 0;
+            for (int i = 0; i < state.count; i++) {
+                sum += window[i];
+            }
+            state.sum = sum;
+        }
+    }
+
+    private double compensatedEc(String sensorId, DerivedDefinition definition, double value, Instant timestamp,
+                                 History history) {
+        Temperature temperature = temperature(sensorId, definition.temperatureType());
+        double celsius;
+        long at;
+        synchronized (temperature) {
+            if (temperature.at == Long.MIN_VALUE) {
+                // jednom po seriji; bez upisane temperature ostaje NaN do prve primljene
+                temperature.at = Long.MIN_VALUE + 1;
+                List<Sample> latest = history.latestBefore(sensorId, definition.temperatureType(), timestamp, 1);
+                if (!latest.isEmpty()) {
+                    temperature.value = latest.get(0).value();
+                    temperature.at = latest.get(0).timestamp().toEpochMilli();
+                }
+            }
+            celsius = temperature.value;
+            at = temperature.at;
+        }
+        if (Double.isNaN(celsius) || Math.abs(timestamp.toEpochMilli() - at) > maxTemperatureAgeMillis) {
+            return Double.NaN;
+        }
+        double factor = 1 + definition.coefficient() * (celsius - DerivedDefinition.REFERENCE_TEMPERATURE);
+        return factor > 0 ? value / factor : Double.NaN;
+    }
+
+    private double dailySum(String sensorId, DerivedDefinition definition, double value, Instant timestamp,
+                            History history) {
+        SeriesState state = state(sensorId, definition.typeId());
+        long time = timestamp.toEpochMilli();
+        long day = timestamp.atZone(dayZone).toLocalDate().toEpochDay();
+        synchronized (state) {
+            if (state.lastAt != Long.MIN_VALUE && storedAfter(state, sensorId, definition, history)) {
+                state.lastAt = Long.MIN_VALUE;
+            }
+            if (state.lastAt == Long.MIN_VALUE) {
+                // upisani zbir je stanje; zbir iz ranijeg dana se ne nastavlja
+                state.day = Long.MIN_VALUE;
+                List<Sample> latest = history.latestBefore(sensorId, definition.typeId(), timestamp, 1);
+                if (!latest.isEmpty()) {
+                    Instant stored = latest.get(0).timestamp();
+                    state.day = stored.atZone(dayZone).toLocalDate().toEpochDay();
+                    state.sum = latest.get(0).value();
+                    state.lastAt = stored.toEpochMilli();
+                }
+            }
+            if (time <= state.lastAt) {
+                return Double.NaN;
+            }
+            if (day != state.day) {
+                state.day = day;
+                state.sum = 0;
+            }
+            state.sum += value;
+            state.lastAt = time;
+            return state.sum;
+        }
+    }
+
+    /**
+     * Da li postoji upisana izvedena vrednost novija od stanja serije (upisala ju je druga instanca)
+     */
+    private static boolean storedAfter(SeriesState state, String sensorId, DerivedDefinition definition,
+                                       History history) {
+        Instant stored = history.lastStoredAt(sensorId, definition.typeId());
+        return stored != null && stored.toEpochMilli() > state.lastAt;
+    }
+
+    /**
+     * Zaboravlja stanje senzora (npr. posle rollback-a), pa se sledeća vrednost računa iz upisanih podataka
+     */
+    public void forget(String sensorId) {
+        states.remove(sensorId);
+        temperatures.remove(sensorId);
+    }
+
+    public int getSeries() {
+        return states.values().stream().mapToInt(Map::size).sum();
+    }
+
+    private SeriesState state(String sensorId, String typeId) {
+        return states.computeIfAbsent(sensorId, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(typeId, key -> new SeriesState());
+    }
+
+    private Temperature temperature(String sensorId, String measurementType) {
+        return temperatures.computeIfAbsent(sensorId, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(measurementType, key -> new Temperature());
+    }
+}
@@ -0,0 +1,32 @@
+package com.iot.buslivinglab.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CoverageResponse {
+    private LocalDate from;
+    private LocalDate to;
+    private String resolution;  // day ili hour
+    private String measurementType;
+    private List<SensorCoverage> sensors;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SensorCoverage {
+        private String sensorId;
+        private long total;
+        // counts[i] je broj vrednosti i-tog dana (ili sata) od from 00:00 UTC
+        private long[] counts;
+    }
+}
@@ -0,0 +1,47 @@
+package com.iot.buslivinglab.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueryStatsResponse {
+    private long slowThresholdMs;
+    private List<MethodStats> methods;
+    private List<SlowStatement> slowStatements;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class MethodStats {
+        private String repositoryMethod;
+        private long statements;
+        private long rows;
+        private long totalTimeMs;
+        private long maxTimeMs;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class SlowStatement {
+        private Instant time;
+        private String requestId;
+        private String repositoryMethod;
+        private long elapsedMs;
+        private Integer batchSize;
+        private String sql;
+        private List<String> parameters;
+    }
+}
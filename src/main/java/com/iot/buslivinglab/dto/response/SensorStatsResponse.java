@@ -0,0 +1,41 @@
+package com.iot.buslivinglab.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorStatsResponse {
+    private String sensorId;
+    private LocalDate from;
+    private LocalDate to;
+    private List<MeasurementStats> data;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class MeasurementStats {
+        private String property;
+        private String unit;
+        @JsonIgnore
+        private Integer orderNumber;  // Za sortiranje iz baze
+        private long count;
+        private int days;
+        private Double min;
+        private Double max;
+        private Double mean;
+        private Double stddev;
+        private Double p5;
+        private Double p50;
+        private Double p95;
+    }
+}
@@ -0,0 +1,45 @@
+package com.iot.buslivinglab.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+public class ShardingResponse {
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Overview {
+        private List<ShardStats> shards;
+        private long totalRows;
+        private long sensorsMoving;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ShardStats {
+        private String name;
+        private long rows;
+        private long sensors;
+        private long assignedSensors;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Rebalance {
+        private String sensorId;
+        private String fromShard;
+        private String toShard;
+        private long rowsCopied;
+        private long rowsDeleted;
+        private long elapsedMs;
+    }
+}
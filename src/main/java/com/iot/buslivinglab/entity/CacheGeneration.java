@@ -0,0 +1,30 @@
+package com.iot.buslivinglab.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Generacija jednog keša koji drži svaka instanca. Instanca koja promeni keširane podatke povećava generaciju;
+ * ostale je vide pri sledećem čitanju tabele i prazne svoj keš.
+ */
+@Entity
+@Table(name = "cache_generations")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheGeneration {
+
+    @Id
+    @Column(name = "cache_name", length = 50)
+    private String cacheName;
+
+    @Column(name = "generation", nullable = false)
+    private Long generation;
+
+    @Column(name = "updated_at", nullable = false, columnDefinition = "TIMESTAMP(6)")
+    private Instant updatedAt;
+}
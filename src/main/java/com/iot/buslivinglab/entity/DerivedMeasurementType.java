@@ -0,0 +1,47 @@
+package com.iot.buslivinglab.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Izvedeni tip merenja: računa se na ingest-u iz izvornog tipa istog senzora i upisuje u sensor_data kao
+ * običan tip (measurement_types i sensor_measurement_types se popunjavaju kao za primljene tipove).
+ */
+@Entity
+@Table(name = "derived_measurement_types")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DerivedMeasurementType {
+
+    @Id
+    @Column(name = "type_id", length = 100)
+    private String typeId;
+
+    // moving_average, compensated_ec ili daily_sum
+    @Column(name = "function_name", length = 30, nullable = false)
+    private String function;
+
+    @Column(name = "source_type", length = 100, nullable = false)
+    private String sourceType;
+
+    // Temperatura (°C) za compensated_ec
+    @Column(name = "temperature_type", length = 100)
+    private String temperatureType;
+
+    // Broj poslednjih vrednosti za moving_average
+    @Column(name = "window_size")
+    private Integer windowSize;
+
+    // Temperaturni koeficijent za compensated_ec (deo po °C)
+    @Column(name = "coefficient")
+    private Double coefficient;
+
+    // null = svi senzori koji šalju izvorni tip
+    @Column(name = "sensor_id", length = 100)
+    private String sensorId;
+}
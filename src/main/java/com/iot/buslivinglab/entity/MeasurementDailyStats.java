@@ -0,0 +1,54 @@
+package com.iot.buslivinglab.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Statistika jednog tipa merenja jednog senzora za jedan UTC dan (Welford momenti, min/max, sketch kvantila
+ * i broj vrednosti po satu).
+ * Period se računa spajanjem dnevnih redova, bez čitanja sensor_data.
+ */
+@Entity
+@Table(name = "measurement_daily_stats")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MeasurementDailyStats {
+
+    @EmbeddedId
+    private MeasurementDailyStatsId id;
+
+    @Column(name = "sample_count", nullable = false)
+    private Long sampleCount;
+
+    @Column(name = "mean", nullable = false)
+    private Double mean;
+
+    // suma kvadrata odstupanja od srednje vrednosti
+    @Column(name = "m2", nullable = false)
+    private Double m2;
+
+    @Column(name = "min_value")
+    private Double minValue;
+
+    @Column(name = "max_value")
+    private Double maxValue;
+
+    @Column(name = "sketch", columnDefinition = "BLOB")
+    private byte[] sketch;
+
+    // broj vrednosti po satu dana (HourCounts); null za dane upisane pre satnih brojača
+    @Column(name = "hour_counts", columnDefinition = "VARBINARY(255)")
+    private byte[] hourCounts;
+
+    @Column(name = "updated_at", nullable = false, columnDefinition = "TIMESTAMP(6)")
+    private Instant updatedAt;
+
+    public String getMeasurementType() {
+        return id != null ? id.getMeasurementType() : null;
+    }
+}
@@ -0,0 +1,25 @@
+package com.iot.buslivinglab.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MeasurementDailyStatsId implements Serializable {
+    @Column(name = "sensor_id", length = 100)
+    private String sensorId;
+
+    @Column(name = "measurement_type", length = 100)
+    private String measurementType;
+
+    @Column(name = "day_utc")
+    private LocalDate day;
+}
@@ -0,0 +1,27 @@
+package com.iot.buslivinglab.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Heartbeat red koji aplikacija periodično upisuje na primary; kašnjenje replike je
+ * razlika između sada i vremena koje replika vidi (isti sat upisuje i meri).
+ */
+@Entity
+@Table(name = "replica_heartbeat")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplicaHeartbeat {
+
+    @Id
+    @Column(name = "id")
+    private Integer id;
+
+    @Column(name = "beat_at", nullable = false)
+    private Instant beatAt;
+}
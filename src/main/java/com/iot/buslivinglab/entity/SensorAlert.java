@@ -0,0 +1,65 @@
+package com.iot.buslivinglab.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Prekoračenje praga jedne serije od prve do poslednje vrednosti van praga; otvoren dok je closed_at null.
+ * Vremena su vremena opservacija, ne upisa.
+ */
+@Entity
+@Table(name = "sensor_alerts", indexes = {
+        @Index(name = "idx_alert_sensor_opened", columnList = "sensor_id, opened_at DESC"),
+        @Index(name = "idx_alert_closed", columnList = "closed_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SensorAlert {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "alert_id")
+    private Long alertId;
+
+    @Column(name = "sensor_id", length = 100, nullable = false)
+    private String sensorId;
+
+    @Column(name = "measurement_type", length = 100, nullable = false)
+    private String measurementType;
+
+    // below_min ili above_max
+    @Column(name = "kind", length = 20, nullable = false)
+    private String kind;
+
+    @Column(name = "threshold")
+    private Double threshold;
+
+    @Column(name = "opened_at", nullable = false, columnDefinition = "TIMESTAMP(6)")
+    private Instant openedAt;
+
+    @Column(name = "closed_at", columnDefinition = "TIMESTAMP(6)")
+    private Instant closedAt;
+
+    // najdalja vrednost od praga
+    @Column(name = "peak_value")
+    private Double peakValue;
+
+    @Column(name = "last_value")
+    private Double lastValue;
+
+    @Column(name = "last_observed_at", columnDefinition = "TIMESTAMP(6)")
+    private Instant lastObservedAt;
+
+    @Column(name = "sample_count", nullable = false)
+    private Long sampleCount;
+
+    @Column(name = "updated_at", nullable = false, columnDefinition = "TIMESTAMP(6)")
+    private Instant updatedAt;
+}
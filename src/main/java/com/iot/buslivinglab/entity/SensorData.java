@@ -11,6 +11,9 @@ import java.time.ZoneId;
         @Index(name = "idx_sensor_timestamp", columnList = "sensor_id, timestamp DESC"),
         @Index(name = "idx_timestamp", columnList = "timestamp DESC"),
         @Index(name = "idx_measurement_type", columnList = "measurement_type")
+}, uniqueConstraints = {
+        // Ponovljena opservacija (retry gateway-a) ne sme da napravi drugi red
+        @UniqueConstraint(name = "uk_sensor_type_timestamp", columnNames = {"sensor_id", "measurement_type", "timestamp"})
 })
 @Data
 @NoArgsConstructor
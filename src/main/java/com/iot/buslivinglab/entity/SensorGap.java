@@ -0,0 +1,45 @@
+package com.iot.buslivinglab.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Prekid u podacima jedne serije: od poslednje vrednosti pre tišine do prve posle nje; otvoren dok je ended_at null.
+ * Vremena početka i kraja su vremena opservacija, detected_at je vreme kada je tišina primećena.
+ */
+@Entity
+@Table(name = "sensor_gaps", indexes = {
+        @Index(name = "idx_gap_sensor_started", columnList = "sensor_id, started_at DESC"),
+        @Index(name = "idx_gap_ended", columnList = "ended_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SensorGap {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "gap_id")
+    private Long gapId;
+
+    @Column(name = "sensor_id", length = 100, nullable = false)
+    private String sensorId;
+
+    @Column(name = "measurement_type", length = 100, nullable = false)
+    private String measurementType;
+
+    @Column(name = "started_at", nullable = false, columnDefinition = "TIMESTAMP(6)")
+    private Instant startedAt;
+
+    @Column(name = "ended_at", columnDefinition = "TIMESTAMP(6)")
+    private Instant endedAt;
+
+    @Column(name = "detected_at", nullable = false, columnDefinition = "TIMESTAMP(6)")
+    private Instant detectedAt;
+}
@@ -6,7 +6,10 @@ import lombok.*;
 import java.time.Instant;
 
 @Entity
-@Table(name = "sensor_measurement_types")
+@Table(name = "sensor_measurement_types", indexes = {
+        // liveness pretraga čita samo aktivne serije kojima je rok prošao
+        @Index(name = "idx_smt_active_overdue", columnList = "is_active, overdue_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -30,6 +33,25 @@ public class SensorMeasurementType {
     @Column(name = "max_threshold")
     private Double maxThreshold;
 
+    // najduža dozvoljena tišina serije; null = liveness.default-max-silence-ms
+    @Column(name = "max_silence_ms")
+    private Long maxSilenceMs;
+
+    // rok za sledeću vrednost: last_observed + najduža tišina
+    @Column(name = "overdue_at", columnDefinition = "TIMESTAMP(6)")
+    private Instant overdueAt;
+
+    // deadband: vrednost unutar tolerancije od poslednje upisane se ne upisuje; obe null = bez kompresije
+    @Column(name = "deadband_absolute")
+    private Double deadbandAbsolute;
+
+    @Column(name = "deadband_relative")
+    private Double deadbandRelative;
+
+    // najduže vreme bez upisa; null = deadband.default-max-silence-ms
+    @Column(name = "deadband_max_silence_ms")
+    private Long deadbandMaxSilenceMs;
+
 
     public String getSensorId() {
         return id != null ? id.getSensorId() : null;
@@ -0,0 +1,33 @@
+package com.iot.buslivinglab.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Shard na kome su merenja senzora (na primary-ju). Dok traje rebalans, movingTo je ciljni shard:
+ * novi upisi idu tamo, a čitanja spajaju oba shard-a.
+ */
+@Entity
+@Table(name = "sensor_shard_assignment")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorShardAssignment {
+
+    @Id
+    @Column(name = "sensor_id")
+    private String sensorId;
+
+    @Column(name = "shard_name", nullable = false, length = 100)
+    private String shardName;
+
+    @Column(name = "moving_to", length = 100)
+    private String movingTo;
+
+    @Column(name = "assigned_at", nullable = false)
+    private Instant assignedAt;
+}
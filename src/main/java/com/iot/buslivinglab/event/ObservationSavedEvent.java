@@ -0,0 +1,23 @@
+package com.iot.buslivinglab.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Instant;
+
+/**
+ * Objavljuje se za svako sačuvano merenje (jedan red u sensor_data).
+ * Slušaoci koji treba da vide samo commit-ovane podatke koriste @TransactionalEventListener.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class ObservationSavedEvent {
+
+    private final String sensorId;
+    private final String measurementType;
+    private final Double value;
+    private final String unit;
+    private final Instant timestamp;
+}
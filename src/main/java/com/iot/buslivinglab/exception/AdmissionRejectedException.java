@@ -0,0 +1,21 @@
+package com.iot.buslivinglab.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Zahtev odbijen zbog admission control-a: 429 kada je potrošen budžet senzora ili klijenta,
+ * 503 kada je dostignut limit istovremenih zahteva. Klijent treba da pokuša ponovo posle retryAfterSeconds.
+ */
+@Getter
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final HttpStatus status;
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(HttpStatus status, long retryAfterSeconds, String message) {
+        super(message);
+        this.status = status;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
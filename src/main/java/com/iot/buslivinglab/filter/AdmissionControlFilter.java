@@ -0,0 +1,120 @@
+package com.iot.buslivinglab.filter;
+
+import com.iot.buslivinglab.exception.AdmissionRejectedException;
+import com.iot.buslivinglab.service.AdmissionControlService;
+import com.iot.buslivinglab.service.AdmissionControlService.TrafficClass;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.Set;
+
+/**
+ * Admission control pre kontrolera: budžet klijenta, budžet senzora za upite (iz putanje)
+ * i adaptivni limit istovremenih zahteva. Budžet senzora za ingest proverava kontroler,
+ * jer je ID senzora u telu zahteva.
+ */
+@Component
+@ConditionalOnProperty(name = "admission.enabled", havingValue = "true")
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+@RequiredArgsConstructor
+@Slf4j
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final String API_PREFIX = "/api/sensor-data/";
+    private static final String OBSERVATIONS_PATH = API_PREFIX + "observations";
+    private static final Set<String> FLEET_PATHS = Set.of("alerts", "gaps", "coverage");
+
+    private final AdmissionControlService admissionControl;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return trafficClass(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        TrafficClass trafficClass = trafficClass(request);
+        try {
+            admissionControl.checkClient(trafficClass, clientId(request));
+            if (trafficClass == TrafficClass.QUERY) {
+                admissionControl.checkSensor(trafficClass, querySensorId(request));
+            }
+            admissionControl.enter(trafficClass);
+        } catch (AdmissionRejectedException e) {
+            reject(request, response, e);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            // Zahtev koji je kontroler odbio (429 za senzor) ne govori ništa o latenciji baze
+            boolean rejectedDownstream = response.getStatus() == HttpStatus.TOO_MANY_REQUESTS.value();
+            admissionControl.exit(trafficClass, rejectedDownstream ? -1 : System.nanoTime() - start);
+        }
+    }
+
+    private static TrafficClass trafficClass(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        if ("POST".equals(request.getMethod()) && path.equals(OBSERVATIONS_PATH)) {
+            return TrafficClass.INGEST;
+        }
+        if ("GET".equals(request.getMethod()) && path.startsWith(API_PREFIX)
+                && !path.endsWith("/stream") && !path.endsWith("/health")) {
+            return TrafficClass.QUERY;
+        }
+        return null;
+    }
+
+    /**
+     * Klijent je autentifikovani korisnik ili IP adresa; header koji šalje sam klijent se ne koristi,
+     * jer bi novim vrednostima zaobišao budžet
+     */
+    private static String clientId(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        return principal != null ? "user:" + principal.getName() : request.getRemoteAddr();
+    }
+
+    /**
+     * Senzor iz /api/sensor-data/{sensorId}[/latest|/stats]; upiti preko više senzora (/alerts, /gaps, /coverage)
+     * troše budžet senzora iz parametra sensorId, a bez njega samo budžet klijenta i limit
+     */
+    private static String querySensorId(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        int end = path.indexOf('/', API_PREFIX.length());
+        String segment = end < 0 ? path.substring(API_PREFIX.length()) : path.substring(API_PREFIX.length(), end);
+        if (FLEET_PATHS.contains(segment)) {
+            String sensorId = request.getParameter("sensorId");
+            return sensorId != null && !sensorId.isBlank() ? sensorId : null;
+        }
+        return segment;
+    }
+
+    private static void reject(HttpServletRequest request, HttpServletResponse response,
+                               AdmissionRejectedException e) throws IOException {
+        // Pod floodom bi svako odbijanje bilo jedna log linija; broj odbijanja je u buslab.admission.rejected
+        log.debug("Admission rejected {} {}: {}", request.getMethod(), request.getRequestURI(), e.getMessage());
+        response.setStatus(e.getStatus().value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"success\":false,\"message\":\""
+                + e.getMessage().replace("\\", "\\\\").replace("\"", "\\\"") + "\",\"timestamp\":\""
+                + java.time.Instant.now() + "\"}");
+    }
+}
@@ -0,0 +1,67 @@
+package com.iot.buslivinglab.filter;
+
+import com.iot.buslivinglab.service.DbConcurrencyLimiter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Propušta ka bazi najviše onoliko API zahteva koliko ima konekcija u pool-u.
+ * Live stream i health check ne koriste bazu, pa se ne ograničavaju.
+ * Sa bulkhead-ovima se ne pravi: svaki workload već ima ograničen executor i svoj pool, a jedan
+ * zajednički limit bi dozvolio teškim upitima da zauzmu sva mesta i izgladne ingest.
+ */
+@Component
+@ConditionalOnExpression("${execution.db-limiter.enabled:false} and !${bulkhead.enabled:false}")
+@RequiredArgsConstructor
+@Slf4j
+public class DbConcurrencyFilter extends OncePerRequestFilter {
+
+    private final DbConcurrencyLimiter limiter;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        return !path.startsWith("/api/sensor-data")
+                || path.endsWith("/stream")
+                || path.endsWith("/health");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = limiter.tryAcquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+
+        if (!acquired) {
+            log.warn("DB concurrency limit reached, rejecting {} {}", request.getMethod(), request.getRequestURI());
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"success\":false,\"message\":\"Database busy, retry later\"}");
+            return;
+        }
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            limiter.release();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.iot.buslivinglab.filter;
+
+import com.iot.buslivinglab.observability.QueryStatistics;
+import com.iot.buslivinglab.observability.QueryStatistics.RequestStats;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Broji JDBC upite svakog API zahteva i beleži ih po endpoint-u.
+ * Live stream se preskače jer konekcija traje satima i ne koristi bazu.
+ */
+@Component
+@ConditionalOnProperty(name = "query-instrumentation.enabled", havingValue = "true", matchIfMissing = true)
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@RequiredArgsConstructor
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    private final QueryStatistics queryStatistics;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        return !path.startsWith("/api/") || path.endsWith("/stream");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        queryStatistics.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestStats stats = queryStatistics.end();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            queryStatistics.recordRequest(request.getMethod(),
+                    pattern != null ? pattern.toString() : "UNKNOWN", stats);
+        }
+    }
+}
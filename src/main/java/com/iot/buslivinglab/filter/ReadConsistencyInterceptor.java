@@ -0,0 +1,45 @@
+package com.iot.buslivinglab.filter;
+
+import com.iot.buslivinglab.bulkhead.WorkloadContext;
+import com.iot.buslivinglab.config.ReplicaProperties;
+import com.iot.buslivinglab.service.ReplicaRoutingService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+/**
+ * Read-your-writes za upite: ako klijent pošalje X-Read-Consistency: primary ili je {sensorId}
+ * nedavno upisan, read-only transakcije zahteva idu na primary umesto na repliku.
+ */
+@Component
+@ConditionalOnProperty(name = "replica.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ReadConsistencyInterceptor implements HandlerInterceptor {
+
+    private final ReplicaRoutingService replicaRouting;
+    private final ReplicaProperties properties;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        @SuppressWarnings("unchecked")
+        Map<String, String> pathVariables = (Map<String, String>) request.getAttribute(
+                HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String sensorId = pathVariables != null ? pathVariables.get("sensorId") : null;
+
+        WorkloadContext.setPrimaryRequired(replicaRouting.isPrimaryRequired(
+                sensorId, request.getHeader(properties.getConsistencyHeader())));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        WorkloadContext.setPrimaryRequired(false);
+    }
+}
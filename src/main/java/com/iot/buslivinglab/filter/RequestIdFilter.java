@@ -0,0 +1,44 @@
+package com.iot.buslivinglab.filter;
+
+import com.iot.buslivinglab.observability.LogDebugTargets;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Dodeljuje svakom zahtevu request ID (iz X-Request-Id ili novi) i stavlja ga u MDC,
+ * da bi se log linije jednog zahteva mogle pratiti i ciljano uključiti na DEBUG.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestIdFilter extends OncePerRequestFilter {
+
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String requestId = request.getHeader(REQUEST_ID_HEADER);
+        if (requestId == null || requestId.isBlank() || requestId.length() > 64) {
+            requestId = UUID.randomUUID().toString().substring(0, 8);
+        }
+
+        MDC.put(LogDebugTargets.MDC_REQUEST_ID, requestId);
+        response.setHeader(REQUEST_ID_HEADER, requestId);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            MDC.remove(LogDebugTargets.MDC_REQUEST_ID);
+            MDC.remove(LogDebugTargets.MDC_SENSOR_ID);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.iot.buslivinglab.filter;
+
+import com.iot.buslivinglab.observability.LogDebugTargets;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+/**
+ * Stavlja {sensorId} iz putanje u MDC. Za POST /observations sensorId postavlja SensorDataService.
+ */
+@Component
+public class SensorLoggingInterceptor implements HandlerInterceptor {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        @SuppressWarnings("unchecked")
+        Map<String, String> pathVariables = (Map<String, String>) request.getAttribute(
+                HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+
+        if (pathVariables != null && pathVariables.containsKey("sensorId")) {
+            MDC.put(LogDebugTargets.MDC_SENSOR_ID, pathVariables.get("sensorId"));
+        }
+        return true;
+    }
+}
@@ -0,0 +1,54 @@
+package com.iot.buslivinglab.lock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fiksan niz lock-ova izabranih po hash-u ključa: isti ključ uvek dobija isti lock, a različiti ključevi
+ * retko dele lock, pa se serijalizuje samo rad nad istim ključem. Memorija ne raste sa brojem ključeva.
+ */
+public class StripedLocks {
+
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    /**
+     * @param stripes broj lock-ova, zaokružuje se na stepen dvojke
+     */
+    public StripedLocks(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    public ReentrantLock lockFor(String key) {
+        int h = key.hashCode();
+        // Kao HashMap.spread: viši bitovi utiču na izbor lock-a
+        return locks[(h ^ (h >>> 16)) & mask];
+    }
+
+    /**
+     * Različiti lock-ovi za više ključeva, u redosledu stripe-a: ko ih uzima tim redom ne može da se zaključa
+     * unakrsno sa drugim takvim pozivom
+     */
+    public List<ReentrantLock> locksFor(Collection<String> keys) {
+        SortedMap<Integer, ReentrantLock> byStripe = new TreeMap<>();
+        for (String key : keys) {
+            int h = key.hashCode();
+            int stripe = (h ^ (h >>> 16)) & mask;
+            byStripe.put(stripe, locks[stripe]);
+        }
+        return new ArrayList<>(byStripe.values());
+    }
+
+    public int getStripes() {
+        return locks.length;
+    }
+}
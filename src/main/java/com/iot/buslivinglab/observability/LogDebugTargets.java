@@ -0,0 +1,82 @@
+package com.iot.buslivinglab.observability;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Senzori i request ID-jevi za koje je privremeno uključen DEBUG log.
+ * Statički registar jer ga koristi logback TurboFilter, koji ne pravi Spring.
+ */
+public final class LogDebugTargets {
+
+    public static final String MDC_SENSOR_ID = "sensorId";
+    public static final String MDC_REQUEST_ID = "requestId";
+
+    private static final Map<String, Long> SENSORS = new ConcurrentHashMap<>();
+    private static final Map<String, Long> REQUESTS = new ConcurrentHashMap<>();
+
+    /**
+     * Brza provera bez pristupa mapama dok nijedan target nije aktivan
+     */
+    private static volatile boolean active;
+
+    private LogDebugTargets() {
+    }
+
+    public static void addSensor(String sensorId, Instant until) {
+        SENSORS.put(sensorId, until.toEpochMilli());
+        active = true;
+    }
+
+    public static void addRequest(String requestId, Instant until) {
+        REQUESTS.put(requestId, until.toEpochMilli());
+        active = true;
+    }
+
+    public static void clear() {
+        SENSORS.clear();
+        REQUESTS.clear();
+        active = false;
+    }
+
+    public static boolean isActive() {
+        return active;
+    }
+
+    public static boolean matches(String sensorId, String requestId) {
+        long now = System.currentTimeMillis();
+        return isLive(SENSORS, sensorId, now) || isLive(REQUESTS, requestId, now);
+    }
+
+    /**
+     * Aktivni targeti sa vremenom isteka; istekli se usput uklanjaju
+     */
+    public static Map<String, Instant> snapshot() {
+        long now = System.currentTimeMillis();
+        SENSORS.values().removeIf(until -> until < now);
+        REQUESTS.values().removeIf(until -> until < now);
+        active = !SENSORS.isEmpty() || !REQUESTS.isEmpty();
+
+        Map<String, Instant> result = new TreeMap<>();
+        SENSORS.forEach((id, until) -> result.put("sensor:" + id, Instant.ofEpochMilli(until)));
+        REQUESTS.forEach((id, until) -> result.put("request:" + id, Instant.ofEpochMilli(until)));
+        return result;
+    }
+
+    private static boolean isLive(Map<String, Long> targets, String key, long now) {
+        if (key == null) {
+            return false;
+        }
+        Long until = targets.get(key);
+        if (until == null) {
+            return false;
+        }
+        if (until < now) {
+            targets.remove(key);
+            return false;
+        }
+        return true;
+    }
+}
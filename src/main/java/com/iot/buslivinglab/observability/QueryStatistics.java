@@ -0,0 +1,346 @@
+package com.iot.buslivinglab.observability;
+
+import com.iot.buslivinglab.config.QueryInstrumentationProperties;
+import com.iot.buslivinglab.dto.response.QueryStatsResponse;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.slf4j.MDC;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Brojanje JDBC upita i redova: po HTTP zahtevu (ThreadLocal), po repository metodi (globalno)
+ * i log sporih upita sa parametrima. Upiti dolaze iz datasource-proxy listener-a,
+ * a naziv repository metode postavlja interceptor oko Spring Data repozitorijuma.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class QueryStatistics implements QueryExecutionListener, MethodExecutionListener, MeterBinder {
+
+    /**
+     * Upiti van repository metoda (npr. flush pri commit-u ili JdbcTemplate)
+     */
+    public static final String OTHER = "other";
+
+    private static final int MAX_LOGGED_PARAMETERS = 20;
+    private static final int MAX_PARAMETER_LENGTH = 100;
+
+    private final QueryInstrumentationProperties properties;
+
+    private final ThreadLocal<String> currentMethod = new ThreadLocal<>();
+    private final ThreadLocal<RequestStats> currentRequest = new ThreadLocal<>();
+    private final Map<String, MethodStats> methodStats = new ConcurrentHashMap<>();
+    /**
+     * "HTTP metoda URI pattern" -> meter; broj pattern-a je ograničen brojem endpoint-a
+     */
+    private final Map<String, DistributionSummary> requestSummaries = new ConcurrentHashMap<>();
+
+    private final ArrayDeque<QueryStatsResponse.SlowStatement> slowStatements = new ArrayDeque<>();
+    private final ReentrantLock slowLock = new ReentrantLock();
+
+    private volatile MeterRegistry registry;
+
+    /**
+     * Počinje brojanje za tekući zahtev (thread)
+     */
+    public RequestStats begin() {
+        RequestStats stats = new RequestStats();
+        currentRequest.set(stats);
+        return stats;
+    }
+
+    /**
+     * Završava brojanje za tekući zahtev i vraća rezultat, ili null ako brojanje nije započeto
+     */
+    public RequestStats end() {
+        RequestStats stats = currentRequest.get();
+        currentRequest.remove();
+        return stats;
+    }
+
+    public RequestStats current() {
+        return currentRequest.get();
+    }
+
+    /**
+     * Nastavlja brojanje zahteva na drugom thread-u (npr. bulkhead executor) dok pozivalac čeka;
+     * posle rada pozvati end() na tom thread-u
+     */
+    public void attach(RequestStats stats) {
+        if (stats != null) {
+            currentRequest.set(stats);
+        }
+    }
+
+    /**
+     * Postavlja repository metodu kojoj se pripisuju upiti; vraća prethodnu (za ugnježdene pozive)
+     */
+    String enterRepositoryMethod(String method) {
+        String previous = currentMethod.get();
+        currentMethod.set(method);
+        return previous;
+    }
+
+    void exitRepositoryMethod(String previous) {
+        if (previous == null) {
+            currentMethod.remove();
+        } else {
+            currentMethod.set(previous);
+        }
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        String method = Objects.requireNonNullElse(currentMethod.get(), OTHER);
+        long elapsedMs = execInfo.getElapsedTime();
+        long affectedRows = affectedRows(execInfo.getResult());
+
+        MethodStats stats = methodStats(method);
+        stats.statements.increment();
+        stats.rows.add(affectedRows);
+        stats.timeMs.add(elapsedMs);
+        stats.updateMax(elapsedMs);
+
+        RequestStats request = currentRequest.get();
+        if (request != null) {
+            request.statements++;
+            request.rows += affectedRows;
+            request.timeMs += elapsedMs;
+            request.statementsByMethod.merge(method, 1, Integer::sum);
+        }
+
+        if (elapsedMs >= properties.getSlowThresholdMs() && !queryInfoList.isEmpty()) {
+            recordSlowStatement(method, elapsedMs, execInfo, queryInfoList.get(0));
+        }
+    }
+
+    @Override
+    public void beforeMethod(MethodExecutionContext executionContext) {
+    }
+
+    /**
+     * Broji pročitane redove kroz ResultSet.next(); ostali JDBC pozivi se ignorišu
+     */
+    @Override
+    public void afterMethod(MethodExecutionContext executionContext) {
+        if (!(executionContext.getTarget() instanceof ResultSet)
+                || !Boolean.TRUE.equals(executionContext.getResult())
+                || !"next".equals(executionContext.getMethod().getName())) {
+            return;
+        }
+
+        String method = Objects.requireNonNullElse(currentMethod.get(), OTHER);
+        methodStats(method).rows.increment();
+
+        RequestStats request = currentRequest.get();
+        if (request != null) {
+            request.rows++;
+        }
+    }
+
+    /**
+     * Beleži broj upita jednog zahteva po endpoint-u (URI pattern) i upozorava na moguće N+1
+     */
+    public void recordRequest(String method, String uriPattern, RequestStats stats) {
+        MeterRegistry meterRegistry = registry;
+        if (meterRegistry != null) {
+            requestSummaries.computeIfAbsent(method + " " + uriPattern, key ->
+                            DistributionSummary.builder("buslab.db.statements.per_request")
+                                    .description("JDBC statements executed per HTTP request")
+                                    .tag("method", method)
+                                    .tag("uri", uriPattern)
+                                    .register(meterRegistry))
+                    .record(stats.statements);
+        }
+
+        if (stats.statements > properties.getWarnStatementsPerRequest()) {
+            log.warn("{} {} executed {} statements ({} rows, {} ms): {}",
+                    method, uriPattern, stats.statements, stats.rows, stats.timeMs, stats.statementsByMethod);
+        }
+    }
+
+    public QueryStatsResponse snapshot() {
+        List<QueryStatsResponse.MethodStats> methods = new ArrayList<>();
+        methodStats.forEach((name, stats) -> methods.add(QueryStatsResponse.MethodStats.builder()
+                .repositoryMethod(name)
+                .statements(stats.statements.sum())
+                .rows(stats.rows.sum())
+                .totalTimeMs(stats.timeMs.sum())
+                .maxTimeMs(stats.maxMs)
+                .build()));
+        methods.sort(Comparator.comparingLong(QueryStatsResponse.MethodStats::getTotalTimeMs).reversed());
+
+        List<QueryStatsResponse.SlowStatement> slow;
+        slowLock.lock();
+        try {
+            slow = new ArrayList<>(slowStatements);
+        } finally {
+            slowLock.unlock();
+        }
+        Collections.reverse(slow);
+
+        return QueryStatsResponse.builder()
+                .slowThresholdMs(properties.getSlowThresholdMs())
+                .methods(methods)
+                .slowStatements(slow)
+                .build();
+    }
+
+    /**
+     * Briše log sporih upita. Brojači po metodi se ne resetuju jer se izvoze kao Prometheus counter-i.
+     */
+    public void clearSlowStatements() {
+        slowLock.lock();
+        try {
+            slowStatements.clear();
+        } finally {
+            slowLock.unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        methodStats.forEach((name, stats) -> registerMeters(registry, name, stats));
+    }
+
+    private MethodStats methodStats(String method) {
+        MethodStats stats = methodStats.get(method);
+        if (stats != null) {
+            return stats;
+        }
+        return methodStats.computeIfAbsent(method, name -> {
+            MethodStats created = new MethodStats();
+            MeterRegistry meterRegistry = registry;
+            if (meterRegistry != null) {
+                registerMeters(meterRegistry, name, created);
+            }
+            return created;
+        });
+    }
+
+    private static void registerMeters(MeterRegistry registry, String method, MethodStats stats) {
+        FunctionCounter.builder("buslab.db.statements", stats, s -> s.statements.sum())
+                .description("JDBC statements executed per repository method")
+                .tag("repository_method", method)
+                .register(registry);
+        FunctionCounter.builder("buslab.db.rows", stats, s -> s.rows.sum())
+                .description("Rows read or affected per repository method")
+                .tag("repository_method", method)
+                .register(registry);
+    }
+
+    private void recordSlowStatement(String method, long elapsedMs, ExecutionInfo execInfo, QueryInfo queryInfo) {
+        List<String> parameters = parameters(queryInfo);
+        String sql = queryInfo.getQuery();
+        String requestId = MDC.get(LogDebugTargets.MDC_REQUEST_ID);
+
+        log.warn("Slow statement ({} ms) in {}{}: {} params {}", elapsedMs, method,
+                execInfo.isBatch() ? " batch of " + execInfo.getBatchSize() : "", sql, parameters);
+
+        QueryStatsResponse.SlowStatement slow = QueryStatsResponse.SlowStatement.builder()
+                .time(Instant.now())
+                .requestId(requestId)
+                .repositoryMethod(method)
+                .elapsedMs(elapsedMs)
+                .batchSize(execInfo.isBatch() ? execInfo.getBatchSize() : null)
+                .sql(sql)
+                .parameters(parameters)
+                .build();
+
+        slowLock.lock();
+        try {
+            if (slowStatements.size() >= Math.max(1, properties.getSlowLogSize())) {
+                slowStatements.pollFirst();
+            }
+            slowStatements.addLast(slow);
+        } finally {
+            slowLock.unlock();
+        }
+    }
+
+    /**
+     * Parametri prvog seta (kod batch-a samo prvi red), skraćeni da log ostane čitljiv
+     */
+    private static List<String> parameters(QueryInfo queryInfo) {
+        if (queryInfo.getParametersList().isEmpty()) {
+            return List.of();
+        }
+        List<String> result = new ArrayList<>();
+        for (ParameterSetOperation operation : queryInfo.getParametersList().get(0)) {
+            if (result.size() >= MAX_LOGGED_PARAMETERS) {
+                result.add("...");
+                break;
+            }
+            Object[] args = operation.getArgs();
+            String value = ParameterSetOperation.isSetNullParameterOperation(operation) || args.length < 2
+                    ? "null"
+                    : String.valueOf(args[1]);
+            result.add(value.length() > MAX_PARAMETER_LENGTH ? value.substring(0, MAX_PARAMETER_LENGTH) + "..." : value);
+        }
+        return result;
+    }
+
+    private static long affectedRows(Object result) {
+        if (result instanceof Integer count && count > 0) {
+            return count;
+        }
+        if (result instanceof Long count && count > 0) {
+            return count;
+        }
+        if (result instanceof int[] counts) {
+            long sum = 0;
+            for (int count : counts) {
+                sum += Math.max(count, 0);
+            }
+            return sum;
+        }
+        return 0;
+    }
+
+    /**
+     * Brojači jednog zahteva. Koristi ih samo thread koji obrađuje zahtev, pa nisu sinhronizovani.
+     */
+    @Getter
+    public static final class RequestStats {
+        private int statements;
+        private long rows;
+        private long timeMs;
+        private final Map<String, Integer> statementsByMethod = new LinkedHashMap<>();
+    }
+
+    private static final class MethodStats {
+        private final LongAdder statements = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder timeMs = new LongAdder();
+        private volatile long maxMs;
+
+        private void updateMax(long elapsedMs) {
+            if (elapsedMs > maxMs) {
+                maxMs = elapsedMs;
+            }
+        }
+    }
+}
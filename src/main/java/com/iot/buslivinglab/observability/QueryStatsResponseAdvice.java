@@ -0,0 +1,52 @@
+package com.iot.buslivinglab.observability;
+
+import com.iot.buslivinglab.config.QueryInstrumentationProperties;
+import com.iot.buslivinglab.observability.QueryStatistics.RequestStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.stream.Collectors;
+
+/**
+ * U debug modu (query-instrumentation.debug-headers=true) dodaje broj upita tekućeg zahteva u headere odgovora.
+ * Headeri se postavljaju pre upisa tela, kada su svi upiti zahteva već izvršeni.
+ */
+@ControllerAdvice
+@RequiredArgsConstructor
+public class QueryStatsResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String QUERY_COUNT_HEADER = "X-Query-Count";
+    public static final String QUERY_ROWS_HEADER = "X-Query-Rows";
+    public static final String QUERY_TIME_HEADER = "X-Query-Time-Ms";
+    public static final String QUERY_METHODS_HEADER = "X-Query-Methods";
+
+    private final QueryInstrumentationProperties properties;
+    private final QueryStatistics queryStatistics;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return properties.isDebugHeaders();
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        RequestStats stats = queryStatistics.current();
+        if (stats != null) {
+            response.getHeaders().set(QUERY_COUNT_HEADER, String.valueOf(stats.getStatements()));
+            response.getHeaders().set(QUERY_ROWS_HEADER, String.valueOf(stats.getRows()));
+            response.getHeaders().set(QUERY_TIME_HEADER, String.valueOf(stats.getTimeMs()));
+            response.getHeaders().set(QUERY_METHODS_HEADER, stats.getStatementsByMethod().entrySet().stream()
+                    .map(e -> e.getKey() + "=" + e.getValue())
+                    .collect(Collectors.joining(";")));
+        }
+        return body;
+    }
+}
@@ -0,0 +1,26 @@
+package com.iot.buslivinglab.observability;
+
+import lombok.RequiredArgsConstructor;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * Obeležava JDBC upite nazivom repository metode koja ih je izazvala (npr. SensorDataRepository.findRecentData).
+ */
+@RequiredArgsConstructor
+public class RepositoryMethodInterceptor implements MethodInterceptor {
+
+    private final QueryStatistics queryStatistics;
+    private final String repositoryName;
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        String previous = queryStatistics.enterRepositoryMethod(
+                repositoryName + "." + invocation.getMethod().getName());
+        try {
+            return invocation.proceed();
+        } finally {
+            queryStatistics.exitRepositoryMethod(previous);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.iot.buslivinglab.observability;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logback TurboFilter za produkciju:
+ * - INFO linije po zahtevu iz podešenih logger-a propušta samo svaku N-tu (sampling)
+ * - za senzor ili request ID iz LogDebugTargets propušta sve od DEBUG naviše, bez obzira na nivo logger-a
+ * WARN i ERROR se nikada ne sempluju.
+ *
+ * Podešava se u logback-spring.xml:
+ * <pre>
+ * &lt;turboFilter class="com.iot.buslivinglab.observability.RequestLogSamplingFilter"&gt;
+ *     &lt;loggerPrefix&gt;com.iot.buslivinglab.controller&lt;/loggerPrefix&gt;
+ *     &lt;sampleEvery&gt;100&lt;/sampleEvery&gt;
+ * &lt;/turboFilter&gt;
+ * </pre>
+ */
+public class RequestLogSamplingFilter extends TurboFilter {
+
+    private final List<String> loggerPrefixes = new ArrayList<>();
+    private final List<AtomicLong> counters = new ArrayList<>();
+    private int sampleEvery = 100;
+
+    public void addLoggerPrefix(String loggerPrefix) {
+        loggerPrefixes.add(loggerPrefix);
+        counters.add(new AtomicLong());
+    }
+
+    public void setSampleEvery(int sampleEvery) {
+        this.sampleEvery = Math.max(1, sampleEvery);
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format,
+                              Object[] params, Throwable t) {
+        if (!isStarted()) {
+            return FilterReply.NEUTRAL;
+        }
+
+        if (LogDebugTargets.isActive() && level.isGreaterOrEqual(Level.DEBUG)
+                && LogDebugTargets.matches(MDC.get(LogDebugTargets.MDC_SENSOR_ID),
+                MDC.get(LogDebugTargets.MDC_REQUEST_ID))) {
+            return FilterReply.ACCEPT;
+        }
+
+        // format == null je samo provera isInfoEnabled(), ne troši sample
+        if (level != Level.INFO || format == null) {
+            return FilterReply.NEUTRAL;
+        }
+
+        String name = logger.getName();
+        for (int i = 0; i < loggerPrefixes.size(); i++) {
+            if (name.startsWith(loggerPrefixes.get(i))) {
+                return counters.get(i).getAndIncrement() % sampleEvery == 0
+                        ? FilterReply.NEUTRAL
+                        : FilterReply.DENY;
+            }
+        }
+        return FilterReply.NEUTRAL;
+    }
+}
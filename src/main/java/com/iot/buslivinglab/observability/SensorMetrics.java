@@ -0,0 +1,176 @@
+package com.iot.buslivinglab.observability;
+
+import com.iot.buslivinglab.dto.response.SensorDataResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrike za ingest i upite. Svi meteri se prave jednom pri startu, tako da je
+ * beleženje na hot path-u samo System.nanoTime() i lock-free upis u histogram.
+ */
+@Component
+public class SensorMetrics {
+
+    public enum IngestStage {
+        SENSOR_UPSERT("sensor_upsert"),
+        CONTEXT_SAVE("context_save"),
+        METADATA_UPSERT("metadata_upsert"),
+        DATA_INSERT("data_insert");
+
+        private final String tag;
+
+        IngestStage(String tag) {
+            this.tag = tag;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    public enum IngestTransaction {
+        METADATA("metadata"),
+        DATA("data");
+
+        private final String tag;
+
+        IngestTransaction(String tag) {
+            this.tag = tag;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    public enum QueryMode {
+        LATEST("latest"),
+        DAYS("days"),
+        COUNT("count"),
+        RANGE("range");
+
+        private final String tag;
+
+        QueryMode(String tag) {
+            this.tag = tag;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    private final Timer ingestSuccess;
+    private final Timer ingestFailure;
+    private final Counter ingestedObservations;
+    private final Timer sensorLockWait;
+    private final Map<IngestStage, Timer> stageTimers = new EnumMap<>(IngestStage.class);
+    private final Map<IngestTransaction, Timer> transactionTimers = new EnumMap<>(IngestTransaction.class);
+    private final Map<QueryMode, Timer> queryTimers = new EnumMap<>(QueryMode.class);
+    private final Map<QueryMode, DistributionSummary> queryRows = new EnumMap<>(QueryMode.class);
+
+    public SensorMetrics(MeterRegistry registry) {
+        ingestSuccess = ingestTimer(registry, "success");
+        ingestFailure = ingestTimer(registry, "failure");
+
+        ingestedObservations = Counter.builder("buslab.ingest.observations")
+                .description("Stored measurement values (members of accepted observations)")
+                .register(registry);
+
+        sensorLockWait = Timer.builder("buslab.ingest.sensor_lock_wait")
+                .description("Time an observation waited for another observation of the same sensor")
+                .publishPercentileHistogram()
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry);
+
+        for (IngestStage stage : IngestStage.values()) {
+            stageTimers.put(stage, Timer.builder("buslab.ingest.stage")
+                    .description("Time spent per ingest stage, summed over all members of one observation")
+                    .tag("stage", stage.tag)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(30))
+                    .register(registry));
+        }
+
+        for (IngestTransaction transaction : IngestTransaction.values()) {
+            transactionTimers.put(transaction, Timer.builder("buslab.ingest.transaction")
+                    .description("Ingest transaction duration, i.e. how long one observation holds a connection")
+                    .tag("kind", transaction.tag)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(30))
+                    .register(registry));
+        }
+
+        for (QueryMode mode : QueryMode.values()) {
+            queryTimers.put(mode, Timer.builder("buslab.query")
+                    .description("SensorQueryService execution time per query mode")
+                    .tag("mode", mode.tag)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(30))
+                    .register(registry));
+            queryRows.put(mode, DistributionSummary.builder("buslab.query.rows")
+                    .description("Values returned per query")
+                    .tag("mode", mode.tag)
+                    .baseUnit("rows")
+                    .publishPercentileHistogram()
+                    .maximumExpectedValue(1_000_000.0)
+                    .register(registry));
+        }
+    }
+
+    private static Timer ingestTimer(MeterRegistry registry, String outcome) {
+        return Timer.builder("buslab.ingest")
+                .description("processSensorObservation execution time")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry);
+    }
+
+    public void recordIngest(long startNanos, boolean success, int observations) {
+        (success ? ingestSuccess : ingestFailure).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        if (success) {
+            ingestedObservations.increment(observations);
+        }
+    }
+
+    public void recordSensorLockWait(long nanos) {
+        sensorLockWait.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordStage(IngestStage stage, long nanos) {
+        stageTimers.get(stage).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordTransaction(IngestTransaction transaction, long nanos) {
+        transactionTimers.get(transaction).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Beleži trajanje i broj vraćenih vrednosti, pa vraća isti response (za korišćenje u return naredbi)
+     */
+    public SensorDataResponse recordQuery(QueryMode mode, long startNanos, SensorDataResponse response) {
+        queryTimers.get(mode).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+
+        int rows = 0;
+        if (response.getData() != null) {
+            for (SensorDataResponse.MeasurementData data : response.getData()) {
+                rows += data.getValues() != null ? data.getValues().size() : 0;
+            }
+        }
+        queryRows.get(mode).record(rows);
+        return response;
+    }
+}
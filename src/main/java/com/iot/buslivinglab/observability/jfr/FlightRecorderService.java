@@ -0,0 +1,157 @@
+package com.iot.buslivinglab.observability.jfr;
+
+import com.iot.buslivinglab.config.FlightRecorderProperties;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Stalno uključeno JFR snimanje sa ograničenom istorijom (maxAge/maxSize) i dump poslednjih N minuta u fajl.
+ * Pored buslab.* eventa, "default" podešavanja beleže i uzorke alokacija, zaključavanja i GC.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FlightRecorderService {
+
+    static final String RECORDING_NAME = "buslab-continuous";
+    private static final String DUMP_PREFIX = "buslab-";
+    private static final String DUMP_SUFFIX = ".jfr";
+    private static final DateTimeFormatter DUMP_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")
+            .withZone(ZoneOffset.UTC);
+
+    private final FlightRecorderProperties properties;
+
+    private volatile Recording recording;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.isEnabled() || !FlightRecorder.isAvailable()) {
+            log.info("Continuous JFR recording disabled");
+            return;
+        }
+
+        try {
+            Recording continuous = new Recording(Configuration.getConfiguration(properties.getSettings()));
+            continuous.setName(RECORDING_NAME);
+            continuous.setToDisk(true);
+            continuous.setMaxAge(Duration.ofMinutes(properties.getMaxAgeMinutes()));
+            continuous.setMaxSize(properties.getMaxSizeMb() * 1024L * 1024L);
+            continuous.enable(IngestEvent.class);
+            continuous.enable(IngestStageEvent.class);
+            continuous.enable(QueryEvent.class);
+            continuous.start();
+            recording = continuous;
+            log.info("Continuous JFR recording started ({} settings, {} min history)",
+                    properties.getSettings(), properties.getMaxAgeMinutes());
+        } catch (Exception e) {
+            log.warn("Could not start continuous JFR recording: {}", e.getMessage());
+        }
+    }
+
+    public boolean isRecording() {
+        Recording current = recording;
+        return current != null && current.getState() == RecordingState.RUNNING;
+    }
+
+    /**
+     * Upisuje poslednjih N minuta snimka u novi fajl u dump direktorijumu.
+     * Koristi JFR.dump dijagnostičku komandu (isto kao jcmd), jer samo ona podržava vremenski opseg.
+     */
+    public Path dump(int minutes) throws IOException {
+        if (!isRecording()) {
+            throw new IllegalStateException("Continuous JFR recording is not running");
+        }
+        int window = Math.max(1, Math.min(minutes, properties.getMaxAgeMinutes()));
+
+        Path directory = dumpDirectory();
+        Files.createDirectories(directory);
+        Path file = directory.resolve(DUMP_PREFIX + DUMP_TIME.format(Instant.now()) + "-" + window + "m" + DUMP_SUFFIX);
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().invoke(
+                    new ObjectName("com.sun.management:type=DiagnosticCommand"),
+                    "jfrDump",
+                    new Object[]{new String[]{
+                            "name=" + RECORDING_NAME,
+                            "filename=" + file,
+                            "begin=-" + window + "m"}},
+                    new String[]{String[].class.getName()});
+        } catch (Exception e) {
+            throw new IOException("JFR dump failed: " + e.getMessage(), e);
+        }
+
+        log.info("JFR dump of last {} min written to {} ({} bytes)", window, file, Files.size(file));
+        deleteOldDumps();
+        return file;
+    }
+
+    public List<Path> listDumps() throws IOException {
+        Path directory = dumpDirectory();
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(FlightRecorderService::isDumpFile)
+                    .sorted(Comparator.comparing(Path::getFileName).reversed())
+                    .toList();
+        }
+    }
+
+    /**
+     * Vraća dump fajl po imenu; samo fajlovi iz dump direktorijuma koje je napravio ovaj servis
+     */
+    public Path resolveDump(String fileName) {
+        Path directory = dumpDirectory();
+        Path file = directory.resolve(fileName).normalize();
+        if (!file.getParent().equals(directory) || !isDumpFile(file) || !Files.isRegularFile(file)) {
+            return null;
+        }
+        return file;
+    }
+
+    private Path dumpDirectory() {
+        return Paths.get(properties.getDumpDirectory()).toAbsolutePath().normalize();
+    }
+
+    private void deleteOldDumps() throws IOException {
+        List<Path> dumps = listDumps();
+        for (int i = Math.max(1, properties.getMaxDumps()); i < dumps.size(); i++) {
+            Files.deleteIfExists(dumps.get(i));
+        }
+    }
+
+    private static boolean isDumpFile(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(DUMP_PREFIX) && name.endsWith(DUMP_SUFFIX);
+    }
+
+    @PreDestroy
+    public void stop() {
+        Recording current = recording;
+        if (current != null) {
+            current.close();
+        }
+    }
+}
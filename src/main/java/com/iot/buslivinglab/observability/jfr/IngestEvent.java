@@ -0,0 +1,57 @@
+package com.iot.buslivinglab.observability.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event za ceo processSensorObservation poziv (jedna SOSA opservacija).
+ */
+@Name("buslab.Ingest")
+@Label("Sensor Observation Ingest")
+@Description("Whole processSensorObservation call for one observation")
+@Category({"BUS Living Lab", "Ingest"})
+@StackTrace(false)
+public class IngestEvent extends Event {
+
+    @Label("Sensor ID")
+    String sensorId;
+
+    @Label("Measurement Types")
+    @Description("Members (measurement values) in the observation")
+    int measurementTypes;
+
+    @Label("Rows")
+    @Description("sensor_data rows written")
+    int rows;
+
+    @Label("Bytes")
+    @Description("raw_data JSON written")
+    @DataAmount
+    long bytes;
+
+    @Label("Success")
+    boolean success;
+
+    public static IngestEvent start() {
+        IngestEvent event = new IngestEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(String sensorId, int measurementTypes, int rows, long bytes, boolean success) {
+        end();
+        if (shouldCommit()) {
+            this.sensorId = sensorId;
+            this.measurementTypes = measurementTypes;
+            this.rows = rows;
+            this.bytes = bytes;
+            this.success = success;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.iot.buslivinglab.observability.jfr;
+
+import com.iot.buslivinglab.observability.SensorMetrics.IngestStage;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event za jednu fazu ingest-a. Faze po merenju (metadata_upsert, data_insert)
+ * emituju se za svaki član opservacije posebno, sa tipom merenja.
+ */
+@Name("buslab.IngestStage")
+@Label("Ingest Stage")
+@Description("One stage of processSensorObservation")
+@Category({"BUS Living Lab", "Ingest"})
+@StackTrace(false)
+public class IngestStageEvent extends Event {
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Sensor ID")
+    String sensorId;
+
+    @Label("Measurement Type")
+    @Description("Set for per-member stages")
+    String measurementType;
+
+    @Label("Measurement Types")
+    int measurementTypes;
+
+    @Label("Rows")
+    int rows;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    public static IngestStageEvent start() {
+        IngestStageEvent event = new IngestStageEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(IngestStage stage, String sensorId, String measurementType,
+                       int measurementTypes, int rows, long bytes) {
+        end();
+        if (shouldCommit()) {
+            this.stage = stage.getTag();
+            this.sensorId = sensorId;
+            this.measurementType = measurementType;
+            this.measurementTypes = measurementTypes;
+            this.rows = rows;
+            this.bytes = bytes;
+            commit();
+        }
+    }
+}
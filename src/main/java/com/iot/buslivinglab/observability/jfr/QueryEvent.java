@@ -0,0 +1,78 @@
+package com.iot.buslivinglab.observability.jfr;
+
+import com.iot.buslivinglab.dto.response.SensorDataResponse;
+import com.iot.buslivinglab.observability.SensorMetrics.QueryMode;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event za jedan SensorQueryService upit. Trajanje eventa je ceo upit,
+ * fetchDuration je deo proveden u glavnom upitu ka bazi, ostatak je sklapanje odgovora.
+ */
+@Name("buslab.Query")
+@Label("Sensor Data Query")
+@Description("One SensorQueryService query (latest, days, count or range)")
+@Category({"BUS Living Lab", "Query"})
+@StackTrace(false)
+public class QueryEvent extends Event {
+
+    @Label("Mode")
+    String mode;
+
+    @Label("Sensor ID")
+    String sensorId;
+
+    @Label("Fetched Rows")
+    @Description("sensor_data rows returned by the main repository query")
+    int fetchedRows;
+
+    @Label("Fetch Duration")
+    @Description("Time spent in the main repository query")
+    @Timespan(Timespan.NANOSECONDS)
+    long fetchDuration;
+
+    @Label("Measurement Types")
+    int measurementTypes;
+
+    @Label("Rows")
+    @Description("Values in the response")
+    int rows;
+
+    public static QueryEvent start() {
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Beleži kraj glavnog upita ka bazi
+     */
+    public void fetched(long fetchStartNanos, int fetchedRows) {
+        this.fetchDuration += System.nanoTime() - fetchStartNanos;
+        this.fetchedRows += fetchedRows;
+    }
+
+    /**
+     * Završava event i vraća isti response (za korišćenje u return naredbi)
+     */
+    public SensorDataResponse finish(QueryMode mode, String sensorId, SensorDataResponse response) {
+        end();
+        if (shouldCommit()) {
+            this.mode = mode.getTag();
+            this.sensorId = sensorId;
+            if (response.getData() != null) {
+                this.measurementTypes = response.getData().size();
+                for (SensorDataResponse.MeasurementData data : response.getData()) {
+                    this.rows += data.getValues() != null ? data.getValues().size() : 0;
+                }
+            }
+            commit();
+        }
+        return response;
+    }
+}
@@ -0,0 +1,35 @@
+package com.iot.buslivinglab.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.Getter;
+
+/**
+ * Jedna read replika: njen connection pool i poslednje stanje iz health check-a
+ */
+@Getter
+public class Replica {
+
+    private final String name;
+    private final HikariDataSource dataSource;
+
+    private volatile boolean healthy;
+    private volatile long lagMs = -1;
+
+    public Replica(String name, HikariDataSource dataSource) {
+        this.name = name;
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * @param lagMs koliko replika kasni za primary-jem (po heartbeat-u)
+     */
+    public void markHealthy(long lagMs) {
+        this.lagMs = lagMs;
+        this.healthy = true;
+    }
+
+    public void markUnhealthy() {
+        this.healthy = false;
+        this.lagMs = -1;
+    }
+}
@@ -0,0 +1,70 @@
+package com.iot.buslivinglab.replica;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Skup read replika. Bira se sledeća (round-robin) replika koja je zdrava i kasni najviše maxLagMs;
+ * ako takve nema, čitanje ide na primary.
+ */
+public class ReplicaSet implements AutoCloseable {
+
+    private final List<Replica> replicas;
+    private final long maxLagMs;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder primaryFallbacks = new LongAdder();
+    private final LongAdder primaryRequiredReads = new LongAdder();
+
+    public ReplicaSet(List<Replica> replicas, long maxLagMs) {
+        this.replicas = List.copyOf(replicas);
+        this.maxLagMs = maxLagMs;
+    }
+
+    /**
+     * @return replika za read-only transakciju ili null ako nijedna nije dovoljno ažurna
+     */
+    public Replica select() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.isHealthy() && replica.getLagMs() <= maxLagMs) {
+                replicaReads.increment();
+                return replica;
+            }
+        }
+        primaryFallbacks.increment();
+        return null;
+    }
+
+    /**
+     * Read-only transakcija koja mora na primary (read-your-writes)
+     */
+    public void recordPrimaryRequired() {
+        primaryRequiredReads.increment();
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    public long getReplicaReads() {
+        return replicaReads.sum();
+    }
+
+    public long getPrimaryFallbacks() {
+        return primaryFallbacks.sum();
+    }
+
+    public long getPrimaryRequiredReads() {
+        return primaryRequiredReads.sum();
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.getDataSource().close());
+    }
+}
@@ -0,0 +1,20 @@
+package com.iot.buslivinglab.repository;
+
+import com.iot.buslivinglab.entity.CacheGeneration;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+@Repository
+public interface CacheGenerationRepository extends JpaRepository<CacheGeneration, String> {
+
+    // Povećava generaciju keša (prvi put je kreira); istovremena povećanja se ne gube
+    @Modifying
+    @Query(value = "INSERT INTO cache_generations (cache_name, generation, updated_at) VALUES (:cacheName, 1, :now) " +
+            "ON DUPLICATE KEY UPDATE generation = generation + 1, updated_at = VALUES(updated_at)", nativeQuery = true)
+    int bump(@Param("cacheName") String cacheName, @Param("now") Instant now);
+}
@@ -0,0 +1,9 @@
+package com.iot.buslivinglab.repository;
+
+import com.iot.buslivinglab.entity.DerivedMeasurementType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DerivedMeasurementTypeRepository extends JpaRepository<DerivedMeasurementType, String> {
+}
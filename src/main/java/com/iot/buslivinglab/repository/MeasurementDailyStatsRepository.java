@@ -0,0 +1,53 @@
+package com.iot.buslivinglab.repository;
+
+import com.iot.buslivinglab.entity.MeasurementDailyStats;
+import com.iot.buslivinglab.entity.MeasurementDailyStatsId;
+import com.iot.buslivinglab.stats.DailyCoverage;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface MeasurementDailyStatsRepository extends JpaRepository<MeasurementDailyStats, MeasurementDailyStatsId> {
+
+    // Kreira prazan dnevni red ako ne postoji, da bi ga instance zatim zaključale i spojile svoje vrednosti
+    @Modifying
+    @Query(value = "INSERT INTO measurement_daily_stats (sensor_id, measurement_type, day_utc, sample_count, mean, m2, updated_at) " +
+            "VALUES (:sensorId, :measurementType, :day, 0, 0, 0, :now) " +
+            "ON DUPLICATE KEY UPDATE sample_count = sample_count", nativeQuery = true)
+    int ensureRow(@Param("sensorId") String sensorId,
+                  @Param("measurementType") String measurementType,
+                  @Param("day") LocalDate day,
+                  @Param("now") Instant now);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM MeasurementDailyStats s WHERE s.id = :id")
+    Optional<MeasurementDailyStats> findForUpdate(@Param("id") MeasurementDailyStatsId id);
+
+    // Dnevni redovi perioda; O(dana × tipova), nezavisno od broja merenja
+    @Query("SELECT s FROM MeasurementDailyStats s WHERE s.id.sensorId = :sensorId " +
+            "AND s.id.day BETWEEN :from AND :to AND s.sampleCount > 0")
+    List<MeasurementDailyStats> findBySensorIdAndDayBetween(@Param("sensorId") String sensorId,
+                                                            @Param("from") LocalDate from,
+                                                            @Param("to") LocalDate to);
+
+    // Broj vrednosti po danu za više senzora; čita samo brojače, bez sketch-a
+    @Query("SELECT new com.iot.buslivinglab.stats.DailyCoverage(s.id.sensorId, s.id.measurementType, s.id.day, " +
+            "s.sampleCount, s.hourCounts) FROM MeasurementDailyStats s WHERE s.id.sensorId IN :sensorIds " +
+            "AND (:measurementType IS NULL OR s.id.measurementType = :measurementType) " +
+            "AND s.id.day BETWEEN :from AND :to AND s.sampleCount > 0")
+    List<DailyCoverage> findCoverage(@Param("sensorIds") Collection<String> sensorIds,
+                                     @Param("measurementType") String measurementType,
+                                     @Param("from") LocalDate from,
+                                     @Param("to") LocalDate to);
+}
@@ -2,9 +2,30 @@ package com.iot.buslivinglab.repository;
 
 import com.iot.buslivinglab.entity.MeasurementType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface MeasurementTypeRepository extends JpaRepository<MeasurementType, String> {
-}
 
+    // Kreira tip merenja ili mu menja jedinicu (samo ako je jedinica zadata); naziv postojećeg tipa se ne dira
+    @Modifying
+    @Query(value = "INSERT INTO measurement_types (type_id, display_name, unit, unit_label, data_type, order_number) " +
+            "VALUES (:typeId, :displayName, :unit, :unitLabel, 'NUMERIC', 999) " +
+            "ON DUPLICATE KEY UPDATE unit = COALESCE(VALUES(unit), unit), " +
+            "unit_label = CASE WHEN VALUES(unit) IS NULL THEN unit_label ELSE VALUES(unit_label) END", nativeQuery = true)
+    int upsert(@Param("typeId") String typeId,
+               @Param("displayName") String displayName,
+               @Param("unit") String unit,
+               @Param("unitLabel") String unitLabel);
+
+    // Preuzima oznake iz unit_mappings za sve tipove čija se oznaka razlikuje, jednim UPDATE-om
+    @Modifying
+    @Query(value = "UPDATE measurement_types mt SET unit_label = " +
+            "(SELECT um.unit_label FROM unit_mappings um WHERE um.unit_code = mt.unit) " +
+            "WHERE EXISTS (SELECT 1 FROM unit_mappings um WHERE um.unit_code = mt.unit " +
+            "AND (mt.unit_label IS NULL OR mt.unit_label <> um.unit_label))", nativeQuery = true)
+    int syncUnitLabels();
+}
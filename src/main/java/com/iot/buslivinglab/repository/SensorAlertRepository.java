@@ -0,0 +1,23 @@
+package com.iot.buslivinglab.repository;
+
+import com.iot.buslivinglab.entity.SensorAlert;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SensorAlertRepository extends JpaRepository<SensorAlert, Long> {
+
+    List<SensorAlert> findByClosedAtIsNull();
+
+    // Najnoviji alarmi, opciono za jedan senzor i samo otvoreni
+    @Query("SELECT a FROM SensorAlert a WHERE (:sensorId IS NULL OR a.sensorId = :sensorId) " +
+            "AND (:openOnly = FALSE OR a.closedAt IS NULL) ORDER BY a.openedAt DESC")
+    List<SensorAlert> findRecent(@Param("sensorId") String sensorId,
+                                 @Param("openOnly") boolean openOnly,
+                                 Pageable pageable);
+}
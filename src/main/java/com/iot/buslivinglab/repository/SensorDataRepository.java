@@ -1,5 +1,6 @@
 package com.iot.buslivinglab.repository;
 
+import com.iot.buslivinglab.dedup.ObservationKey;
 import com.iot.buslivinglab.entity.SensorData;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -10,6 +11,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -81,5 +83,33 @@ public interface SensorDataRepository extends JpaRepository<SensorData, Long> {
 
     // Najnoviji podatak za senzor
     Optional<SensorData> findTopBySensorIdOrderByTimestampDesc(String sensorId);
-}
 
+    // Poslednja upisana vrednost tipa pre zadatog trenutka (nivo deadband serije na početku perioda)
+    Optional<SensorData> findTopBySensorIdAndMeasurementTypeAndTimestampLessThanOrderByTimestampDesc(
+            String sensorId, String measurementType, Instant before);
+
+    // Poslednjih N vrednosti tipa pre zadatog trenutka (punjenje stanja izvedenih tipova)
+    @Query("SELECT sd FROM SensorData sd " +
+            "WHERE sd.sensorId = :sensorId AND sd.measurementType = :measurementType AND sd.timestamp < :before " +
+            "ORDER BY sd.timestamp DESC")
+    List<SensorData> findLatestBefore(
+            @Param("sensorId") String sensorId,
+            @Param("measurementType") String measurementType,
+            @Param("before") Instant before,
+            Pageable pageable);
+
+    // Vreme prve vrednosti tipa posle zadatog trenutka; null ako je nema
+    @Query("SELECT MIN(sd.timestamp) FROM SensorData sd " +
+            "WHERE sd.sensorId = :sensorId AND sd.measurementType = :measurementType AND sd.timestamp > :after")
+    Instant findFirstTimestampAfter(
+            @Param("sensorId") String sensorId,
+            @Param("measurementType") String measurementType,
+            @Param("after") Instant after);
+
+    // Ključevi merenja senzora koja već postoje u zadatim trenucima
+    @Query("SELECT new com.iot.buslivinglab.dedup.ObservationKey(sd.sensorId, sd.measurementType, sd.timestamp) " +
+            "FROM SensorData sd WHERE sd.sensorId = :sensorId AND sd.timestamp IN :timestamps")
+    List<ObservationKey> findExistingKeys(
+            @Param("sensorId") String sensorId,
+            @Param("timestamps") Collection<Instant> timestamps);
+}
@@ -0,0 +1,34 @@
+package com.iot.buslivinglab.repository;
+
+import com.iot.buslivinglab.entity.SensorGap;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface SensorGapRepository extends JpaRepository<SensorGap, Long> {
+
+    List<SensorGap> findByEndedAtIsNull();
+
+    // Zatvara prekid; ranija prva vrednost (sa druge instance) ima prednost
+    @Modifying
+    @Query("UPDATE SensorGap g SET g.endedAt = :endedAt WHERE g.gapId = :gapId " +
+            "AND (g.endedAt IS NULL OR g.endedAt > :endedAt)")
+    int close(@Param("gapId") Long gapId, @Param("endedAt") Instant endedAt);
+
+    // Najnoviji prekidi koji se preklapaju sa [from, to], opciono za jedan senzor i samo otvoreni
+    @Query("SELECT g FROM SensorGap g WHERE (:sensorId IS NULL OR g.sensorId = :sensorId) " +
+            "AND (:openOnly = FALSE OR g.endedAt IS NULL) " +
+            "AND g.startedAt <= :to AND (g.endedAt IS NULL OR g.endedAt >= :from) ORDER BY g.startedAt DESC")
+    List<SensorGap> findRecent(@Param("sensorId") String sensorId,
+                               @Param("openOnly") boolean openOnly,
+                               @Param("from") Instant from,
+                               @Param("to") Instant to,
+                               Pageable pageable);
+}
@@ -2,9 +2,15 @@ package com.iot.buslivinglab.repository;
 
 import com.iot.buslivinglab.entity.SensorMeasurementType;
 import com.iot.buslivinglab.entity.SensorMeasurementTypeId;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -21,5 +27,53 @@ public interface SensorMeasurementTypeRepository extends JpaRepository<SensorMea
         SensorMeasurementTypeId id = new SensorMeasurementTypeId(sensorId, measurementType);
         return existsById(id);
     }
-}
 
+    // Serije sa pragom za alarme; ostale koriste samo opseg tipa merenja
+    @Query("SELECT s FROM SensorMeasurementType s WHERE s.minThreshold IS NOT NULL OR s.maxThreshold IS NOT NULL")
+    List<SensorMeasurementType> findWithThresholds();
+
+    // Serije sa deadband politikom
+    @Query("SELECT s FROM SensorMeasurementType s WHERE s.deadbandAbsolute IS NOT NULL OR s.deadbandRelative IS NOT NULL")
+    List<SensorMeasurementType> findWithDeadband();
+
+    @Query("SELECT s FROM SensorMeasurementType s WHERE s.id.sensorId = :sensorId")
+    List<SensorMeasurementType> findBySensorId(@Param("sensorId") String sensorId);
+
+    // Povezuje senzor i tip merenja; last_observed se samo pomera unapred (istovremeni zahtevi commit-uju u bilo kom redu),
+    // a rok overdue_at sa njim: last_observed + max_silence_ms serije, ili zadati rok kada serija nema svoj.
+    // overdue_at je prvi u listi jer MySQL desne strane računa sa već ažuriranim kolonama.
+    @Modifying
+    @Query(value = "INSERT INTO sensor_measurement_types (sensor_id, measurement_type, is_active, last_observed, overdue_at) " +
+            "VALUES (:sensorId, :measurementType, TRUE, :observed, :overdueAt) " +
+            "ON DUPLICATE KEY UPDATE overdue_at = CASE WHEN last_observed IS NULL OR last_observed < VALUES(last_observed) " +
+            "THEN COALESCE(TIMESTAMPADD(MICROSECOND, max_silence_ms * 1000, VALUES(last_observed)), VALUES(overdue_at)) " +
+            "ELSE overdue_at END, " +
+            "last_observed = CASE WHEN last_observed IS NULL " +
+            "OR last_observed < VALUES(last_observed) THEN VALUES(last_observed) ELSE last_observed END", nativeQuery = true)
+    int upsert(@Param("sensorId") String sensorId,
+               @Param("measurementType") String measurementType,
+               @Param("observed") Instant observed,
+               @Param("overdueAt") Instant defaultOverdueAt);
+
+    // Aktivne serije kojima je rok prošao, najstarije prve; čita samo opseg indeksa idx_smt_active_overdue
+    @Query("SELECT s FROM SensorMeasurementType s WHERE s.isActive = TRUE AND s.overdueAt < :now ORDER BY s.overdueAt")
+    List<SensorMeasurementType> findOverdue(@Param("now") Instant now, Pageable pageable);
+
+    // Gasi seriju samo ako je i dalje zakasnela; 0 znači da je u međuvremenu stigla vrednost ili ju je ugasila druga instanca
+    @Modifying
+    @Query("UPDATE SensorMeasurementType s SET s.isActive = FALSE WHERE s.id = :id " +
+            "AND s.isActive = TRUE AND s.overdueAt < :now")
+    int deactivateIfOverdue(@Param("id") SensorMeasurementTypeId id, @Param("now") Instant now);
+
+    // Ponovo aktivira seriju posle prekida; last_observed i rok se pomeraju od prve nove vrednosti, pre nego što
+    // flush upiše najnoviju
+    @Modifying
+    @Query(value = "UPDATE sensor_measurement_types SET is_active = TRUE, " +
+            "overdue_at = CASE WHEN overdue_at IS NULL OR overdue_at < :overdueAt THEN :overdueAt ELSE overdue_at END, " +
+            "last_observed = CASE WHEN last_observed IS NULL OR last_observed < :observed THEN :observed ELSE last_observed END " +
+            "WHERE sensor_id = :sensorId AND measurement_type = :measurementType", nativeQuery = true)
+    int reactivate(@Param("sensorId") String sensorId,
+                   @Param("measurementType") String measurementType,
+                   @Param("observed") Instant observed,
+                   @Param("overdueAt") Instant overdueAt);
+}
@@ -2,9 +2,40 @@ package com.iot.buslivinglab.repository;
 
 import com.iot.buslivinglab.entity.Sensor;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
+
 @Repository
 public interface SensorRepository extends JpaRepository<Sensor, String> {
-}
 
+    // Kreira senzor ili ažurira naziv i lokaciju bez read-then-insert trke; updated_at se menja samo ako se nešto promenilo
+    @Modifying
+    @Query(value = "INSERT INTO sensors (sensor_id, sensor_name, location, is_active, created_at, updated_at) " +
+            "VALUES (:sensorId, :sensorName, :location, TRUE, :now, :now) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "updated_at = CASE WHEN sensor_name <> VALUES(sensor_name) " +
+            "OR COALESCE(location, '') <> COALESCE(VALUES(location), '') OR is_active IS NOT TRUE " +
+            "THEN VALUES(updated_at) ELSE updated_at END, " +
+            "sensor_name = VALUES(sensor_name), location = VALUES(location), is_active = TRUE", nativeQuery = true)
+    int upsert(@Param("sensorId") String sensorId,
+               @Param("sensorName") String sensorName,
+               @Param("location") String location,
+               @Param("now") Instant now);
+
+    // Senzor je neaktivan kada nijedna njegova serija nije aktivna
+    @Modifying
+    @Query(value = "UPDATE sensors SET is_active = FALSE, updated_at = :now WHERE sensor_id IN (:sensorIds) " +
+            "AND is_active = TRUE AND NOT EXISTS (SELECT 1 FROM sensor_measurement_types s " +
+            "WHERE s.sensor_id = sensors.sensor_id AND s.is_active = TRUE)", nativeQuery = true)
+    int deactivateIfSilent(@Param("sensorIds") Collection<String> sensorIds, @Param("now") Instant now);
+
+    @Modifying
+    @Query(value = "UPDATE sensors SET is_active = TRUE, updated_at = :now WHERE sensor_id IN (:sensorIds) " +
+            "AND is_active IS NOT TRUE", nativeQuery = true)
+    int activate(@Param("sensorIds") Collection<String> sensorIds, @Param("now") Instant now);
+}
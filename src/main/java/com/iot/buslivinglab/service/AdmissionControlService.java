@@ -0,0 +1,244 @@
+package com.iot.buslivinglab.service;
+
+import com.iot.buslivinglab.admission.AdaptiveConcurrencyLimit;
+import com.iot.buslivinglab.admission.TokenBucket;
+import com.iot.buslivinglab.config.AdmissionControlProperties;
+import com.iot.buslivinglab.exception.AdmissionRejectedException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control za API: token bucket po senzoru i po klijentu (429) i adaptivni limit
+ * istovremenih zahteva (503), sa odvojenim budžetima za ingest i upite.
+ * Sve provere su lock-free (CAS / ConcurrentHashMap), pa je trošak po zahtevu nekoliko atomskih operacija.
+ */
+@Service
+@Slf4j
+public class AdmissionControlService implements MeterBinder {
+
+    public enum TrafficClass {
+        INGEST("ingest"),
+        QUERY("query");
+
+        private final String tag;
+
+        TrafficClass(String tag) {
+            this.tag = tag;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    public enum RejectReason {
+        SENSOR_RATE("sensor_rate"),
+        CLIENT_RATE("client_rate"),
+        CONCURRENCY("concurrency");
+
+        private final String tag;
+
+        RejectReason(String tag) {
+            this.tag = tag;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    private final AdmissionControlProperties properties;
+    private final Map<TrafficClass, Budget> budgets = new EnumMap<>(TrafficClass.class);
+
+    public AdmissionControlService(AdmissionControlProperties properties) {
+        this.properties = properties;
+        long now = System.nanoTime();
+        budgets.put(TrafficClass.INGEST, new Budget(properties.getIngest(), now));
+        budgets.put(TrafficClass.QUERY, new Budget(properties.getQuery(), now));
+        if (properties.isEnabled()) {
+            log.info("Admission control enabled: ingest limit {}, query limit {}",
+                    budgets.get(TrafficClass.INGEST).limit.getLimit(), budgets.get(TrafficClass.QUERY).limit.getLimit());
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Troši token iz budžeta senzora.
+     *
+     * @throws AdmissionRejectedException (429) ako je senzor potrošio budžet
+     */
+    public void checkSensor(TrafficClass trafficClass, String sensorId) {
+        if (!properties.isEnabled() || sensorId == null) {
+            return;
+        }
+        Budget budget = budgets.get(trafficClass);
+        check(budget.sensorBuckets, sensorId, budget, RejectReason.SENSOR_RATE,
+                "Rate limit exceeded for sensor " + sensorId);
+    }
+
+    /**
+     * Troši token iz budžeta klijenta.
+     *
+     * @throws AdmissionRejectedException (429) ako je klijent potrošio budžet
+     */
+    public void checkClient(TrafficClass trafficClass, String clientId) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Budget budget = budgets.get(trafficClass);
+        check(budget.clientBuckets, clientId, budget, RejectReason.CLIENT_RATE,
+                "Rate limit exceeded for client " + clientId);
+    }
+
+    /**
+     * Zauzima mesto u limitu istovremenih zahteva; posle obrade pozvati exit().
+     *
+     * @throws AdmissionRejectedException (503) ako je limit dostignut
+     */
+    public void enter(TrafficClass trafficClass) {
+        Budget budget = budgets.get(trafficClass);
+        if (!budget.limit.tryAcquire()) {
+            budget.rejected.get(RejectReason.CONCURRENCY).increment();
+            long latencySeconds = TimeUnit.NANOSECONDS.toSeconds(budget.limit.getLatencyNanos());
+            throw new AdmissionRejectedException(HttpStatus.SERVICE_UNAVAILABLE, Math.max(1, latencySeconds + 1),
+                    "Server busy (" + trafficClass.getTag() + " concurrency limit " + budget.limit.getLimit() + ")");
+        }
+    }
+
+    /**
+     * @param latencyNanos trajanje obrade; negativno ako zahtev ne treba da utiče na limit
+     */
+    public void exit(TrafficClass trafficClass, long latencyNanos) {
+        budgets.get(trafficClass).limit.release(latencyNanos, System.nanoTime());
+    }
+
+    public int getLimit(TrafficClass trafficClass) {
+        return budgets.get(trafficClass).limit.getLimit();
+    }
+
+    private void check(BucketGroup group, String key, Budget budget, RejectReason reason, String message) {
+        long now = System.nanoTime();
+        long waitNanos = group.bucket(key, now).tryAcquire(now);
+        if (waitNanos > 0) {
+            budget.rejected.get(reason).increment();
+            long retryAfter = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+            throw new AdmissionRejectedException(HttpStatus.TOO_MANY_REQUESTS, retryAfter, message);
+        }
+    }
+
+    /**
+     * Izbacuje bucket-e koji dugo nisu korišćeni (puni su, pa ih nije potrebno pamtiti)
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void evictIdleBuckets() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long now = System.nanoTime();
+        long idleNanos = TimeUnit.SECONDS.toNanos(properties.getIdleEvictionSeconds());
+        for (Budget budget : budgets.values()) {
+            budget.sensorBuckets.evict(now, idleNanos);
+            budget.clientBuckets.evict(now, idleNanos);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        budgets.forEach((trafficClass, budget) -> {
+            Gauge.builder("buslab.admission.limit", budget.limit, AdaptiveConcurrencyLimit::getLimit)
+                    .description("Current adaptive concurrency limit")
+                    .tag("class", trafficClass.getTag())
+                    .register(registry);
+            Gauge.builder("buslab.admission.in_flight", budget.limit, AdaptiveConcurrencyLimit::getInFlight)
+                    .description("Requests currently admitted")
+                    .tag("class", trafficClass.getTag())
+                    .register(registry);
+            budget.rejected.forEach((reason, counter) ->
+                    FunctionCounter.builder("buslab.admission.rejected", counter, LongAdder::sum)
+                            .description("Requests rejected by admission control")
+                            .tag("class", trafficClass.getTag())
+                            .tag("reason", reason.getTag())
+                            .register(registry));
+        });
+    }
+
+    private final class Budget {
+        private final BucketGroup sensorBuckets;
+        private final BucketGroup clientBuckets;
+        private final AdaptiveConcurrencyLimit limit;
+        private final Map<RejectReason, LongAdder> rejected = new EnumMap<>(RejectReason.class);
+
+        private Budget(AdmissionControlProperties.Budget config, long now) {
+            this.sensorBuckets = new BucketGroup(config.getSensorRate(), config.getSensorBurst());
+            this.clientBuckets = new BucketGroup(config.getClientRate(), config.getClientBurst());
+            this.limit = new AdaptiveConcurrencyLimit(config.getInitialLimit(), config.getMinLimit(),
+                    config.getMaxLimit(), config.getLatencyTolerance(),
+                    TimeUnit.MILLISECONDS.toNanos(properties.getLimitWindowMs()), now);
+            for (RejectReason reason : RejectReason.values()) {
+                rejected.put(reason, new LongAdder());
+            }
+        }
+    }
+
+    /**
+     * Bucket-i jedne grupe (npr. ingest po senzoru). Kada broj ključeva dostigne maxTrackedKeys, izbacuje se
+     * desetina najduže nekorišćenih (LRU po teorijskom vremenu dolaska), tako da nasumični ID-jevi ne mogu da
+     * potroše memoriju, a aktivni ključevi ne gube svoj bucket niti dele tuđi.
+     */
+    private final class BucketGroup {
+        private final double rate;
+        private final int burst;
+        private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+        private BucketGroup(double rate, int burst) {
+            this.rate = rate;
+            this.burst = burst;
+        }
+
+        private TokenBucket bucket(String key, long now) {
+            TokenBucket bucket = buckets.get(key);
+            if (bucket != null) {
+                return bucket;
+            }
+            if (buckets.size() >= properties.getMaxTrackedKeys()) {
+                evictLeastRecentlyUsed();
+            }
+            return buckets.computeIfAbsent(key, k -> new TokenBucket(rate, burst, now));
+        }
+
+        private synchronized void evictLeastRecentlyUsed() {
+            int size = buckets.size();
+            int maxKeys = properties.getMaxTrackedKeys();
+            if (size < maxKeys) {
+                // druga nit je već izbacila
+                return;
+            }
+            int remove = size - maxKeys + Math.max(1, maxKeys / 10);
+            long[] arrivals = buckets.values().stream().mapToLong(TokenBucket::getTheoreticalArrival).toArray();
+            Arrays.sort(arrivals);
+            long cutoff = arrivals[Math.min(remove, arrivals.length) - 1];
+            buckets.values().removeIf(bucket -> bucket.getTheoreticalArrival() - cutoff <= 0);
+            log.debug("Evicted {} least recently used admission buckets", size - buckets.size());
+        }
+
+        private void evict(long now, long idleNanos) {
+            buckets.values().removeIf(bucket -> bucket.isIdleSince(now, idleNanos));
+        }
+    }
+}
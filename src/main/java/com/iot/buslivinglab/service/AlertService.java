@@ -0,0 +1,218 @@
+package com.iot.buslivinglab.service;
+
+import com.iot.buslivinglab.alert.ActiveAlert;
+import com.iot.buslivinglab.alert.AlertKind;
+import com.iot.buslivinglab.alert.ThresholdAlertEngine;
+import com.iot.buslivinglab.alert.Thresholds;
+import com.iot.buslivinglab.bulkhead.Workload;
+import com.iot.buslivinglab.bulkhead.WorkloadContext;
+import com.iot.buslivinglab.config.AlertProperties;
+import com.iot.buslivinglab.dto.response.SensorAlertResponse;
+import com.iot.buslivinglab.entity.MeasurementType;
+import com.iot.buslivinglab.entity.SensorAlert;
+import com.iot.buslivinglab.entity.SensorMeasurementType;
+import com.iot.buslivinglab.event.ObservationSavedEvent;
+import com.iot.buslivinglab.repository.MeasurementTypeRepository;
+import com.iot.buslivinglab.repository.SensorAlertRepository;
+import com.iot.buslivinglab.repository.SensorMeasurementTypeRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Alarmi na pragovima: svaka sačuvana vrednost se posle commit-a proverava u ThresholdAlertEngine-u
+ * (memorija, bez upita), a otvoreni, ažurirani i zatvoreni alarmi se upisuju u sensor_alerts periodično.
+ * Pragovi se učitavaju pri startu i osvežavaju na thresholdRefreshIntervalMs.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AlertService implements MeterBinder {
+
+    private final SensorAlertRepository alertRepository;
+    private final SensorMeasurementTypeRepository sensorMeasurementTypeRepository;
+    private final MeasurementTypeRepository measurementTypeRepository;
+    private final AlertProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    private ThresholdAlertEngine engine;
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder closed = new LongAdder();
+
+    @PostConstruct
+    void start() {
+        engine = new ThresholdAlertEngine(properties.getHysteresis(), properties.getMinDurationMs());
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            for (SensorAlert alert : alertRepository.findByClosedAtIsNull()) {
+                engine.restore(new ActiveAlert(alert.getAlertId(), alert.getSensorId(), alert.getMeasurementType(),
+                        AlertKind.valueOf(alert.getKind().toUpperCase(Locale.ROOT)),
+                        orNaN(alert.getThreshold()), alert.getOpenedAt(),
+                        orNaN(alert.getPeakValue()), orNaN(alert.getLastValue()), alert.getLastObservedAt(),
+                        alert.getSampleCount()));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Loading open alerts failed, open alerts may be raised again: {}", e.getMessage());
+        }
+        refreshThresholds();
+    }
+
+    @Scheduled(fixedDelayString = "${alerts.threshold-refresh-interval-ms:60000}",
+            initialDelayString = "${alerts.threshold-refresh-interval-ms:60000}")
+    public void refreshThresholds() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            Map<String, MeasurementType> types = new HashMap<>();
+            Map<String, Thresholds> byType = new HashMap<>();
+            for (MeasurementType type : measurementTypeRepository.findAll()) {
+                types.put(type.getTypeId(), type);
+                Thresholds thresholds = Thresholds.of(null, null, type.getMinValue(), type.getMaxValue());
+                if (thresholds != null) {
+                    byType.put(type.getTypeId(), thresholds);
+                }
+            }
+            Map<String, Map<String, Thresholds>> bySensor = new HashMap<>();
+            for (SensorMeasurementType series : sensorMeasurementTypeRepository.findWithThresholds()) {
+                MeasurementType type = types.get(series.getMeasurementType());
+                Thresholds thresholds = Thresholds.of(series.getMinThreshold(), series.getMaxThreshold(),
+                        type != null ? type.getMinValue() : null, type != null ? type.getMaxValue() : null);
+                bySensor.computeIfAbsent(series.getSensorId(), sensorId -> new HashMap<>())
+                        .put(series.getMeasurementType(), thresholds);
+            }
+            bySensor.replaceAll((sensorId, thresholds) -> Map.copyOf(thresholds));
+            engine.setThresholds(Map.copyOf(byType), Map.copyOf(bySensor));
+            log.debug("Loaded alert thresholds for {} measurement types and {} sensors", byType.size(), bySensor.size());
+        } catch (RuntimeException e) {
+            log.warn("Refreshing alert thresholds failed, keeping previous: {}", e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onObservationSaved(ObservationSavedEvent event) {
+        if (properties.isEnabled() && event.getValue() != null) {
+            engine.evaluate(event.getSensorId(), event.getMeasurementType(), event.getValue(), event.getTimestamp());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${alerts.flush-interval-ms:1000}")
+    public void flush() {
+        List<ActiveAlert> batch = new ArrayList<>();
+        for (ActiveAlert alert = engine.pollChanged(); alert != null; alert = engine.pollChanged()) {
+            batch.add(alert);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Workload previous = WorkloadContext.set(Workload.INGEST);
+        try {
+            // isti alarm može biti u batch-u samo jednom, a id se dodeljuje tek posle commit-a
+            Map<ActiveAlert, SensorAlert> saved = new LinkedHashMap<>();
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(alert -> saved.put(alert, write(alert))));
+            saved.forEach((alert, entity) -> {
+                if (!alert.hasId()) {
+                    opened.increment();
+                    log.info("Alert {} opened: sensor {}, {} {} (threshold {}, peak {})", entity.getAlertId(),
+                            entity.getSensorId(), entity.getMeasurementType(), entity.getKind(),
+                            entity.getThreshold(), entity.getPeakValue());
+                }
+                alert.assignId(entity.getAlertId());
+                if (entity.getClosedAt() != null) {
+                    closed.increment();
+                    log.info("Alert {} closed: sensor {}, {} {}", entity.getAlertId(), entity.getSensorId(),
+                            entity.getMeasurementType(), entity.getKind());
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("Writing {} alerts failed, retrying later: {}", batch.size(), e.getMessage());
+            batch.forEach(engine::requeue);
+        } finally {
+            WorkloadContext.restore(previous);
+        }
+    }
+
+    private SensorAlert write(ActiveAlert alert) {
+        ActiveAlert.Snapshot snapshot = alert.takeSnapshot();
+        SensorAlert entity = snapshot.id() != null
+                ? alertRepository.findById(snapshot.id()).orElseGet(SensorAlert::new)
+                : new SensorAlert();
+        entity.setSensorId(snapshot.sensorId());
+        entity.setMeasurementType(snapshot.measurementType());
+        entity.setKind(snapshot.kind().getTag());
+        entity.setThreshold(Double.isNaN(snapshot.threshold()) ? null : snapshot.threshold());
+        entity.setOpenedAt(snapshot.openedAt());
+        entity.setClosedAt(snapshot.closedAt());
+        entity.setPeakValue(snapshot.peakValue());
+        entity.setLastValue(snapshot.lastValue());
+        entity.setLastObservedAt(snapshot.lastObservedAt());
+        entity.setSampleCount(snapshot.sampleCount());
+        entity.setUpdatedAt(Instant.now());
+        return alertRepository.save(entity);
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Najnoviji alarmi po vremenu otvaranja; alarmi iz poslednjeg flushIntervalMs još nisu upisani
+     */
+    @Transactional(readOnly = true)
+    public List<SensorAlertResponse> findAlerts(String sensorId, boolean openOnly, int limit) {
+        return alertRepository.findRecent(sensorId, openOnly, PageRequest.of(0, limit)).stream()
+                .map(alert -> SensorAlertResponse.builder()
+                        .alertId(alert.getAlertId())
+                        .sensorId(alert.getSensorId())
+                        .measurementType(alert.getMeasurementType())
+                        .kind(alert.getKind())
+                        .threshold(alert.getThreshold())
+                        .openedAt(alert.getOpenedAt())
+                        .closedAt(alert.getClosedAt())
+                        .lastObservedAt(alert.getLastObservedAt())
+                        .peakValue(alert.getPeakValue())
+                        .lastValue(alert.getLastValue())
+                        .sampleCount(alert.getSampleCount())
+                        .build())
+                .toList();
+    }
+
+    private static double orNaN(Double value) {
+        return value != null ? value : Double.NaN;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("buslab.alerts.active", this, service -> service.engine.getActiveAlerts())
+                .description("Threshold alerts currently open on this instance")
+                .register(registry);
+        Gauge.builder("buslab.alerts.queued", this, service -> service.engine.getQueued())
+                .description("Alerts waiting to be written to sensor_alerts")
+                .register(registry);
+        FunctionCounter.builder("buslab.alerts.opened", opened, LongAdder::sum)
+                .description("Threshold alerts opened")
+                .register(registry);
+        FunctionCounter.builder("buslab.alerts.closed", closed, LongAdder::sum)
+                .description("Threshold alerts closed")
+                .register(registry);
+    }
+}
@@ -0,0 +1,129 @@
+package com.iot.buslivinglab.service;
+
+import com.iot.buslivinglab.bulkhead.Bulkhead;
+import com.iot.buslivinglab.bulkhead.Workload;
+import com.iot.buslivinglab.bulkhead.WorkloadContext;
+import com.iot.buslivinglab.config.BulkheadProperties;
+import com.iot.buslivinglab.observability.QueryStatistics;
+import com.iot.buslivinglab.observability.QueryStatistics.RequestStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Izvršava ingest i upite u bulkhead-u svog workload-a (odvojen executor i connection pool),
+ * da istorijski upiti analitičara ne bi usporili ingest. Kada je bulkhead.enabled=false,
+ * zadatak se izvršava direktno na pozivajućem thread-u.
+ */
+@Service
+@Slf4j
+public class BulkheadService implements MeterBinder {
+
+    private final BulkheadProperties properties;
+    private final QueryStatistics queryStatistics;
+    private final Map<Workload, Bulkhead> bulkheads = new EnumMap<>(Workload.class);
+
+    public BulkheadService(BulkheadProperties properties, QueryStatistics queryStatistics) {
+        this.properties = properties;
+        this.queryStatistics = queryStatistics;
+        if (properties.isEnabled()) {
+            for (Workload workload : Workload.values()) {
+                BulkheadProperties.Pool pool = properties.pool(workload);
+                bulkheads.put(workload, new Bulkhead(workload, pool.getPoolSize(), pool.getQueueSize(), pool.getTimeoutMs()));
+                log.info("Bulkhead {}: {} connections/threads, queue {}, timeout {} ms",
+                        workload.getTag(), pool.getPoolSize(), pool.getQueueSize(), pool.getTimeoutMs());
+            }
+        }
+    }
+
+    /**
+     * Izvršava zadatak u bulkhead-u workload-a i vraća rezultat; izuzetak zadatka se prosleđuje pozivaocu.
+     *
+     * @throws com.iot.buslivinglab.exception.AdmissionRejectedException (503) ako je bulkhead pun ili je istekao timeout
+     */
+    public <T> T execute(Workload workload, Callable<T> task) throws Exception {
+        Bulkhead bulkhead = bulkheads.get(workload);
+        if (bulkhead == null) {
+            Workload previous = WorkloadContext.set(workload);
+            try {
+                return task.call();
+            } finally {
+                WorkloadContext.restore(previous);
+            }
+        }
+
+        RequestStats stats = queryStatistics.current();
+        return bulkhead.call(() -> {
+            queryStatistics.attach(stats);
+            try {
+                return task.call();
+            } finally {
+                queryStatistics.end();
+            }
+        });
+    }
+
+    /**
+     * Upit za dug period ili veliki broj vrednosti je HEAVY, ostali INTERACTIVE.
+     * Neispravni parametri se klasifikuju kao INTERACTIVE; validacija ostaje u kontroleru i servisu.
+     */
+    public Workload classifyQuery(Integer days, Integer count, String from, String to) {
+        if (days != null && days > properties.getHeavyDays()) {
+            return Workload.HEAVY;
+        }
+        if (count != null && count > properties.getHeavyCount()) {
+            return Workload.HEAVY;
+        }
+        if (from != null && to != null) {
+            try {
+                Duration range = Duration.between(Instant.parse(from), Instant.parse(to));
+                if (range.toDays() > properties.getHeavyDays()) {
+                    return Workload.HEAVY;
+                }
+            } catch (DateTimeParseException e) {
+                return Workload.INTERACTIVE;
+            }
+        }
+        return Workload.INTERACTIVE;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bulkheads.forEach((workload, bulkhead) -> {
+            Gauge.builder("buslab.bulkhead.active", bulkhead, Bulkhead::getActive)
+                    .description("Tasks currently running in the bulkhead")
+                    .tag("workload", workload.getTag())
+                    .register(registry);
+            Gauge.builder("buslab.bulkhead.queued", bulkhead, Bulkhead::getQueued)
+                    .description("Tasks waiting for a bulkhead thread")
+                    .tag("workload", workload.getTag())
+                    .register(registry);
+            FunctionCounter.builder("buslab.bulkhead.rejected", bulkhead, Bulkhead::getRejected)
+                    .description("Tasks rejected by the bulkhead (queue full or timed out)")
+                    .tag("workload", workload.getTag())
+                    .tag("reason", "full")
+                    .register(registry);
+            FunctionCounter.builder("buslab.bulkhead.rejected", bulkhead, Bulkhead::getTimedOut)
+                    .description("Tasks rejected by the bulkhead (queue full or timed out)")
+                    .tag("workload", workload.getTag())
+                    .tag("reason", "timeout")
+                    .register(registry);
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        bulkheads.values().forEach(Bulkhead::shutdown);
+    }
+}
@@ -0,0 +1,167 @@
+package com.iot.buslivinglab.service;
+
+import com.iot.buslivinglab.bulkhead.WorkloadContext;
+import com.iot.buslivinglab.cache.CoherentCache;
+import com.iot.buslivinglab.config.CacheCoherenceProperties;
+import com.iot.buslivinglab.entity.CacheGeneration;
+import com.iot.buslivinglab.repository.CacheGenerationRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keševi svih instanci ostaju usklađeni bez brokera: instanca koja promeni keširane podatke povećava generaciju
+ * keša u cache_generations (u istoj transakciji kao izmena), a svaka instanca periodično čita celu tabelu
+ * (nekoliko redova) i prazni keševe čija je generacija porasla. Sopstvena izmena se tako vidi još jednom,
+ * što samo isprazni već ažuran keš.
+ *
+ * Čitanje ima sopstveni thread, a ne deljeni @Scheduled scheduler, da spor posao (flush, provera replika,
+ * liveness) ne bi odložio čitanje i tako probio poll-interval-ms i max-staleness-ms.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CacheCoherenceService implements MeterBinder {
+
+    private final CacheGenerationRepository cacheGenerationRepository;
+    private final CacheCoherenceProperties properties;
+    private final ObjectProvider<CoherentCache> caches;
+
+    /**
+     * Poslednja viđena generacija po kešu; prazna dok prvo čitanje ne uspe
+     */
+    private final Map<String, Long> knownGenerations = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> invalidations = new ConcurrentHashMap<>();
+    private volatile boolean initialized;
+    private volatile long lastPollMillis = System.currentTimeMillis();
+    private volatile long lastStaleFlushMillis;
+    private ScheduledExecutorService poller;
+
+    @PostConstruct
+    void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        poller = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("cache-coherence").daemon(true).factory());
+        poller.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (RuntimeException e) {
+                // izuzetak bi otkazao sva sledeća čitanja
+                log.warn("Cache generation poll failed: {}", e.getMessage());
+            }
+        }, properties.getPollIntervalMs(), properties.getPollIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (poller != null) {
+            poller.shutdownNow();
+        }
+    }
+
+    /**
+     * Objavljuje izmenu keša ostalim instancama. Poziva se unutar transakcije koja menja podatke,
+     * pa rollback poništava i objavu.
+     */
+    @Transactional
+    public void publish(String cacheName) {
+        if (properties.isEnabled()) {
+            cacheGenerationRepository.bump(cacheName, Instant.now());
+        }
+    }
+
+    public synchronized void poll() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        List<CacheGeneration> generations;
+        // generacije se čitaju sa primary-ja; replika bi kasnila za izmenom
+        WorkloadContext.setPrimaryRequired(true);
+        try {
+            generations = cacheGenerationRepository.findAll();
+        } catch (RuntimeException e) {
+            invalidateAllIfStale(e);
+            return;
+        } finally {
+            WorkloadContext.setPrimaryRequired(false);
+        }
+        lastPollMillis = System.currentTimeMillis();
+
+        for (CacheGeneration generation : generations) {
+            Long known = knownGenerations.put(generation.getCacheName(), generation.getGeneration());
+            if (initialized && (known == null || known < generation.getGeneration())) {
+                log.info("Cache {} changed on another instance (generation {}), invalidating",
+                        generation.getCacheName(), generation.getGeneration());
+                invalidate(generation.getCacheName());
+            }
+        }
+        initialized = true;
+    }
+
+    private void invalidateAllIfStale(RuntimeException cause) {
+        long now = System.currentTimeMillis();
+        if (now - lastPollMillis < properties.getMaxStalenessMs()
+                || now - lastStaleFlushMillis < properties.getMaxStalenessMs()) {
+            log.debug("Cache generation poll failed: {}", cause.getMessage());
+            return;
+        }
+        log.warn("Cache generations unreadable for {} ms ({}), invalidating all caches",
+                now - lastPollMillis, cause.getMessage());
+        lastStaleFlushMillis = now;
+        caches.orderedStream().forEach(cache -> invalidate(cache.getCacheName()));
+    }
+
+    private void invalidate(String cacheName) {
+        caches.orderedStream()
+                .filter(cache -> cache.getCacheName().equals(cacheName))
+                .forEach(cache -> {
+                    try {
+                        cache.invalidate();
+                    } catch (RuntimeException e) {
+                        log.warn("Invalidating cache {} failed: {}", cacheName, e.getMessage());
+                    }
+                });
+        invalidations.computeIfAbsent(cacheName, name -> new LongAdder()).increment();
+    }
+
+    /**
+     * @return poslednja viđena generacija keša ili 0
+     */
+    public long getGeneration(String cacheName) {
+        return knownGenerations.getOrDefault(cacheName, 0L);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        caches.orderedStream().map(CoherentCache::getCacheName).distinct().forEach(cacheName ->
+                FunctionCounter.builder("buslab.cache.invalidations",
+                                invalidations.computeIfAbsent(cacheName, name -> new LongAdder()), LongAdder::sum)
+                        .description("Cache invalidations caused by changes on other instances")
+                        .tag("cache", cacheName)
+                        .register(registry));
+        Gauge.builder("buslab.cache.coherence.staleness", this,
+                        service -> (System.currentTimeMillis() - service.lastPollMillis) / 1000.0)
+                .description("Seconds since cache generations were last read; bounds how stale local caches can be")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+}
@@ -0,0 +1,92 @@
+package com.iot.buslivinglab.service;
+
+import com.iot.buslivinglab.bulkhead.WorkloadDataSources;
+import com.iot.buslivinglab.config.DbLimiterProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ograničava broj istovremenih zahteva koji drže konekciju na veličinu pool-a ka primary-ju.
+ * Koristi se samo bez bulkhead-ova (vidi DbConcurrencyFilter); sa njima svaki workload ograničava svoj executor.
+ * Sa virtual threads hiljade zahteva može istovremeno da čeka na konekciju; ovaj limiter
+ * ih drži u kratkom redu i odbija višak brzo, umesto da čekaju connection-timeout (60s).
+ */
+@Component
+@Slf4j
+public class DbConcurrencyLimiter implements MeterBinder {
+
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final long acquireTimeoutMs;
+
+    public DbConcurrencyLimiter(DbLimiterProperties properties,
+                                ObjectProvider<WorkloadDataSources> workloadDataSources,
+                                DataSource dataSource) {
+        this.maxConcurrent = properties.getMaxConcurrent() > 0
+                ? properties.getMaxConcurrent()
+                : poolCapacity(workloadDataSources.getIfAvailable(), dataSource);
+        this.acquireTimeoutMs = properties.getAcquireTimeoutMs();
+        this.permits = new Semaphore(maxConcurrent);
+        log.info("DB concurrency limit set to {}", maxConcurrent);
+    }
+
+    /**
+     * Bez bulkhead-ova (samo replike) svi workload-i dele isti pool, pa se svaki pool broji jednom
+     */
+    static int poolCapacity(WorkloadDataSources workloadDataSources, DataSource dataSource) {
+        if (workloadDataSources != null) {
+            return workloadDataSources.getPools().values().stream()
+                    .distinct()
+                    .mapToInt(HikariDataSource::getMaximumPoolSize)
+                    .sum();
+        }
+        if (dataSource instanceof HikariDataSource hikari) {
+            return hikari.getMaximumPoolSize();
+        }
+        return DEFAULT_POOL_SIZE;
+    }
+
+    /**
+     * @return true ako je dozvola dobijena; pozivalac mora da pozove release()
+     */
+    public boolean tryAcquire() throws InterruptedException {
+        return permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getInUse() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public int getQueueLength() {
+        return permits.getQueueLength();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("buslab.db.limiter.in_use", this, DbConcurrencyLimiter::getInUse)
+                .description("API requests currently admitted to the database")
+                .register(registry);
+        Gauge.builder("buslab.db.limiter.queue", this, DbConcurrencyLimiter::getQueueLength)
+                .description("API requests waiting for a database slot")
+                .register(registry);
+    }
+}
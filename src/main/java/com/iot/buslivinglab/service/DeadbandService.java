@@ -0,0 +1,109 @@
+package com.iot.buslivinglab.service;
+
+import com.iot.buslivinglab.config.DeadbandProperties;
+import com.iot.buslivinglab.deadband.DeadbandFilter;
+import com.iot.buslivinglab.deadband.DeadbandFilter.Decision;
+import com.iot.buslivinglab.deadband.DeadbandPolicy;
+import com.iot.buslivinglab.entity.SensorMeasurementType;
+import com.iot.buslivinglab.repository.SensorMeasurementTypeRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Deadband kompresija serija sa politikom u sensor_measurement_types. Odluka se donosi u memoriji pod lock-om
+ * senzora na ingest-u; rollback transakcije podataka briše stanje serije, da se nivo koji nije upisan ne bi
+ * smatrao upisanim.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DeadbandService implements MeterBinder {
+
+    private final SensorMeasurementTypeRepository sensorMeasurementTypeRepository;
+    private final DeadbandProperties properties;
+
+    private final DeadbandFilter filter = new DeadbandFilter();
+    private final LongAdder suppressed = new LongAdder();
+
+    @PostConstruct
+    void start() {
+        refreshPolicies();
+    }
+
+    @Scheduled(fixedDelayString = "${deadband.policy-refresh-interval-ms:60000}",
+            initialDelayString = "${deadband.policy-refresh-interval-ms:60000}")
+    public void refreshPolicies() {
+        if (!properties.isEnabled()) {
+            filter.setPolicies(Map.of());
+            return;
+        }
+        try {
+            Map<String, Map<String, DeadbandPolicy>> policies = new HashMap<>();
+            for (SensorMeasurementType series : sensorMeasurementTypeRepository.findWithDeadband()) {
+                try {
+                    DeadbandPolicy policy = DeadbandPolicy.of(series.getDeadbandAbsolute(), series.getDeadbandRelative(),
+                            series.getDeadbandMaxSilenceMs(), properties.getDefaultMaxSilenceMs());
+                    policies.computeIfAbsent(series.getSensorId(), sensorId -> new HashMap<>())
+                            .put(series.getMeasurementType(), policy);
+                } catch (IllegalArgumentException e) {
+                    log.warn("Ignoring deadband of sensor {}, {}: {}", series.getSensorId(),
+                            series.getMeasurementType(), e.getMessage());
+                }
+            }
+            policies.replaceAll((sensorId, bySensor) -> Map.copyOf(bySensor));
+            filter.setPolicies(Map.copyOf(policies));
+            log.debug("Loaded deadband policies for {} sensors", policies.size());
+        } catch (RuntimeException e) {
+            log.warn("Refreshing deadband policies failed, keeping previous: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Odluka za jednu vrednost; poziva se u transakciji podataka
+     */
+    public Decision offer(String sensorId, String measurementType, double value, Instant timestamp) {
+        Decision decision = filter.offer(sensorId, measurementType, value, timestamp);
+        if (decision == Decision.SUPPRESS) {
+            suppressed.increment();
+        }
+        if ((decision == Decision.STORE || decision == Decision.SUPPRESS)
+                && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        filter.forget(sensorId, measurementType);
+                    }
+                }
+            });
+        }
+        return decision;
+    }
+
+    /**
+     * Politike tipova merenja senzora; čitanje ih koristi za rekonstrukciju stepenaste serije
+     */
+    public Map<String, DeadbandPolicy> policies(String sensorId) {
+        return filter.policies(sensorId);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("buslab.ingest.deadband.suppressed", suppressed, LongAdder::sum)
+                .description("Values inside their deadband that were not stored")
+                .register(registry);
+    }
+}
@@ -0,0 +1,178 @@
+package com.iot.buslivinglab.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iot.buslivinglab.config.DerivedMeasurementProperties;
+import com.iot.buslivinglab.derived.DerivedDefinition;
+import com.iot.buslivinglab.derived.DerivedSeriesEngine;
+import com.iot.buslivinglab.derived.DerivedSeriesEngine.DerivedValue;
+import com.iot.buslivinglab.derived.DerivedSeriesEngine.History;
+import com.iot.buslivinglab.derived.DerivedSeriesEngine.Sample;
+import com.iot.buslivinglab.entity.DerivedMeasurementType;
+import com.iot.buslivinglab.entity.SensorData;
+import com.iot.buslivinglab.repository.DerivedMeasurementTypeRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Izvedeni tipovi merenja iz derived_measurement_types. Vrednosti se računaju na ingest-u, u transakciji podataka
+ * i pod lock-om senzora, iz izvornih vrednosti koje su prihvaćene (upisane ili unutar deadband-a), i upisuju se
+ * kao obični redovi sensor_data sa vremenom izvorne vrednosti. Rollback briše stanje senzora, pa se sledeća
+ * vrednost računa iz upisanih podataka.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DerivedMeasurementService implements MeterBinder {
+
+    private final DerivedMeasurementTypeRepository derivedTypeRepository;
+    private final SensorDataStore sensorDataStore;
+    private final DerivedMeasurementProperties properties;
+    private final ObjectMapper objectMapper;
+
+    private DerivedSeriesEngine engine;
+    private final History history = new StoredHistory();
+    private final LongAdder computed = new LongAdder();
+
+    @PostConstruct
+    void start() {
+        engine = new DerivedSeriesEngine(properties.getMaxTemperatureAgeMs(), ZoneId.of(properties.getDailySumZone()));
+        refreshDefinitions();
+    }
+
+    @Scheduled(fixedDelayString = "${derived.definition-refresh-interval-ms:60000}",
+            initialDelayString = "${derived.definition-refresh-interval-ms:60000}")
+    public void refreshDefinitions() {
+        if (!properties.isEnabled()) {
+            engine.setDefinitions(List.of(), Map.of());
+            return;
+        }
+        try {
+            List<DerivedDefinition> forAllSensors = new ArrayList<>();
+            Map<String, List<DerivedDefinition>> bySensor = new HashMap<>();
+            for (DerivedMeasurementType type : derivedTypeRepository.findAll()) {
+                try {
+                    DerivedDefinition definition = DerivedDefinition.of(type.getTypeId(), type.getFunction(),
+                            type.getSourceType(), type.getTemperatureType(), type.getWindowSize(),
+                            type.getCoefficient(), properties.getMaxWindowSize());
+                    if (type.getSensorId() == null) {
+                        forAllSensors.add(definition);
+                    } else {
+                        bySensor.computeIfAbsent(type.getSensorId(), sensorId -> new ArrayList<>()).add(definition);
+                    }
+                } catch (IllegalArgumentException e) {
+                    log.warn("Ignoring derived measurement type {}: {}", type.getTypeId(), e.getMessage());
+                }
+            }
+            engine.setDefinitions(forAllSensors, bySensor);
+            log.debug("Loaded {} derived measurement types for all sensors and {} for single sensors",
+                    forAllSensors.size(), bySensor.values().stream().mapToInt(List::size).sum());
+        } catch (RuntimeException e) {
+            log.warn("Refreshing derived measurement types failed, keeping previous: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Izvedeni tipovi koji nastaju iz tipa merenja senzora; metapodaci za njih se upisuju zajedno sa primljenim tipovima
+     */
+    public List<DerivedDefinition> definitions(String sensorId, String measurementType) {
+        return engine.definitions(sensorId, measurementType);
+    }
+
+    /**
+     * Izvedeni redovi za prihvaćene vrednosti jedne opservacije (jedan senzor); poziva se u transakciji podataka.
+     * Temperature se pamte pre računanja, pa redosled članova opservacije nije bitan.
+     */
+    public List<SensorData> derive(List<SensorData> accepted) {
+        if (accepted.isEmpty()) {
+            return List.of();
+        }
+        String sensorId = accepted.get(0).getSensorId();
+        for (SensorData row : accepted) {
+            if (engine.isTemperature(row.getMeasurementType())) {
+                engine.observeTemperature(sensorId, row.getMeasurementType(), row.getValue(), row.getTimestamp());
+            }
+        }
+        List<SensorData> derived = new ArrayList<>();
+        for (SensorData row : accepted) {
+            for (DerivedValue value : engine.derive(sensorId, row.getMeasurementType(), row.getValue(),
+                    row.getTimestamp(), history)) {
+                derived.add(SensorData.builder()
+                        .sensorId(sensorId)
+                        .measurementType(value.definition().typeId())
+                        .value(value.value())
+                        .unit(row.getUnit())
+                        .timestamp(row.getTimestamp())
+                        .location(row.getLocation())
+                        .rawData(objectMapper.createObjectNode()
+                                .put("derivedFrom", row.getMeasurementType())
+                                .put("function", value.definition().function().getTag())
+                                .toString())
+                        .build());
+            }
+        }
+        if (!derived.isEmpty()) {
+            computed.add(derived.size());
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        if (status != STATUS_COMMITTED) {
+                            engine.forget(sensorId);
+                        }
+                    }
+                });
+            }
+        }
+        return derived;
+    }
+
+    /**
+     * Upisane vrednosti iz sensor_data. latestBefore vraća samo upisane redove: vrednosti unutar deadband-a nisu
+     * u sensor_data, pa prozor moving_average posle restarta može da obuhvati starije vrednosti nego prozor koji
+     * se gradio na ingest-u. lastStoredAt je jedan indeksirani upit po izvedenoj vrednosti, kada je
+     * derived.check-stored-state uključen.
+     */
+    private final class StoredHistory implements History {
+
+        @Override
+        public List<Sample> latestBefore(String sensorId, String measurementType, Instant before, int n) {
+            return sensorDataStore.findLatestBefore(sensorId, measurementType, before, n).stream()
+                    .map(data -> new Sample(data.getValue(), data.getTimestamp()))
+                    .toList();
+        }
+
+        @Override
+        public Instant lastStoredAt(String sensorId, String measurementType) {
+            if (!properties.isCheckStoredState()) {
+                return null;
+            }
+            List<SensorData> latest = sensorDataStore.findLatestNBySensorIdAndMeasurementType(sensorId,
+                    measurementType, 1);
+            return latest.isEmpty() ? null : latest.get(0).getTimestamp();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("buslab.derived.series", this, service -> service.engine.getSeries())
+                .description("Derived series with window or daily state on this instance")
+                .register(registry);
+        FunctionCounter.builder("buslab.derived.values", computed, LongAdder::sum)
+                .description("Derived values computed at ingest")
+                .register(registry);
+    }
+}
@@ -0,0 +1,123 @@
+package com.iot.buslivinglab.service;
+
+import com.iot.buslivinglab.config.IngestDedupProperties;
+import com.iot.buslivinglab.dedup.ObservationKey;
+import com.iot.buslivinglab.dedup.RotatingBloomFilter;
+import com.iot.buslivinglab.event.ObservationSavedEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prepoznaje ponovljene opservacije. Bloom filter pamti ključeve nedavno commit-ovanih merenja;
+ * pogodak filtera se potvrđuje jednim upitom pre nego što se merenje preskoči, tako da lažno pozitivan
+ * odgovor nikad ne odbacuje nove podatke. Duplikati koje filter ne vidi (stari ili sa druge instance)
+ * preskače INSERT, koji duplikat unique key-a ne upisuje.
+ */
+@Service
+@Slf4j
+public class IngestDedupService implements MeterBinder {
+
+    public enum DetectedBy {
+        FILTER("filter"),
+        DATABASE("database");
+
+        private final String tag;
+
+        DetectedBy(String tag) {
+            this.tag = tag;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    private final SensorDataStore sensorDataStore;
+    private final RotatingBloomFilter filter;
+
+    private final Map<DetectedBy, LongAdder> duplicates = new EnumMap<>(DetectedBy.class);
+    private final LongAdder falsePositives = new LongAdder();
+
+    public IngestDedupService(IngestDedupProperties properties, SensorDataStore sensorDataStore) {
+        this.sensorDataStore = sensorDataStore;
+        this.filter = properties.isEnabled()
+                ? new RotatingBloomFilter(properties.getExpectedKeys(), properties.getFalsePositiveRate())
+                : null;
+        for (DetectedBy detectedBy : DetectedBy.values()) {
+            duplicates.put(detectedBy, new LongAdder());
+        }
+        if (filter != null) {
+            log.info("Ingest dedup filter: {} keys per generation, {} hashes, {} KB per generation",
+                    properties.getExpectedKeys(), filter.getHashes(), filter.getSizeBytes() / 1024);
+        }
+    }
+
+    /**
+     * Vraća ključeve opservacije koji sigurno već postoje u bazi. Upit ide samo za ključeve koje filter
+     * možda sadrži; nov ključ (filter ga nije video) ne košta ništa.
+     */
+    public Set<ObservationKey> findDuplicates(String sensorId, List<ObservationKey> keys) {
+        if (filter == null || keys.isEmpty()) {
+            return Set.of();
+        }
+        List<ObservationKey> candidates = new ArrayList<>();
+        for (ObservationKey key : keys) {
+            if (filter.mightContain(key.filterKey())) {
+                candidates.add(key);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return Set.of();
+        }
+
+        Set<Instant> timestamps = new HashSet<>();
+        candidates.forEach(key -> timestamps.add(key.timestamp()));
+        Set<ObservationKey> existing = new HashSet<>(sensorDataStore.findExistingKeys(sensorId, timestamps));
+
+        Set<ObservationKey> confirmed = new HashSet<>();
+        for (ObservationKey key : candidates) {
+            if (existing.contains(key)) {
+                confirmed.add(key);
+            } else {
+                falsePositives.increment();
+            }
+        }
+        return confirmed;
+    }
+
+    public void recordDuplicates(DetectedBy detectedBy, int count) {
+        if (count > 0) {
+            duplicates.get(detectedBy).add(count);
+        }
+    }
+
+    /**
+     * Filter se puni tek posle commit-a, da rollback-ovano merenje ne bi izgledalo kao duplikat
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onObservationSaved(ObservationSavedEvent event) {
+        if (filter != null) {
+            filter.put(new ObservationKey(event.getSensorId(), event.getMeasurementType(), event.getTimestamp())
+                    .filterKey());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        duplicates.forEach((detectedBy, count) -> FunctionCounter.builder("buslab.ingest.duplicates", count, LongAdder::sum)
+                .description("Observations skipped because the same sensor, type and time is already stored")
+                .tag("detected_by", detectedBy.getTag())
+                .register(registry));
+        FunctionCounter.builder("buslab.ingest.dedup.false_positives", falsePositives, LongAdder::sum)
+                .description("Dedup filter hits that turned out to be new observations")
+                .register(registry);
+    }
+}
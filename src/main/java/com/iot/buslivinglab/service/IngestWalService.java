@@ -0,0 +1,276 @@
+package com.iot.buslivinglab.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iot.buslivinglab.bulkhead.Workload;
+import com.iot.buslivinglab.bulkhead.WorkloadContext;
+import com.iot.buslivinglab.config.IngestWalProperties;
+import com.iot.buslivinglab.dto.request.SensorObservationRequest;
+import com.iot.buslivinglab.wal.WalRecord;
+import com.iot.buslivinglab.wal.WriteAheadLog;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ingest kroz lokalni write-ahead log: opservacija se potvrđuje klijentu čim je fsync-ovana u WAL,
+ * a replay thread je u pozadini upisuje u bazu u batch transakcijama i pomera checkpoint.
+ * Ako baza nije dostupna, replay čeka i pokušava ponovo; potvrđeni podaci ostaju u WAL-u i posle restarta.
+ */
+@Service
+@ConditionalOnProperty(name = "ingest.wal.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class IngestWalService implements MeterBinder {
+
+    private static final String REJECTED_FILE = "rejected.jsonl";
+
+    private final IngestWalProperties properties;
+    private final SensorDataService sensorDataService;
+    private final TransactionTemplate transactionTemplate;
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    private WriteAheadLog wal;
+    private Thread replayThread;
+    private volatile boolean running;
+
+    @PostConstruct
+    void open() throws IOException {
+        wal = new WriteAheadLog(Paths.get(properties.getDirectory()),
+                properties.getSegmentSizeMb() * 1024 * 1024, properties.getGroupCommitMicros());
+    }
+
+    /**
+     * Replay počinje tek kada je aplikacija spremna, da bi se prvo primenili zapisi od pre restarta
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startReplay() {
+        running = true;
+        replayThread = Thread.ofPlatform().daemon().name("wal-replay").start(this::replayLoop);
+    }
+
+    /**
+     * Upisuje opservaciju u WAL i vraća se tek posle fsync-a.
+     *
+     * @return sequence zapisa u WAL-u
+     * @throws IllegalArgumentException ako opservacija ne može da se primeni (ne ulazi u WAL)
+     * @throws IllegalStateException    ako je WAL pun jer baza dugo nije dostupna
+     */
+    public long append(SensorObservationRequest request) throws IOException, InterruptedException {
+        validate(request);
+        if (wal.getSizeBytes() > properties.getMaxSizeMb() * 1024L * 1024L) {
+            throw new IllegalStateException("Ingest WAL is full (" + wal.getPending() + " observations pending)");
+        }
+        return wal.append(objectMapper.writeValueAsBytes(request));
+    }
+
+    public long getPending() {
+        return wal.getPending();
+    }
+
+    /**
+     * Odbija odmah ono što bi replay svakako odbio, da klijent ne dobije potvrdu za opservaciju koja se neće sačuvati
+     */
+    private static void validate(SensorObservationRequest request) {
+        if (request.getMadeBySensor() == null || request.getMadeBySensor().getId() == null) {
+            throw new IllegalArgumentException("sosa:madeBySensor @id is required");
+        }
+        if (request.getHasFeatureOfInterest() == null) {
+            throw new IllegalArgumentException("sosa:hasFeatureOfInterest is required");
+        }
+        if (request.getHasMember() == null || request.getHasMember().isEmpty()) {
+            throw new IllegalArgumentException("sosa:hasMember must not be empty");
+        }
+        for (SensorObservationRequest.Observation observation : request.getHasMember()) {
+            if (observation.getObservedProperty() == null || observation.getObservedProperty().getId() == null
+                    || observation.getHasResult() == null || observation.getPhenomenonTime() == null) {
+                throw new IllegalArgumentException(
+                        "Each member needs sosa:observedProperty, sosa:hasResult and sosa:phenomenonTime");
+            }
+            if (observation.getHasResult().getNumericValue() == null) {
+                throw new IllegalArgumentException("Missing numeric value for " + observation.getObservedProperty().getId());
+            }
+            try {
+                Instant.parse(observation.getPhenomenonTime());
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid sosa:phenomenonTime: " + observation.getPhenomenonTime());
+            }
+        }
+    }
+
+    private void replayLoop() {
+        // Replay je ingest: konekcije iz ingest pool-a kada su bulkhead-ovi uključeni
+        WorkloadContext.set(Workload.INGEST);
+        WriteAheadLog.Reader reader = wal.reader(wal.getCheckpoint());
+        List<WalRecord> batch = new ArrayList<>(properties.getReplayBatchSize());
+
+        while (running) {
+            try {
+                WalRecord record;
+                while (batch.size() < properties.getReplayBatchSize() && (record = reader.next()) != null) {
+                    batch.add(record);
+                }
+                if (batch.isEmpty()) {
+                    TimeUnit.MILLISECONDS.sleep(properties.getReplayIdleMs());
+                    continue;
+                }
+
+                if (!applyBatch(batch)) {
+                    // Baza nije dostupna - kreni ponovo od checkpoint-a posle pauze
+                    reader.close();
+                    reader = wal.reader(wal.getCheckpoint());
+                    TimeUnit.MILLISECONDS.sleep(properties.getReplayRetryMs());
+                }
+                batch.clear();
+                MDC.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("WAL replay error: {}", e.getMessage(), e);
+                batch.clear();
+                try {
+                    reader.close();
+                    reader = wal.reader(wal.getCheckpoint());
+                    TimeUnit.MILLISECONDS.sleep(properties.getReplayRetryMs());
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (IOException ignored) {
+                    // sledeći pokušaj otvara novi reader
+                }
+            }
+        }
+
+        try {
+            reader.close();
+        } catch (IOException ignored) {
+            // gašenje
+        }
+    }
+
+    /**
+     * Primenjuje batch u jednoj transakciji, pod lock-ovima senzora kao ingest preko HTTP-a. Ako batch ne uspe,
+     * zapisi se primenjuju jedan po jedan: zapis koji ne uspe dok je baza dostupna se upisuje u rejected.jsonl
+     * i preskače.
+     *
+     * @return false ako baza nije dostupna (checkpoint se ne pomera)
+     */
+    private boolean applyBatch(List<WalRecord> batch) throws IOException, InterruptedException {
+        long lastSequence = batch.get(batch.size() - 1).sequence();
+        try {
+            List<SensorObservationRequest> requests = new ArrayList<>(batch.size());
+            for (WalRecord record : batch) {
+                requests.add(deserialize(record));
+            }
+            sensorDataService.underSensorLocks(requests, () -> {
+                transactionTemplate.executeWithoutResult(status ->
+                        requests.forEach(sensorDataService::processSensorObservation));
+                return null;
+            });
+            wal.checkpoint(lastSequence);
+            return true;
+        } catch (RuntimeException batchFailure) {
+            log.warn("WAL batch {}-{} failed ({}), applying one by one",
+                    batch.get(0).sequence(), lastSequence, batchFailure.getMessage());
+        }
+
+        for (WalRecord record : batch) {
+            try {
+                sensorDataService.ingest(deserialize(record));
+            } catch (RuntimeException e) {
+                if (!isDatabaseAvailable()) {
+                    log.warn("Database unavailable, WAL replay paused at sequence {} ({} pending)",
+                            record.sequence(), wal.getPending());
+                    return false;
+                }
+                reject(record, e);
+            }
+            wal.checkpoint(record.sequence());
+        }
+        return true;
+    }
+
+    private SensorObservationRequest deserialize(WalRecord record) {
+        try {
+            return objectMapper.readValue(record.payload(), SensorObservationRequest.class);
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupt WAL record " + record.sequence() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private boolean isDatabaseAvailable() {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void reject(WalRecord record, RuntimeException e) throws IOException {
+        rejected.incrementAndGet();
+        log.error("WAL record {} rejected: {}", record.sequence(), e.getMessage());
+
+        String line = "{\"sequence\":" + record.sequence()
+                + ",\"error\":" + objectMapper.writeValueAsString(String.valueOf(e.getMessage()))
+                + ",\"observation\":" + new String(record.payload(), StandardCharsets.UTF_8) + "}\n";
+        Files.writeString(Path.of(properties.getDirectory(), REJECTED_FILE), line,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("buslab.wal.pending", this, IngestWalService::getPending)
+                .description("Observations acknowledged but not yet applied to the database")
+                .register(registry);
+        Gauge.builder("buslab.wal.segments", wal, WriteAheadLog::getSegmentCount)
+                .description("WAL segment files on disk")
+                .register(registry);
+        FunctionTimer.builder("buslab.wal.fsync", wal, WriteAheadLog::getFsyncCount,
+                        WriteAheadLog::getFsyncNanos, TimeUnit.NANOSECONDS)
+                .description("WAL group commit fsyncs")
+                .register(registry);
+        FunctionCounter.builder("buslab.wal.rejected", rejected, AtomicLong::get)
+                .description("WAL records that failed to apply and were moved to rejected.jsonl")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException, InterruptedException {
+        running = false;
+        if (replayThread != null) {
+            replayThread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        wal.close();
+    }
+}
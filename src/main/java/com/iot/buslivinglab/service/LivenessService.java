@@ -0,0 +1,247 @@
+package com.iot.buslivinglab.service;
+
+import com.iot.buslivinglab.bulkhead.Workload;
+import com.iot.buslivinglab.bulkhead.WorkloadContext;
+import com.iot.buslivinglab.config.LivenessProperties;
+import com.iot.buslivinglab.dto.response.SensorGapResponse;
+import com.iot.buslivinglab.entity.SensorGap;
+import com.iot.buslivinglab.entity.SensorMeasurementType;
+import com.iot.buslivinglab.entity.SensorMeasurementTypeId;
+import com.iot.buslivinglab.event.ObservationSavedEvent;
+import com.iot.buslivinglab.repository.SensorGapRepository;
+import com.iot.buslivinglab.repository.SensorMeasurementTypeRepository;
+import com.iot.buslivinglab.repository.SensorRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Živost senzora. Svaka serija (senzor, tip merenja) ima rok overdue_at = last_observed + najduža tišina, koji
+ * pomera postojeći flush last_observed. Periodična provera čita samo aktivne serije kojima je rok prošao (indeks
+ * is_active, overdue_at), gasi ih i otvara prekid u sensor_gaps; senzor se gasi kada mu nijedna serija nije aktivna.
+ *
+ * Prva vrednost posle prekida se vidi posle commit-a (mapa otvorenih prekida u memoriji, bez upita), a provera
+ * zatvara prekid tim vremenom i ponovo aktivira seriju i senzor. Vrednost koju je primila instanca koja još nije
+ * učitala prekid se vidi po last_observed serije, a prekid se zatvara prvom upisanom vrednošću posle početka.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LivenessService implements MeterBinder {
+
+    private record OpenGap(long gapId, Instant startedAt) {
+    }
+
+    private final SensorMeasurementTypeRepository sensorMeasurementTypeRepository;
+    private final SensorRepository sensorRepository;
+    private final SensorGapRepository gapRepository;
+    private final SensorDataStore sensorDataStore;
+    private final LivenessProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile Map<String, Map<String, OpenGap>> openGaps = Map.of();
+    private final Map<Long, Instant> firstAfterGap = new ConcurrentHashMap<>();
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder closed = new LongAdder();
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onObservationSaved(ObservationSavedEvent event) {
+        Map<String, OpenGap> bySensor = openGaps.get(event.getSensorId());
+        OpenGap gap = bySensor != null ? bySensor.get(event.getMeasurementType()) : null;
+        if (gap != null && event.getTimestamp().isAfter(gap.startedAt())) {
+            firstAfterGap.merge(gap.gapId(), event.getTimestamp(),
+                    (current, observed) -> observed.isBefore(current) ? observed : current);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${liveness.scan-interval-ms:60000}",
+            initialDelayString = "${liveness.scan-interval-ms:60000}")
+    public void scan() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Workload previous = WorkloadContext.set(Workload.INGEST);
+        try {
+            Map<Long, SensorGap> open = new HashMap<>();
+            gapRepository.findByEndedAtIsNull().forEach(gap -> open.put(gap.getGapId(), gap));
+            closeRevived(open);
+            detectOverdue(open);
+
+            Map<String, Map<String, OpenGap>> loaded = new HashMap<>();
+            for (SensorGap gap : open.values()) {
+                loaded.computeIfAbsent(gap.getSensorId(), sensorId -> new HashMap<>())
+                        .put(gap.getMeasurementType(), new OpenGap(gap.getGapId(), gap.getStartedAt()));
+            }
+            loaded.replaceAll((sensorId, gaps) -> Map.copyOf(gaps));
+            openGaps = Map.copyOf(loaded);
+        } catch (RuntimeException e) {
+            log.warn("Liveness scan failed, retrying at next interval: {}", e.getMessage());
+        } finally {
+            WorkloadContext.restore(previous);
+        }
+    }
+
+    /**
+     * Zatvara prekide serija koje su ponovo poslale vrednost; zatvoreni prekidi se uklanjaju iz open
+     */
+    private void closeRevived(Map<Long, SensorGap> open) {
+        // prekidi koje je u međuvremenu zatvorila druga instanca
+        firstAfterGap.keySet().removeIf(gapId -> !open.containsKey(gapId));
+        if (open.isEmpty()) {
+            return;
+        }
+        Map<SensorMeasurementTypeId, SensorMeasurementType> series = new HashMap<>();
+        sensorMeasurementTypeRepository.findAllById(open.values().stream()
+                        .map(gap -> new SensorMeasurementTypeId(gap.getSensorId(), gap.getMeasurementType()))
+                        .toList())
+                .forEach(row -> series.put(row.getId(), row));
+
+        Map<Long, Instant> endedAt = new HashMap<>();
+        firstAfterGap.forEach((gapId, observed) -> {
+            if (open.containsKey(gapId)) {
+                endedAt.put(gapId, observed);
+            }
+        });
+        for (SensorGap gap : open.values()) {
+            SensorMeasurementType row = series.get(new SensorMeasurementTypeId(gap.getSensorId(), gap.getMeasurementType()));
+            if (!endedAt.containsKey(gap.getGapId()) && row != null && row.getLastObserved() != null
+                    && row.getLastObserved().isAfter(gap.getStartedAt())) {
+                // last_observed je najnovija vrednost; prekid se završava prvom vrednošću posle početka
+                endedAt.put(gap.getGapId(), sensorDataStore.findFirstTimestampAfter(gap.getSensorId(),
+                        gap.getMeasurementType(), gap.getStartedAt()).orElse(row.getLastObserved()));
+            }
+        }
+        if (endedAt.isEmpty()) {
+            return;
+        }
+
+        Instant now = Instant.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            Set<String> sensorIds = new HashSet<>();
+            endedAt.forEach((gapId, observed) -> {
+                SensorGap gap = open.get(gapId);
+                gapRepository.close(gapId, observed);
+                SensorMeasurementType row = series.get(new SensorMeasurementTypeId(gap.getSensorId(), gap.getMeasurementType()));
+                long maxSilenceMs = row != null && row.getMaxSilenceMs() != null
+                        ? row.getMaxSilenceMs() : properties.getDefaultMaxSilenceMs();
+                sensorMeasurementTypeRepository.reactivate(gap.getSensorId(), gap.getMeasurementType(), observed,
+                        observed.plusMillis(maxSilenceMs));
+                sensorIds.add(gap.getSensorId());
+            });
+            sensorRepository.activate(sensorIds, now);
+        });
+        endedAt.forEach((gapId, observed) -> {
+            SensorGap gap = open.remove(gapId);
+            firstAfterGap.remove(gapId);
+            closed.increment();
+            log.info("Gap {} closed: sensor {}, {} silent from {} to {}", gapId, gap.getSensorId(),
+                    gap.getMeasurementType(), gap.getStartedAt(), observed);
+        });
+    }
+
+    /**
+     * Gasi zakasnele serije u grupama od batchSize; ugašena serija izlazi iz opsega indeksa, pa se uvek čita prva strana
+     */
+    private void detectOverdue(Map<Long, SensorGap> open) {
+        Instant now = Instant.now();
+        int read;
+        List<SensorGap> detected;
+        do {
+            List<SensorMeasurementType> overdue = new ArrayList<>();
+            detected = transactionTemplate.execute(status -> {
+                overdue.addAll(sensorMeasurementTypeRepository.findOverdue(now,
+                        PageRequest.of(0, properties.getBatchSize())));
+                List<SensorGap> gaps = new ArrayList<>();
+                Set<String> sensorIds = new HashSet<>();
+                for (SensorMeasurementType series : overdue) {
+                    // 0 znači da je u međuvremenu stigla vrednost ili ju je ugasila druga instanca
+                    if (sensorMeasurementTypeRepository.deactivateIfOverdue(series.getId(), now) == 0) {
+                        continue;
+                    }
+                    gaps.add(gapRepository.save(SensorGap.builder()
+                            .sensorId(series.getSensorId())
+                            .measurementType(series.getMeasurementType())
+                            .startedAt(series.getLastObserved())
+                            .detectedAt(now)
+                            .build()));
+                    sensorIds.add(series.getSensorId());
+                }
+                if (!sensorIds.isEmpty()) {
+                    sensorRepository.deactivateIfSilent(sensorIds, now);
+                }
+                return gaps;
+            });
+            read = overdue.size();
+            for (SensorGap gap : detected) {
+                open.put(gap.getGapId(), gap);
+                opened.increment();
+                log.info("Gap {} opened: sensor {}, {} silent since {}", gap.getGapId(), gap.getSensorId(),
+                        gap.getMeasurementType(), gap.getStartedAt());
+            }
+        } while (read == properties.getBatchSize() && !detected.isEmpty());
+    }
+
+    /**
+     * Najnoviji prekidi koji se preklapaju sa periodom [from, to] (ISO-8601, oba opciona)
+     */
+    @Transactional(readOnly = true)
+    public List<SensorGapResponse> findGaps(String sensorId, boolean openOnly, String from, String to, int limit) {
+        Instant fromTime = from != null ? parseTime(from) : Instant.EPOCH;
+        Instant toTime = to != null ? parseTime(to) : Instant.now();
+        if (fromTime.isAfter(toTime)) {
+            throw new IllegalArgumentException("'from' time must be before 'to' time");
+        }
+        Instant now = Instant.now();
+        return gapRepository.findRecent(sensorId, openOnly, fromTime, toTime, PageRequest.of(0, limit)).stream()
+                .map(gap -> SensorGapResponse.builder()
+                        .gapId(gap.getGapId())
+                        .sensorId(gap.getSensorId())
+                        .measurementType(gap.getMeasurementType())
+                        .startedAt(gap.getStartedAt())
+                        .endedAt(gap.getEndedAt())
+                        .detectedAt(gap.getDetectedAt())
+                        .durationSeconds(Duration.between(gap.getStartedAt(),
+                                gap.getEndedAt() != null ? gap.getEndedAt() : now).toSeconds())
+                        .build())
+                .toList();
+    }
+
+    private static Instant parseTime(String time) {
+        try {
+            return Instant.parse(time.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid time format (expected ISO-8601, e.g. 2026-01-01T00:00:00Z): "
+                    + time, e);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("buslab.liveness.overdue", this,
+                        service -> service.openGaps.values().stream().mapToInt(Map::size).sum())
+                .description("Sensor measurement types with an open data gap at the last liveness scan")
+                .register(registry);
+        FunctionCounter.builder("buslab.liveness.gaps.opened", opened, LongAdder::sum)
+                .description("Data gaps opened by this instance")
+                .register(registry);
+        FunctionCounter.builder("buslab.liveness.gaps.closed", closed, LongAdder::sum)
+                .description("Data gaps closed by this instance")
+                .register(registry);
+    }
+}
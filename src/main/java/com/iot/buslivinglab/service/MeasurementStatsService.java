@@ -0,0 +1,539 @@
+package com.iot.buslivinglab.service;
+
+import com.iot.buslivinglab.bulkhead.Workload;
+import com.iot.buslivinglab.bulkhead.WorkloadContext;
+import com.iot.buslivinglab.config.MeasurementStatsProperties;
+import com.iot.buslivinglab.dto.response.CoverageResponse;
+import com.iot.buslivinglab.dto.response.SensorStatsResponse;
+import com.iot.buslivinglab.entity.MeasurementDailyStats;
+import com.iot.buslivinglab.entity.MeasurementDailyStatsId;
+import com.iot.buslivinglab.entity.MeasurementType;
+import com.iot.buslivinglab.entity.SensorData;
+import com.iot.buslivinglab.event.ObservationSavedEvent;
+import com.iot.buslivinglab.repository.MeasurementDailyStatsRepository;
+import com.iot.buslivinglab.repository.MeasurementTypeRepository;
+import com.iot.buslivinglab.stats.DailyCoverage;
+import com.iot.buslivinglab.stats.HourCounts;
+import com.iot.buslivinglab.stats.MeasurementSummary;
+import com.iot.buslivinglab.unit.UnitMappingSnapshot;
+import com.iot.buslivinglab.unit.UnitTargets;
+import com.iot.buslivinglab.unit.UnitView;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Dnevne statistike po (senzor, tip merenja, UTC dan). Sačuvano merenje se posle commit-a dodaje u statistiku
+ * u memoriji; flush je periodično spaja u measurement_daily_stats pod zaključavanjem reda, pa više instanci
+ * može da piše isti dan. Statistika perioda je spoj dnevnih redova: O(dana), bez čitanja sensor_data.
+ * Isti redovi čuvaju i broj vrednosti po satu, pa je pokrivenost (/coverage) takođe O(dana) po seriji.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MeasurementStatsService implements MeterBinder {
+
+    private static final double[] QUANTILES = {0.05, 0.5, 0.95};
+
+    /**
+     * Neupisana statistika jednog dana sa brojem vrednosti po satu
+     */
+    private static final class PendingDay {
+        final MeasurementSummary summary;
+        final HourCounts hours;
+
+        PendingDay(MeasurementSummary summary, HourCounts hours) {
+            this.summary = summary;
+            this.hours = hours;
+        }
+
+        void merge(PendingDay other) {
+            summary.merge(other.summary);
+            hours.merge(other.hours);
+        }
+
+        PendingDay copy() {
+            return new PendingDay(summary.copy(), hours.copy());
+        }
+    }
+
+    private record Period(LocalDate from, LocalDate to) {
+
+        long days() {
+            return ChronoUnit.DAYS.between(from, to) + 1;
+        }
+    }
+
+    private final MeasurementDailyStatsRepository statsRepository;
+    private final MeasurementTypeRepository measurementTypeRepository;
+    private final UnitMappingService unitMappingService;
+    private final MeasurementStatsProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final SensorDataStore sensorDataStore;
+
+    private final Map<MeasurementDailyStatsId, PendingDay> pending = new ConcurrentHashMap<>();
+    /**
+     * Batch koji flush upisuje: skinut je iz pending, a još nije commit-ovan, pa ga čitanja i dalje spajaju
+     */
+    private volatile Map<MeasurementDailyStatsId, PendingDay> inFlight = Map.of();
+    /**
+     * Čitanja (red iz baze + neupisano) drže read lock; flush uzima write lock samo dok prebacuje batch u
+     * inFlight i oko commit-a, da nijedno čitanje ne vidi batch ni dvaput ni nijednom
+     */
+    private final ReentrantReadWriteLock flushLock = new ReentrantReadWriteLock();
+    private final LongAdder flushedSummaries = new LongAdder();
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onObservationSaved(ObservationSavedEvent event) {
+        // NaN i beskonačnost ne ulaze ni u statistiku ni u pokrivenost
+        if (event.getValue() == null || !Double.isFinite(event.getValue())) {
+            return;
+        }
+        MeasurementDailyStatsId id = new MeasurementDailyStatsId(event.getSensorId(), event.getMeasurementType(),
+                LocalDate.ofInstant(event.getTimestamp(), ZoneOffset.UTC));
+        int hour = event.getTimestamp().atZone(ZoneOffset.UTC).getHour();
+        pending.compute(id, (key, day) -> {
+            PendingDay target = day != null ? day : new PendingDay(new MeasurementSummary(), new HourCounts());
+            target.summary.add(event.getValue());
+            target.hours.add(hour);
+            return target;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${stats.flush-interval-ms:5000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        // isti redosled zaključavanja na svim instancama, da se flush-evi ne bi međusobno blokirali
+        List<MeasurementDailyStatsId> ids = new ArrayList<>(pending.keySet());
+        ids.sort(Comparator.comparing(MeasurementDailyStatsId::getSensorId)
+                .thenComparing(MeasurementDailyStatsId::getMeasurementType)
+                .thenComparing(MeasurementDailyStatsId::getDay));
+        Map<MeasurementDailyStatsId, PendingDay> batch = new LinkedHashMap<>();
+        flushLock.writeLock().lock();
+        try {
+            for (MeasurementDailyStatsId id : ids) {
+                PendingDay day = pending.remove(id);
+                if (day != null) {
+                    batch.put(id, day);
+                }
+            }
+            inFlight = batch;
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+
+        Workload previous = WorkloadContext.set(Workload.INGEST);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                batch.forEach(this::mergeIntoRow);
+                TransactionSynchronizationManager.registerSynchronization(new InFlightRelease());
+            });
+            flushedSummaries.add(batch.size());
+            log.debug("Flushed {} daily measurement summaries", batch.size());
+        } catch (RuntimeException e) {
+            log.warn("Flushing {} daily measurement summaries failed, retrying later: {}", batch.size(), e.getMessage());
+            flushLock.writeLock().lock();
+            try {
+                batch.forEach(this::restore);
+                inFlight = Map.of();
+            } finally {
+                flushLock.writeLock().unlock();
+            }
+        } finally {
+            WorkloadContext.restore(previous);
+        }
+    }
+
+    /**
+     * Commit batch-a i uklanjanje iz inFlight su atomični za čitanja; neuspeli commit ostavlja batch u inFlight
+     * dok ga flush ne vrati u pending
+     */
+    private final class InFlightRelease implements TransactionSynchronization {
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            flushLock.writeLock().lock();
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status == STATUS_COMMITTED) {
+                inFlight = Map.of();
+            }
+            if (flushLock.isWriteLockedByCurrentThread()) {
+                flushLock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void mergeIntoRow(MeasurementDailyStatsId id, PendingDay delta) {
+        Instant now = Instant.now();
+        statsRepository.ensureRow(id.getSensorId(), id.getMeasurementType(), id.getDay(), now);
+        MeasurementDailyStats row = statsRepository.findForUpdate(id)
+                .orElseThrow(() -> new IllegalStateException("Daily stats row missing after insert: " + id));
+
+        MeasurementSummary summary = toSummary(row);
+        summary.merge(delta.summary);
+        HourCounts hours = HourCounts.fromBytes(row.getHourCounts());
+        hours.merge(delta.hours);
+        setRow(row, summary, hours, now);
+    }
+
+    private void replaceRow(MeasurementDailyStatsId id, PendingDay day) {
+        Instant now = Instant.now();
+        statsRepository.ensureRow(id.getSensorId(), id.getMeasurementType(), id.getDay(), now);
+        MeasurementDailyStats row = statsRepository.findForUpdate(id)
+                .orElseThrow(() -> new IllegalStateException("Daily stats row missing after insert: " + id));
+        setRow(row, day.summary, day.hours, now);
+    }
+
+    private static void setRow(MeasurementDailyStats row, MeasurementSummary summary, HourCounts hours, Instant now) {
+        row.setSampleCount(summary.getCount());
+        row.setMean(summary.getMean());
+        row.setM2(summary.getM2());
+        row.setMinValue(summary.getMin());
+        row.setMaxValue(summary.getMax());
+        row.setSketch(summary.sketchBytes());
+        row.setHourCounts(hours.toBytes());
+        row.setUpdatedAt(now);
+    }
+
+    /**
+     * Neuspeli flush vraća statistiku u memoriju, spojenu sa vrednostima koje su stigle u međuvremenu
+     */
+    private void restore(MeasurementDailyStatsId id, PendingDay day) {
+        pending.compute(id, (key, current) -> {
+            if (current == null) {
+                return day;
+            }
+            current.merge(day);
+            return current;
+        });
+    }
+
+    /**
+     * Puni measurement_daily_stats iz sensor_data za cele dane pre današnjeg (UTC), za merenja sačuvana pre
+     * uvođenja dnevnih statistika. Čita se jedan dan senzora odjednom. Tip i dan koji već imaju red se preskaču,
+     * pa se ponovno pokretanje ne duplira; replace ih računa iz početka.
+     *
+     * @return broj upisanih dnevnih redova
+     */
+    public int backfill(String sensorId, String from, String to, boolean replace) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Both 'from' and 'to' dates must be provided");
+        }
+        Period period = period(null, from, to);
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        if (!period.to().isBefore(today)) {
+            throw new IllegalArgumentException("Backfill covers whole past days: 'to' must be before " + today);
+        }
+        if (period.days() > properties.getMaxRangeDays()) {
+            throw new IllegalArgumentException("Range cannot exceed " + properties.getMaxRangeDays() + " days");
+        }
+        // vrednosti ove instance koje još nisu u redovima ne smeju da se izbroje dva puta
+        flush();
+
+        Workload previous = WorkloadContext.set(Workload.HEAVY);
+        try {
+            Set<MeasurementDailyStatsId> existing = new HashSet<>();
+            if (!replace) {
+                statsRepository.findBySensorIdAndDayBetween(sensorId, period.from(), period.to())
+                        .forEach(row -> existing.add(row.getId()));
+            }
+            int written = 0;
+            for (LocalDate day = period.from(); !day.isAfter(period.to()); day = day.plusDays(1)) {
+                Instant start = day.atStartOfDay(ZoneOffset.UTC).toInstant();
+                // redosled tipova je redosled zaključavanja, kao u flush-u
+                Map<MeasurementDailyStatsId, PendingDay> days = new TreeMap<>(
+                        Comparator.comparing(MeasurementDailyStatsId::getMeasurementType));
+                for (SensorData data : sensorDataStore.findBySensorIdAndTimestampBetweenOrderByTimestampDesc(
+                        sensorId, start, start.plus(1, ChronoUnit.DAYS).minusNanos(1))) {
+                    MeasurementDailyStatsId id = new MeasurementDailyStatsId(sensorId, data.getMeasurementType(), day);
+                    if (data.getValue() == null || !Double.isFinite(data.getValue()) || existing.contains(id)) {
+                        continue;
+                    }
+                    PendingDay target = days.computeIfAbsent(id,
+                            key -> new PendingDay(new MeasurementSummary(), new HourCounts()));
+                    target.summary.add(data.getValue());
+                    target.hours.add(data.getTimestamp().atZone(ZoneOffset.UTC).getHour());
+                }
+                if (!days.isEmpty()) {
+                    transactionTemplate.executeWithoutResult(status -> days.forEach(this::replaceRow));
+                    written += days.size();
+                }
+            }
+            log.info("Backfilled {} daily stats rows for sensor {} from {} to {}", written, sensorId,
+                    period.from(), period.to());
+            return written;
+        } finally {
+            WorkloadContext.restore(previous);
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Statistika perioda za svaki tip merenja senzora. Period je ceo broj UTC dana: from/to (yyyy-MM-dd,
+     * uključivo) ili poslednjih days dana zaključno sa današnjim.
+     */
+    @Transactional(readOnly = true)
+    public SensorStatsResponse getStats(String sensorId, Integer days, String from, String to, UnitTargets units) {
+        Period period = period(days, from, to);
+        if (period.days() > properties.getMaxRangeDays()) {
+            throw new IllegalArgumentException("Range cannot exceed " + properties.getMaxRangeDays() + " days");
+        }
+        LocalDate fromDay = period.from();
+        LocalDate toDay = period.to();
+
+        Map<String, MeasurementSummary> byType = new HashMap<>();
+        Map<String, Set<LocalDate>> daysByType = new HashMap<>();
+        List<MeasurementDailyStats> rows;
+        Map<MeasurementDailyStatsId, PendingDay> unflushed;
+        flushLock.readLock().lock();
+        try {
+            rows = statsRepository.findBySensorIdAndDayBetween(sensorId, fromDay, toDay);
+            unflushed = pendingCopies(Set.of(sensorId), fromDay, toDay);
+        } finally {
+            flushLock.readLock().unlock();
+        }
+        for (MeasurementDailyStats row : rows) {
+            merge(byType, daysByType, row.getId(), toSummary(row));
+        }
+        // još neupisane vrednosti ove instance
+        for (Map.Entry<MeasurementDailyStatsId, PendingDay> entry : unflushed.entrySet()) {
+            merge(byType, daysByType, entry.getKey(), entry.getValue().summary);
+        }
+
+        UnitMappingSnapshot snapshot = unitMappingService.current();
+        List<SensorStatsResponse.MeasurementStats> data = new ArrayList<>();
+        for (MeasurementType type : measurementTypeRepository.findAllById(byType.keySet())) {
+            MeasurementSummary summary = byType.get(type.getTypeId());
+            UnitView unitView = UnitView.of(type.getUnit(), type.getUnitLabel(), units, snapshot);
+            data.add(toStats(type, summary, daysByType.get(type.getTypeId()).size(), unitView));
+        }
+        data.sort(Comparator.comparingInt(stats ->
+                stats.getOrderNumber() != null ? stats.getOrderNumber() : Integer.MAX_VALUE));
+
+        return SensorStatsResponse.builder()
+                .sensorId(sensorId)
+                .from(fromDay)
+                .to(toDay)
+                .data(data)
+                .build();
+    }
+
+    private static void merge(Map<String, MeasurementSummary> byType, Map<String, Set<LocalDate>> daysByType,
+                              MeasurementDailyStatsId id, MeasurementSummary summary) {
+        byType.computeIfAbsent(id.getMeasurementType(), type -> new MeasurementSummary()).merge(summary);
+        daysByType.computeIfAbsent(id.getMeasurementType(), type -> new HashSet<>()).add(id.getDay());
+    }
+
+    /**
+     * Kopije neupisanih dana (pending i batch koji se upravo upisuje); poziva se pod read lock-om flushLock
+     */
+    private Map<MeasurementDailyStatsId, PendingDay> pendingCopies(Set<String> sensorIds, LocalDate from, LocalDate to) {
+        Map<MeasurementDailyStatsId, PendingDay> copies = new HashMap<>();
+        for (MeasurementDailyStatsId id : pending.keySet()) {
+            if (sensorIds.contains(id.getSensorId()) && !id.getDay().isBefore(from) && !id.getDay().isAfter(to)) {
+                pending.computeIfPresent(id, (key, day) -> {
+                    copies.put(key, day.copy());
+                    return day;
+                });
+            }
+        }
+        inFlight.forEach((id, day) -> {
+            if (sensorIds.contains(id.getSensorId()) && !id.getDay().isBefore(from) && !id.getDay().isAfter(to)) {
+                copies.merge(id, day.copy(), (current, flushing) -> {
+                    current.merge(flushing);
+                    return current;
+                });
+            }
+        });
+        return copies;
+    }
+
+    /**
+     * Broj vrednosti po danu ili satu za svaki traženi senzor (zbir svih tipova merenja, ili samo measurementType).
+     * Jedan upit nad brojačima dnevnih redova, spojen sa još neupisanim vrednostima ove instance.
+     */
+    @Transactional(readOnly = true)
+    public CoverageResponse getCoverage(Collection<String> sensorIds, String measurementType, Integer days,
+                                        String from, String to, String resolution) {
+        boolean hourly;
+        if (resolution == null || resolution.equalsIgnoreCase("day")) {
+            hourly = false;
+        } else if (resolution.equalsIgnoreCase("hour")) {
+            hourly = true;
+        } else {
+            throw new IllegalArgumentException("Resolution must be 'day' or 'hour': " + resolution);
+        }
+        Set<String> sensors = new LinkedHashSet<>();
+        for (String sensorId : sensorIds) {
+            if (!sensorId.isBlank()) {
+                sensors.add(sensorId.trim());
+            }
+        }
+        if (sensors.isEmpty()) {
+            throw new IllegalArgumentException("At least one sensor id is required");
+        }
+        if (sensors.size() > properties.getMaxCoverageSensors()) {
+            throw new IllegalArgumentException("At most " + properties.getMaxCoverageSensors() + " sensors per request");
+        }
+        Period period = period(days, from, to);
+        int maxDays = hourly ? properties.getMaxHourlyCoverageDays() : properties.getMaxRangeDays();
+        if (period.days() > maxDays) {
+            throw new IllegalArgumentException("Range cannot exceed " + maxDays + " days at " + (hourly ? "hour" : "day")
+                    + " resolution");
+        }
+
+        int slots = (int) period.days() * (hourly ? HourCounts.HOURS : 1);
+        Map<String, long[]> counts = new LinkedHashMap<>();
+        sensors.forEach(sensorId -> counts.put(sensorId, new long[slots]));
+        List<DailyCoverage> stored;
+        Map<MeasurementDailyStatsId, PendingDay> unflushed;
+        flushLock.readLock().lock();
+        try {
+            stored = statsRepository.findCoverage(sensors, measurementType, period.from(), period.to());
+            unflushed = pendingCopies(sensors, period.from(), period.to());
+        } finally {
+            flushLock.readLock().unlock();
+        }
+        for (DailyCoverage day : stored) {
+            addCoverage(counts.get(day.sensorId()), period, day.day(), day.sampleCount(),
+                    hourly ? HourCounts.fromBytes(day.hourCounts()) : null);
+        }
+        for (Map.Entry<MeasurementDailyStatsId, PendingDay> entry : unflushed.entrySet()) {
+            MeasurementDailyStatsId id = entry.getKey();
+            if (measurementType == null || measurementType.equals(id.getMeasurementType())) {
+                addCoverage(counts.get(id.getSensorId()), period, id.getDay(), entry.getValue().summary.getCount(),
+                        hourly ? entry.getValue().hours : null);
+            }
+        }
+
+        List<CoverageResponse.SensorCoverage> data = new ArrayList<>();
+        counts.forEach((sensorId, sensorCounts) -> data.add(CoverageResponse.SensorCoverage.builder()
+                .sensorId(sensorId)
+                .total(Arrays.stream(sensorCounts).sum())
+                .counts(sensorCounts)
+                .build()));
+        return CoverageResponse.builder()
+                .from(period.from())
+                .to(period.to())
+                .resolution(hourly ? "hour" : "day")
+                .measurementType(measurementType)
+                .sensors(data)
+                .build();
+    }
+
+    private static void addCoverage(long[] counts, Period period, LocalDate day, long sampleCount, HourCounts hours) {
+        int dayIndex = (int) ChronoUnit.DAYS.between(period.from(), day);
+        if (hours == null) {
+            counts[dayIndex] += sampleCount;
+            return;
+        }
+        for (int hour = 0; hour < HourCounts.HOURS; hour++) {
+            counts[dayIndex * HourCounts.HOURS + hour] += hours.get(hour);
+        }
+    }
+
+    /**
+     * Ceo broj UTC dana: from/to (yyyy-MM-dd, uključivo) ili poslednjih days dana zaključno sa današnjim
+     */
+    private Period period(Integer days, String from, String to) {
+        if (from != null || to != null) {
+            if (from == null || to == null) {
+                throw new IllegalArgumentException("Both 'from' and 'to' dates must be provided");
+            }
+            LocalDate fromDay = parseDay(from);
+            LocalDate toDay = parseDay(to);
+            if (fromDay.isAfter(toDay)) {
+                throw new IllegalArgumentException("'from' date must be before 'to' date");
+            }
+            return new Period(fromDay, toDay);
+        }
+        int daysToUse = days != null ? days : properties.getDefaultDays();
+        if (daysToUse <= 0) {
+            throw new IllegalArgumentException("Days must be greater than 0");
+        }
+        LocalDate toDay = LocalDate.now(ZoneOffset.UTC);
+        return new Period(toDay.minusDays(daysToUse - 1L), toDay);
+    }
+
+    /**
+     * Konverzija jedinice je linearna, pa se primenjuje na gotovu statistiku: srednja vrednost, ekstremi
+     * i kvantili se konvertuju, a standardna devijacija samo skalira.
+     */
+    private static SensorStatsResponse.MeasurementStats toStats(MeasurementType type, MeasurementSummary summary,
+                                                                int days, UnitView unitView) {
+        double scale = unitView.conversion() != null ? Math.abs(unitView.conversion().scale()) : 1;
+        Double min = unitView.apply(summary.getMin());
+        Double max = unitView.apply(summary.getMax());
+        Double[] quantiles = new Double[QUANTILES.length];
+        for (int i = 0; i < QUANTILES.length; i++) {
+            quantiles[i] = unitView.apply(summary.quantile(QUANTILES[i]));
+        }
+        return SensorStatsResponse.MeasurementStats.builder()
+                .property(type.getDisplayName())
+                .unit(unitView.label())
+                .orderNumber(type.getOrderNumber())
+                .count(summary.getCount())
+                .days(days)
+                .min(Math.min(min, max))
+                .max(Math.max(min, max))
+                .mean(unitView.apply(summary.getMean()))
+                .stddev(summary.getStddev() * scale)
+                .p5(quantiles[0])
+                .p50(quantiles[1])
+                .p95(quantiles[2])
+                .build();
+    }
+
+    private static MeasurementSummary toSummary(MeasurementDailyStats row) {
+        return MeasurementSummary.of(row.getSampleCount(), row.getMean(), row.getM2(),
+                row.getMinValue(), row.getMaxValue(), row.getSketch());
+    }
+
+    private static LocalDate parseDay(String day) {
+        try {
+            return LocalDate.parse(day.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date format (expected yyyy-MM-dd): " + day, e);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("buslab.stats.pending", pending, Map::size)
+                .description("Sensor/type/day summaries waiting to be merged into measurement_daily_stats")
+                .register(registry);
+        FunctionCounter.builder("buslab.stats.flushed", flushedSummaries, LongAdder::sum)
+                .description("Daily summaries merged into measurement_daily_stats")
+                .register(registry);
+    }
+}
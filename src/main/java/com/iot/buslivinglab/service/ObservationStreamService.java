@@ -0,0 +1,264 @@
+package com.iot.buslivinglab.service;
+
+import com.iot.buslivinglab.config.LiveStreamProperties;
+import com.iot.buslivinglab.config.LiveStreamProperties.SlowConsumerPolicy;
+import com.iot.buslivinglab.dto.response.LiveObservationResponse;
+import com.iot.buslivinglab.event.ObservationSavedEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process fan-out sačuvanih merenja ka SSE pretplatnicima.
+ * Svaki pretplatnik ima ograničen buffer i sopstveni virtual thread koji piše u konekciju,
+ * tako da spor klijent nikada ne usporava ingest niti ostale pretplatnike.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ObservationStreamService implements MeterBinder {
+
+    private static final String ALL_SENSORS = "*";
+
+    private final LiveStreamProperties properties;
+
+    private final Map<String, Set<Subscriber>> subscribersBySensor = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ExecutorService writers = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Registruje novog pretplatnika. Prazan skup senzora znači svi senzori,
+     * prazan skup tipova znači svi tipovi merenja.
+     */
+    public SseEmitter subscribe(Set<String> sensorIds, Set<String> measurementTypes) {
+        if (subscriberCount.incrementAndGet() > properties.getMaxSubscribers()) {
+            subscriberCount.decrementAndGet();
+            throw new IllegalStateException("Maximum number of live subscribers reached");
+        }
+
+        SseEmitter emitter = new SseEmitter(properties.getTimeoutMs());
+        Set<String> keys = sensorIds.isEmpty() ? Set.of(ALL_SENSORS) : Set.copyOf(sensorIds);
+        Subscriber subscriber = new Subscriber(emitter, keys, Set.copyOf(measurementTypes),
+                properties.getBufferSize(), properties.getSlowConsumerPolicy());
+
+        for (String key : keys) {
+            subscribersBySensor.computeIfAbsent(key, k -> new CopyOnWriteArraySet<>()).add(subscriber);
+        }
+
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+
+        writers.execute(subscriber::writeLoop);
+
+        log.debug("Live subscriber registered for sensors: {}, types: {}", keys, measurementTypes);
+        return emitter;
+    }
+
+    /**
+     * Prosleđuje merenje tek nakon commit-a, tako da klijenti nikada ne vide podatke koji su rollback-ovani
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onObservationSaved(ObservationSavedEvent event) {
+        Set<Subscriber> bySensor = subscribersBySensor.get(event.getSensorId());
+        Set<Subscriber> wildcard = subscribersBySensor.get(ALL_SENSORS);
+        if (bySensor == null && wildcard == null) {
+            return;
+        }
+
+        LiveObservationResponse observation = LiveObservationResponse.builder()
+                .sensorId(event.getSensorId())
+                .measurementType(event.getMeasurementType())
+                .unit(event.getUnit())
+                .time(event.getTimestamp())
+                .value(event.getValue())
+                .build();
+
+        if (bySensor != null) {
+            bySensor.forEach(subscriber -> subscriber.offer(observation));
+        }
+        if (wildcard != null) {
+            wildcard.forEach(subscriber -> subscriber.offer(observation));
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    public long getDroppedCount() {
+        long dropped = 0;
+        Set<Subscriber> seen = new HashSet<>();
+        for (Set<Subscriber> subscribers : subscribersBySensor.values()) {
+            for (Subscriber subscriber : subscribers) {
+                if (seen.add(subscriber)) {
+                    dropped += subscriber.dropped.get();
+                }
+            }
+        }
+        return dropped;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("buslab.live.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open live stream subscriptions")
+                .register(registry);
+        FunctionCounter.builder("buslab.live.dropped", this, ObservationStreamService::getDroppedCount)
+                .description("Observations dropped or coalesced for slow live subscribers")
+                .register(registry);
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscriber.close()) {
+            return;
+        }
+        for (String key : subscriber.sensorKeys) {
+            subscribersBySensor.computeIfPresent(key, (k, set) -> {
+                set.remove(subscriber);
+                return set.isEmpty() ? null : set;
+            });
+        }
+        subscriberCount.decrementAndGet();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribersBySensor.values().forEach(set -> set.forEach(s -> s.emitter.complete()));
+        writers.shutdownNow();
+    }
+
+    /**
+     * Pretplatnik sa ograničenim bufferom. Koristi ReentrantLock umesto synchronized
+     * da virtual thread writer ne bi bio "pinned" za carrier thread dok čeka.
+     */
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Set<String> sensorKeys;
+        private final Set<String> measurementTypes;
+        private final int capacity;
+        private final SlowConsumerPolicy policy;
+
+        private final ArrayDeque<LiveObservationResponse> buffer;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        private final AtomicLong dropped = new AtomicLong();
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter, Set<String> sensorKeys, Set<String> measurementTypes,
+                           int capacity, SlowConsumerPolicy policy) {
+            this.emitter = emitter;
+            this.sensorKeys = sensorKeys;
+            this.measurementTypes = measurementTypes;
+            this.capacity = Math.max(1, capacity);
+            this.policy = policy;
+            this.buffer = new ArrayDeque<>(this.capacity);
+        }
+
+        private void offer(LiveObservationResponse observation) {
+            if (closed) {
+                return;
+            }
+            if (!measurementTypes.isEmpty() && !measurementTypes.contains(observation.getMeasurementType())) {
+                return;
+            }
+
+            lock.lock();
+            try {
+                if (buffer.size() >= capacity) {
+                    if (policy != SlowConsumerPolicy.COALESCE || !removeSameSeries(observation)) {
+                        buffer.pollFirst();
+                    }
+                    dropped.incrementAndGet();
+                }
+                buffer.addLast(observation);
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Uklanja starije merenje iste serije iz buffera (novo ga zamenjuje), ako postoji.
+         * Objekti se dele između pretplatnika, pa se ne menjaju već samo uklanjaju.
+         */
+        private boolean removeSameSeries(LiveObservationResponse observation) {
+            Iterator<LiveObservationResponse> it = buffer.descendingIterator();
+            while (it.hasNext()) {
+                LiveObservationResponse pending = it.next();
+                if (pending.getSensorId().equals(observation.getSensorId())
+                        && pending.getMeasurementType().equals(observation.getMeasurementType())) {
+                    it.remove();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void writeLoop() {
+            List<LiveObservationResponse> batch = new ArrayList<>();
+            try {
+                while (!closed) {
+                    lock.lock();
+                    try {
+                        while (buffer.isEmpty() && !closed) {
+                            notEmpty.await();
+                        }
+                        batch.addAll(buffer);
+                        buffer.clear();
+                    } finally {
+                        lock.unlock();
+                    }
+
+                    for (LiveObservationResponse observation : batch) {
+                        emitter.send(SseEmitter.event().name("observation").data(observation));
+                    }
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Live subscriber disconnected: {}", e.getMessage());
+                emitter.completeWithError(e);
+            } finally {
+                unsubscribe(this);
+            }
+        }
+
+        /**
+         * @return true ako je ovaj poziv zatvorio pretplatnika
+         */
+        private boolean close() {
+            lock.lock();
+            try {
+                if (closed) {
+                    return false;
+                }
+                closed = true;
+                notEmpty.signal();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.iot.buslivinglab.service;
+
+import com.iot.buslivinglab.bulkhead.Workload;
+import com.iot.buslivinglab.bulkhead.WorkloadDataSources;
+import com.iot.buslivinglab.config.ReplicaProperties;
+import com.iot.buslivinglab.event.ObservationSavedEvent;
+import com.iot.buslivinglab.replica.Replica;
+import com.iot.buslivinglab.replica.ReplicaSet;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Health check i merenje kašnjenja read replika (heartbeat upisan na primary, pročitan sa replike)
+ * i read-your-writes: upiti za senzor koji je nedavno upisan čitaju se sa primary-ja.
+ *
+ * Kašnjenje se meri od prvog heartbeat-a koji replika još nije videla: replika koja vidi heartbeat iz
+ * prethodne provere kasni najviše jedan interval, a ne ceo interval više nego što stvarno kasni.
+ */
+@Service
+@ConditionalOnProperty(name = "replica.enabled", havingValue = "true")
+@Slf4j
+public class ReplicaRoutingService implements MeterBinder {
+
+    private static final int HEARTBEAT_ID = 1;
+    private static final int CHECK_TIMEOUT_SECONDS = 2;
+    private static final int BEAT_HISTORY = 64;
+
+    private final ReplicaProperties properties;
+    private final ReplicaSet replicas;
+    private final JdbcTemplate primary;
+
+    /**
+     * sensorId -> System.nanoTime() poslednjeg commit-ovanog upisa
+     */
+    private final Map<String, Long> recentWrites = new ConcurrentHashMap<>();
+
+    /**
+     * Heartbeat-i koje je ova instanca upisala, od najstarijeg (epoch ms); koristi ih samo checkReplicas
+     */
+    private final Deque<Long> writtenBeats = new ArrayDeque<>();
+
+    public ReplicaRoutingService(ReplicaProperties properties, ReplicaSet replicas,
+                                 WorkloadDataSources workloadDataSources) {
+        this.properties = properties;
+        this.replicas = replicas;
+        this.primary = new JdbcTemplate(workloadDataSources.getPools().get(Workload.INGEST));
+        this.primary.setQueryTimeout(CHECK_TIMEOUT_SECONDS);
+    }
+
+    /**
+     * Upisuje heartbeat na primary, pa za svaku repliku čita heartbeat i računa kašnjenje.
+     * Replika koja ne odgovori ili nema heartbeat se označava kao nezdrava.
+     */
+    @Scheduled(fixedDelayString = "${replica.health-check-interval-ms:2000}")
+    public void checkReplicas() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        try {
+            Timestamp beat = Timestamp.from(now);
+            if (primary.update("UPDATE replica_heartbeat SET beat_at = ? WHERE id = ?", beat, HEARTBEAT_ID) == 0) {
+                primary.update("INSERT INTO replica_heartbeat (id, beat_at) VALUES (?, ?)", HEARTBEAT_ID, beat);
+            }
+            writtenBeats.addLast(now.toEpochMilli());
+            if (writtenBeats.size() > BEAT_HISTORY) {
+                writtenBeats.removeFirst();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Replica heartbeat write to primary failed: {}", e.getMessage());
+        }
+
+        for (Replica replica : replicas.getReplicas()) {
+            boolean wasHealthy = replica.isHealthy();
+            try {
+                JdbcTemplate jdbc = new JdbcTemplate(replica.getDataSource());
+                jdbc.setQueryTimeout(CHECK_TIMEOUT_SECONDS);
+                List<Timestamp> beats = jdbc.queryForList(
+                        "SELECT beat_at FROM replica_heartbeat WHERE id = ?", Timestamp.class, HEARTBEAT_ID);
+                if (beats.isEmpty() || beats.get(0) == null) {
+                    replica.markUnhealthy();
+                } else {
+                    replica.markHealthy(lagMs(beats.get(0).toInstant().toEpochMilli(), now.toEpochMilli()));
+                }
+            } catch (RuntimeException e) {
+                replica.markUnhealthy();
+                if (wasHealthy) {
+                    log.warn("Replica {} failed health check: {}", replica.getName(), e.getMessage());
+                }
+            }
+            if (!wasHealthy && replica.isHealthy()) {
+                log.info("Replica {} is healthy, lag {} ms", replica.getName(), replica.getLagMs());
+            }
+        }
+
+        long expired = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(properties.getReadYourWritesWindowMs());
+        recentWrites.values().removeIf(writtenAt -> writtenAt - expired < 0);
+    }
+
+    /**
+     * Kašnjenje replike koja vidi heartbeat seen: od upisa sledećeg heartbeat-a, 0 ako vidi poslednji upisani.
+     * Heartbeat koji ova instanca nije upisala (druga instanca, stariji od istorije) se meri od svog vremena.
+     */
+    private long lagMs(long seen, long now) {
+        Iterator<Long> newestFirst = writtenBeats.descendingIterator();
+        Long unseen = null;
+        while (newestFirst.hasNext()) {
+            long written = newestFirst.next();
+            if (written == seen) {
+                return unseen == null ? 0 : Math.max(0, now - unseen);
+            }
+            if (written < seen) {
+                break;
+            }
+            unseen = written;
+        }
+        return Math.max(0, now - seen);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onObservationSaved(ObservationSavedEvent event) {
+        if (properties.getReadYourWritesWindowMs() > 0) {
+            recentWrites.put(event.getSensorId(), System.nanoTime());
+        }
+    }
+
+    /**
+     * Da li upit za senzor mora na primary: klijent to traži header-om ili je senzor nedavno upisan
+     */
+    public boolean isPrimaryRequired(String sensorId, String consistencyHeader) {
+        if ("primary".equalsIgnoreCase(consistencyHeader)) {
+            return true;
+        }
+        if (sensorId == null) {
+            return false;
+        }
+        Long writtenAt = recentWrites.get(sensorId);
+        return writtenAt != null && System.nanoTime() - writtenAt
+                < TimeUnit.MILLISECONDS.toNanos(properties.getReadYourWritesWindowMs());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Replica replica : replicas.getReplicas()) {
+            Gauge.builder("buslab.replica.lag", replica, r -> r.isHealthy() ? r.getLagMs() / 1000.0 : Double.NaN)
+                    .description("Replica lag behind the primary, measured by heartbeat")
+                    .baseUnit("seconds")
+                    .tag("replica", replica.getName())
+                    .register(registry);
+            Gauge.builder("buslab.replica.healthy", replica, r -> r.isHealthy() ? 1 : 0)
+                    .description("1 if the replica passed its last health check")
+                    .tag("replica", replica.getName())
+                    .register(registry);
+        }
+        FunctionCounter.builder("buslab.replica.reads", replicas, ReplicaSet::getReplicaReads)
+                .description("Read-only transactions by routing target")
+                .tag("target", "replica")
+                .register(registry);
+        FunctionCounter.builder("buslab.replica.reads", replicas, ReplicaSet::getPrimaryFallbacks)
+                .description("Read-only transactions by routing target")
+                .tag("target", "primary_fallback")
+                .register(registry);
+        FunctionCounter.builder("buslab.replica.reads", replicas, ReplicaSet::getPrimaryRequiredReads)
+                .description("Read-only transactions by routing target")
+                .tag("target", "primary_required")
+                .register(registry);
+    }
+}
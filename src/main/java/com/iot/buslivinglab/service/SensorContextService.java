@@ -7,6 +7,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -18,7 +19,8 @@ public class SensorContextService {
 
     /**
      * Saves context data from the observation request to the database.
-     * Extracts all namespaces from @context and saves them per sensor.
+     * Extracts all namespaces from @context and saves them per sensor in one batch.
+     * Called by SensorMetadataService only for sensors this instance has not seen yet.
      */
     public void saveContextData(SensorObservationRequest request) {
         String sensorId = extractSensorId(request.getMadeBySensor().getId());
@@ -29,36 +31,18 @@ public class SensorContextService {
             List<SensorContext> existingContext = sensorContextRepository.findBySensorId(sensorId);
 
             if (existingContext.isEmpty()) {
-                // Save SOSA namespace
-                if (context.getSosa() != null) {
-                    saveSingleContext(sensorId, "sosa", context.getSosa());
-                }
-                // Save SSN namespace
-                if (context.getSsn() != null) {
-                    saveSingleContext(sensorId, "ssn", context.getSsn());
-                }
-                // Save QUDT namespace
-                if (context.getQudt() != null) {
-                    saveSingleContext(sensorId, "qudt", context.getQudt());
-                }
-                // Save Unit namespace
-                if (context.getUnit() != null) {
-                    saveSingleContext(sensorId, "unit", context.getUnit());
-                }
-                // Save XSD namespace
-                if (context.getXsd() != null) {
-                    saveSingleContext(sensorId, "xsd", context.getXsd());
-                }
-                // Save RDFS namespace
-                if (context.getRdfs() != null) {
-                    saveSingleContext(sensorId, "rdfs", context.getRdfs());
-                }
-                // Save LL (Living Lab) namespace
-                if (context.getLl() != null) {
-                    saveSingleContext(sensorId, "ll", context.getLl());
-                }
+                List<SensorContext> contexts = new ArrayList<>();
+                addContext(contexts, sensorId, "sosa", context.getSosa());
+                addContext(contexts, sensorId, "ssn", context.getSsn());
+                addContext(contexts, sensorId, "qudt", context.getQudt());
+                addContext(contexts, sensorId, "unit", context.getUnit());
+                addContext(contexts, sensorId, "xsd", context.getXsd());
+                addContext(contexts, sensorId, "rdfs", context.getRdfs());
+                // LL (Living Lab) namespace
+                addContext(contexts, sensorId, "ll", context.getLl());
 
-                log.info("Saved context data for sensor: {}", sensorId);
+                sensorContextRepository.saveAll(contexts);
+                log.info("Saved {} context entries for sensor: {}", contexts.size(), sensorId);
             } else {
                 log.info("Context already exists for sensor: {}, skipping save", sensorId);
             }
@@ -66,17 +50,18 @@ public class SensorContextService {
     }
 
     /**
-     * Saves a single context entry
+     * Adds a context entry if the namespace is present in the request
      */
-    private void saveSingleContext(String sensorId, String contextName, String contextUri) {
-        SensorContext sensorContext = SensorContext.builder()
+    private void addContext(List<SensorContext> contexts, String sensorId, String contextName, String contextUri) {
+        if (contextUri == null) {
+            return;
+        }
+        contexts.add(SensorContext.builder()
                 .sensorId(sensorId)
                 .contextName(contextName)
                 .contextUri(contextUri)
-                .build();
-
-        sensorContextRepository.save(sensorContext);
-        log.debug("Saved context: {} -> {} for sensor: {}", contextName, contextUri, sensorId);
+                .build());
+        log.debug("Context: {} -> {} for sensor: {}", contextName, contextUri, sensorId);
     }
 
     /**
@@ -2,75 +2,209 @@ package com.iot.buslivinglab.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iot.buslivinglab.deadband.DeadbandFilter.Decision;
+import com.iot.buslivinglab.derived.DerivedDefinition;
+import com.iot.buslivinglab.dedup.ObservationKey;
 import com.iot.buslivinglab.dto.request.SensorObservationRequest;
-import com.iot.buslivinglab.entity.*;
-import com.iot.buslivinglab.repository.*;
-import jakarta.annotation.PostConstruct;
+import com.iot.buslivinglab.lock.StripedLocks;
+import com.iot.buslivinglab.entity.SensorData;
+import com.iot.buslivinglab.event.ObservationSavedEvent;
+import com.iot.buslivinglab.observability.LogDebugTargets;
+import com.iot.buslivinglab.observability.SensorMetrics;
+import com.iot.buslivinglab.observability.SensorMetrics.IngestStage;
+import com.iot.buslivinglab.observability.SensorMetrics.IngestTransaction;
+import com.iot.buslivinglab.observability.jfr.IngestEvent;
+import com.iot.buslivinglab.observability.jfr.IngestStageEvent;
+import com.iot.buslivinglab.service.IngestDedupService.DetectedBy;
+import com.iot.buslivinglab.service.SensorMetadataService.ObservedType;
+import com.iot.buslivinglab.unit.UnitMappingSnapshot;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.ZoneId;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class SensorDataService {
 
-    private final SensorRepository sensorRepository;
-    private final MeasurementTypeRepository measurementTypeRepository;
-    private final SensorDataRepository sensorDataRepository;
-    private final SensorMeasurementTypeRepository sensorMeasurementTypeRepository;
-    private final SensorContextService sensorContextService;
-    private final UnitMappingRepository unitMappingRepository;
+    private final SensorDataStore sensorDataStore;
+    private final IngestDedupService dedupService;
+    private final DeadbandService deadbandService;
+    private final DerivedMeasurementService derivedMeasurementService;
+    private final SensorMetadataService metadataService;
+    private final UnitMappingService unitMappingService;
     private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SensorMetrics metrics;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Rezultat jedne opservacije: broj upisanih merenja, preskočenih duplikata i vrednosti unutar deadband-a
+     * (prihvaćene, ali neupisane), i broj izračunatih vrednosti izvedenih tipova
+     */
+    public record IngestResult(int saved, int duplicates, int compressed, int derived) {
+
+        public String message() {
+            return saved == 0 && compressed == 0 && duplicates > 0
+                    ? "Duplicate observation ignored" : "Observation saved successfully";
+        }
+    }
 
-    private Map<String, String> unitMap;
-
-    @PostConstruct
-    private void loadUnitMappings() {
-        unitMap = new HashMap<>();
-        unitMappingRepository.findAll().forEach(mapping ->
-            unitMap.put(mapping.getUnitCode(), mapping.getUnitLabel())
-        );
-        log.info("Loaded {} unit mappings from database", unitMap.size());
+    /**
+     * @param repeated vrednosti sa istim vremenom kao poslednja viđena vrednost deadband serije
+     * @param derived  prihvaćene vrednosti izvedenih tipova (ne ulaze u rows, compressed i repeated)
+     */
+    private record SavedRows(int rows, int compressed, int repeated, int derived, long bytes) {
     }
 
-    public void refreshUnitMappings() {
-        loadUnitMappings();
-        log.info("Unit mappings refreshed successfully");
+    private enum Stored { SAVED, COMPRESSED, REPEATED, EXISTING }
+
+    /**
+     * Opservacije istog senzora se obrađuju jedna po jedna (čekaju na lock, ne na red u bazi sa zauzetom
+     * konekcijom); različiti senzori idu paralelno
+     */
+    private static final int SENSOR_LOCK_STRIPES = 1024;
+
+    private final StripedLocks sensorLocks = new StripedLocks(SENSOR_LOCK_STRIPES);
+
+    /**
+     * Obrađuje opservaciju pod lock-om senzora koji se drži do commit-a podataka
+     */
+    public IngestResult ingest(SensorObservationRequest request) throws InterruptedException {
+        String fullId = request.getMadeBySensor().getId();
+        ReentrantLock lock = sensorLocks.lockFor(fullId != null ? extractSensorId(fullId) : "");
+        long waitStart = System.nanoTime();
+        lock.lockInterruptibly();
+        try {
+            metrics.recordSensorLockWait(System.nanoTime() - waitStart);
+            return processSensorObservation(request);
+        } finally {
+            lock.unlock();
+        }
     }
 
+    /**
+     * Izvršava work (više opservacija u jednoj transakciji, WAL replay) pod lock-ovima senzora svih opservacija,
+     * koji se drže dok work ne commit-uje. Lock-ovi se uzimaju u redosledu stripe-a, pa se batch i pojedinačni
+     * ingest istog senzora ne preklapaju, a dva batch-a ne mogu da se zaključaju unakrsno.
+     */
+    public <T> T underSensorLocks(List<SensorObservationRequest> requests, Supplier<T> work)
+            throws InterruptedException {
+        List<String> sensorIds = new ArrayList<>(requests.size());
+        for (SensorObservationRequest request : requests) {
+            String fullId = request.getMadeBySensor().getId();
+            sensorIds.add(fullId != null ? extractSensorId(fullId) : "");
+        }
+        List<ReentrantLock> locks = sensorLocks.locksFor(sensorIds);
+        int held = 0;
+        long waitStart = System.nanoTime();
+        try {
+            for (ReentrantLock lock : locks) {
+                lock.lockInterruptibly();
+                held++;
+            }
+            metrics.recordSensorLockWait(System.nanoTime() - waitStart);
+            return work.get();
+        } finally {
+            for (int i = held - 1; i >= 0; i--) {
+                locks.get(i).unlock();
+            }
+        }
+    }
 
-    @Transactional
-    public String processSensorObservation(SensorObservationRequest request) {
+    /**
+     * Metapodaci koje instanca još ne poznaje upisuju se u posebnoj kratkoj transakciji (SensorMetadataService),
+     * a transakcija podataka sadrži samo INSERT-e merenja. Pozvana unutar postojeće transakcije (WAL replay)
+     * obe faze se priključuju toj transakciji.
+     */
+    public IngestResult processSensorObservation(SensorObservationRequest request) {
+        // sensorId u MDC da bi se DEBUG log mogao uključiti za jedan senzor (LoggingAdminController)
+        if (request.getMadeBySensor().getId() != null) {
+            MDC.put(LogDebugTargets.MDC_SENSOR_ID, extractSensorId(request.getMadeBySensor().getId()));
+        }
         log.info("Processing observation for sensor: {}", request.getMadeBySensor().getId());
+        long start = System.nanoTime();
+        IngestEvent ingestEvent = IngestEvent.start();
+        String sensorId = null;
+        int members = request.getHasMember() != null ? request.getHasMember().size() : 0;
 
         try {
-            String sensorId = extractSensorId(request.getMadeBySensor().getId());
+            sensorId = extractSensorId(request.getMadeBySensor().getId());
             String sensorName = request.getMadeBySensor().getLabel();
             String location = request.getHasFeatureOfInterest().getLocation();
 
-            // 1. Sačuvaj ili ažuriraj senzor
-            Sensor sensor = saveOrUpdateSensor(sensorId, sensorName, location);
-
-            // 2. Sačuvaj context podatke
-            sensorContextService.saveContextData(request);
-
-            // 3. Procesiraj svako merenje
+            // 0. Ponovljena opservacija (retry): ako su sva merenja već sačuvana, ništa se ne upisuje
+            List<ObservationKey> keys = new ArrayList<>(members);
             for (SensorObservationRequest.Observation observation : request.getHasMember()) {
-                processObservation(sensor, observation, location);
+                keys.add(new ObservationKey(sensorId, observation.getObservedProperty().getId(),
+                        Instant.parse(observation.getPhenomenonTime())));
+            }
+            Set<ObservationKey> knownDuplicates = dedupService.findDuplicates(sensorId, keys);
+            if (!knownDuplicates.isEmpty() && knownDuplicates.containsAll(keys)) {
+                dedupService.recordDuplicates(DetectedBy.FILTER, members);
+                metrics.recordIngest(start, true, 0);
+                ingestEvent.finish(sensorId, members, 0, 0, true);
+                log.info("Ignored duplicate observation for sensor: {} ({} members)", sensorId, members);
+                return new IngestResult(0, members, 0, 0);
             }
 
-            log.info("Successfully saved observation for sensor: {}", sensorId);
-            return "Observation saved successfully";
+            // 1. Pripremi redove (raw_data JSON) pre nego što se uzme konekcija
+            UnitMappingSnapshot units = unitMappingService.current();
+            List<SensorData> rows = new ArrayList<>(members);
+            Map<String, ObservedType> observedTypes = new LinkedHashMap<>();
+            for (int i = 0; i < members; i++) {
+                if (!knownDuplicates.contains(keys.get(i))) {
+                    SensorData row = toSensorData(sensorId, request.getHasMember().get(i), location);
+                    rows.add(row);
+                    String unit = row.getUnit();
+                    observedTypes.merge(row.getMeasurementType(), new ObservedType(row.getMeasurementType(), unit,
+                                    unit != null ? units.label(unit) : null, row.getTimestamp()),
+                            (first, next) -> next.observed().isAfter(first.observed()) ? next : first);
+                    // izvedeni tip ima jedinicu izvornog
+                    for (DerivedDefinition derived : derivedMeasurementService.definitions(sensorId, row.getMeasurementType())) {
+                        observedTypes.merge(derived.typeId(), new ObservedType(derived.typeId(), unit,
+                                        unit != null ? units.label(unit) : null, row.getTimestamp()),
+                                (first, next) -> next.observed().isAfter(first.observed()) ? next : first);
+                    }
+                }
+            }
+
+            // 2. Metapodaci: bez upita ako su senzor, tipovi i veze već poznati
+            Map<String, String> unitLabels = metadataService.ensureMetadata(request, sensorId, sensorName, location,
+                    observedTypes.values());
+
+            // 3. Upiši merenja; transakcija podataka sadrži samo INSERT-e
+            long dataStart = System.nanoTime();
+            SavedRows savedRows = transactionTemplate.execute(status -> saveSensorData(rows, unitLabels));
+            long dataNanos = System.nanoTime() - dataStart;
+            metrics.recordTransaction(IngestTransaction.DATA, dataNanos);
+            metrics.recordStage(IngestStage.DATA_INSERT, dataNanos);
+
+            int saved = savedRows.rows();
+            int databaseDuplicates = rows.size() - saved - savedRows.compressed() - savedRows.repeated();
+            dedupService.recordDuplicates(DetectedBy.DATABASE, databaseDuplicates);
+            dedupService.recordDuplicates(DetectedBy.FILTER, knownDuplicates.size() + savedRows.repeated());
+            int duplicates = databaseDuplicates + knownDuplicates.size() + savedRows.repeated();
+
+            metrics.recordIngest(start, true, saved);
+            ingestEvent.finish(sensorId, members, saved, savedRows.bytes(), true);
+            log.info("Successfully saved observation for sensor: {} ({} saved, {} duplicates, {} within deadband, {} derived)",
+                    sensorId, saved, duplicates, savedRows.compressed(), savedRows.derived());
+            return new IngestResult(saved, duplicates, savedRows.compressed(), savedRows.derived());
 
         } catch (Exception e) {
+            metrics.recordIngest(start, false, 0);
+            ingestEvent.finish(sensorId, members, 0, 0, false);
             log.error("Error processing observation: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to process observation: " + e.getMessage());
         }
@@ -83,74 +217,31 @@ public class SensorDataService {
         return fullId;
     }
 
-    private Sensor saveOrUpdateSensor(String sensorId, String sensorName, String location) {
-        Optional<Sensor> existingSensor = sensorRepository.findById(sensorId);
-
-        if (existingSensor.isPresent()) {
-            Sensor sensor = existingSensor.get();
-            sensor.setSensorName(sensorName);
-            sensor.setLocation(location);
-            sensor.setIsActive(true);
-            return sensorRepository.save(sensor);
-        } else {
-            Sensor sensor = Sensor.builder()
-                    .sensorId(sensorId)
-                    .sensorName(sensorName)
-                    .location(location)
-                    .isActive(true)
-                    .build();
-            return sensorRepository.save(sensor);
-        }
-    }
-
-    private void processObservation(Sensor sensor,
-                                    SensorObservationRequest.Observation observation,
+    /**
+     * Red za sensor_data; JSON serijalizacija ide ovde, van transakcije
+     */
+    private SensorData toSensorData(String sensorId, SensorObservationRequest.Observation observation,
                                     String location) throws JsonProcessingException {
-
         String measurementTypeId = observation.getObservedProperty().getId();
         Double value = observation.getHasResult().getNumericValue();
-        String unit = observation.getHasResult().getUnit();
-
-        // Parse timestamp directly as Instant (UTC)
-        Instant observationTime = Instant.parse(observation.getPhenomenonTime());
 
-        // 1. Sačuvaj ili ažuriraj tip merenja
-        MeasurementType measurementType = saveOrUpdateMeasurementType(measurementTypeId, unit);
-
-        // 2. Poveži senzor i tip merenja (koristi Instant UTC)
-        linkSensorToMeasurementType(sensor.getSensorId(), measurementType.getTypeId(), observationTime);
-
-        // 3. Sačuvaj podatke
-        saveSensorData(sensor.getSensorId(), measurementType.getTypeId(),
-                value, unit, observationTime, location, observation);
-    }
-
-    private MeasurementType saveOrUpdateMeasurementType(String typeId, String unit) {
-        String displayName = convertTypeIdToDisplayName(typeId);
-        String unitLabel = unitMap.getOrDefault(unit, "");
-
-        Optional<MeasurementType> existingType = measurementTypeRepository.findById(typeId);
-
-        if (existingType.isPresent()) {
-            MeasurementType type = existingType.get();
-            if (unit != null) {
-                type.setUnit(unit);
-                type.setUnitLabel(unitLabel);
-            }
-            return measurementTypeRepository.save(type);
-        } else {
-            MeasurementType type = MeasurementType.builder()
-                    .typeId(typeId)
-                    .displayName(displayName)
-                    .unit(unit)
-                    .unitLabel(unitLabel)
-                    .dataType("NUMERIC")
-                    .build();
-            return measurementTypeRepository.save(type);
+        // jasna greška umesto greške NOT NULL kolone pri upisu
+        if (value == null) {
+            throw new IllegalArgumentException("Missing numeric value for " + measurementTypeId);
         }
+
+        return SensorData.builder()
+                .sensorId(sensorId)
+                .measurementType(measurementTypeId)
+                .value(value)
+                .unit(observation.getHasResult().getUnit())
+                .timestamp(Instant.parse(observation.getPhenomenonTime())) // Parse directly as Instant (UTC)
+                .location(location)
+                .rawData(objectMapper.writeValueAsString(observation))
+                .build();
     }
 
-    private String convertTypeIdToDisplayName(String typeId) {
+    static String convertTypeIdToDisplayName(String typeId) {
         String[] parts = typeId.split(":");
         if (parts.length > 1) {
             String name = parts[1];
@@ -159,43 +250,74 @@ public class SensorDataService {
         return typeId;
     }
 
-    private void linkSensorToMeasurementType(String sensorId, String measurementTypeId, Instant observationTime) {
-        SensorMeasurementTypeId id = new SensorMeasurementTypeId(sensorId, measurementTypeId);
-
-        Optional<SensorMeasurementType> existingLink = sensorMeasurementTypeRepository.findById(id);
-
-        if (existingLink.isPresent()) {
-            SensorMeasurementType link = existingLink.get();
-            link.setLastObserved(observationTime);
-            sensorMeasurementTypeRepository.save(link);
-        } else {
-            SensorMeasurementType link = SensorMeasurementType.builder()
-                    .id(id)
-                    .isActive(true)
-                    .lastObserved(observationTime)
-                    .build();
-            sensorMeasurementTypeRepository.save(link);
+    /**
+     * Upisuje merenja i obaveštava slušaoce (npr. live stream) - događaji se isporučuju nakon commit-a.
+     * Merenje koje već postoji (isti senzor, tip i vreme) se preskače (duplikat unique key-a) bez događaja.
+     * Vrednost unutar deadband-a serije se ne upisuje, ali slušaoci (statistika, alarmi, last_observed) je dobijaju.
+     * Prihvaćene vrednosti zatim daju vrednosti izvedenih tipova, koje se upisuju na isti način.
+     *
+     * @return broj upisanih merenja, vrednosti unutar deadband-a, izvedenih vrednosti i veličina raw_data JSON-a
+     */
+    private SavedRows saveSensorData(List<SensorData> rows, Map<String, String> unitLabels) {
+        int saved = 0;
+        int compressed = 0;
+        int repeated = 0;
+        long bytes = 0;
+        List<SensorData> accepted = new ArrayList<>(rows.size());
+        for (SensorData row : rows) {
+            switch (store(row, unitLabels)) {
+                case SAVED -> {
+                    saved++;
+                    bytes += rawDataBytes(row);
+                    accepted.add(row);
+                }
+                case COMPRESSED -> {
+                    compressed++;
+                    accepted.add(row);
+                }
+                case REPEATED -> repeated++;
+                case EXISTING -> {
+                }
+            }
         }
-    }
-
-    private void saveSensorData(String sensorId, String measurementTypeId,
-                                Double value, String unit, Instant timestamp,
-                                String location, SensorObservationRequest.Observation observation)
-            throws JsonProcessingException {
 
-        String rawData = objectMapper.writeValueAsString(observation);
+        int derived = 0;
+        for (SensorData row : derivedMeasurementService.derive(accepted)) {
+            Stored stored = store(row, unitLabels);
+            if (stored == Stored.SAVED) {
+                bytes += rawDataBytes(row);
+            }
+            if (stored == Stored.SAVED || stored == Stored.COMPRESSED) {
+                derived++;
+            }
+        }
+        return new SavedRows(saved, compressed, repeated, derived, bytes);
+    }
 
-        SensorData sensorData = SensorData.builder()
-                .sensorId(sensorId)
-                .measurementType(measurementTypeId)
-                .value(value)
-                .unit(unit)
-                .timestamp(timestamp) // Use Instant directly
-                .location(location)
-                .rawData(rawData)
-                .build();
+    /**
+     * raw_data može da sadrži ne-ASCII tekst (npr. °C u oznaci jedinice), pa se broje UTF-8 bajtovi
+     */
+    private static int rawDataBytes(SensorData row) {
+        return row.getRawData().getBytes(StandardCharsets.UTF_8).length;
+    }
 
-        sensorDataRepository.save(sensorData);
+    private Stored store(SensorData row, Map<String, String> unitLabels) {
+        Decision decision = deadbandService.offer(row.getSensorId(), row.getMeasurementType(), row.getValue(),
+                row.getTimestamp());
+        if (decision == Decision.DUPLICATE) {
+            return Stored.REPEATED;
+        }
+        if (decision != Decision.SUPPRESS) {
+            IngestStageEvent stageEvent = IngestStageEvent.start();
+            if (!sensorDataStore.save(row)) {
+                stageEvent.finish(IngestStage.DATA_INSERT, row.getSensorId(), row.getMeasurementType(), 1, 0, 0);
+                return Stored.EXISTING;
+            }
+            stageEvent.finish(IngestStage.DATA_INSERT, row.getSensorId(), row.getMeasurementType(), 1, 1,
+                    rawDataBytes(row));
+        }
+        eventPublisher.publishEvent(new ObservationSavedEvent(row.getSensorId(), row.getMeasurementType(),
+                row.getValue(), unitLabels.get(row.getMeasurementType()), row.getTimestamp()));
+        return decision == Decision.SUPPRESS ? Stored.COMPRESSED : Stored.SAVED;
     }
 }
-
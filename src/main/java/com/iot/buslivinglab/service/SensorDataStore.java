@@ -0,0 +1,484 @@
+package com.iot.buslivinglab.service;
+
+import com.iot.buslivinglab.bulkhead.Workload;
+import com.iot.buslivinglab.bulkhead.WorkloadDataSources;
+import com.iot.buslivinglab.config.ShardingProperties;
+import com.iot.buslivinglab.dedup.ObservationKey;
+import com.iot.buslivinglab.entity.SensorData;
+import com.iot.buslivinglab.repository.SensorDataRepository;
+import com.iot.buslivinglab.shard.Shard;
+import com.iot.buslivinglab.shard.ShardSet;
+import com.iot.buslivinglab.shard.ShardTransaction;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Jedino mesto pristupa sensor_data tabeli. Bez sharding-a sve ide kroz SensorDataRepository (JPA, primary);
+ * sa sharding.enabled=true upiti za jedan senzor idu na njegov shard, a upiti preko cele flote
+ * se paralelno šalju na sve shard-ove i rezultati spajaju (scatter-gather).
+ */
+@Service
+@Slf4j
+public class SensorDataStore implements MeterBinder {
+
+    static final String COLUMNS =
+            "data_id, sensor_id, measurement_type, value, unit, timestamp, received_at, location, raw_data";
+
+    /**
+     * Običan INSERT: u strict modu predugačak ili neispravan podatak je greška, a duplikat unique key-a (1062)
+     * DuplicateKeyException. INSERT IGNORE bi i skraćivanje pretvorio u upozorenje.
+     */
+    static final String INSERT_SQL = "INSERT INTO sensor_data (sensor_id, measurement_type, value, unit, " +
+            "timestamp, received_at, location, raw_data) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Kopiranje pri rebalansu preskače red koji je u međuvremenu upisan na cilj, bez gašenja ostalih grešaka
+     */
+    private static final String COPY_SQL = INSERT_SQL + " ON DUPLICATE KEY UPDATE data_id = data_id";
+
+    /**
+     * Ista šema kao JPA entitet SensorData (MySQL sintaksa, radi i u H2 MySQL modu)
+     */
+    private static final String CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS sensor_data (" +
+            "data_id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY, " +
+            "sensor_id VARCHAR(255) NOT NULL, " +
+            "measurement_type VARCHAR(255) NOT NULL, " +
+            "value DOUBLE NOT NULL, " +
+            "unit VARCHAR(100), " +
+            "timestamp DATETIME(6) NOT NULL, " +
+            "received_at DATETIME(6), " +
+            "location VARCHAR(500), " +
+            "raw_data JSON, " +
+            "CONSTRAINT uk_sensor_type_timestamp UNIQUE (sensor_id, measurement_type, timestamp), " +
+            "INDEX idx_sensor_timestamp (sensor_id, timestamp), " +
+            "INDEX idx_timestamp (timestamp))";
+
+    private static final String LATEST_SQL = "SELECT DISTINCT sd.* FROM sensor_data sd " +
+            "INNER JOIN (SELECT measurement_type, MAX(timestamp) AS max_timestamp FROM sensor_data " +
+            "WHERE sensor_id = ? GROUP BY measurement_type) latest " +
+            "ON sd.measurement_type = latest.measurement_type AND sd.timestamp = latest.max_timestamp " +
+            "AND sd.sensor_id = ? ORDER BY sd.measurement_type";
+
+    static final RowMapper<SensorData> ROW_MAPPER = (rs, rowNum) -> SensorData.builder()
+            .dataId(rs.getLong("data_id"))
+            .sensorId(rs.getString("sensor_id"))
+            .measurementType(rs.getString("measurement_type"))
+            .value(rs.getDouble("value"))
+            .unit(rs.getString("unit"))
+            .timestamp(toInstant(rs.getObject("timestamp", LocalDateTime.class)))
+            .receivedAt(toInstant(rs.getObject("received_at", LocalDateTime.class)))
+            .location(rs.getString("location"))
+            .rawData(rs.getString("raw_data"))
+            .build();
+
+    private static final Comparator<SensorData> NEWEST_FIRST =
+            Comparator.comparing(SensorData::getTimestamp).reversed();
+
+    private final SensorDataRepository repository;
+    private final ShardingProperties properties;
+    private final ShardSet shards;
+    private final JdbcTemplate primary;
+    /** upis u transakciju podataka (ista konekcija kao JPA) kada sharding nije uključen */
+    private final JdbcTemplate writes;
+    private final ExecutorService scatterExecutor;
+
+    private final Map<String, CachedPlacement> placements = new ConcurrentHashMap<>();
+
+    public SensorDataStore(SensorDataRepository repository, ShardingProperties properties,
+                           ObjectProvider<ShardSet> shardSet, ObjectProvider<WorkloadDataSources> workloadDataSources,
+                           DataSource dataSource) {
+        this.repository = repository;
+        this.properties = properties;
+        this.shards = shardSet.getIfAvailable();
+        // Dodele se čitaju i pišu direktno na primary, nikad sa replike
+        WorkloadDataSources pools = workloadDataSources.getIfAvailable();
+        this.primary = new JdbcTemplate(pools != null ? pools.getPools().get(Workload.INGEST) : dataSource);
+        this.writes = new JdbcTemplate(dataSource);
+        this.scatterExecutor = shards == null ? null : Executors.newFixedThreadPool(shards.getShards().size(),
+                Thread.ofPlatform().name("shard-scatter-", 0).daemon(true).factory());
+    }
+
+    @PostConstruct
+    void initializeShards() {
+        if (shards == null) {
+            return;
+        }
+        if (properties.isInitializeSchema()) {
+            shards.getShards().forEach(shard -> shard.getJdbc().execute(CREATE_TABLE_SQL));
+        }
+        log.info("Sharding sensor_data across {} shards: {}", shards.getShards().size(),
+                shards.getShards().stream().map(Shard::getName).toList());
+    }
+
+    public boolean isSharded() {
+        return shards != null;
+    }
+
+    /**
+     * Upisuje merenje ako već ne postoji merenje istog senzora i tipa u istom trenutku. Upis na shard je deo
+     * tekuće transakcije (ShardTransaction), pa rollback ne ostavlja redove za koje nije objavljen događaj.
+     *
+     * @return false ako je merenje duplikat i nije upisano
+     */
+    public boolean save(SensorData sensorData) {
+        if (sensorData.getReceivedAt() == null) {
+            sensorData.setReceivedAt(Instant.now());
+        }
+        try {
+            if (shards == null) {
+                return writes.update(INSERT_SQL, ps -> bind(ps, sensorData)) > 0;
+            }
+            Shard shard = placement(sensorData.getSensorId(), true).writeTarget();
+            int inserted = ShardTransaction.writeJdbc(shard).update(INSERT_SQL, ps -> bind(ps, sensorData));
+            if (inserted > 0) {
+                shard.getWrites().increment();
+            }
+            return inserted > 0;
+        } catch (DuplicateKeyException e) {
+            // neuspela naredba se poništava sama, transakcija se nastavlja
+            return false;
+        }
+    }
+
+    /**
+     * Ključevi merenja senzora koja već postoje u zadatim trenucima (za potvrdu pogotka Bloom filtera)
+     */
+    public List<ObservationKey> findExistingKeys(String sensorId, Collection<Instant> timestamps) {
+        if (shards == null) {
+            return repository.findExistingKeys(sensorId, timestamps);
+        }
+        String placeholders = String.join(", ", Collections.nCopies(timestamps.size(), "?"));
+        List<Object> args = new ArrayList<>();
+        args.add(sensorId);
+        timestamps.forEach(timestamp -> args.add(toUtc(timestamp)));
+
+        List<ObservationKey> keys = new ArrayList<>();
+        for (Shard shard : placement(sensorId, false).readShards()) {
+            shard.getReads().increment();
+            keys.addAll(shard.getJdbc().query("SELECT measurement_type, timestamp FROM sensor_data " +
+                            "WHERE sensor_id = ? AND timestamp IN (" + placeholders + ")",
+                    (rs, rowNum) -> new ObservationKey(sensorId, rs.getString(1),
+                            toInstant(rs.getObject(2, LocalDateTime.class))),
+                    args.toArray()));
+        }
+        return keys;
+    }
+
+    public List<SensorData> findBySensorIdOrderByTimestampDesc(String sensorId) {
+        if (shards == null) {
+            return repository.findBySensorIdOrderByTimestampDesc(sensorId);
+        }
+        return readMerged(sensorId, jdbc -> jdbc.query("SELECT " + COLUMNS +
+                " FROM sensor_data WHERE sensor_id = ? ORDER BY timestamp DESC", ROW_MAPPER, sensorId));
+    }
+
+    public List<SensorData> findBySensorIdAndTimestampBetweenOrderByTimestampDesc(String sensorId,
+                                                                                 Instant from, Instant to) {
+        if (shards == null) {
+            return repository.findBySensorIdAndTimestampBetweenOrderByTimestampDesc(sensorId, from, to);
+        }
+        return readMerged(sensorId, jdbc -> jdbc.query("SELECT " + COLUMNS + " FROM sensor_data " +
+                        "WHERE sensor_id = ? AND timestamp BETWEEN ? AND ? ORDER BY timestamp DESC",
+                ROW_MAPPER, sensorId, toUtc(from), toUtc(to)));
+    }
+
+    public List<SensorData> findLatestMeasurements(String sensorId) {
+        if (shards == null) {
+            return repository.findLatestMeasurements(sensorId);
+        }
+        List<SensorData> merged = readMerged(sensorId, jdbc -> jdbc.query(LATEST_SQL, ROW_MAPPER, sensorId, sensorId));
+
+        // Tokom rebalansa oba shard-a vraćaju svoje poslednje merenje; zadržava se najnovije po tipu
+        Map<String, Instant> latestByType = new HashMap<>();
+        merged.forEach(data -> latestByType.merge(data.getMeasurementType(), data.getTimestamp(),
+                (a, b) -> a.isAfter(b) ? a : b));
+        List<SensorData> latest = new ArrayList<>(merged.stream()
+                .filter(data -> data.getTimestamp().equals(latestByType.get(data.getMeasurementType())))
+                .toList());
+        latest.sort(Comparator.comparing(SensorData::getMeasurementType));
+        return latest;
+    }
+
+    public List<String> findDistinctMeasurementTypesBySensorId(String sensorId) {
+        if (shards == null) {
+            return repository.findDistinctMeasurementTypesBySensorId(sensorId);
+        }
+        Set<String> types = new LinkedHashSet<>();
+        for (Shard shard : placement(sensorId, false).readShards()) {
+            shard.getReads().increment();
+            types.addAll(shard.getJdbc().queryForList(
+                    "SELECT DISTINCT measurement_type FROM sensor_data WHERE sensor_id = ?", String.class, sensorId));
+        }
+        return new ArrayList<>(types);
+    }
+
+    public List<SensorData> findLatestNBySensorIdAndMeasurementType(String sensorId, String measurementType, int n) {
+        if (shards == null) {
+            return repository.findLatestNBySensorIdAndMeasurementType(sensorId, measurementType, n);
+        }
+        List<SensorData> merged = readMerged(sensorId, jdbc -> jdbc.query("SELECT " + COLUMNS + " FROM sensor_data " +
+                        "WHERE sensor_id = ? AND measurement_type = ? ORDER BY timestamp DESC LIMIT ?",
+                ROW_MAPPER, sensorId, measurementType, n));
+        return merged.size() > n ? new ArrayList<>(merged.subList(0, n)) : merged;
+    }
+
+    public Optional<SensorData> findTopBySensorIdOrderByTimestampDesc(String sensorId) {
+        if (shards == null) {
+            return repository.findTopBySensorIdOrderByTimestampDesc(sensorId);
+        }
+        return readMerged(sensorId, jdbc -> jdbc.query("SELECT " + COLUMNS + " FROM sensor_data " +
+                "WHERE sensor_id = ? ORDER BY timestamp DESC LIMIT 1", ROW_MAPPER, sensorId))
+                .stream().findFirst();
+    }
+
+    public Optional<SensorData> findLatestBefore(String sensorId, String measurementType, Instant before) {
+        if (shards == null) {
+            return repository.findTopBySensorIdAndMeasurementTypeAndTimestampLessThanOrderByTimestampDesc(
+                    sensorId, measurementType, before);
+        }
+        return readMerged(sensorId, jdbc -> jdbc.query("SELECT " + COLUMNS + " FROM sensor_data " +
+                        "WHERE sensor_id = ? AND measurement_type = ? AND timestamp < ? ORDER BY timestamp DESC LIMIT 1",
+                ROW_MAPPER, sensorId, measurementType, toUtc(before)))
+                .stream().findFirst();
+    }
+
+    public List<SensorData> findLatestBefore(String sensorId, String measurementType, Instant before, int n) {
+        if (shards == null) {
+            return repository.findLatestBefore(sensorId, measurementType, before, PageRequest.of(0, n));
+        }
+        List<SensorData> merged = readMerged(sensorId, jdbc -> jdbc.query("SELECT " + COLUMNS + " FROM sensor_data " +
+                        "WHERE sensor_id = ? AND measurement_type = ? AND timestamp < ? ORDER BY timestamp DESC LIMIT ?",
+                ROW_MAPPER, sensorId, measurementType, toUtc(before), n));
+        return merged.size() > n ? new ArrayList<>(merged.subList(0, n)) : merged;
+    }
+
+    /**
+     * Vreme prve upisane vrednosti tipa posle zadatog trenutka (kraj prekida koji je zatvorila druga instanca)
+     */
+    public Optional<Instant> findFirstTimestampAfter(String sensorId, String measurementType, Instant after) {
+        if (shards == null) {
+            return Optional.ofNullable(repository.findFirstTimestampAfter(sensorId, measurementType, after));
+        }
+        Instant first = null;
+        for (Shard shard : placement(sensorId, false).readShards()) {
+            shard.getReads().increment();
+            Instant candidate = toInstant(shard.getJdbc().queryForObject("SELECT MIN(timestamp) FROM sensor_data " +
+                            "WHERE sensor_id = ? AND measurement_type = ? AND timestamp > ?", LocalDateTime.class,
+                    sensorId, measurementType, toUtc(after)));
+            if (candidate != null && (first == null || candidate.isBefore(first))) {
+                first = candidate;
+            }
+        }
+        return Optional.ofNullable(first);
+    }
+
+    /**
+     * Izvršava upit paralelno na svim shard-ovima i vraća rezultate po shard-u (u redosledu iz konfiguracije).
+     *
+     * @throws IllegalStateException ako neki shard ne odgovori u sharding.scatter-timeout-ms ili upit padne
+     */
+    public <T> Map<String, T> scatter(Function<JdbcTemplate, T> query) {
+        requireSharding();
+        Map<String, Future<T>> futures = new LinkedHashMap<>();
+        for (Shard shard : shards.getShards()) {
+            futures.put(shard.getName(), scatterExecutor.submit(() -> {
+                shard.getReads().increment();
+                return query.apply(shard.getJdbc());
+            }));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getScatterTimeoutMs());
+        Map<String, T> results = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, Future<T>> entry : futures.entrySet()) {
+                results.put(entry.getKey(), entry.getValue().get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+            }
+            return results;
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Shard scatter query timed out after " +
+                    properties.getScatterTimeoutMs() + " ms");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Shard scatter query failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for shards", e);
+        } finally {
+            futures.values().forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * Dodela senzora (shard i eventualni ciljni shard rebalansa), keširana sharding.assignment-cache-ttl-ms.
+     * Senzor bez dodele pripada shard-u po hash prstenu; dodela se upisuje pri prvom upisu.
+     */
+    Placement placement(String sensorId, boolean forWrite) {
+        requireSharding();
+        long now = System.nanoTime();
+        CachedPlacement cached = placements.get(sensorId);
+        if (cached != null && now - cached.loadedAt < TimeUnit.MILLISECONDS.toNanos(properties.getAssignmentCacheTtlMs())
+                && (cached.persisted || !forWrite)) {
+            return cached.placement;
+        }
+
+        CachedPlacement loaded = loadPlacement(sensorId, now);
+        if (loaded == null && forWrite) {
+            Shard owner = shards.ringOwner(sensorId);
+            try {
+                primary.update("INSERT INTO sensor_shard_assignment (sensor_id, shard_name, assigned_at) " +
+                        "VALUES (?, ?, ?)", sensorId, owner.getName(), toUtc(Instant.now()));
+            } catch (DuplicateKeyException e) {
+                // Druga instanca ili thread je upravo upisao dodelu
+            }
+            loaded = loadPlacement(sensorId, now);
+        }
+        if (loaded == null) {
+            loaded = new CachedPlacement(new Placement(shards.ringOwner(sensorId), null), false, now);
+        }
+        placements.put(sensorId, loaded);
+        return loaded.placement;
+    }
+
+    /**
+     * Briše keširanu dodelu (posle promene u rebalansu na ovoj instanci)
+     */
+    void evictPlacement(String sensorId) {
+        placements.remove(sensorId);
+    }
+
+    JdbcTemplate primary() {
+        return primary;
+    }
+
+    ShardSet shards() {
+        requireSharding();
+        return shards;
+    }
+
+    private CachedPlacement loadPlacement(String sensorId, long now) {
+        List<Placement> rows = primary.query(
+                "SELECT shard_name, moving_to FROM sensor_shard_assignment WHERE sensor_id = ?",
+                (rs, rowNum) -> new Placement(shards.get(rs.getString("shard_name")),
+                        rs.getString("moving_to") != null ? shards.get(rs.getString("moving_to")) : null),
+                sensorId);
+        return rows.isEmpty() ? null : new CachedPlacement(rows.get(0), true, now);
+    }
+
+    /**
+     * Čita sa shard-a senzora; tokom rebalansa i sa ciljnog shard-a, bez duplikata (isti tip i vreme)
+     * i sortirano od najnovijeg
+     */
+    private List<SensorData> readMerged(String sensorId, Function<JdbcTemplate, List<SensorData>> query) {
+        Placement placement = placement(sensorId, false);
+        placement.home().getReads().increment();
+        List<SensorData> home = query.apply(placement.home().getJdbc());
+        if (placement.movingTo() == null) {
+            return home;
+        }
+
+        placement.movingTo().getReads().increment();
+        Map<String, SensorData> merged = new LinkedHashMap<>();
+        for (SensorData data : query.apply(placement.movingTo().getJdbc())) {
+            merged.putIfAbsent(data.getMeasurementType() + "|" + data.getTimestamp(), data);
+        }
+        for (SensorData data : home) {
+            merged.putIfAbsent(data.getMeasurementType() + "|" + data.getTimestamp(), data);
+        }
+        List<SensorData> result = new ArrayList<>(merged.values());
+        result.sort(NEWEST_FIRST);
+        return result;
+    }
+
+    static void insert(JdbcTemplate jdbc, List<SensorData> rows) {
+        jdbc.batchUpdate(COPY_SQL, rows, rows.size(), (PreparedStatement ps, SensorData data) -> bind(ps, data));
+    }
+
+    private static void bind(PreparedStatement ps, SensorData data) throws SQLException {
+        ps.setString(1, data.getSensorId());
+        ps.setString(2, data.getMeasurementType());
+        ps.setDouble(3, data.getValue());
+        ps.setString(4, data.getUnit());
+        ps.setObject(5, toUtc(data.getTimestamp()));
+        ps.setObject(6, toUtc(data.getReceivedAt()));
+        ps.setString(7, data.getLocation());
+        ps.setString(8, data.getRawData());
+    }
+
+    /**
+     * Vremena se čuvaju kao UTC bez zone, kao i na primary-ju (hibernate.jdbc.time_zone=UTC)
+     */
+    static LocalDateTime toUtc(Instant instant) {
+        return instant == null ? null : LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+    private static Instant toInstant(LocalDateTime utc) {
+        return utc == null ? null : utc.toInstant(ZoneOffset.UTC);
+    }
+
+    private void requireSharding() {
+        if (shards == null) {
+            throw new IllegalStateException("Sharding is disabled (sharding.enabled=false)");
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (shards == null) {
+            return;
+        }
+        for (Shard shard : shards.getShards()) {
+            FunctionCounter.builder("buslab.shard.writes", shard, Shard::getWriteCount)
+                    .description("sensor_data rows inserted per shard")
+                    .tag("shard", shard.getName())
+                    .register(registry);
+            FunctionCounter.builder("buslab.shard.reads", shard, Shard::getReadCount)
+                    .description("sensor_data queries per shard, including scatter-gather")
+                    .tag("shard", shard.getName())
+                    .register(registry);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scatterExecutor != null) {
+            scatterExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * @param movingTo ciljni shard dok traje rebalans, inače null
+     */
+    record Placement(Shard home, Shard movingTo) {
+
+        Shard writeTarget() {
+            return movingTo != null ? movingTo : home;
+        }
+
+        List<Shard> readShards() {
+            return movingTo != null ? List.of(home, movingTo) : List.of(home);
+        }
+    }
+
+    private record CachedPlacement(Placement placement, boolean persisted, long loadedAt) {
+    }
+}
@@ -0,0 +1,280 @@
+package com.iot.buslivinglab.service;
+
+import com.iot.buslivinglab.bulkhead.Workload;
+import com.iot.buslivinglab.bulkhead.WorkloadContext;
+import com.iot.buslivinglab.cache.CoherentCache;
+import com.iot.buslivinglab.config.IngestMetadataProperties;
+import com.iot.buslivinglab.config.LivenessProperties;
+import com.iot.buslivinglab.dto.request.SensorObservationRequest;
+import com.iot.buslivinglab.entity.MeasurementType;
+import com.iot.buslivinglab.entity.SensorMeasurementTypeId;
+import com.iot.buslivinglab.event.ObservationSavedEvent;
+import com.iot.buslivinglab.observability.SensorMetrics;
+import com.iot.buslivinglab.observability.SensorMetrics.IngestStage;
+import com.iot.buslivinglab.observability.SensorMetrics.IngestTransaction;
+import com.iot.buslivinglab.observability.jfr.IngestStageEvent;
+import com.iot.buslivinglab.repository.MeasurementTypeRepository;
+import com.iot.buslivinglab.repository.SensorMeasurementTypeRepository;
+import com.iot.buslivinglab.repository.SensorRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Metapodaci opservacija (senzor, kontekst, tip merenja, veza senzor-tip) van transakcije podataka.
+ * Instanca pamti šta je već upisala; poznat senzor sa poznatim tipovima ne izvršava nijedan upit, a
+ * novi ili promenjeni metapodaci se upisuju u kratkoj transakciji pre podataka, da bi upiti odmah videli senzor.
+ * last_observed se posle commit-a podataka skuplja u memoriji i upisuje periodično, jednom po vezi.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SensorMetadataService implements MeterBinder, CoherentCache {
+
+    public static final String CACHE_NAME = "ingest-metadata";
+
+    /**
+     * Tip merenja jednog člana opservacije
+     *
+     * @param unitLabel oznaka iz unit_mappings; null ako jedinica nije zadata
+     */
+    public record ObservedType(String typeId, String unit, String unitLabel, Instant observed) {
+    }
+
+    private record CachedSensor(String name, String location, long cachedAt) {
+    }
+
+    private record CachedType(String unit, String unitLabel, long cachedAt) {
+    }
+
+    private final SensorRepository sensorRepository;
+    private final MeasurementTypeRepository measurementTypeRepository;
+    private final SensorMeasurementTypeRepository sensorMeasurementTypeRepository;
+    private final SensorContextService sensorContextService;
+    private final IngestMetadataProperties properties;
+    private final LivenessProperties livenessProperties;
+    private final SensorMetrics metrics;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheCoherenceService cacheCoherence;
+
+    private final Map<String, CachedSensor> sensors = new ConcurrentHashMap<>();
+    private final Map<String, CachedType> types = new ConcurrentHashMap<>();
+    private final Map<SensorMeasurementTypeId, Long> links = new ConcurrentHashMap<>();
+    private final Map<SensorMeasurementTypeId, Instant> pendingLastObserved = new ConcurrentHashMap<>();
+
+    /**
+     * Upisuje metapodatke koje ova instanca ne poznaje ili koji su se promenili. Keš se puni tek posle commit-a,
+     * pa rollback (npr. WAL batch) ne ostavlja senzor koji je "poznat" a ne postoji u bazi.
+     *
+     * @return oznaka jedinice po tipu merenja
+     */
+    public Map<String, String> ensureMetadata(SensorObservationRequest request, String sensorId, String sensorName,
+                                              String location, Collection<ObservedType> observedTypes) {
+        long now = System.currentTimeMillis();
+        CachedSensor cached = sensors.get(sensorId);
+        CachedSensor cachedSensor = cached != null && !expired(cached.cachedAt(), now) ? cached : null;
+        boolean sensorChanged = cachedSensor == null || !Objects.equals(cachedSensor.name(), sensorName)
+                || !Objects.equals(cachedSensor.location(), location);
+
+        Map<String, String> labels = new HashMap<>();
+        List<ObservedType> changedTypes = new ArrayList<>();
+        List<ObservedType> newLinks = new ArrayList<>();
+        for (ObservedType observed : observedTypes) {
+            CachedType cachedType = types.get(observed.typeId());
+            if (cachedType != null && !expired(cachedType.cachedAt(), now) && (observed.unit() == null
+                    || (observed.unit().equals(cachedType.unit()) && observed.unitLabel().equals(cachedType.unitLabel())))) {
+                labels.put(observed.typeId(), observed.unit() == null ? cachedType.unitLabel() : observed.unitLabel());
+            } else {
+                changedTypes.add(observed);
+            }
+            Long linkedAt = links.get(new SensorMeasurementTypeId(sensorId, observed.typeId()));
+            if (linkedAt == null || expired(linkedAt, now)) {
+                newLinks.add(observed);
+            }
+        }
+        if (!sensorChanged && changedTypes.isEmpty() && newLinks.isEmpty()) {
+            return labels;
+        }
+
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (sensorChanged) {
+                IngestStageEvent stageEvent = IngestStageEvent.start();
+                long stageStart = System.nanoTime();
+                sensorRepository.upsert(sensorId, sensorName, location, Instant.now());
+                if (cachedSensor != null) {
+                    // naziv ili lokacija su promenjeni; ostale instance imaju stari senzor u kešu
+                    cacheCoherence.publish(CACHE_NAME);
+                }
+                metrics.recordStage(IngestStage.SENSOR_UPSERT, System.nanoTime() - stageStart);
+                stageEvent.finish(IngestStage.SENSOR_UPSERT, sensorId, null, observedTypes.size(), 1, 0);
+
+                if (cachedSensor == null) {
+                    stageEvent = IngestStageEvent.start();
+                    stageStart = System.nanoTime();
+                    sensorContextService.saveContextData(request);
+                    metrics.recordStage(IngestStage.CONTEXT_SAVE, System.nanoTime() - stageStart);
+                    stageEvent.finish(IngestStage.CONTEXT_SAVE, sensorId, null, observedTypes.size(), 0, 0);
+                }
+            }
+
+            IngestStageEvent stageEvent = IngestStageEvent.start();
+            long stageStart = System.nanoTime();
+            Map<String, CachedType> savedTypes = new HashMap<>();
+            for (ObservedType observed : changedTypes) {
+                CachedType saved = saveOrUpdateMeasurementType(observed, now);
+                savedTypes.put(observed.typeId(), saved);
+                labels.put(observed.typeId(), saved.unitLabel());
+            }
+            for (ObservedType observed : newLinks) {
+                sensorMeasurementTypeRepository.upsert(sensorId, observed.typeId(), observed.observed(),
+                        overdueAt(observed.observed()));
+            }
+            metrics.recordStage(IngestStage.METADATA_UPSERT, System.nanoTime() - stageStart);
+            stageEvent.finish(IngestStage.METADATA_UPSERT, sensorId, null, observedTypes.size(),
+                    changedTypes.size() + newLinks.size(), 0);
+
+            afterCommit(() -> {
+                if (sensorChanged) {
+                    put(sensors, sensorId, new CachedSensor(sensorName, location, now));
+                }
+                savedTypes.forEach((typeId, saved) -> put(types, typeId, saved));
+                newLinks.forEach(observed -> put(links, new SensorMeasurementTypeId(sensorId, observed.typeId()), now));
+            });
+        });
+        metrics.recordTransaction(IngestTransaction.METADATA, System.nanoTime() - start);
+        return labels;
+    }
+
+    /**
+     * Tipovi merenja su zajednički za sve senzore, pa se red menja samo kada tip ne postoji ili mu se
+     * promenila jedinica; inače bi svaka opservacija zaključala isti red i serijalizovala ingest svih senzora.
+     */
+    private CachedType saveOrUpdateMeasurementType(ObservedType observed, long now) {
+        Optional<MeasurementType> existingType = measurementTypeRepository.findById(observed.typeId());
+        if (existingType.isPresent()) {
+            MeasurementType type = existingType.get();
+            if (observed.unit() == null || (observed.unit().equals(type.getUnit())
+                    && observed.unitLabel().equals(type.getUnitLabel()))) {
+                return new CachedType(type.getUnit(), type.getUnitLabel(), now);
+            }
+            cacheCoherence.publish(CACHE_NAME);
+        }
+        String unitLabel = observed.unitLabel() != null ? observed.unitLabel() : "";
+        measurementTypeRepository.upsert(observed.typeId(), SensorDataService.convertTypeIdToDisplayName(observed.typeId()),
+                observed.unit(), unitLabel);
+        return new CachedType(observed.unit(), unitLabel, now);
+    }
+
+    @Override
+    public String getCacheName() {
+        return CACHE_NAME;
+    }
+
+    /**
+     * Druga instanca je promenila senzor ili tip merenja; sledeća opservacija ponovo proverava metapodatke
+     */
+    @Override
+    public void invalidate() {
+        sensors.clear();
+        types.clear();
+        links.clear();
+    }
+
+    /**
+     * Zaboravlja tip merenja (npr. posle promene oznaka jedinica), da bi ga sledeća opservacija ponovo proverila
+     */
+    public void evictMeasurementTypes() {
+        types.clear();
+    }
+
+    /**
+     * last_observed se pomera posle commit-a podataka; upis u bazu ide u flushLastObserved
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onObservationSaved(ObservationSavedEvent event) {
+        pendingLastObserved.merge(new SensorMeasurementTypeId(event.getSensorId(), event.getMeasurementType()),
+                event.getTimestamp(), (current, observed) -> observed.isAfter(current) ? observed : current);
+    }
+
+    @Scheduled(fixedDelayString = "${ingest.metadata.flush-interval-ms:1000}")
+    public void flushLastObserved() {
+        if (pendingLastObserved.isEmpty()) {
+            return;
+        }
+        Map<SensorMeasurementTypeId, Instant> batch = new HashMap<>(pendingLastObserved);
+        Workload previous = WorkloadContext.set(Workload.INGEST);
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach((id, observed) ->
+                    sensorMeasurementTypeRepository.upsert(id.getSensorId(), id.getMeasurementType(), observed,
+                            overdueAt(observed))));
+            // novija vrednost stigla tokom upisa ostaje za sledeći flush
+            batch.forEach(pendingLastObserved::remove);
+            log.debug("Flushed last_observed for {} sensor measurement types", batch.size());
+        } catch (RuntimeException e) {
+            log.warn("Flushing last_observed for {} sensor measurement types failed, retrying later: {}",
+                    batch.size(), e.getMessage());
+        } finally {
+            WorkloadContext.restore(previous);
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flushLastObserved();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("buslab.ingest.metadata.pending", pendingLastObserved, Map::size)
+                .description("Sensor measurement types whose last_observed is waiting to be written")
+                .register(registry);
+        Gauge.builder("buslab.ingest.metadata.cached_sensors", sensors, Map::size)
+                .description("Sensors whose metadata this instance has already written")
+                .register(registry);
+    }
+
+    /**
+     * Rok za sledeću vrednost serije bez sopstvenog max_silence_ms
+     */
+    private Instant overdueAt(Instant observed) {
+        return observed.plusMillis(livenessProperties.getDefaultMaxSilenceMs());
+    }
+
+    private boolean expired(long cachedAt, long now) {
+        return now - cachedAt > properties.getCacheTtlMs();
+    }
+
+    private <K, V> void put(Map<K, V> cache, K key, V value) {
+        if (cache.size() >= properties.getCacheMaxEntries()) {
+            cache.clear();
+        }
+        cache.put(key, value);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -1,14 +1,22 @@
 package com.iot.buslivinglab.service;
 
+import com.iot.buslivinglab.deadband.DeadbandPolicy;
 import com.iot.buslivinglab.dto.response.SensorDataResponse;
 import com.iot.buslivinglab.entity.MeasurementType;
 import com.iot.buslivinglab.entity.Sensor;
 import com.iot.buslivinglab.entity.SensorData;
+import com.iot.buslivinglab.entity.SensorMeasurementType;
+import com.iot.buslivinglab.observability.SensorMetrics;
+import com.iot.buslivinglab.observability.SensorMetrics.QueryMode;
+import com.iot.buslivinglab.observability.jfr.QueryEvent;
 import com.iot.buslivinglab.repository.MeasurementTypeRepository;
-import com.iot.buslivinglab.repository.SensorDataRepository;
+import com.iot.buslivinglab.repository.SensorMeasurementTypeRepository;
 import com.iot.buslivinglab.repository.SensorRepository;
+import com.iot.buslivinglab.unit.UnitTargets;
+import com.iot.buslivinglab.unit.UnitView;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
@@ -19,13 +27,22 @@ import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.stream.Collectors;
 
+/**
+ * Upiti nad merenjima. Svaki upit je jedna read-only transakcija: jedan persistence context
+ * i kada se izvršava na bulkhead thread-u, gde nema open-in-view sesije zahteva.
+ */
 @Service
 @RequiredArgsConstructor
+@Transactional(readOnly = true)
 public class SensorQueryService {
 
-    private final SensorDataRepository sensorDataRepository;
+    private final SensorDataStore sensorDataStore;
     private final MeasurementTypeRepository measurementTypeRepository;
     private final SensorRepository sensorRepository;
+    private final SensorMeasurementTypeRepository sensorMeasurementTypeRepository;
+    private final DeadbandService deadbandService;
+    private final SensorMetrics metrics;
+    private final UnitMappingService unitMappingService;
 
     private static final DateTimeFormatter ISO_FORMATTER =
             DateTimeFormatter.ISO_INSTANT.withZone(ZoneOffset.UTC);
@@ -35,7 +52,7 @@ public class SensorQueryService {
     /**
      * Sortira listu MeasurementData prema redosledu iz baze (order_number iz measurement_types)
      */
-    private void sortMeasurementData(List<SensorDataResponse.MeasurementData> dataList) {
+    static void sortMeasurementData(List<SensorDataResponse.MeasurementData> dataList) {
         if (dataList == null || dataList.isEmpty()) {
             return;
         }
@@ -51,7 +68,8 @@ public class SensorQueryService {
      */
     private Optional<SensorDataResponse.MeasurementData> createMeasurementData(
             String measurementTypeId,
-            List<SensorData> sensorDataList) {
+            List<SensorData> sensorDataList,
+            UnitTargets units) {
 
         Optional<MeasurementType> measurementTypeOpt = measurementTypeRepository.findById(measurementTypeId);
 
@@ -60,28 +78,43 @@ public class SensorQueryService {
         }
 
         MeasurementType measurementType = measurementTypeOpt.get();
+        UnitView unitView = unitView(measurementType, units);
+        return Optional.of(toMeasurementData(measurementType, unitView, sensorDataList));
+    }
+
+    /**
+     * Oznaka jedinice iz tekućeg snimka unit_mappings (sačuvana oznaka tipa ako jedinica nije mapirana)
+     * i konverzija u jedinicu iz unit= parametra
+     */
+    private UnitView unitView(MeasurementType measurementType, UnitTargets units) {
+        return UnitView.of(measurementType.getUnit(), measurementType.getUnitLabel(), units, unitMappingService.current());
+    }
+
+    /**
+     * Pretvara merenja jednog tipa u MeasurementData (bez pristupa bazi). Konverzija jedinice se primenjuje
+     * u istoj petlji, nad primitivnom vrednošću, bez dodatnih objekata po tački.
+     */
+    static SensorDataResponse.MeasurementData toMeasurementData(
+            MeasurementType measurementType,
+            UnitView unitView,
+            List<SensorData> sensorDataList) {
 
         // Sortiraj od najnovijeg ka najstarijem
         sensorDataList.sort(Comparator.comparing(SensorData::getTimestamp).reversed());
 
         // Konvertuj SensorData u ValueData
-        List<SensorDataResponse.ValueData> valueDataList = sensorDataList.stream()
-                .map(data -> SensorDataResponse.ValueData.builder()
-                        .time(data.getTimestamp())
-                        .value(data.getValue())
-                        .build())
-                .collect(Collectors.toList());
+        List<SensorDataResponse.ValueData> valueDataList = new ArrayList<>(sensorDataList.size());
+        for (SensorData data : sensorDataList) {
+            valueDataList.add(new SensorDataResponse.ValueData(data.getTimestamp(), unitView.apply(data.getValue())));
+        }
 
         // Kreiraj MeasurementData
-        SensorDataResponse.MeasurementData measurementData = SensorDataResponse.MeasurementData.builder()
+        return SensorDataResponse.MeasurementData.builder()
                 .property(measurementType.getDisplayName())
-                .unit(measurementType.getUnitLabel() != null ?
-                        measurementType.getUnitLabel() : "")
+                .unit(unitView.label())
                 .orderNumber(measurementType.getOrderNumber())
                 .values(valueDataList)
                 .build();
-
-        return Optional.of(measurementData);
     }
 
     /**
@@ -89,7 +122,8 @@ public class SensorQueryService {
      */
     private Optional<SensorDataResponse.MeasurementData> createLatestMeasurementData(
             String measurementTypeId,
-            List<SensorData> sensorDataList) {
+            List<SensorData> sensorDataList,
+            UnitTargets units) {
 
         if (sensorDataList.isEmpty()) {
             return Optional.empty();
@@ -104,21 +138,21 @@ public class SensorQueryService {
         // Uzmi najnoviji (prvi u listi koja je već sortirana po timestamp desc)
         SensorData latestData = sensorDataList.get(0);
 
+        MeasurementType measurementType = measurementTypeOpt.get();
+        UnitView unitView = unitView(measurementType, units);
+
         // Kreiraj listu sa samo jednim merenjem
         List<SensorDataResponse.ValueData> valueDataList = Collections.singletonList(
                 SensorDataResponse.ValueData.builder()
                         .time(latestData.getTimestamp())
-                        .value(latestData.getValue())
+                        .value(unitView.apply(latestData.getValue()))
                         .build()
         );
 
-        MeasurementType measurementType = measurementTypeOpt.get();
-
         // Kreiraj MeasurementData
         SensorDataResponse.MeasurementData measurementData = SensorDataResponse.MeasurementData.builder()
                 .property(measurementType.getDisplayName())
-                .unit(measurementType.getUnitLabel() != null ?
-                        measurementType.getUnitLabel() : "")
+                .unit(unitView.label())
                 .orderNumber(measurementType.getOrderNumber())
                 .values(valueDataList)
                 .build();
@@ -165,11 +199,67 @@ public class SensorQueryService {
         }
     }
 
+    /**
+     * Serije sa deadband-om čuvaju samo tačke promene, pa se u periodu dopunjuju do stepenaste serije:
+     * nivo sa početka perioda (poslednja upisana vrednost pre from) i isti nivo do poslednje primljene vrednosti
+     * (last_observed, najviše do to). Senzor bez deadband serija ne izvršava dodatne upite.
+     */
+    private void addDeadbandSteps(String sensorId, Map<String, List<SensorData>> groupedByType, Instant from, Instant to) {
+        Map<String, DeadbandPolicy> policies = deadbandService.policies(sensorId);
+        if (policies.isEmpty()) {
+            return;
+        }
+        Map<String, Instant> lastObserved = lastObserved(sensorId);
+        for (String measurementTypeId : policies.keySet()) {
+            List<SensorData> values = groupedByType.computeIfAbsent(measurementTypeId, type -> new ArrayList<>());
+            Optional<SensorData> first = values.stream().min(Comparator.comparing(SensorData::getTimestamp));
+            if (first.isEmpty() || first.get().getTimestamp().isAfter(from)) {
+                sensorDataStore.findLatestBefore(sensorId, measurementTypeId, from)
+                        .ifPresent(level -> values.add(stepAt(level, from)));
+            }
+            Optional<SensorData> last = values.stream().max(Comparator.comparing(SensorData::getTimestamp));
+            Instant observed = lastObserved.get(measurementTypeId);
+            if (last.isPresent() && observed != null) {
+                Instant end = observed.isBefore(to) ? observed : to;
+                if (end.isAfter(last.get().getTimestamp())) {
+                    values.add(stepAt(last.get(), end));
+                }
+            }
+            if (values.isEmpty()) {
+                groupedByType.remove(measurementTypeId);
+            }
+        }
+    }
+
+    private Map<String, Instant> lastObserved(String sensorId) {
+        Map<String, Instant> lastObserved = new HashMap<>();
+        for (SensorMeasurementType series : sensorMeasurementTypeRepository.findBySensorId(sensorId)) {
+            if (series.getLastObserved() != null) {
+                lastObserved.put(series.getMeasurementType(), series.getLastObserved());
+            }
+        }
+        return lastObserved;
+    }
+
+    /**
+     * Isti nivo u drugom trenutku (kopija, entitet iz persistence context-a se ne menja)
+     */
+    private static SensorData stepAt(SensorData level, Instant time) {
+        return SensorData.builder()
+                .sensorId(level.getSensorId())
+                .measurementType(level.getMeasurementType())
+                .value(level.getValue())
+                .unit(level.getUnit())
+                .timestamp(time)
+                .location(level.getLocation())
+                .build();
+    }
+
     /**
      * Dobija lokaciju iz najnovijeg podatka senzora
      */
     private String getSensorLocation(String sensorId) {
-        return sensorDataRepository
+        return sensorDataStore
                 .findTopBySensorIdOrderByTimestampDesc(sensorId)
                 .map(SensorData::getLocation)
                 .orElse("Unknown Location");
@@ -185,34 +275,40 @@ public class SensorQueryService {
             Integer days,
             Integer count,
             String from,
-            String to) {
+            String to,
+            UnitTargets units) {
 
         // Ako je definisan count - poslednjih N vrijednosti po tipu
         if (count != null) {
-            return getLatestNValues(sensorId, count);
+            return getLatestNValues(sensorId, count, units);
         }
 
         // Ako je definisan date range
         if (from != null && to != null) {
-            return getSensorDataByDateRange(sensorId, from, to);
+            return getSensorDataByDateRange(sensorId, from, to, units);
         }
 
         // Ako je definisan days ili default (7 dana)
         int daysToUse = (days != null) ? days : 7;
-        return getSensorData(sensorId, daysToUse);
+        return getSensorData(sensorId, daysToUse, units);
     }
 
     /**
      * Metoda za sva merenja u periodu (po danima)
      */
-    public SensorDataResponse getSensorData(String sensorId, Integer days) {
+    public SensorDataResponse getSensorData(String sensorId, Integer days, UnitTargets units) {
+        long start = System.nanoTime();
+        QueryEvent queryEvent = QueryEvent.start();
+
         // Odredi početni datum
         LocalDateTime startDate = (days != null) ?
                 LocalDateTime.now(ZoneId.of("Europe/Belgrade")).minusDays(days) :
                 LocalDateTime.now(ZoneId.of("Europe/Belgrade")).minusDays(7);
 
         // Dobij sva merenja za senzor
-        List<SensorData> allData = sensorDataRepository.findBySensorIdOrderByTimestampDesc(sensorId);
+        long fetchStart = System.nanoTime();
+        List<SensorData> allData = sensorDataStore.findBySensorIdOrderByTimestampDesc(sensorId);
+        queryEvent.fetched(fetchStart, allData.size());
 
         // Filtriraj po datumu
         List<SensorData> filteredData = allData.stream()
@@ -223,6 +319,7 @@ public class SensorQueryService {
         // Grupiši po tipu merenja
         Map<String, List<SensorData>> groupedByType = filteredData.stream()
                 .collect(Collectors.groupingBy(SensorData::getMeasurementType));
+        addDeadbandSteps(sensorId, groupedByType, startDate.atZone(ZoneId.of("Europe/Belgrade")).toInstant(), Instant.now());
 
         List<SensorDataResponse.MeasurementData> measurementDataList = new ArrayList<>();
 
@@ -230,7 +327,7 @@ public class SensorQueryService {
             String measurementTypeId = entry.getKey();
             List<SensorData> dataList = entry.getValue();
 
-            createMeasurementData(measurementTypeId, dataList)
+            createMeasurementData(measurementTypeId, dataList, units)
                     .ifPresent(measurementDataList::add);
         }
 
@@ -240,13 +337,17 @@ public class SensorQueryService {
                 Optional.of(filteredData.get(0).getLocation());
 
         // Kreiraj i vrati response
-        return buildSensorDataResponse(sensorId, measurementDataList, location);
+        return queryEvent.finish(QueryMode.DAYS, sensorId, metrics.recordQuery(QueryMode.DAYS, start,
+                buildSensorDataResponse(sensorId, measurementDataList, location)));
     }
 
     /**
      * Metoda za podatke po datumu
      */
-    public SensorDataResponse getSensorDataByDateRange(String sensorId, String from, String to) {
+    public SensorDataResponse getSensorDataByDateRange(String sensorId, String from, String to, UnitTargets units) {
+        long start = System.nanoTime();
+        QueryEvent queryEvent = QueryEvent.start();
+
         // Parsiraj datume
         Instant fromInstant = parseIsoTimestamp(from);
         Instant toInstant = parseIsoTimestamp(to);
@@ -260,12 +361,15 @@ public class SensorQueryService {
         }
 
         // Dobij podatke za period
-        List<SensorData> filteredData = sensorDataRepository
+        long fetchStart = System.nanoTime();
+        List<SensorData> filteredData = sensorDataStore
                 .findBySensorIdAndTimestampBetweenOrderByTimestampDesc(sensorId, fromInstant, toInstant);
+        queryEvent.fetched(fetchStart, filteredData.size());
 
         // Grupiši po tipu merenja
         Map<String, List<SensorData>> groupedByType = filteredData.stream()
                 .collect(Collectors.groupingBy(SensorData::getMeasurementType));
+        addDeadbandSteps(sensorId, groupedByType, fromInstant, toInstant);
 
         List<SensorDataResponse.MeasurementData> measurementDataList = new ArrayList<>();
 
@@ -273,7 +377,7 @@ public class SensorQueryService {
             String measurementTypeId = entry.getKey();
             List<SensorData> dataList = entry.getValue();
 
-            createMeasurementData(measurementTypeId, dataList)
+            createMeasurementData(measurementTypeId, dataList, units)
                     .ifPresent(measurementDataList::add);
         }
 
@@ -283,20 +387,39 @@ public class SensorQueryService {
                 Optional.of(filteredData.get(0).getLocation());
 
         // Kreiraj i vrati response
-        return buildSensorDataResponse(sensorId, measurementDataList, location);
+        return queryEvent.finish(QueryMode.RANGE, sensorId, metrics.recordQuery(QueryMode.RANGE, start,
+                buildSensorDataResponse(sensorId, measurementDataList, location)));
     }
 
     /**
      * Metoda za samo poslednja merenja (jedno po tipu)
      */
-    public SensorDataResponse getLatestSensorData(String sensorId) {
+    public SensorDataResponse getLatestSensorData(String sensorId, UnitTargets units) {
+        long start = System.nanoTime();
+        QueryEvent queryEvent = QueryEvent.start();
+
         // Dobij poslednja merenja za svaki tip
-        List<SensorData> latestMeasurements = sensorDataRepository.findLatestMeasurements(sensorId);
+        long fetchStart = System.nanoTime();
+        List<SensorData> latestMeasurements = sensorDataStore.findLatestMeasurements(sensorId);
+        queryEvent.fetched(fetchStart, latestMeasurements.size());
 
         if (latestMeasurements.isEmpty()) {
             throw new RuntimeException("No data found for sensor: " + sensorId);
         }
 
+        // deadband serija: poslednji upisani nivo važi do poslednje primljene vrednosti
+        Map<String, DeadbandPolicy> policies = deadbandService.policies(sensorId);
+        if (!policies.isEmpty()) {
+            Map<String, Instant> lastObserved = lastObserved(sensorId);
+            latestMeasurements = latestMeasurements.stream()
+                    .map(data -> {
+                        Instant observed = lastObserved.get(data.getMeasurementType());
+                        return policies.containsKey(data.getMeasurementType()) && observed != null
+                                && observed.isAfter(data.getTimestamp()) ? stepAt(data, observed) : data;
+                    })
+                    .toList();
+        }
+
         // Grupiši po tipu merenja
         Map<String, List<SensorData>> groupedByType = latestMeasurements.stream()
                 .collect(Collectors.groupingBy(SensorData::getMeasurementType));
@@ -307,7 +430,7 @@ public class SensorQueryService {
             String measurementTypeId = entry.getKey();
             List<SensorData> dataList = entry.getValue();
 
-            createLatestMeasurementData(measurementTypeId, dataList)
+            createLatestMeasurementData(measurementTypeId, dataList, units)
                     .ifPresent(measurementDataList::add);
         }
 
@@ -315,13 +438,17 @@ public class SensorQueryService {
         Optional<String> location = Optional.of(latestMeasurements.get(0).getLocation());
 
         // Kreiraj i vrati response
-        return buildSensorDataResponse(sensorId, measurementDataList, location);
+        return queryEvent.finish(QueryMode.LATEST, sensorId, metrics.recordQuery(QueryMode.LATEST, start,
+                buildSensorDataResponse(sensorId, measurementDataList, location)));
     }
 
     /**
      * Metoda za poslednjih N vrednosti po tipu merenja
      */
-    public SensorDataResponse getLatestNValues(String sensorId, Integer count) {
+    public SensorDataResponse getLatestNValues(String sensorId, Integer count, UnitTargets units) {
+        long start = System.nanoTime();
+        QueryEvent queryEvent = QueryEvent.start();
+
         if (count == null || count <= 0) {
             count = 10; // Default vrednost
         }
@@ -332,7 +459,7 @@ public class SensorQueryService {
         }
 
         // 1. Pronađi sve tipove merenja koje ovaj senzor ima
-        List<String> measurementTypeIds = sensorDataRepository
+        List<String> measurementTypeIds = sensorDataStore
                 .findDistinctMeasurementTypesBySensorId(sensorId);
 
         if (measurementTypeIds.isEmpty()) {
@@ -340,6 +467,8 @@ public class SensorQueryService {
         }
 
         List<SensorDataResponse.MeasurementData> measurementDataList = new ArrayList<>();
+        Map<String, DeadbandPolicy> policies = deadbandService.policies(sensorId);
+        Map<String, Instant> lastObserved = policies.isEmpty() ? Map.of() : lastObserved(sensorId);
 
         // 2. Za svaki tip merenja, uzmi poslednjih N vrijednosti
         for (String measurementTypeId : measurementTypeIds) {
@@ -348,11 +477,25 @@ public class SensorQueryService {
 
             if (measurementTypeOpt.isPresent()) {
                 // Uzmi poslednjih N vrijednosti za ovaj tip merenja
-                List<SensorData> dataList = sensorDataRepository
+                long fetchStart = System.nanoTime();
+                List<SensorData> dataList = sensorDataStore
                         .findLatestNBySensorIdAndMeasurementType(sensorId, measurementTypeId, count);
+                queryEvent.fetched(fetchStart, dataList.size());
+
+                // deadband serija: poslednji upisani nivo važi do poslednje primljene vrednosti, koja je
+                // najnovija od N tačaka
+                Instant observed = lastObserved.get(measurementTypeId);
+                if (policies.containsKey(measurementTypeId) && !dataList.isEmpty() && observed != null
+                        && observed.isAfter(dataList.get(0).getTimestamp())) {
+                    dataList = new ArrayList<>(dataList);
+                    dataList.add(0, stepAt(dataList.get(0), observed));
+                    if (dataList.size() > count) {
+                        dataList.remove(dataList.size() - 1);
+                    }
+                }
 
                 if (!dataList.isEmpty()) {
-                    createMeasurementData(measurementTypeId, dataList)
+                    createMeasurementData(measurementTypeId, dataList, units)
                             .ifPresent(measurementDataList::add);
                 }
             }
@@ -362,7 +505,8 @@ public class SensorQueryService {
         String location = getSensorLocation(sensorId);
 
         // 4. Kreiraj response
-        return buildSensorDataResponse(sensorId, measurementDataList, Optional.of(location));
+        return queryEvent.finish(QueryMode.COUNT, sensorId, metrics.recordQuery(QueryMode.COUNT, start,
+                buildSensorDataResponse(sensorId, measurementDataList, Optional.of(location))));
     }
 }
 
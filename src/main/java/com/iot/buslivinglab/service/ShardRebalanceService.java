@@ -0,0 +1,176 @@
+package com.iot.buslivinglab.service;
+
+import com.iot.buslivinglab.config.ShardingProperties;
+import com.iot.buslivinglab.dto.response.ShardingResponse;
+import com.iot.buslivinglab.entity.SensorData;
+import com.iot.buslivinglab.service.SensorDataStore.Placement;
+import com.iot.buslivinglab.shard.Shard;
+import com.iot.buslivinglab.shard.ShardSet;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Pregled shard-ova i online premeštanje istorije jednog senzora na drugi shard.
+ * Rebalans: dodela dobija moving_to (novi upisi idu na cilj, čitanja spajaju oba shard-a), istorija se
+ * kopira u batch-evima, dodela se prebacuje na cilj i tek onda se redovi brišu sa izvornog shard-a.
+ * Između faza se čeka sharding.assignment-cache-ttl-ms da bi sve instance videle novu dodelu.
+ */
+@Service
+@ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class ShardRebalanceService {
+
+    private final SensorDataStore store;
+    private final ShardingProperties properties;
+
+    /**
+     * Broj redova i senzora po shard-u (upit paralelno na svim shard-ovima) i broj dodela iz metapodataka
+     */
+    public ShardingResponse.Overview overview() {
+        ShardSet shards = store.shards();
+        Map<String, long[]> counts = store.scatter(jdbc -> jdbc.queryForObject(
+                "SELECT COUNT(*), COUNT(DISTINCT sensor_id) FROM sensor_data",
+                (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2)}));
+        Map<String, Long> assigned = new HashMap<>();
+        store.primary().query("SELECT shard_name, COUNT(*) FROM sensor_shard_assignment GROUP BY shard_name",
+                rs -> {
+                    assigned.put(rs.getString(1), rs.getLong(2));
+                });
+        Long moving = store.primary().queryForObject(
+                "SELECT COUNT(*) FROM sensor_shard_assignment WHERE moving_to IS NOT NULL", Long.class);
+
+        List<ShardingResponse.ShardStats> stats = shards.getShards().stream()
+                .map(shard -> ShardingResponse.ShardStats.builder()
+                        .name(shard.getName())
+                        .rows(counts.get(shard.getName())[0])
+                        .sensors(counts.get(shard.getName())[1])
+                        .assignedSensors(assigned.getOrDefault(shard.getName(), 0L))
+                        .build())
+                .toList();
+        return ShardingResponse.Overview.builder()
+                .shards(stats)
+                .totalRows(stats.stream().mapToLong(ShardingResponse.ShardStats::getRows).sum())
+                .sensorsMoving(moving != null ? moving : 0)
+                .build();
+    }
+
+    /**
+     * Premešta sva merenja senzora na ciljni shard dok ingest i upiti rade. Prekinut rebalans se nastavlja
+     * ponovnim pozivom sa istim ciljem; već kopirani redovi (isti tip i vreme) se preskaču.
+     *
+     * @throws IllegalArgumentException ako shard ne postoji ili je senzor već na njemu
+     * @throws IllegalStateException    ako je senzor u toku premeštanja na drugi shard
+     */
+    public ShardingResponse.Rebalance rebalance(String sensorId, String targetName) throws InterruptedException {
+        ShardSet shards = store.shards();
+        Shard target = shards.get(targetName);
+        Placement placement = store.placement(sensorId, true);
+        Shard source = placement.home();
+
+        if (placement.movingTo() == null) {
+            if (source == target) {
+                throw new IllegalArgumentException("Sensor " + sensorId + " is already on shard " + targetName);
+            }
+            int marked = store.primary().update("UPDATE sensor_shard_assignment SET moving_to = ? " +
+                    "WHERE sensor_id = ? AND shard_name = ? AND moving_to IS NULL", targetName, sensorId, source.getName());
+            if (marked == 0) {
+                store.evictPlacement(sensorId);
+                throw new IllegalStateException("Assignment of sensor " + sensorId + " changed concurrently");
+            }
+        } else if (placement.movingTo() != target) {
+            throw new IllegalStateException("Sensor " + sensorId + " is already moving to shard "
+                    + placement.movingTo().getName());
+        }
+        store.evictPlacement(sensorId);
+        log.info("Rebalancing sensor {} from shard {} to {}", sensorId, source.getName(), targetName);
+        awaitAssignmentPropagation();
+
+        long started = System.nanoTime();
+        long copied = copy(sensorId, source.getJdbc(), target.getJdbc());
+
+        store.primary().update("UPDATE sensor_shard_assignment SET shard_name = ?, moving_to = NULL, assigned_at = ? " +
+                "WHERE sensor_id = ?", targetName, SensorDataStore.toUtc(Instant.now()), sensorId);
+        store.evictPlacement(sensorId);
+        awaitAssignmentPropagation();
+
+        long deleted = deleteFromSource(sensorId, source.getJdbc());
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+        log.info("Rebalanced sensor {} from shard {} to {}: {} rows copied, {} deleted in {} ms",
+                sensorId, source.getName(), targetName, copied, deleted, elapsedMs);
+
+        return ShardingResponse.Rebalance.builder()
+                .sensorId(sensorId)
+                .fromShard(source.getName())
+                .toShard(targetName)
+                .rowsCopied(copied)
+                .rowsDeleted(deleted)
+                .elapsedMs(elapsedMs)
+                .build();
+    }
+
+    /**
+     * Kopira redove izvornog shard-a po rastućem data_id (keyset); redovi koji već postoje na cilju se preskaču
+     */
+    private long copy(String sensorId, JdbcTemplate source, JdbcTemplate target) {
+        int batchSize = Math.max(1, properties.getRebalanceBatchSize());
+        long lastId = 0;
+        long copied = 0;
+        while (true) {
+            List<SensorData> batch = source.query("SELECT " + SensorDataStore.COLUMNS + " FROM sensor_data " +
+                            "WHERE sensor_id = ? AND data_id > ? ORDER BY data_id LIMIT ?",
+                    SensorDataStore.ROW_MAPPER, sensorId, lastId, batchSize);
+            if (batch.isEmpty()) {
+                return copied;
+            }
+            lastId = batch.get(batch.size() - 1).getDataId();
+
+            Instant from = batch.stream().map(SensorData::getTimestamp).min(Instant::compareTo).orElseThrow();
+            Instant to = batch.stream().map(SensorData::getTimestamp).max(Instant::compareTo).orElseThrow();
+            Set<String> existing = new HashSet<>(target.query("SELECT measurement_type, timestamp FROM sensor_data " +
+                            "WHERE sensor_id = ? AND timestamp BETWEEN ? AND ?",
+                    (rs, rowNum) -> rs.getString(1) + "|" + rs.getObject(2, LocalDateTime.class),
+                    sensorId, SensorDataStore.toUtc(from), SensorDataStore.toUtc(to)));
+
+            List<SensorData> missing = batch.stream()
+                    .filter(data -> !existing.contains(data.getMeasurementType() + "|"
+                            + SensorDataStore.toUtc(data.getTimestamp())))
+                    .toList();
+            if (!missing.isEmpty()) {
+                SensorDataStore.insert(target, missing);
+                copied += missing.size();
+            }
+        }
+    }
+
+    private long deleteFromSource(String sensorId, JdbcTemplate source) {
+        int batchSize = Math.max(1, properties.getRebalanceBatchSize());
+        long deleted = 0;
+        while (true) {
+            List<Long> ids = source.queryForList("SELECT data_id FROM sensor_data WHERE sensor_id = ? " +
+                    "ORDER BY data_id LIMIT ?", Long.class, sensorId, batchSize);
+            if (ids.isEmpty()) {
+                return deleted;
+            }
+            deleted += source.update("DELETE FROM sensor_data WHERE sensor_id = ? AND data_id BETWEEN ? AND ?",
+                    sensorId, ids.get(0), ids.get(ids.size() - 1));
+        }
+    }
+
+    private void awaitAssignmentPropagation() throws InterruptedException {
+        if (properties.getAssignmentCacheTtlMs() > 0) {
+            Thread.sleep(properties.getAssignmentCacheTtlMs());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.iot.buslivinglab.service;
+
+import com.iot.buslivinglab.cache.CoherentCache;
+import com.iot.buslivinglab.repository.UnitMappingRepository;
+import com.iot.buslivinglab.unit.UnitMappingSnapshot;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Drži tekući UnitMappingSnapshot za ingest i upite. Tabela se periodično čita (mala je) i snimak se zamenjuje
+ * samo kada se mapiranja promene; tada se i oznake u measurement_types sinhronizuju jednim UPDATE-om, a ostale
+ * instance preko CacheCoherenceService osvežavaju svoj snimak u roku od cache-coherence.poll-interval-ms.
+ * Čitanje snimka je jedno volatile čitanje, bez lock-a, pa osvežavanje ne zaustavlja ingest.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UnitMappingService implements MeterBinder, CoherentCache {
+
+    public static final String CACHE_NAME = "unit-mappings";
+
+    private final UnitMappingRepository unitMappingRepository;
+    private final UnitSyncService unitSyncService;
+    private final SensorMetadataService metadataService;
+    private final CacheCoherenceService cacheCoherence;
+
+    private volatile UnitMappingSnapshot snapshot = new UnitMappingSnapshot(0, Map.of(), Instant.EPOCH);
+
+    @PostConstruct
+    void loadUnitMappings() {
+        refresh(false);
+    }
+
+    public UnitMappingSnapshot current() {
+        return snapshot;
+    }
+
+    /**
+     * Učitava unit_mappings i objavljuje novu verziju snimka ako se mapiranja razlikuju od tekućih;
+     * promenu javlja i ostalim instancama
+     *
+     * @return broj measurement_types redova čija je oznaka jedinice sinhronizovana (0 ako nema promene)
+     */
+    public int refresh() {
+        return refresh(true);
+    }
+
+    /**
+     * Novi snimak se objavljuje tek kada sinhronizacija i obaveštenje uspeju; ako jedno od njih padne, tekući
+     * snimak ostaje, pa sledeće osvežavanje opet vidi promenu i ponavlja ih
+     */
+    private synchronized int refresh(boolean announce) {
+        Map<String, String> labels = new HashMap<>();
+        unitMappingRepository.findAll().forEach(mapping -> labels.put(mapping.getUnitCode(), mapping.getUnitLabel()));
+
+        UnitMappingSnapshot current = snapshot;
+        if (current.getVersion() > 0 && current.hasSameLabels(labels)) {
+            return 0;
+        }
+        UnitMappingSnapshot next = new UnitMappingSnapshot(current.getVersion() + 1, labels, Instant.now());
+
+        int updated = 0;
+        if (current.getVersion() > 0) {
+            updated = unitSyncService.syncUnitLabels();
+            metadataService.evictMeasurementTypes();
+            log.info("Unit mappings changed, {} measurement types synchronized", updated);
+            if (announce) {
+                cacheCoherence.publish(CACHE_NAME);
+            }
+        }
+        snapshot = next;
+        log.info("Loaded {} unit mappings from database (version {})", next.size(), next.getVersion());
+        return updated;
+    }
+
+    @Override
+    public String getCacheName() {
+        return CACHE_NAME;
+    }
+
+    /**
+     * Druga instanca je promenila mapiranja; ova ih učitava bez ponovnog javljanja
+     */
+    @Override
+    public void invalidate() {
+        refresh(false);
+    }
+
+    @Scheduled(fixedDelayString = "${unit-mappings.refresh-interval-ms:60000}",
+            initialDelayString = "${unit-mappings.refresh-interval-ms:60000}")
+    public void refreshIfChanged() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Unit mapping refresh failed, keeping version {}: {}", snapshot.getVersion(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("buslab.units.snapshot.version", this, service -> service.current().getVersion())
+                .description("Version of the unit mapping snapshot used by ingest and queries")
+                .register(registry);
+        Gauge.builder("buslab.units.mappings", this, service -> service.current().size())
+                .description("Unit mappings in the current snapshot")
+                .register(registry);
+    }
+}
@@ -0,0 +1,35 @@
+package com.iot.buslivinglab.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.Getter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Jedna shard baza sa sensor_data tabelom: njen connection pool i brojači upisa i čitanja
+ */
+@Getter
+public class Shard {
+
+    private final String name;
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate jdbc;
+
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder reads = new LongAdder();
+
+    public Shard(String name, HikariDataSource dataSource) {
+        this.name = name;
+        this.dataSource = dataSource;
+        this.jdbc = new JdbcTemplate(dataSource);
+    }
+
+    public long getWriteCount() {
+        return writes.sum();
+    }
+
+    public long getReadCount() {
+        return reads.sum();
+    }
+}
@@ -0,0 +1,47 @@
+package com.iot.buslivinglab.shard;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash prsten: svaki shard ima virtualNodes tačaka, a ključ pripada prvom shard-u
+ * u smeru kazaljke od svog hash-a. Dodavanje shard-a pomera samo ~1/N ključeva.
+ * Hash je FNV-1a (64 bit) sa mix korakom, isti na svim instancama i JVM-ovima.
+ */
+public class ShardRing {
+
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+
+    public ShardRing(Collection<String> shardNames, int virtualNodes) {
+        if (shardNames.isEmpty()) {
+            throw new IllegalArgumentException("Shard ring needs at least one shard");
+        }
+        for (String name : shardNames) {
+            for (int i = 0; i < Math.max(1, virtualNodes); i++) {
+                ring.put(hash(name + "#" + i), name);
+            }
+        }
+    }
+
+    public String locate(String key) {
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+        return (entry != null ? entry : ring.firstEntry()).getValue();
+    }
+
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        // fmix64 iz MurmurHash3 - FNV-1a sam slabo raspoređuje slične ključeve (sensor-1, sensor-2, ...)
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,55 @@
+package com.iot.buslivinglab.shard;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Skup shard-ova sa hash prstenom koji određuje shard za senzor bez zapamćene dodele
+ */
+public class ShardSet implements AutoCloseable {
+
+    private final Map<String, Shard> shards = new LinkedHashMap<>();
+    private final ShardRing ring;
+
+    public ShardSet(List<Shard> shards, int virtualNodes) {
+        shards.forEach(shard -> {
+            if (this.shards.put(shard.getName(), shard) != null) {
+                throw new IllegalArgumentException("Duplicate shard name: " + shard.getName());
+            }
+        });
+        this.ring = new ShardRing(this.shards.keySet(), virtualNodes);
+    }
+
+    /**
+     * @return shard kome senzor pripada po hash prstenu
+     */
+    public Shard ringOwner(String sensorId) {
+        return shards.get(ring.locate(sensorId));
+    }
+
+    /**
+     * @throws IllegalArgumentException ako shard nije konfigurisan
+     */
+    public Shard get(String name) {
+        Shard shard = shards.get(name);
+        if (shard == null) {
+            throw new IllegalArgumentException("Unknown shard: " + name);
+        }
+        return shard;
+    }
+
+    public boolean contains(String name) {
+        return shards.containsKey(name);
+    }
+
+    public Collection<Shard> getShards() {
+        return shards.values();
+    }
+
+    @Override
+    public void close() {
+        shards.values().forEach(shard -> shard.getDataSource().close());
+    }
+}
@@ -0,0 +1,81 @@
+package com.iot.buslivinglab.shard;
+
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Upisi na shard unutar transakcije na primary-ju: prvi upis na shard otvara konekciju bez auto-commit-a,
+ * vezanu za transakciju. Shard se commit-uje neposredno pre primary-ja (beforeCommit, pa greška obara i
+ * primary), a rollback primary-ja ili izuzetak pre commit-a poništava i upise na shard. Preostaje samo
+ * prozor između commit-a shard-a i primary-ja.
+ */
+public final class ShardTransaction implements TransactionSynchronization {
+
+    private final Shard shard;
+    private final Connection connection;
+    private final JdbcTemplate jdbc;
+
+    private ShardTransaction(Shard shard, Connection connection) {
+        this.shard = shard;
+        this.connection = connection;
+        this.jdbc = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+    }
+
+    /**
+     * JdbcTemplate za upis na shard: u aktivnoj transakciji konekcija te transakcije, inače auto-commit pool shard-a
+     */
+    public static JdbcTemplate writeJdbc(Shard shard) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return shard.getJdbc();
+        }
+        ShardTransaction transaction = (ShardTransaction) TransactionSynchronizationManager.getResource(shard);
+        if (transaction == null) {
+            Connection connection;
+            try {
+                connection = shard.getDataSource().getConnection();
+                connection.setAutoCommit(false);
+            } catch (SQLException e) {
+                throw new CannotGetJdbcConnectionException("Failed to open transaction on shard " + shard.getName(), e);
+            }
+            transaction = new ShardTransaction(shard, connection);
+            TransactionSynchronizationManager.bindResource(shard, transaction);
+            TransactionSynchronizationManager.registerSynchronization(transaction);
+        }
+        return transaction.jdbc;
+    }
+
+    @Override
+    public void beforeCommit(boolean readOnly) {
+        try {
+            connection.commit();
+        } catch (SQLException e) {
+            throw new TransactionSystemException("Commit on shard " + shard.getName() + " failed", e);
+        }
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+        TransactionSynchronizationManager.unbindResourceIfPossible(shard);
+        try {
+            if (status != STATUS_COMMITTED) {
+                connection.rollback();
+            }
+        } catch (SQLException e) {
+            // konekcija se zatvara i pool je odbacuje, a neupisani redovi nisu commit-ovani
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+                connection.close();
+            } catch (SQLException ignored) {
+                // pool zamenjuje neispravnu konekciju
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.iot.buslivinglab.stats;
+
+import java.time.LocalDate;
+
+/**
+ * Broj vrednosti jedne serije za jedan UTC dan, bez ostatka dnevne statistike (sketch se ne čita)
+ *
+ * @param hourCounts zapis HourCounts; null za dan upisan pre satnih brojača
+ */
+public record DailyCoverage(String sensorId, String measurementType, LocalDate day, long sampleCount,
+                            byte[] hourCounts) {
+}
@@ -0,0 +1,58 @@
+package com.iot.buslivinglab.stats;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Broj vrednosti po satu jednog UTC dana. Zapis je 24 varint brojača (najčešće 24-48 bajtova), pa dan jednog
+ * tipa merenja čuva satnu pokrivenost pored dnevne statistike. Nije thread-safe; vlasnik sinhronizuje pristup.
+ */
+public final class HourCounts {
+
+    public static final int HOURS = 24;
+
+    private final long[] counts = new long[HOURS];
+
+    public void add(int hour) {
+        counts[hour]++;
+    }
+
+    public void merge(HourCounts other) {
+        for (int hour = 0; hour < HOURS; hour++) {
+            counts[hour] += other.counts[hour];
+        }
+    }
+
+    public HourCounts copy() {
+        HourCounts copy = new HourCounts();
+        copy.merge(this);
+        return copy;
+    }
+
+    public long get(int hour) {
+        return counts[hour];
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(HOURS);
+        for (long count : counts) {
+            QuantileSketch.writeVarLong(out, count);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @param bytes sačuvani zapis; null (dan upisan pre satnih brojača) daje nule
+     */
+    public static HourCounts fromBytes(byte[] bytes) {
+        HourCounts hours = new HourCounts();
+        if (bytes == null || bytes.length == 0) {
+            return hours;
+        }
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        for (int hour = 0; hour < HOURS; hour++) {
+            hours.counts[hour] = QuantileSketch.readVarLong(in);
+        }
+        return hours;
+    }
+}
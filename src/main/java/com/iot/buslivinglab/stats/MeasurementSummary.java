@@ -0,0 +1,119 @@
+package com.iot.buslivinglab.stats;
+
+/**
+ * Spojiva statistika niza vrednosti: broj, srednja vrednost i suma kvadrata odstupanja (Welford),
+ * minimum, maksimum i sketch kvantila. Dve statistike se spajaju formulom Chan i sar., bez ponovnog
+ * prolaska kroz vrednosti, pa se period računa spajanjem dnevnih statistika.
+ * Nije thread-safe; vlasnik sinhronizuje pristup.
+ */
+public final class MeasurementSummary {
+
+    private long count;
+    private double mean;
+    private double m2;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private final QuantileSketch sketch;
+
+    public MeasurementSummary() {
+        this.sketch = new QuantileSketch();
+    }
+
+    private MeasurementSummary(long count, double mean, double m2, double min, double max, QuantileSketch sketch) {
+        this.count = count;
+        this.mean = mean;
+        this.m2 = m2;
+        this.min = min;
+        this.max = max;
+        this.sketch = sketch;
+    }
+
+    /**
+     * Vraća statistiku iz sačuvanih kolona; prazan red (count = 0) daje praznu statistiku
+     */
+    public static MeasurementSummary of(long count, double mean, double m2, Double min, Double max, byte[] sketch) {
+        if (count == 0) {
+            return new MeasurementSummary();
+        }
+        return new MeasurementSummary(count, mean, m2, min, max, QuantileSketch.fromBytes(sketch));
+    }
+
+    public void add(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return;
+        }
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        sketch.add(value);
+    }
+
+    public void merge(MeasurementSummary other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            mean = other.mean;
+            m2 = other.m2;
+        } else {
+            long total = count + other.count;
+            double delta = other.mean - mean;
+            mean += delta * other.count / total;
+            m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+        }
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        sketch.merge(other.sketch);
+    }
+
+    public MeasurementSummary copy() {
+        MeasurementSummary copy = new MeasurementSummary();
+        copy.merge(this);
+        return copy;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getM2() {
+        return m2;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * Uzoračka standardna devijacija (n - 1); 0 za manje od dve vrednosti
+     */
+    public double getStddev() {
+        return count < 2 ? 0 : Math.sqrt(m2 / (count - 1));
+    }
+
+    /**
+     * Procena kvantila ograničena na stvarni [min, max]
+     */
+    public double quantile(double q) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        return Math.max(min, Math.min(max, sketch.quantile(q)));
+    }
+
+    public byte[] sketchBytes() {
+        return sketch.toBytes();
+    }
+}
@@ -0,0 +1,236 @@
+package com.iot.buslivinglab.stats;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Sketch kvantila sa relativnom greškom (po principu DDSketch-a): vrednost v ulazi u logaritamski bucket
+ * indeksa ceil(log_γ |v|), γ = (1 + α) / (1 - α), pa je procena svakog kvantila unutar ±α od stvarne vrednosti.
+ * Spajanje dva sketch-a je sabiranje brojača po bucket-u, tačno i nezavisno od redosleda, pa dnevni sketch-evi
+ * daju isti rezultat kao jedan sketch nad svim vrednostima perioda.
+ */
+public final class QuantileSketch {
+
+    public static final double RELATIVE_ACCURACY = 0.01;
+    static final int MAX_BUCKETS = 1024;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    // manje apsolutne vrednosti se broje kao nula
+    private static final double MIN_INDEXABLE = 1e-9;
+    private static final byte FORMAT_VERSION = 1;
+
+    private final Store positive = new Store();
+    private final Store negative = new Store();
+    private long zeroCount;
+
+    public void add(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return;
+        }
+        if (value > MIN_INDEXABLE) {
+            positive.add(index(value), 1);
+        } else if (value < -MIN_INDEXABLE) {
+            negative.add(index(-value), 1);
+        } else {
+            zeroCount++;
+        }
+    }
+
+    public void merge(QuantileSketch other) {
+        positive.merge(other.positive);
+        negative.merge(other.negative);
+        zeroCount += other.zeroCount;
+    }
+
+    public long count() {
+        return positive.total + negative.total + zeroCount;
+    }
+
+    /**
+     * @param q kvantil između 0 i 1
+     * @return procena kvantila; NaN za prazan sketch
+     */
+    public double quantile(double q) {
+        long count = count();
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) Math.floor(Math.max(0, Math.min(1, q)) * (count - 1));
+
+        // redosled vrednosti: negativne od najveće apsolutne, nula, pozitivne od najmanje
+        long seen = 0;
+        if (negative.total > 0) {
+            for (int index = negative.maxIndex; index >= negative.minIndex; index--) {
+                seen += negative.get(index);
+                if (seen > rank) {
+                    return -value(index);
+                }
+            }
+        }
+        seen += zeroCount;
+        if (seen > rank) {
+            return 0;
+        }
+        for (int index = positive.minIndex; index <= positive.maxIndex; index++) {
+            seen += positive.get(index);
+            if (seen > rank) {
+                return value(index);
+            }
+        }
+        return value(positive.maxIndex);
+    }
+
+    /**
+     * Zapis: verzija, broj nula, pa za svaku stranu broj nepraznih bucket-a i parovi (razlika indeksa, brojač).
+     * Dan jednog tipa merenja obično staje u nekoliko desetina bajtova.
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        out.write(FORMAT_VERSION);
+        writeVarLong(out, zeroCount);
+        positive.write(out);
+        negative.write(out);
+        return out.toByteArray();
+    }
+
+    public static QuantileSketch fromBytes(byte[] bytes) {
+        QuantileSketch sketch = new QuantileSketch();
+        if (bytes == null || bytes.length == 0) {
+            return sketch;
+        }
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        byte version = in.get();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported quantile sketch format: " + version);
+        }
+        sketch.zeroCount = readVarLong(in);
+        sketch.positive.read(in);
+        sketch.negative.read(in);
+        return sketch;
+    }
+
+    private static int index(double magnitude) {
+        return (int) Math.ceil(Math.log(magnitude) / LOG_GAMMA);
+    }
+
+    /**
+     * Vrednost sa najmanjom relativnom greškom za bucket (γ^(i-1), γ^i]
+     */
+    private static double value(int index) {
+        return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+    }
+
+    /**
+     * Brojači uzastopnih bucket-a u jednom nizu. Kada raspon pređe MAX_BUCKETS, najniži bucket-i
+     * (vrednosti najbliže nuli) se spajaju, pa greška raste samo za njih.
+     */
+    private static final class Store {
+
+        private long[] counts;
+        private int offset;
+        private int minIndex;
+        private int maxIndex;
+        private long total;
+
+        void add(int index, long count) {
+            if (count == 0) {
+                return;
+            }
+            int low = total == 0 ? index : Math.min(index, minIndex);
+            int high = total == 0 ? index : Math.max(index, maxIndex);
+            if (high - low + 1 > MAX_BUCKETS) {
+                low = high - MAX_BUCKETS + 1;
+            }
+            if (counts == null || low < offset || high >= offset + counts.length) {
+                resize(low, high);
+            }
+            int target = Math.max(index, low);
+            counts[target - offset] += count;
+            minIndex = total == 0 ? target : Math.max(Math.min(minIndex, target), low);
+            maxIndex = total == 0 ? target : Math.max(maxIndex, target);
+            total += count;
+        }
+
+        long get(int index) {
+            return counts == null || index < offset || index >= offset + counts.length ? 0 : counts[index - offset];
+        }
+
+        void merge(Store other) {
+            if (other.total == 0) {
+                return;
+            }
+            for (int index = other.minIndex; index <= other.maxIndex; index++) {
+                add(index, other.get(index));
+            }
+        }
+
+        /**
+         * Novi niz pokriva [low, high] sa rezervom; stari bucket-i ispod low se spajaju u low
+         */
+        private void resize(int low, int high) {
+            int span = high - low + 1;
+            int length = Math.min(MAX_BUCKETS, Math.max(16, span + span / 2));
+            int newOffset = low - (length - span) / 2;
+            long[] resized = new long[length];
+            if (counts != null && total > 0) {
+                for (int index = minIndex; index <= maxIndex; index++) {
+                    resized[Math.max(index, low) - newOffset] += get(index);
+                }
+            }
+            counts = resized;
+            offset = newOffset;
+        }
+
+        void write(ByteArrayOutputStream out) {
+            int buckets = 0;
+            for (int index = minIndex; total > 0 && index <= maxIndex; index++) {
+                if (get(index) > 0) {
+                    buckets++;
+                }
+            }
+            writeVarLong(out, buckets);
+            int previous = 0;
+            for (int index = minIndex; total > 0 && index <= maxIndex; index++) {
+                long count = get(index);
+                if (count > 0) {
+                    // prvi indeks može biti negativan (vrednosti manje od 1), zato zigzag
+                    long delta = index - previous;
+                    writeVarLong(out, (delta << 1) ^ (delta >> 63));
+                    writeVarLong(out, count);
+                    previous = index;
+                }
+            }
+        }
+
+        void read(ByteBuffer in) {
+            long buckets = readVarLong(in);
+            int index = 0;
+            for (long i = 0; i < buckets; i++) {
+                long zigzag = readVarLong(in);
+                index += (int) ((zigzag >>> 1) ^ -(zigzag & 1));
+                add(index, readVarLong(in));
+            }
+        }
+    }
+
+    static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed quantile sketch");
+    }
+}
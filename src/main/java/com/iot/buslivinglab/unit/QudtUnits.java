@@ -0,0 +1,157 @@
+package com.iot.buslivinglab.unit;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.*;
+
+/**
+ * Registar QUDT jedinica sa faktorima prema osnovnoj (SI) jedinici dimenzije: si = vrednost * scale + offset.
+ * Konverzije između svih parova iste dimenzije se računaju jednom, pri učitavanju klase, u decimalnoj aritmetici
+ * (npr. °C → °F daje tačno 1.8 i 32), pa upit samo uzme gotov par i primeni ga na vrednosti.
+ */
+public final class QudtUnits {
+
+    public static final String PREFIX = "unit:";
+
+    public enum Dimension {
+        TEMPERATURE, RATIO, CONDUCTIVITY, PRESSURE, LENGTH, SPEED, DENSITY, IRRADIANCE, VOLTAGE, ANGLE, TIME
+    }
+
+    /**
+     * @param code   QUDT šifra sa prefiksom (npr. unit:DEG_F)
+     * @param symbol oznaka kada jedinica nema red u unit_mappings
+     */
+    public record QudtUnit(String code, Dimension dimension, String symbol) {
+    }
+
+    private record Factors(QudtUnit unit, BigDecimal scale, BigDecimal offset) {
+    }
+
+    private static final MathContext PRECISION = MathContext.DECIMAL128;
+    private static final BigDecimal FIVE_NINTHS = new BigDecimal(5).divide(new BigDecimal(9), PRECISION);
+
+    private static final Map<String, QudtUnit> UNITS;
+    private static final Map<String, Map<String, UnitConversion>> CONVERSIONS;
+
+    static {
+        List<Factors> factors = List.of(
+                factors("K", Dimension.TEMPERATURE, "1", "0", "K"),
+                new Factors(new QudtUnit(PREFIX + "DEG_C", Dimension.TEMPERATURE, "°C"),
+                        BigDecimal.ONE, new BigDecimal("273.15")),
+                new Factors(new QudtUnit(PREFIX + "DEG_F", Dimension.TEMPERATURE, "°F"),
+                        FIVE_NINTHS, new BigDecimal("459.67").multiply(FIVE_NINTHS, PRECISION)),
+
+                factors("UNITLESS", Dimension.RATIO, "1", "0", ""),
+                factors("FRACTION", Dimension.RATIO, "1", "0", ""),
+                factors("M3-PER-M3", Dimension.RATIO, "1", "0", "m³/m³"),
+                factors("PERCENT", Dimension.RATIO, "0.01", "0", "%"),
+                factors("PERMITTIVITY_REL", Dimension.RATIO, "1", "0", ""),
+                factors("PPTH", Dimension.RATIO, "0.001", "0", "‰"),
+                factors("PPM", Dimension.RATIO, "0.000001", "0", "ppm"),
+                factors("PPB", Dimension.RATIO, "0.000000001", "0", "ppb"),
+                factors("MilliGM-PER-KiloGM", Dimension.RATIO, "0.000001", "0", "mg/kg"),
+                factors("GM-PER-KiloGM", Dimension.RATIO, "0.001", "0", "g/kg"),
+
+                factors("S-PER-M", Dimension.CONDUCTIVITY, "1", "0", "S/m"),
+                factors("DeciS-PER-M", Dimension.CONDUCTIVITY, "0.1", "0", "dS/m"),
+                factors("MilliS-PER-M", Dimension.CONDUCTIVITY, "0.001", "0", "mS/m"),
+                factors("MicroS-PER-M", Dimension.CONDUCTIVITY, "0.000001", "0", "µS/m"),
+                factors("MilliS-PER-CentiM", Dimension.CONDUCTIVITY, "0.1", "0", "mS/cm"),
+                factors("MicroS-PER-CentiM", Dimension.CONDUCTIVITY, "0.0001", "0", "µS/cm"),
+
+                factors("PA", Dimension.PRESSURE, "1", "0", "Pa"),
+                factors("HectoPA", Dimension.PRESSURE, "100", "0", "hPa"),
+                factors("KiloPA", Dimension.PRESSURE, "1000", "0", "kPa"),
+                factors("MilliBAR", Dimension.PRESSURE, "100", "0", "mbar"),
+                factors("BAR", Dimension.PRESSURE, "100000", "0", "bar"),
+                factors("ATM", Dimension.PRESSURE, "101325", "0", "atm"),
+                factors("PSI", Dimension.PRESSURE, "6894.757293168361", "0", "psi"),
+                factors("MilliM_HG", Dimension.PRESSURE, "133.322387415", "0", "mmHg"),
+
+                factors("M", Dimension.LENGTH, "1", "0", "m"),
+                factors("CentiM", Dimension.LENGTH, "0.01", "0", "cm"),
+                factors("MilliM", Dimension.LENGTH, "0.001", "0", "mm"),
+                factors("KiloM", Dimension.LENGTH, "1000", "0", "km"),
+                factors("IN", Dimension.LENGTH, "0.0254", "0", "in"),
+                factors("FT", Dimension.LENGTH, "0.3048", "0", "ft"),
+
+                factors("M-PER-SEC", Dimension.SPEED, "1", "0", "m/s"),
+                new Factors(new QudtUnit(PREFIX + "KiloM-PER-HR", Dimension.SPEED, "km/h"),
+                        new BigDecimal(1000).divide(new BigDecimal(3600), PRECISION), BigDecimal.ZERO),
+                factors("MI-PER-HR", Dimension.SPEED, "0.44704", "0", "mph"),
+                new Factors(new QudtUnit(PREFIX + "KN", Dimension.SPEED, "kn"),
+                        new BigDecimal(1852).divide(new BigDecimal(3600), PRECISION), BigDecimal.ZERO),
+
+                factors("KiloGM-PER-M3", Dimension.DENSITY, "1", "0", "kg/m³"),
+                factors("GM-PER-M3", Dimension.DENSITY, "0.001", "0", "g/m³"),
+                factors("MilliGM-PER-M3", Dimension.DENSITY, "0.000001", "0", "mg/m³"),
+                factors("MicroGM-PER-M3", Dimension.DENSITY, "0.000000001", "0", "µg/m³"),
+
+                factors("W-PER-M2", Dimension.IRRADIANCE, "1", "0", "W/m²"),
+                factors("KiloW-PER-M2", Dimension.IRRADIANCE, "1000", "0", "kW/m²"),
+
+                factors("V", Dimension.VOLTAGE, "1", "0", "V"),
+                factors("MilliV", Dimension.VOLTAGE, "0.001", "0", "mV"),
+
+                factors("RAD", Dimension.ANGLE, "1", "0", "rad"),
+                factors("DEG", Dimension.ANGLE, "0.01745329251994329576923690768488613", "0", "°"),
+
+                factors("SEC", Dimension.TIME, "1", "0", "s"),
+                factors("MIN", Dimension.TIME, "60", "0", "min"),
+                factors("HR", Dimension.TIME, "3600", "0", "h"),
+                factors("DAY", Dimension.TIME, "86400", "0", "d"));
+
+        Map<String, QudtUnit> units = new HashMap<>();
+        Map<String, Map<String, UnitConversion>> conversions = new HashMap<>();
+        for (Factors from : factors) {
+            units.put(from.unit().code(), from.unit());
+            Map<String, UnitConversion> targets = new HashMap<>();
+            for (Factors to : factors) {
+                if (to.unit().dimension() == from.unit().dimension()) {
+                    targets.put(to.unit().code(), conversion(from, to));
+                }
+            }
+            conversions.put(from.unit().code(), Map.copyOf(targets));
+        }
+        UNITS = Map.copyOf(units);
+        CONVERSIONS = Map.copyOf(conversions);
+    }
+
+    private QudtUnits() {
+    }
+
+    private static Factors factors(String code, Dimension dimension, String scale, String offset, String symbol) {
+        return new Factors(new QudtUnit(PREFIX + code, dimension, symbol), new BigDecimal(scale), new BigDecimal(offset));
+    }
+
+    /**
+     * y = ((x * s1 + o1) - o2) / s2 = x * (s1 / s2) + (o1 - o2) / s2
+     */
+    private static UnitConversion conversion(Factors from, Factors to) {
+        if (from == to) {
+            return UnitConversion.IDENTITY;
+        }
+        BigDecimal scale = from.scale().divide(to.scale(), PRECISION);
+        BigDecimal offset = from.offset().subtract(to.offset()).divide(to.scale(), PRECISION);
+        return new UnitConversion(scale.doubleValue(), offset.doubleValue());
+    }
+
+    /**
+     * Prihvata šifru sa ili bez prefiksa (DEG_F i unit:DEG_F)
+     */
+    public static Optional<QudtUnit> find(String code) {
+        if (code == null || code.isBlank()) {
+            return Optional.empty();
+        }
+        String trimmed = code.trim();
+        return Optional.ofNullable(UNITS.get(trimmed.startsWith(PREFIX) ? trimmed : PREFIX + trimmed));
+    }
+
+    /**
+     * @return konverzija iz jedne jedinice u drugu; null ako neka nije poznata ili su različitih dimenzija
+     */
+    public static UnitConversion conversion(String fromCode, String toCode) {
+        Map<String, UnitConversion> targets = CONVERSIONS.get(fromCode);
+        return targets != null ? targets.get(toCode) : null;
+    }
+}
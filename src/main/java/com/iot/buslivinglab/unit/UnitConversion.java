@@ -0,0 +1,17 @@
+package com.iot.buslivinglab.unit;
+
+/**
+ * Linearna konverzija između dve jedinice iste dimenzije: y = x * scale + offset
+ */
+public record UnitConversion(double scale, double offset) {
+
+    public static final UnitConversion IDENTITY = new UnitConversion(1, 0);
+
+    public double apply(double value) {
+        return value * scale + offset;
+    }
+
+    public boolean isIdentity() {
+        return scale == 1 && offset == 0;
+    }
+}
@@ -0,0 +1,59 @@
+package com.iot.buslivinglab.unit;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Nepromenljiv snimak unit_mappings tabele (šifra jedinice → oznaka). Novi snimak se pravi pri svakoj promeni
+ * tabele i zamenjuje stari jednim upisom reference, pa čitalac uvek vidi ceo stari ili ceo novi skup mapiranja.
+ * Zahtev treba da uzme snimak jednom i koristi ga do kraja, da bi sve oznake u odgovoru bile iz iste verzije.
+ */
+public final class UnitMappingSnapshot {
+
+    private final long version;
+    private final Map<String, String> labels;
+    private final Instant loadedAt;
+
+    public UnitMappingSnapshot(long version, Map<String, String> labels, Instant loadedAt) {
+        this.version = version;
+        this.labels = Map.copyOf(labels);
+        this.loadedAt = loadedAt;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getLoadedAt() {
+        return loadedAt;
+    }
+
+    public int size() {
+        return labels.size();
+    }
+
+    /**
+     * @return oznaka jedinice (npr. °C za unit:DEG_C); prazan string za nepoznatu jedinicu
+     */
+    public String label(String unitCode) {
+        return labels.getOrDefault(unitCode, "");
+    }
+
+    /**
+     * Oznaka iz snimka ima prednost nad oznakom sačuvanom u measurement_types, koja se sinhronizuje naknadno
+     */
+    public String labelOr(String unitCode, String storedLabel) {
+        String label = unitCode != null ? labels.get(unitCode) : null;
+        if (label != null) {
+            return label;
+        }
+        return storedLabel != null ? storedLabel : "";
+    }
+
+    /**
+     * @return true ako snimak sadrži ista mapiranja (bez obzira na verziju)
+     */
+    public boolean hasSameLabels(Map<String, String> other) {
+        return labels.equals(other);
+    }
+}
@@ -0,0 +1,56 @@
+package com.iot.buslivinglab.unit;
+
+import com.iot.buslivinglab.unit.QudtUnits.Dimension;
+import com.iot.buslivinglab.unit.QudtUnits.QudtUnit;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Ciljne jedinice iz unit= parametra upita, najviše jedna po dimenziji (npr. unit=DEG_F,MilliS-PER-M).
+ * Tip merenja čija jedinica nije poznata ili nema cilj iste dimenzije vraća se u sačuvanoj jedinici.
+ */
+public final class UnitTargets {
+
+    public static final UnitTargets NONE = new UnitTargets(new EnumMap<>(Dimension.class));
+
+    private final Map<Dimension, QudtUnit> byDimension;
+
+    private UnitTargets(Map<Dimension, QudtUnit> byDimension) {
+        this.byDimension = byDimension;
+    }
+
+    /**
+     * @throws IllegalArgumentException za nepoznatu jedinicu ili dve jedinice iste dimenzije
+     */
+    public static UnitTargets parse(String param) {
+        if (param == null || param.isBlank()) {
+            return NONE;
+        }
+        Map<Dimension, QudtUnit> byDimension = new EnumMap<>(Dimension.class);
+        for (String code : param.split(",")) {
+            QudtUnit unit = QudtUnits.find(code)
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown unit: " + code.trim()));
+            QudtUnit previous = byDimension.put(unit.dimension(), unit);
+            if (previous != null && !previous.equals(unit)) {
+                throw new IllegalArgumentException("Units " + previous.code() + " and " + unit.code()
+                        + " measure the same quantity, choose one");
+            }
+        }
+        return new UnitTargets(byDimension);
+    }
+
+    public boolean isEmpty() {
+        return byDimension.isEmpty();
+    }
+
+    /**
+     * @return ciljna jedinica za sačuvanu jedinicu ili null ako vrednosti ostaju kakve jesu
+     */
+    public QudtUnit targetFor(String unitCode) {
+        if (byDimension.isEmpty()) {
+            return null;
+        }
+        return QudtUnits.find(unitCode).map(unit -> byDimension.get(unit.dimension())).orElse(null);
+    }
+}
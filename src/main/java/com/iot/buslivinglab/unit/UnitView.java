@@ -0,0 +1,29 @@
+package com.iot.buslivinglab.unit;
+
+import com.iot.buslivinglab.unit.QudtUnits.QudtUnit;
+
+/**
+ * Oznaka jedinice u odgovoru i konverzija vrednosti jednog tipa merenja
+ *
+ * @param conversion null kada vrednosti ostaju u sačuvanoj jedinici
+ */
+public record UnitView(String label, UnitConversion conversion) {
+
+    /**
+     * @param unitCode    sačuvana jedinica tipa merenja
+     * @param storedLabel oznaka iz measurement_types, kada jedinica nije mapirana
+     */
+    public static UnitView of(String unitCode, String storedLabel, UnitTargets units, UnitMappingSnapshot snapshot) {
+        QudtUnit target = units.targetFor(unitCode);
+        if (target == null) {
+            return new UnitView(snapshot.labelOr(unitCode, storedLabel), null);
+        }
+        // targetFor je našao jedinicu, pa je ima i find; konverzija se traži po normalizovanoj šifri (unit:DEG_C)
+        UnitConversion conversion = QudtUnits.conversion(QudtUnits.find(unitCode).get().code(), target.code());
+        return new UnitView(snapshot.labelOr(target.code(), target.symbol()), conversion.isIdentity() ? null : conversion);
+    }
+
+    public Double apply(Double value) {
+        return conversion == null || value == null ? value : conversion.apply(value);
+    }
+}
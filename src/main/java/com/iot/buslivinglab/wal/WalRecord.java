@@ -0,0 +1,11 @@
+package com.iot.buslivinglab.wal;
+
+/**
+ * Jedan zapis iz WAL-a.
+ *
+ * @param sequence     redni broj zapisa (raste bez rupa, i posle restarta)
+ * @param payload      sadržaj zapisa
+ * @param nextPosition pozicija sledećeg zapisa u istom segmentu
+ */
+public record WalRecord(long sequence, byte[] payload, int nextPosition) {
+}
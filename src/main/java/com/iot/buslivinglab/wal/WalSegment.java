@@ -0,0 +1,152 @@
+package com.iot.buslivinglab.wal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Jedan memory-mapped segment WAL-a fiksne veličine.
+ * Format zapisa: [int dužina][int CRC32C][long sequence][payload]. Dužina se upisuje poslednja,
+ * a CRC pokriva sequence i payload, tako da se nedovršen zapis na kraju segmenta (pad procesa)
+ * prepoznaje kao kraj segmenta. Ostatak fajla je popunjen nulama (dužina 0 = kraj).
+ */
+final class WalSegment implements Closeable {
+
+    static final int HEADER_SIZE = 16;
+    static final String SUFFIX = ".wal";
+
+    private final long firstSequence;
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private int writePosition;
+
+    private WalSegment(long firstSequence, Path path, FileChannel channel, MappedByteBuffer buffer) {
+        this.firstSequence = firstSequence;
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Pravi novi segment unapred alociran na zadatu veličinu
+     */
+    static WalSegment create(Path directory, long firstSequence, int size) throws IOException {
+        Path path = directory.resolve(fileName(firstSequence));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        return new WalSegment(firstSequence, path, channel, buffer);
+    }
+
+    /**
+     * Otvara postojeći segment samo za čitanje
+     */
+    static WalSegment openReadOnly(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        return new WalSegment(firstSequence(path), path, channel, buffer);
+    }
+
+    static String fileName(long firstSequence) {
+        return String.format("%020d%s", firstSequence, SUFFIX);
+    }
+
+    static boolean isSegmentFile(Path path) {
+        String name = path.getFileName().toString();
+        return name.endsWith(SUFFIX) && name.length() == 20 + SUFFIX.length();
+    }
+
+    static long firstSequence(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    long getFirstSequence() {
+        return firstSequence;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    boolean hasRoom(int payloadLength) {
+        return writePosition + HEADER_SIZE + payloadLength <= buffer.capacity();
+    }
+
+    /**
+     * Upisuje zapis na kraj segmenta. Poziva se pod lock-om WriteAheadLog-a; koristi samo apsolutne
+     * put metode da bi force() iz flusher thread-a mogao da radi paralelno.
+     */
+    void append(long sequence, byte[] payload) {
+        int position = writePosition;
+        buffer.putLong(position + 8, sequence);
+        buffer.put(position + HEADER_SIZE, payload);
+        buffer.putInt(position + 4, checksum(sequence, payload));
+        buffer.putInt(position, payload.length);
+        writePosition = position + HEADER_SIZE + payload.length;
+    }
+
+    /**
+     * Čita zapis sa date pozicije; null ako tu nema ispravnog zapisa (kraj segmenta ili nedovršen upis)
+     */
+    WalRecord read(int position) {
+        if (position + HEADER_SIZE > buffer.capacity()) {
+            return null;
+        }
+        int length = buffer.getInt(position);
+        if (length <= 0 || position + HEADER_SIZE + length > buffer.capacity()) {
+            return null;
+        }
+        int crc = buffer.getInt(position + 4);
+        long sequence = buffer.getLong(position + 8);
+        byte[] payload = new byte[length];
+        buffer.get(position + HEADER_SIZE, payload);
+        if (crc != checksum(sequence, payload)) {
+            return null;
+        }
+        return new WalRecord(sequence, payload, position + HEADER_SIZE + length);
+    }
+
+    /**
+     * Pozicionira upis iza poslednjeg ispravnog zapisa (za segment otvoren pri oporavku)
+     */
+    long scanToEnd() {
+        long lastSequence = firstSequence - 1;
+        int position = 0;
+        WalRecord record;
+        while ((record = read(position)) != null) {
+            lastSequence = record.sequence();
+            position = record.nextPosition();
+        }
+        writePosition = position;
+        return lastSequence;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    long size() throws IOException {
+        return Files.size(path);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static int checksum(long sequence, byte[] payload) {
+        CRC32C crc = new CRC32C();
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (sequence >>> shift));
+        }
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
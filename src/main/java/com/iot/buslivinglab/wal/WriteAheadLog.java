@@ -0,0 +1,416 @@
+package com.iot.buslivinglab.wal;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Segmentirani append-only log na lokalnom disku.
+ *
+ * append() se vraća tek kada je zapis fsync-ovan. Fsync radi jedan flusher thread za sve
+ * zapise upisane od prethodnog fsync-a (group commit), pa trošak fsync-a deli više zahteva.
+ * Primenjeni zapisi se beleže u checkpoint fajl; segmenti čiji su svi zapisi primenjeni se brišu.
+ */
+@Slf4j
+public class WriteAheadLog implements Closeable {
+
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String CHECKPOINT_TMP_FILE = "checkpoint.tmp";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long groupCommitNanos;
+
+    /**
+     * Prvi sequence segmenta -> fajl, za sve segmente na disku (uključujući aktivni)
+     */
+    private final NavigableMap<Long, Path> segments = new ConcurrentSkipListMap<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushRequested = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+
+    private WalSegment active;
+    private long lastSequence;
+    private volatile long durableSequence;
+    private volatile long checkpoint;
+    private volatile boolean closed;
+    private IOException flushFailure;
+
+    private final AtomicLong fsyncCount = new AtomicLong();
+    private final AtomicLong fsyncNanos = new AtomicLong();
+    private final Thread flusher;
+
+    /**
+     * Otvara log u direktorijumu: čita checkpoint, pronalazi poslednji ispravan zapis
+     * i otvara novi aktivni segment iza njega.
+     *
+     * @param groupCommitMicros koliko flusher čeka pre fsync-a da bi skupio više zapisa (0 = bez čekanja)
+     */
+    public WriteAheadLog(Path directory, int segmentSize, long groupCommitMicros) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.groupCommitNanos = TimeUnit.MICROSECONDS.toNanos(groupCommitMicros);
+
+        Files.createDirectories(directory);
+        this.checkpoint = readCheckpoint();
+        this.lastSequence = recover();
+        this.durableSequence = lastSequence;
+
+        this.active = WalSegment.create(directory, lastSequence + 1, segmentSize);
+        segments.put(active.getFirstSequence(), active.getPath());
+        deleteAppliedSegments();
+
+        this.flusher = Thread.ofPlatform().daemon().name("wal-flusher").start(this::flushLoop);
+        log.info("WAL opened in {}: last sequence {}, checkpoint {}, {} segment(s)",
+                directory, lastSequence, checkpoint, segments.size());
+    }
+
+    /**
+     * Dodaje zapis i čeka da bude fsync-ovan.
+     *
+     * @return sequence zapisa
+     */
+    public long append(byte[] payload) throws IOException, InterruptedException {
+        if (payload.length == 0 || payload.length + WalSegment.HEADER_SIZE > segmentSize) {
+            throw new IllegalArgumentException("WAL record size must be between 1 and "
+                    + (segmentSize - WalSegment.HEADER_SIZE) + " bytes");
+        }
+
+        lock.lock();
+        try {
+            ensureWritable();
+            if (!active.hasRoom(payload.length)) {
+                roll();
+            }
+            long sequence = ++lastSequence;
+            active.append(sequence, payload);
+            flushRequested.signal();
+
+            while (durableSequence < sequence) {
+                ensureWritable();
+                flushed.await();
+            }
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Beleži da su svi zapisi do datog sequence-a primenjeni i briše segmente koji više nisu potrebni
+     */
+    public void checkpoint(long sequence) throws IOException {
+        if (sequence <= checkpoint) {
+            return;
+        }
+        Path tmp = directory.resolve(CHECKPOINT_TMP_FILE);
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, sequence));
+            channel.force(true);
+        }
+        Files.move(tmp, directory.resolve(CHECKPOINT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        checkpoint = sequence;
+        deleteAppliedSegments();
+    }
+
+    /**
+     * Čitač fsync-ovanih zapisa posle datog sequence-a
+     */
+    public Reader reader(long afterSequence) {
+        return new Reader(afterSequence + 1);
+    }
+
+    public long getLastSequence() {
+        return durableSequence;
+    }
+
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Broj zapisa koji su fsync-ovani ali još nisu primenjeni
+     */
+    public long getPending() {
+        return Math.max(0, durableSequence - checkpoint);
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    public long getSizeBytes() {
+        return (long) segments.size() * segmentSize;
+    }
+
+    public long getFsyncCount() {
+        return fsyncCount.get();
+    }
+
+    public long getFsyncNanos() {
+        return fsyncNanos.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            active.force();
+            durableSequence = lastSequence;
+            flushRequested.signalAll();
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        flusher.interrupt();
+        active.close();
+    }
+
+    private void flushLoop() {
+        while (true) {
+            lock.lock();
+            try {
+                while (!closed && durableSequence == lastSequence) {
+                    flushRequested.await();
+                }
+                if (closed) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            if (groupCommitNanos > 0) {
+                LockSupport.parkNanos(groupCommitNanos);
+            }
+
+            WalSegment segment;
+            long target;
+            lock.lock();
+            try {
+                segment = active;
+                target = lastSequence;
+            } finally {
+                lock.unlock();
+            }
+
+            long start = System.nanoTime();
+            IOException failure = null;
+            try {
+                segment.force();
+            } catch (RuntimeException e) {
+                failure = new IOException("WAL fsync failed: " + e.getMessage(), e);
+            }
+            fsyncNanos.addAndGet(System.nanoTime() - start);
+            fsyncCount.incrementAndGet();
+
+            lock.lock();
+            try {
+                if (failure != null) {
+                    log.error("WAL fsync failed, rejecting further appends", failure);
+                    flushFailure = failure;
+                } else if (target > durableSequence) {
+                    durableSequence = target;
+                }
+                flushed.signalAll();
+                if (failure != null) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Zatvara pun segment i otvara novi. Stari segment se fsync-uje pod lock-om,
+     * tako da zapisi nikada ne postaju trajni van redosleda.
+     */
+    private void roll() throws IOException {
+        active.force();
+        durableSequence = lastSequence;
+        flushed.signalAll();
+        active.close();
+
+        active = WalSegment.create(directory, lastSequence + 1, segmentSize);
+        segments.put(active.getFirstSequence(), active.getPath());
+    }
+
+    private void ensureWritable() throws IOException {
+        if (closed) {
+            throw new IOException("WAL is closed");
+        }
+        if (flushFailure != null) {
+            throw flushFailure;
+        }
+    }
+
+    /**
+     * Pronalazi poslednji ispravan zapis. Prazni segmenti (napravljeni pa bez upisa pre pada) se brišu.
+     */
+    private long recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(WalSegment::isSegmentFile).sorted().toList();
+        }
+
+        long recovered = checkpoint;
+        for (Path file : files) {
+            long last;
+            try (WalSegment segment = WalSegment.openReadOnly(file)) {
+                last = segment.scanToEnd();
+            }
+            if (last < WalSegment.firstSequence(file)) {
+                Files.delete(file);
+                continue;
+            }
+            segments.put(WalSegment.firstSequence(file), file);
+            recovered = Math.max(recovered, last);
+        }
+        return recovered;
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        return ByteBuffer.wrap(Files.readAllBytes(file)).getLong();
+    }
+
+    private void deleteAppliedSegments() throws IOException {
+        long activeFirst;
+        lock.lock();
+        try {
+            activeFirst = active.getFirstSequence();
+        } finally {
+            lock.unlock();
+        }
+
+        for (Map.Entry<Long, Path> entry : segments.entrySet()) {
+            Long next = segments.higherKey(entry.getKey());
+            if (entry.getKey() >= activeFirst || next == null || next - 1 > checkpoint) {
+                break;
+            }
+            Files.deleteIfExists(entry.getValue());
+            segments.remove(entry.getKey());
+        }
+    }
+
+    /**
+     * Sekvencijalno čitanje zapisa kroz segmente. Vraća samo fsync-ovane zapise;
+     * nije thread-safe (koristi ga jedan replay thread).
+     */
+    public final class Reader implements Closeable {
+
+        private long nextSequence;
+        private Long segmentKey;
+        private WalSegment segment;
+        private int position;
+
+        private Reader(long nextSequence) {
+            this.nextSequence = nextSequence;
+        }
+
+        /**
+         * @return sledeći zapis ili null ako trenutno nema novih zapisa
+         */
+        public WalRecord next() throws IOException {
+            long durable = durableSequence;
+            if (nextSequence > durable) {
+                return null;
+            }
+
+            while (true) {
+                if (segment == null && !openSegment()) {
+                    return null;
+                }
+
+                WalRecord record = segment.read(position);
+                if (record == null) {
+                    Long nextKey = segments.higherKey(segmentKey);
+                    if (nextKey == null) {
+                        return null;
+                    }
+                    // Postoji noviji segment, pa je ovaj završen; poslednji zapisi su možda
+                    // upisani neposredno pre roll-a, zato još jedno čitanje pre prelaska
+                    record = segment.read(position);
+                    if (record == null) {
+                        segment.close();
+                        segment = null;
+                        segmentKey = nextKey;
+                        continue;
+                    }
+                }
+
+                if (record.sequence() > durable) {
+                    return null;
+                }
+                position = record.nextPosition();
+                if (record.sequence() < nextSequence) {
+                    continue;
+                }
+                nextSequence = record.sequence() + 1;
+                return record;
+            }
+        }
+
+        private boolean openSegment() throws IOException {
+            if (segmentKey == null) {
+                segmentKey = segments.floorKey(nextSequence);
+                if (segmentKey == null) {
+                    segmentKey = segments.ceilingKey(nextSequence);
+                }
+                if (segmentKey == null) {
+                    return false;
+                }
+            }
+            Path path = segments.get(segmentKey);
+            if (path == null) {
+                // Segment je obrisan (primenjen) - nastavi od sledećeg
+                segmentKey = segments.ceilingKey(nextSequence);
+                if (segmentKey == null) {
+                    return false;
+                }
+                path = segments.get(segmentKey);
+            }
+            segment = WalSegment.openReadOnly(path);
+            position = 0;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (segment != null) {
+                segment.close();
+                segment = null;
+            }
+        }
+    }
+}
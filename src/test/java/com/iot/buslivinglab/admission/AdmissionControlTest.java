@@ -0,0 +1,142 @@
+package com.iot.buslivinglab.admission;
+
+import com.iot.buslivinglab.config.AdmissionControlProperties;
+import com.iot.buslivinglab.exception.AdmissionRejectedException;
+import com.iot.buslivinglab.service.AdmissionControlService;
+import com.iot.buslivinglab.service.AdmissionControlService.TrafficClass;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdmissionControlTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long WINDOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    void tokenBucketAllowsBurstThenRefillsAtRate() {
+        long now = 1_000 * SECOND;
+        TokenBucket bucket = new TokenBucket(2.0, 5, now);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(bucket.tryAcquire(now)).isZero();
+        }
+        long wait = bucket.tryAcquire(now);
+        assertThat(wait).isEqualTo(SECOND / 2);
+
+        assertThat(bucket.tryAcquire(now + wait)).isZero();
+        assertThat(bucket.tryAcquire(now + wait)).isPositive();
+        assertThat(bucket.isIdleSince(now + 10 * SECOND, 5 * SECOND)).isTrue();
+    }
+
+    @Test
+    void tokenBucketNeverAdmitsMoreThanBurstUnderContention() throws Exception {
+        long now = System.nanoTime();
+        TokenBucket bucket = new TokenBucket(0.001, 100, now);
+        AtomicInteger admitted = new AtomicInteger();
+
+        runConcurrently(8, 1_000, () -> {
+            if (bucket.tryAcquire(now) == 0) {
+                admitted.incrementAndGet();
+            }
+        });
+
+        assertThat(admitted).hasValue(100);
+    }
+
+    @Test
+    void fullBucketGroupEvictsLeastRecentlyUsedKeys() {
+        AdmissionControlProperties properties = new AdmissionControlProperties();
+        properties.setEnabled(true);
+        properties.setMaxTrackedKeys(2);
+        properties.getQuery().setSensorRate(0.001);
+        properties.getQuery().setSensorBurst(1);
+        AdmissionControlService service = new AdmissionControlService(properties);
+
+        service.checkSensor(TrafficClass.QUERY, "a");
+        service.checkSensor(TrafficClass.QUERY, "b");
+        // novi ključevi dobijaju svoj bucket umesto da dele jedan
+        service.checkSensor(TrafficClass.QUERY, "c");
+        service.checkSensor(TrafficClass.QUERY, "d");
+        assertThatThrownBy(() -> service.checkSensor(TrafficClass.QUERY, "d"))
+                .isInstanceOf(AdmissionRejectedException.class);
+    }
+
+    @Test
+    void concurrencyLimitIsNeverExceeded() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 1, 4, 2.0, Long.MAX_VALUE / 4, 0);
+        AtomicInteger maxSeen = new AtomicInteger();
+
+        runConcurrently(8, 2_000, () -> {
+            if (limit.tryAcquire()) {
+                maxSeen.accumulateAndGet(limit.getInFlight(), Math::max);
+                limit.release(-1, 0);
+            }
+        });
+
+        assertThat(maxSeen.get()).isLessThanOrEqualTo(4);
+        assertThat(limit.getInFlight()).isZero();
+    }
+
+    @Test
+    void limitShrinksWhenLatencyRisesAndGrowsBackWhenItRecovers() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 2, 40, 1.5, WINDOW, 0);
+        long now = 0;
+
+        now = runWindows(limit, now, 5, 20, TimeUnit.MILLISECONDS.toNanos(10));
+        int steady = limit.getLimit();
+        assertThat(steady).isGreaterThanOrEqualTo(20);
+
+        now = runWindows(limit, now, 10, steady, TimeUnit.MILLISECONDS.toNanos(200));
+        int congested = limit.getLimit();
+        assertThat(congested).isLessThan(steady);
+
+        runWindows(limit, now, 30, congested, TimeUnit.MILLISECONDS.toNanos(10));
+        assertThat(limit.getLimit()).isGreaterThan(congested);
+    }
+
+    /**
+     * Svaki prozor: nekoliko puta popuni limit (do zadatog broja zahteva) i završi zahteve sa zadatom latencijom;
+     * prvi release u sledećem prozoru pokreće ponovni proračun limita
+     */
+    private static long runWindows(AdaptiveConcurrencyLimit limit, long now, int windows, int concurrency,
+                                   long latencyNanos) {
+        for (int w = 0; w < windows; w++) {
+            for (int round = 0; round < 5; round++) {
+                int admitted = 0;
+                while (admitted < concurrency && limit.tryAcquire()) {
+                    admitted++;
+                }
+                for (int i = 0; i < admitted; i++) {
+                    limit.release(latencyNanos, now);
+                }
+            }
+            now += WINDOW;
+        }
+        return now;
+    }
+
+    private static void runConcurrently(int threads, int perThread, Runnable task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    task.run();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+    }
+}
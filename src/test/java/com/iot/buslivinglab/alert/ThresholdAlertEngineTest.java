@@ -0,0 +1,69 @@
+package com.iot.buslivinglab.alert;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ThresholdAlertEngineTest {
+
+    private static final Instant START = Instant.parse("2026-10-19T10:00:00Z");
+
+    private final ThresholdAlertEngine engine = new ThresholdAlertEngine(0.1, 600_000);
+
+    @Test
+    void breachBecomesOneAlertAfterMinDurationAndClosesPastHysteresis() {
+        engine.setThresholds(Map.of("soilMoisture", new Thresholds(20, 40)), Map.of());
+
+        evaluate(0, 30);
+        evaluate(5, 45);
+        assertThat(engine.pollChanged()).as("breach shorter than min duration").isNull();
+        evaluate(15, 47);
+
+        ActiveAlert alert = engine.pollChanged();
+        ActiveAlert.Snapshot opened = alert.takeSnapshot();
+        assertThat(opened.kind()).isEqualTo(AlertKind.ABOVE_MAX);
+        assertThat(opened.openedAt()).isEqualTo(minutes(5));
+        assertThat(opened.peakValue()).isEqualTo(47);
+        assertThat(opened.sampleCount()).isEqualTo(2);
+
+        // unutar praga, ali ne za histerezis (40 - 0.1 * 20 = 38): alarm ostaje otvoren i ne duplira se
+        evaluate(20, 39);
+        evaluate(25, 50);
+        assertThat(engine.pollChanged()).isSameAs(alert);
+        assertThat(engine.pollChanged()).isNull();
+        alert.takeSnapshot();
+        assertThat(engine.getActiveAlerts()).isEqualTo(1);
+
+        evaluate(30, 37);
+        assertThat(engine.pollChanged()).isSameAs(alert);
+        ActiveAlert.Snapshot closed = alert.takeSnapshot();
+        assertThat(closed.closedAt()).isEqualTo(minutes(30));
+        assertThat(closed.peakValue()).isEqualTo(50);
+        assertThat(engine.getActiveAlerts()).isZero();
+    }
+
+    @Test
+    void sensorThresholdOverridesTypeRangeAndShortBreachesAreIgnored() {
+        engine.setThresholds(Map.of("soilMoisture", new Thresholds(0, 100)),
+                Map.of("sensor-1", Map.of("soilMoisture", new Thresholds(Double.NaN, 60))));
+
+        evaluate(0, 70);
+        evaluate(5, 50);
+        evaluate(20, 70);
+        assertThat(engine.pollChanged()).isNull();
+
+        evaluate(30, 65);
+        assertThat(engine.pollChanged().takeSnapshot().threshold()).isEqualTo(60);
+    }
+
+    private void evaluate(int minute, double value) {
+        engine.evaluate("sensor-1", "soilMoisture", value, minutes(minute));
+    }
+
+    private static Instant minutes(int minute) {
+        return START.plusSeconds(minute * 60L);
+    }
+}
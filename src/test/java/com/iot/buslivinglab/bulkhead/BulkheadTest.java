@@ -0,0 +1,100 @@
+package com.iot.buslivinglab.bulkhead;
+
+import com.iot.buslivinglab.exception.AdmissionRejectedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.http.HttpStatus;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BulkheadTest {
+
+    private Bulkhead bulkhead;
+
+    @AfterEach
+    void shutdown() {
+        bulkhead.shutdown();
+        MDC.clear();
+    }
+
+    @Test
+    void runsTaskWithWorkloadAndMdcOfCaller() throws Exception {
+        bulkhead = new Bulkhead(Workload.INGEST, 1, 1, 1_000);
+        MDC.put("requestId", "abc");
+
+        String result = bulkhead.call(() -> WorkloadContext.current().getTag() + "/" + MDC.get("requestId")
+                + "/" + Thread.currentThread().getName().startsWith("bulkhead-ingest-"));
+
+        assertThat(result).isEqualTo("ingest/abc/true");
+        assertThat(WorkloadContext.current()).isEqualTo(Workload.INTERACTIVE);
+    }
+
+    @Test
+    void rejectsWhenThreadsAndQueueAreFullWithoutBlockingOtherWorkloads() throws Exception {
+        bulkhead = new Bulkhead(Workload.HEAVY, 1, 1, 5_000);
+        Bulkhead ingest = new Bulkhead(Workload.INGEST, 1, 1, 1_000);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        try {
+            CompletableFuture<Object> running = CompletableFuture.supplyAsync(() -> call(() -> {
+                started.countDown();
+                return release.await(10, TimeUnit.SECONDS);
+            }));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            CompletableFuture<Object> queued = CompletableFuture.supplyAsync(() -> call(() -> "queued"));
+            waitUntil(() -> bulkhead.getQueued() == 1);
+
+            assertThatThrownBy(() -> bulkhead.call(() -> "rejected"))
+                    .isInstanceOf(AdmissionRejectedException.class)
+                    .extracting("status").isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+            assertThat(bulkhead.getRejected()).isEqualTo(1);
+
+            assertThat(ingest.call(() -> "ingest")).isEqualTo("ingest");
+
+            release.countDown();
+            assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo(true);
+            assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("queued");
+        } finally {
+            release.countDown();
+            ingest.shutdown();
+        }
+    }
+
+    @Test
+    void timesOutSlowTasksAndPropagatesTaskExceptions() {
+        bulkhead = new Bulkhead(Workload.INTERACTIVE, 1, 1, 100);
+
+        assertThatThrownBy(() -> bulkhead.call(() -> {
+            Thread.sleep(5_000);
+            return null;
+        })).isInstanceOf(AdmissionRejectedException.class);
+        assertThat(bulkhead.getTimedOut()).isEqualTo(1);
+
+        assertThatThrownBy(() -> bulkhead.call(() -> {
+            throw new IllegalArgumentException("bad");
+        })).isInstanceOf(IllegalArgumentException.class).hasMessage("bad");
+    }
+
+    private Object call(java.util.concurrent.Callable<Object> task) {
+        try {
+            return bulkhead.call(task);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void waitUntil(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
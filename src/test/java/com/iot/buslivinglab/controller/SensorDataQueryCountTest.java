@@ -0,0 +1,155 @@
+package com.iot.buslivinglab.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iot.buslivinglab.observability.QueryStatsResponseAdvice;
+import com.iot.buslivinglab.support.TestObservation;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Regresioni test za broj JDBC upita po endpoint-u (X-Query-Count header u test profilu).
+ * Ako izmena poveća broj upita (npr. novi N+1 u SensorQueryService), test pada pre deploy-a;
+ * ako ga smanji, spustite limit. Limiti su izraženi preko broja tipova merenja (TYPES),
+ * tako da se vidi koji deo raste sa brojem tipova: trenutno jedan MeasurementType lookup po tipu
+ * u svim upitima, plus jedan upit po tipu u count modu. Ingest poznatog senzora je samo INSERT
+ * po merenju; metapodaci su već u kešu SensorMetadataService-a.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SensorDataQueryCountTest {
+
+    private static final String SENSOR_ID = "sensor-query-count";
+    private static final String[] TYPES = {"soilTemperature", "soilMoisture", "soilPH"};
+    /** vremena relativna u odnosu na sada, da bi ?days=7 uvek obuhvatio podatke */
+    private static final Instant FIRST = Instant.now().truncatedTo(ChronoUnit.SECONDS).minus(Duration.ofHours(1));
+    private static final Instant SECOND = FIRST.plus(Duration.ofMinutes(5));
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeAll
+    void ingestSensor() {
+        assertThat(postObservation(FIRST).getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void ingestOfKnownSensorStaysWithinStatementBudget() {
+        ResponseEntity<String> response = postObservation(SECOND);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertQueries(response, TYPES.length);
+    }
+
+    @Test
+    void retriedIngestIsIgnoredWithOneStatement() throws Exception {
+        ResponseEntity<String> response = postObservation(FIRST);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        JsonNode body = objectMapper.readTree(response.getBody());
+        assertThat(body.path("saved").asInt()).isZero();
+        assertThat(body.path("duplicates").asInt()).isEqualTo(TYPES.length);
+        assertQueries(response, 1);
+    }
+
+    @Test
+    void duplicateMemberMissedByFilterIsSkippedByUniqueKey() throws Exception {
+        Instant time = FIRST.minus(Duration.ofHours(1));
+        ResponseEntity<String> response = observation()
+                .member("ll:" + TYPES[0], time, 20, TestObservation.CELSIUS)
+                .member("ll:" + TYPES[0], time, 20, TestObservation.CELSIUS)
+                .post(restTemplate);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        JsonNode body = objectMapper.readTree(response.getBody());
+        assertThat(body.path("saved").asInt()).isEqualTo(1);
+        assertThat(body.path("duplicates").asInt()).isEqualTo(1);
+    }
+
+    @Test
+    void latestQueryStaysWithinStatementBudget() {
+        assertQueries(get("/api/sensor-data/" + SENSOR_ID + "/latest"), 2 + TYPES.length);
+    }
+
+    @Test
+    void daysQueryStaysWithinStatementBudget() {
+        assertQueries(get("/api/sensor-data/" + SENSOR_ID + "?days=7"), 2 + TYPES.length);
+    }
+
+    @Test
+    void countQueryStaysWithinStatementBudget() {
+        assertQueries(get("/api/sensor-data/" + SENSOR_ID + "?count=10"), 3 + 2 * TYPES.length);
+    }
+
+    @Test
+    void rangeQueryStaysWithinStatementBudget() {
+        assertQueries(get("/api/sensor-data/" + SENSOR_ID
+                + "?from=" + FIRST.minus(Duration.ofDays(1)) + "&to=" + SECOND.plus(Duration.ofHours(1))),
+                2 + TYPES.length);
+    }
+
+    @Test
+    void unitConversionAddsNoStatements() throws Exception {
+        ResponseEntity<String> response = get("/api/sensor-data/" + SENSOR_ID + "?days=7&unit=DEG_F");
+
+        assertQueries(response, 2 + TYPES.length);
+        JsonNode data = objectMapper.readTree(response.getBody()).path("data");
+        assertThat(data).hasSize(TYPES.length);
+        // tipovi imaju 20, 21 i 22 °C
+        Set<Double> fahrenheit = new HashSet<>();
+        for (JsonNode type : data) {
+            assertThat(type.path("unit").asText()).isEqualTo("°F");
+            assertThat(type.path("values")).isNotEmpty();
+            for (JsonNode value : type.path("values")) {
+                fahrenheit.add(Math.round(value.path("value").asDouble() * 10) / 10.0);
+            }
+        }
+        assertThat(fahrenheit).containsExactlyInAnyOrder(68.0, 69.8, 71.6);
+    }
+
+    private static void assertQueries(ResponseEntity<String> response, int expectedQueries) {
+        String count = response.getHeaders().getFirst(QueryStatsResponseAdvice.QUERY_COUNT_HEADER);
+        assertThat(count).as("X-Query-Count header").isNotNull();
+        assertThat(Integer.parseInt(count))
+                .as("JDBC statements, by repository method: %s",
+                        response.getHeaders().getFirst(QueryStatsResponseAdvice.QUERY_METHODS_HEADER))
+                .isEqualTo(expectedQueries);
+    }
+
+    private ResponseEntity<String> get(String path) {
+        ResponseEntity<String> response = restTemplate.getForEntity(path, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return response;
+    }
+
+    private ResponseEntity<String> postObservation(Instant time) {
+        TestObservation observation = observation();
+        for (int i = 0; i < TYPES.length; i++) {
+            observation.member("ll:" + TYPES[i], time, 20 + i, TestObservation.CELSIUS);
+        }
+        return observation.post(restTemplate);
+    }
+
+    private static TestObservation observation() {
+        return TestObservation.sensor(SENSOR_ID).label("Query count sensor");
+    }
+}
@@ -0,0 +1,57 @@
+package com.iot.buslivinglab.deadband;
+
+import com.iot.buslivinglab.deadband.DeadbandFilter.Decision;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DeadbandFilterTest {
+
+    private static final Instant START = Instant.parse("2026-10-19T10:00:00Z");
+
+    private final DeadbandFilter filter = new DeadbandFilter();
+
+    @Test
+    void storesOnlyLevelChangesAndOneValuePerMaxSilence() {
+        filter.setPolicies(Map.of("s1", Map.of("soilTemperature", new DeadbandPolicy(0.5, 0, 3_600_000))));
+
+        assertThat(offer(0, 20.0)).isEqualTo(Decision.STORE);
+        assertThat(offer(10, 20.4)).isEqualTo(Decision.SUPPRESS);
+        // opseg je oko poslednje upisane vrednosti, ne poslednje viđene
+        assertThat(offer(20, 19.6)).isEqualTo(Decision.SUPPRESS);
+        assertThat(offer(20, 19.6)).isEqualTo(Decision.DUPLICATE);
+        assertThat(offer(30, 20.6)).isEqualTo(Decision.STORE);
+        assertThat(offer(35, 20.8)).isEqualTo(Decision.SUPPRESS);
+        // retry neupisane vrednosti starijeg i trenutnog nivoa, i nova zakasnela vrednost unutar nivoa
+        assertThat(offer(10, 20.4)).as("late retry").isEqualTo(Decision.DUPLICATE);
+        assertThat(offer(32, 20.7)).as("late, inside level").isEqualTo(Decision.SUPPRESS);
+        assertThat(offer(32, 20.7)).isEqualTo(Decision.DUPLICATE);
+        assertThat(offer(5, 25.0)).as("late value").isEqualTo(Decision.STORE);
+        assertThat(offer(40, 20.7)).isEqualTo(Decision.SUPPRESS);
+        assertThat(offer(90, 20.7)).as("max silence").isEqualTo(Decision.STORE);
+        assertThat(filter.offer("s1", "soilMoisture", 30, START)).isEqualTo(Decision.PASS);
+
+        filter.forget("s1", "soilTemperature");
+        assertThat(offer(100, 20.7)).isEqualTo(Decision.STORE);
+    }
+
+    @Test
+    void relativeToleranceAndNaN() {
+        DeadbandPolicy policy = DeadbandPolicy.of(null, 0.01, null, 60_000);
+        assertThat(policy.maxSilenceMillis()).isEqualTo(60_000);
+        assertThat(policy.inBand(1000, 1009)).isTrue();
+        assertThat(policy.inBand(1000, 1011)).isFalse();
+        assertThat(policy.inBand(1000, Double.NaN)).isFalse();
+        assertThat(DeadbandPolicy.of(null, null, 1L, 60_000)).isNull();
+        assertThatThrownBy(() -> DeadbandPolicy.of(-1.0, null, null, 60_000))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Decision offer(int minute, double value) {
+        return filter.offer("s1", "soilTemperature", value, START.plusSeconds(minute * 60L));
+    }
+}
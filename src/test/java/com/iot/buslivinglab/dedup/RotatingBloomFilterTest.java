@@ -0,0 +1,51 @@
+package com.iot.buslivinglab.dedup;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RotatingBloomFilterTest {
+
+    @Test
+    void remembersEveryKeyAndKeepsFalsePositivesNearConfiguredRate() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(key("sensor-" + i % 50, i));
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain(key("sensor-" + i % 50, i))).isTrue();
+        }
+        int falsePositives = 0;
+        for (int i = 10_000; i < 20_000; i++) {
+            if (filter.mightContain(key("sensor-" + i % 50, i))) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(300);
+    }
+
+    @Test
+    void forgetsKeysTwoGenerationsOld() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(100, 0.001);
+        filter.put(key("old", 0));
+
+        for (int i = 1; i < 100; i++) {
+            filter.put(key("sensor", i));
+        }
+        assertThat(filter.mightContain(key("old", 0))).isTrue();
+
+        for (int i = 100; i < 200; i++) {
+            filter.put(key("sensor", i));
+        }
+        assertThat(filter.mightContain(key("old", 0))).isFalse();
+        assertThat(filter.mightContain(key("sensor", 150))).isTrue();
+    }
+
+    private static String key(String sensorId, int second) {
+        return new ObservationKey(sensorId, "ll:soilTemperature", Instant.ofEpochSecond(1_790_000_000L + second))
+                .filterKey();
+    }
+}
@@ -0,0 +1,100 @@
+package com.iot.buslivinglab.derived;
+
+import com.iot.buslivinglab.derived.DerivedSeriesEngine.DerivedValue;
+import com.iot.buslivinglab.derived.DerivedSeriesEngine.History;
+import com.iot.buslivinglab.derived.DerivedSeriesEngine.Sample;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class DerivedSeriesEngineTest {
+
+    private static final Instant START = Instant.parse("2026-10-19T22:00:00Z");
+    private static final History EMPTY = (sensorId, type, before, n) -> List.of();
+
+    private final DerivedSeriesEngine engine = new DerivedSeriesEngine(900_000, ZoneOffset.UTC);
+
+    @Test
+    void movingAverageAndDailySumAreIncrementalAndSkipLateValues() {
+        engine.setDefinitions(List.of(
+                DerivedDefinition.of("rainAvg", "moving_average", "rain", null, 3, null, 1000),
+                DerivedDefinition.of("rainDaily", "daily_sum", "rain", null, null, null, 1000)), Map.of());
+
+        assertThat(derive("rain", 0, 3)).containsExactly(3.0, 3.0);
+        assertThat(derive("rain", 30, 6)).containsExactly(4.5, 9.0);
+        assertThat(derive("rain", 60, 9)).containsExactly(6.0, 18.0);
+        assertThat(derive("rain", 30, 100)).as("late value").isEmpty();
+        // 22:00 + 150 min = 00:30: prozor se pomera, dnevni zbir počinje iz početka
+        assertThat(derive("rain", 150, 12)).containsExactly(9.0, 12.0);
+        assertThat(derive("temperature", 160, 12)).isEmpty();
+    }
+
+    @Test
+    void stateIsSeededFromStoredValues() {
+        engine.setDefinitions(List.of(), Map.of("s1", List.of(
+                DerivedDefinition.of("rainAvg", "moving_average", "rain", null, 3, null, 1000),
+                DerivedDefinition.of("rainDaily", "daily_sum", "rain", null, null, null, 1000))));
+        History history = (sensorId, type, before, n) -> type.equals("rain")
+                ? List.of(new Sample(4, START.minusSeconds(60)), new Sample(2, START.minusSeconds(120)))
+                : List.of(new Sample(10, START.minusSeconds(60)));
+
+        assertThat(engine.derive("s1", "rain", 6, START, history).stream().map(DerivedValue::value))
+                .containsExactly(4.0, 16.0);
+        assertThat(engine.definitions("s2", "rain")).isEmpty();
+    }
+
+    @Test
+    void stateIsReloadedWhenAnotherInstanceStoredNewerValues() {
+        engine.setDefinitions(List.of(
+                DerivedDefinition.of("rainAvg", "moving_average", "rain", null, 3, null, 1000),
+                DerivedDefinition.of("rainDaily", "daily_sum", "rain", null, null, null, 1000)), Map.of());
+        assertThat(derive("rain", 0, 3)).containsExactly(3.0, 3.0);
+
+        // druga instanca je obradila vrednost 9 u 22:10
+        Instant otherAt = START.plusSeconds(600);
+        History stored = new History() {
+            @Override
+            public List<Sample> latestBefore(String sensorId, String type, Instant before, int n) {
+                return type.equals("rain")
+                        ? List.of(new Sample(9, otherAt), new Sample(3, START))
+                        : List.of(new Sample(12, otherAt));
+            }
+
+            @Override
+            public Instant lastStoredAt(String sensorId, String type) {
+                return otherAt;
+            }
+        };
+        assertThat(engine.derive("s1", "rain", 6, START.plusSeconds(1200), stored).stream().map(DerivedValue::value))
+                .containsExactly(6.0, 18.0);
+    }
+
+    @Test
+    void ecIsCompensatedWithRecentTemperature() {
+        engine.setDefinitions(List.of(
+                DerivedDefinition.of("ec25", "compensated_ec", "ec", "temperature", null, null, 1000)), Map.of());
+
+        assertThat(derive("ec", 0, 1000)).as("no temperature yet").isEmpty();
+        engine.observeTemperature("s1", "temperature", 35, START.plusSeconds(60));
+        assertThat(derive("ec", 1, 1200).get(0)).isCloseTo(1000, within(1e-9));
+        assertThat(derive("ec", 30, 1200)).as("temperature too old").isEmpty();
+
+        assertThatThrownBy(() -> DerivedDefinition.of("ec25", "compensated_ec", "ec", null, null, null, 1000))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> DerivedDefinition.of("avg", "moving_average", "ec", null, 5000, null, 1000))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private List<Double> derive(String type, int minute, double value) {
+        return engine.derive("s1", type, value, START.plusSeconds(minute * 60L), EMPTY).stream()
+                .map(DerivedValue::value)
+                .toList();
+    }
+}
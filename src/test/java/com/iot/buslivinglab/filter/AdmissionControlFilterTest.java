@@ -0,0 +1,82 @@
+package com.iot.buslivinglab.filter;
+
+import com.iot.buslivinglab.service.AdmissionControlService;
+import com.iot.buslivinglab.service.AdmissionControlService.TrafficClass;
+import com.iot.buslivinglab.support.TestObservation;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "admission.enabled=true",
+        "admission.ingest.client-rate=0.001",
+        "admission.ingest.client-burst=2",
+        "admission.query.sensor-rate=0.001",
+        "admission.query.sensor-burst=2",
+        "admission.query.initial-limit=1",
+        "admission.query.min-limit=1",
+        "admission.query.max-limit=1"})
+@ActiveProfiles("test")
+class AdmissionControlFilterTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private AdmissionControlService admissionControl;
+
+    @Test
+    void clientBudgetIgnoresClientIdHeader() {
+        assertThat(postWithClientId("a").getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(postWithClientId("b").getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        ResponseEntity<String> rejected = postWithClientId("c");
+        assertThat(rejected.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(rejected.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isNotBlank();
+    }
+
+    @Test
+    void sensorBudgetAndConcurrencyLimitRejectWithRetryAfter() {
+        String path = "/api/sensor-data/sensor-admission/latest";
+        assertThat(restTemplate.getForEntity(path, String.class).getStatusCode())
+                .isNotEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(restTemplate.getForEntity(path, String.class).getStatusCode())
+                .isNotEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        ResponseEntity<String> rateLimited = restTemplate.getForEntity(path, String.class);
+        assertThat(rateLimited.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(rateLimited.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isNotBlank();
+
+        // jedino mesto u limitu upita je zauzeto
+        admissionControl.enter(TrafficClass.QUERY);
+        try {
+            ResponseEntity<String> busy = restTemplate.getForEntity("/api/sensor-data/sensor-busy/latest",
+                    String.class);
+            assertThat(busy.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+            assertThat(busy.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isNotBlank();
+        } finally {
+            admissionControl.exit(TrafficClass.QUERY, -1);
+        }
+    }
+
+    @Test
+    void fleetQueriesDoNotShareOneSensorBudget() {
+        for (String path : new String[]{"/alerts", "/gaps", "/alerts", "/gaps", "/alerts"}) {
+            assertThat(restTemplate.getForEntity("/api/sensor-data" + path, String.class).getStatusCode())
+                    .isEqualTo(HttpStatus.OK);
+        }
+    }
+
+    private ResponseEntity<String> postWithClientId(String clientId) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Client-Id", clientId);
+        return TestObservation.sensor("sensor-admission-client").label("Admission sensor")
+                .temperature("2026-10-19T09:00:00Z", 20).post(restTemplate, headers);
+    }
+}
@@ -0,0 +1,82 @@
+package com.iot.buslivinglab.filter;
+
+import com.iot.buslivinglab.service.SensorQueryService;
+import com.iot.buslivinglab.support.TestObservation;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Istovremeni zahtevi kroz pravi endpoint: do servisa upita (i baze) stiže najviše max-concurrent
+ * zahteva odjednom, a ostali čekaju u redu limitera umesto da dobiju 503. Limiter radi samo bez bulkhead-ova.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "bulkhead.enabled=false",
+                "execution.db-limiter.enabled=true",
+                "execution.db-limiter.max-concurrent=" + DbConcurrencyFilterTest.MAX_CONCURRENT,
+                "execution.db-limiter.acquire-timeout-ms=10000"
+        })
+@ActiveProfiles("test")
+class DbConcurrencyFilterTest {
+
+    static final int MAX_CONCURRENT = 2;
+
+    private static final String SENSOR_ID = "sensor-db-limiter";
+    private static final int CLIENTS = 12;
+    private static final long QUERY_MS = 50;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @SpyBean
+    private SensorQueryService sensorQueryService;
+
+    @Test
+    void concurrentQueriesNeverExceedLimit() throws Exception {
+        assertThat(TestObservation.sensor(SENSOR_ID).temperature("2026-10-19T08:00:00Z", 20.5)
+                .post(restTemplate).getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        doAnswer(invocation -> {
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(QUERY_MS);
+                return invocation.callRealMethod();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }).when(sensorQueryService).getLatestSensorData(eq(SENSOR_ID), any());
+
+        List<Future<HttpStatus>> responses = new ArrayList<>();
+        try (ExecutorService clients = Executors.newFixedThreadPool(CLIENTS)) {
+            for (int i = 0; i < CLIENTS; i++) {
+                responses.add(clients.submit(() -> HttpStatus.valueOf(restTemplate
+                        .getForEntity("/api/sensor-data/" + SENSOR_ID + "/latest", String.class)
+                        .getStatusCode().value())));
+            }
+        }
+
+        for (Future<HttpStatus> response : responses) {
+            assertThat(response.get()).isEqualTo(HttpStatus.OK);
+        }
+        assertThat(peak.get()).isEqualTo(MAX_CONCURRENT);
+    }
+}
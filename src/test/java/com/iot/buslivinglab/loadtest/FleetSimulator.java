@@ -0,0 +1,99 @@
+package com.iot.buslivinglab.loadtest;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generiše SOSA payload-e za flotu senzora, redosledom kojim bi ih gateway-i slali.
+ * Deo payload-a stiže sa zakašnjenjem (out-of-order), kao kada gateway prazni buffer posle prekida veze.
+ */
+public class FleetSimulator {
+
+    static final String[][] SOIL_TYPES = {
+            {"ll:soilTemperature", "unit:DEG_C"},
+            {"ll:soilMoisture", "unit:PERCENT"},
+            {"ll:soilConductivity", "unit:MicroS-PER-CentiM"},
+            {"ll:soilPH", "unit:PH"},
+            {"ll:soilNitrogen", "unit:MilliGM-PER-KiloGM"},
+            {"ll:soilPhosphorus", "unit:MilliGM-PER-KiloGM"},
+            {"ll:soilPotassium", "unit:MilliGM-PER-KiloGM"}
+    };
+
+    private final String idPrefix;
+    private final int sensors;
+    private final int typesPerSensor;
+    private final long intervalSeconds;
+    private final double outOfOrderShare;
+    private final Random random;
+
+    public FleetSimulator(String idPrefix, int sensors, int typesPerSensor, long intervalSeconds,
+                          double outOfOrderShare, long seed) {
+        this.idPrefix = idPrefix;
+        this.sensors = sensors;
+        this.typesPerSensor = Math.min(typesPerSensor, SOIL_TYPES.length);
+        this.intervalSeconds = intervalSeconds;
+        this.outOfOrderShare = outOfOrderShare;
+        this.random = new Random(seed);
+    }
+
+    public String sensorId(int index) {
+        return String.format("%s-%05d", idPrefix, index);
+    }
+
+    /**
+     * Payload-i za zadati broj intervala, svaki senzor šalje jedan payload po intervalu.
+     * Simulirano vreme počinje tako da se poslednji interval završava sada.
+     */
+    public List<String> generate(int intervals) {
+        Instant start = Instant.now().minusSeconds(intervals * intervalSeconds);
+        List<String> payloads = new ArrayList<>(intervals * sensors);
+
+        for (int tick = 0; tick < intervals; tick++) {
+            Instant time = start.plusSeconds(tick * intervalSeconds);
+            for (int s = 0; s < sensors; s++) {
+                payloads.add(payload(sensorId(s), time.plusMillis(random.nextInt(1000))));
+            }
+        }
+
+        // Pomeri deo payload-a unapred u redosledu slanja (stižu kasnije od novijih merenja)
+        int maxDelay = Math.max(1, sensors * 3);
+        for (int i = 0; i < payloads.size(); i++) {
+            if (random.nextDouble() < outOfOrderShare) {
+                int target = Math.min(payloads.size() - 1, i + 1 + random.nextInt(maxDelay));
+                String delayed = payloads.get(i);
+                payloads.set(i, payloads.get(target));
+                payloads.set(target, delayed);
+            }
+        }
+        return payloads;
+    }
+
+    private String payload(String sensorId, Instant time) {
+        StringBuilder json = new StringBuilder(512 + typesPerSensor * 256);
+        json.append("""
+                {"@context": {"sosa": "http://www.w3.org/ns/sosa/", "ssn": "http://www.w3.org/ns/ssn/",
+                  "qudt": "http://qudt.org/schema/qudt/", "unit": "http://qudt.org/vocab/unit/",
+                  "xsd": "http://www.w3.org/2001/XMLSchema#", "rdfs": "http://www.w3.org/2000/01/rdf-schema#",
+                  "ll": "https://buslivinglab.com/ns#"},
+                 "@type": "sosa:ObservationCollection",
+                 "sosa:madeBySensor": {"@id": "ll:%s", "@type": "sosa:Sensor", "rdfs:label": "Simulated %s"},
+                 "sosa:hasFeatureOfInterest": {"@type": "sosa:FeatureOfInterest", "rdfs:label": "Simulated field",
+                  "ll:location": "44.78,20.44"},
+                 "sosa:hasMember": [""".formatted(sensorId, sensorId));
+
+        for (int t = 0; t < typesPerSensor; t++) {
+            if (t > 0) {
+                json.append(',');
+            }
+            json.append(String.format(Locale.ROOT, """
+                    {"@type": "sosa:Observation", "sosa:observedProperty": {"@id": "%s"},
+                     "sosa:phenomenonTime": "%s",
+                     "sosa:hasResult": {"qudt:numericValue": %.2f, "qudt:unit": "%s"}}""",
+                    SOIL_TYPES[t][0], time, 10 + random.nextDouble() * 20, SOIL_TYPES[t][1]));
+        }
+        return json.append("]}").toString();
+    }
+}
@@ -0,0 +1,188 @@
+package com.iot.buslivinglab.loadtest;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end load harness: pravi server na slučajnom portu sa embedded H2 bazom,
+ * simulira flotu senzora koja šalje observation-e zadatim ritmom, pa opterećuje sve GET endpoint-e.
+ * Latencija se meri od planiranog trenutka slanja (open-loop), da zagušenje ne sakrije repove latencije.
+ *
+ * Pokretanje (bez mreže, parametri su opcioni):
+ * mvn -Pload test -Dtest=IngestQueryLoadTest -Dload.sensors=100 -Dload.types=7 -Dload.intervals=20
+ *     -Dload.rate=400 -Dload.outOfOrder=0.05 -Dload.queries=2000 -Dload.clients=32 -Dload.warmup=500
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.jpa.properties.hibernate.generate_statistics=true",
+                "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+        })
+@ActiveProfiles("test")
+class IngestQueryLoadTest {
+
+    private static final int SENSORS = Integer.getInteger("load.sensors", 50);
+    private static final int TYPES = Integer.getInteger("load.types", 7);
+    private static final int INTERVALS = Integer.getInteger("load.intervals", 20);
+    private static final int RATE = Integer.getInteger("load.rate", 300);
+    private static final double OUT_OF_ORDER = Double.parseDouble(System.getProperty("load.outOfOrder", "0.05"));
+    private static final int QUERIES = Integer.getInteger("load.queries", 1000);
+    private static final int CLIENTS = Integer.getInteger("load.clients", 32);
+    private static final int WARMUP = Integer.getInteger("load.warmup", 500);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    @Test
+    void ingestAndQueryUnderLoad() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        FleetSimulator fleet = new FleetSimulator("sim-sensor", SENSORS, TYPES, 300, OUT_OF_ORDER, 42);
+        List<String> payloads = fleet.generate(INTERVALS);
+
+        System.out.printf(Locale.ROOT, "Fleet: %d sensors x %d types, %d payloads, target %d payloads/s, %.0f%% out-of-order%n",
+                SENSORS, TYPES, payloads.size(), RATE, OUT_OF_ORDER * 100);
+
+        // ===== Zagrevanje JIT-a (ne ulazi u izveštaj) =====
+        FleetSimulator warmupFleet = new FleetSimulator("warmup-sensor", 1, TYPES, 300, 0, 7);
+        List<String> warmup = warmupFleet.generate(WARMUP);
+        runPaced(warmup.size(), Integer.MAX_VALUE, i -> post("/api/sensor-data/observations", warmup.get(i)),
+                new LatencyRecorder("warmup", warmup.size()));
+        for (int i = 0; i < WARMUP; i++) {
+            get("/api/sensor-data/" + warmupFleet.sensorId(0) + "?days=7");
+        }
+
+        // ===== Ingest =====
+        statistics.clear();
+        LatencyRecorder ingest = new LatencyRecorder("POST /observations", payloads.size());
+        double ingestSeconds = runPaced(payloads.size(), RATE, i -> post("/api/sensor-data/observations", payloads.get(i)), ingest);
+        long ingestStatements = statistics.getPrepareStatementCount();
+
+        // ===== Query =====
+        statistics.clear();
+        String from = Instant.now().minus(Duration.ofHours(1)).toString();
+        String to = Instant.now().toString();
+        LatencyRecorder latest = new LatencyRecorder("GET /{id}/latest", QUERIES);
+        LatencyRecorder days = new LatencyRecorder("GET /{id}?days=7", QUERIES);
+        LatencyRecorder count = new LatencyRecorder("GET /{id}?count=50", QUERIES);
+        LatencyRecorder range = new LatencyRecorder("GET /{id}?from&to", QUERIES);
+        LatencyRecorder[] queryRecorders = {latest, days, count, range};
+        String[] querySuffixes = {"/latest", "?days=7", "?count=50", "?from=" + from + "&to=" + to};
+
+        double querySeconds = runPaced(QUERIES * 4, Integer.MAX_VALUE, i -> {
+            String sensorId = fleet.sensorId(ThreadLocalRandom.current().nextInt(SENSORS));
+            return get("/api/sensor-data/" + sensorId + querySuffixes[i % 4]);
+        }, i -> queryRecorders[i % 4]);
+        long queryStatements = statistics.getPrepareStatementCount();
+
+        // ===== Izveštaj =====
+        System.out.println("---------------------------------------------------------------------------");
+        System.out.println(ingest.summary(ingestSeconds));
+        System.out.printf(Locale.ROOT, "%-28s %.1f statements/payload, %.1f observations/s%n", "",
+                (double) ingestStatements / payloads.size(), payloads.size() * TYPES / ingestSeconds);
+        for (LatencyRecorder recorder : queryRecorders) {
+            System.out.println(recorder.summary(querySeconds));
+        }
+        System.out.printf(Locale.ROOT, "%-28s %.1f statements/query%n", "", (double) queryStatements / (QUERIES * 4));
+        System.out.println("---------------------------------------------------------------------------");
+    }
+
+    @FunctionalInterface
+    private interface Call {
+        boolean execute(int index) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface RecorderSelector {
+        LatencyRecorder select(int index);
+    }
+
+    private double runPaced(int total, int ratePerSecond, Call call, LatencyRecorder recorder) throws Exception {
+        return runPaced(total, ratePerSecond, call, i -> recorder);
+    }
+
+    /**
+     * Izvršava zahteve sa CLIENTS istovremenih klijenata, i-ti zahtev je planiran za start + i/rate.
+     * Bez ograničenja ritma (Integer.MAX_VALUE) klijenti šalju odmah i meri se samo trajanje zahteva.
+     */
+    private double runPaced(int total, int ratePerSecond, Call call, RecorderSelector recorders) throws Exception {
+        long start = System.nanoTime();
+        boolean paced = ratePerSecond != Integer.MAX_VALUE;
+        double intervalNanos = 1e9 / ratePerSecond;
+        AtomicInteger next = new AtomicInteger();
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int c = 0; c < CLIENTS; c++) {
+                futures.add(clients.submit(() -> {
+                    int i;
+                    while ((i = next.getAndIncrement()) < total) {
+                        long intended = paced ? start + (long) (i * intervalNanos) : System.nanoTime();
+                        long wait = intended - System.nanoTime();
+                        if (wait > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                        boolean success;
+                        try {
+                            success = call.execute(i);
+                        } catch (Exception e) {
+                            success = false;
+                        }
+                        recorders.select(i).record(System.nanoTime() - intended, success);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        return (System.nanoTime() - start) / 1e9;
+    }
+
+    private boolean post(String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        // 202 kada je uključen ingest WAL (-Dingest.wal.enabled=true)
+        int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        return status == 200 || status == 202;
+    }
+
+    private boolean get(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET().build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+    }
+}
@@ -0,0 +1,44 @@
+package com.iot.buslivinglab.loadtest;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Beleži latencije jednog endpoint-a bez zaključavanja (fiksni niz, atomični indeks).
+ */
+public class LatencyRecorder {
+
+    private final String name;
+    private final long[] latenciesNanos;
+    private final AtomicInteger count = new AtomicInteger();
+    private final AtomicInteger errors = new AtomicInteger();
+
+    public LatencyRecorder(String name, int capacity) {
+        this.name = name;
+        this.latenciesNanos = new long[capacity];
+    }
+
+    public void record(long nanos, boolean success) {
+        int index = count.getAndIncrement();
+        if (index < latenciesNanos.length) {
+            latenciesNanos[index] = nanos;
+        }
+        if (!success) {
+            errors.incrementAndGet();
+        }
+    }
+
+    public String summary(double elapsedSeconds) {
+        int n = Math.min(count.get(), latenciesNanos.length);
+        if (n == 0) {
+            return String.format(Locale.ROOT, "%-28s no requests", name);
+        }
+        long[] sorted = Arrays.copyOf(latenciesNanos, n);
+        Arrays.sort(sorted);
+        return String.format(Locale.ROOT, "%-28s %7d req  %8.1f req/s  p50 %7.2f ms  p99 %7.2f ms  max %7.2f ms  errors %d",
+                name, n, n / elapsedSeconds,
+                sorted[n / 2] / 1e6, sorted[(int) Math.min(n - 1, n * 0.99)] / 1e6, sorted[n - 1] / 1e6,
+                errors.get());
+    }
+}
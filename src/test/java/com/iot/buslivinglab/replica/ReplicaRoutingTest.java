@@ -0,0 +1,146 @@
+package com.iot.buslivinglab.replica;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iot.buslivinglab.config.ReplicaProperties;
+import com.iot.buslivinglab.service.ReplicaRoutingService;
+import com.iot.buslivinglab.support.TestObservation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Routing čitanja na repliku sa dve lokalne H2 baze: primary (test profil) i replika.
+ * Replika dobija kopiju primary-ja posle prvog upisa, pa se po broju vraćenih vrednosti vidi
+ * odakle je upit pročitan (replika uvek vraća jednu vrednost, primary sve upisane). Heartbeat na replici se postavlja ručno da bi se simuliralo kašnjenje.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "replica.enabled=true",
+        "replica.datasources[0].name=replica-1",
+        "replica.datasources[0].url=" + ReplicaRoutingTest.REPLICA_URL,
+        "replica.health-check-interval-ms=3600000",
+        "replica.read-your-writes-window-ms=0"
+})
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ReplicaRoutingTest {
+
+    static final String REPLICA_URL =
+            "jdbc:h2:mem:replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;NON_KEYWORDS=VALUE";
+    private static final String SENSOR_ID = "sensor-replica";
+    private static final String QUERY = "/api/sensor-data/" + SENSOR_ID + "?count=10";
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ReplicaRoutingService replicaRouting;
+
+    @Autowired
+    private ReplicaProperties replicaProperties;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @BeforeAll
+    void seedReplicaWithFirstObservation() {
+        postObservation("2026-10-19T10:00:00Z");
+        new JdbcTemplate(dataSource).execute("SCRIPT TO 'target/replica-seed.sql'");
+        replica.execute("RUNSCRIPT FROM 'target/replica-seed.sql'");
+
+        // Drugi upis ostaje samo na primary-ju (replika "kasni")
+        postObservation("2026-10-19T10:05:00Z");
+    }
+
+    @AfterEach
+    void resetReadYourWrites() {
+        replicaProperties.setReadYourWritesWindowMs(0);
+    }
+
+    @Test
+    void readsGoToReplicaWhenItIsHealthyAndCaughtUp() throws Exception {
+        setReplicaHeartbeat(Instant.now());
+
+        assertThat(valuesReturned(null)).isEqualTo(1);
+    }
+
+    @Test
+    void primaryConsistencyHeaderBypassesReplica() throws Exception {
+        setReplicaHeartbeat(Instant.now());
+
+        assertThat(valuesReturned("primary")).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    void laggingReplicaFallsBackToPrimary() throws Exception {
+        setReplicaHeartbeat(Instant.now().minusSeconds(60));
+
+        assertThat(valuesReturned(null)).isEqualTo(valuesReturned("primary"));
+    }
+
+    @Test
+    void replicaWithoutHeartbeatIsUnhealthy() throws Exception {
+        replica.update("DELETE FROM replica_heartbeat");
+        replicaRouting.checkReplicas();
+
+        assertThat(valuesReturned(null)).isEqualTo(valuesReturned("primary"));
+    }
+
+    @Test
+    void recentlyWrittenSensorIsReadFromPrimary() throws Exception {
+        setReplicaHeartbeat(Instant.now());
+        replicaProperties.setReadYourWritesWindowMs(60_000);
+        postObservation("2026-10-19T10:10:00Z");
+
+        assertThat(valuesReturned(null)).isEqualTo(valuesReturned("primary")).isGreaterThan(2);
+    }
+
+    private void setReplicaHeartbeat(Instant beat) {
+        if (replica.update("UPDATE replica_heartbeat SET beat_at = ? WHERE id = 1", Timestamp.from(beat)) == 0) {
+            replica.update("INSERT INTO replica_heartbeat (id, beat_at) VALUES (1, ?)", Timestamp.from(beat));
+        }
+        replicaRouting.checkReplicas();
+    }
+
+    private int valuesReturned(String consistency) throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        if (consistency != null) {
+            headers.set(replicaProperties.getConsistencyHeader(), consistency);
+        }
+        ResponseEntity<String> response = restTemplate.exchange(QUERY, HttpMethod.GET,
+                new HttpEntity<>(headers), String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        JsonNode data = objectMapper.readTree(response.getBody()).path("data");
+        return data.get(0).path("values").size();
+    }
+
+    private void postObservation(String time) {
+        ResponseEntity<String> response = TestObservation.sensor(SENSOR_ID).label("Replica sensor")
+                .temperature(time, 21.5).post(restTemplate);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+}
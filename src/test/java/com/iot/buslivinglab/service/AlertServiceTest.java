@@ -0,0 +1,72 @@
+package com.iot.buslivinglab.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iot.buslivinglab.entity.SensorMeasurementType;
+import com.iot.buslivinglab.repository.SensorMeasurementTypeRepository;
+import com.iot.buslivinglab.support.TestObservation;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class AlertServiceTest {
+
+    private static final String SENSOR_ID = "sensor-alerts";
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private AlertService alertService;
+
+    @Autowired
+    private SensorMeasurementTypeRepository sensorMeasurementTypeRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void sustainedBreachOfSensorThresholdIsStoredAsOneAlert() throws Exception {
+        postObservation("2026-10-19T08:00:00Z", 25);
+        SensorMeasurementType series = sensorMeasurementTypeRepository
+                .findBySensorIdAndMeasurementType(SENSOR_ID, "ll:soilTemperature").orElseThrow();
+        series.setMaxThreshold(30.0);
+        sensorMeasurementTypeRepository.save(series);
+        alertService.refreshThresholds();
+
+        postObservation("2026-10-19T09:00:00Z", 31);
+        postObservation("2026-10-19T09:10:00Z", 33);
+        postObservation("2026-10-19T09:20:00Z", 32);
+        alertService.flush();
+
+        JsonNode alerts = objectMapper.readTree(restTemplate.getForObject(
+                "/api/sensor-data/alerts?sensorId=" + SENSOR_ID + "&open=true", String.class));
+        assertThat(alerts).hasSize(1);
+        assertThat(alerts.get(0).path("kind").asText()).isEqualTo("above_max");
+        assertThat(alerts.get(0).path("openedAt").asText()).isEqualTo("2026-10-19T09:00:00Z");
+        assertThat(alerts.get(0).path("peakValue").asDouble()).isEqualTo(33);
+        assertThat(alerts.get(0).path("sampleCount").asLong()).isEqualTo(3);
+
+        postObservation("2026-10-19T09:30:00Z", 20);
+        alertService.flush();
+
+        JsonNode closed = objectMapper.readTree(restTemplate.getForObject(
+                "/api/sensor-data/alerts?sensorId=" + SENSOR_ID, String.class));
+        assertThat(closed).hasSize(1);
+        assertThat(closed.get(0).path("closedAt").asText()).isEqualTo("2026-10-19T09:30:00Z");
+    }
+
+    private void postObservation(String time, double value) {
+        ResponseEntity<String> response = TestObservation.sensor(SENSOR_ID).label("Alert sensor").temperature(time, value)
+                .post(restTemplate);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+}
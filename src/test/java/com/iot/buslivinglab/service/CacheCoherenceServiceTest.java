@@ -0,0 +1,85 @@
+package com.iot.buslivinglab.service;
+
+import com.iot.buslivinglab.entity.UnitMapping;
+import com.iot.buslivinglab.observability.QueryStatsResponseAdvice;
+import com.iot.buslivinglab.repository.CacheGenerationRepository;
+import com.iot.buslivinglab.repository.UnitMappingRepository;
+import com.iot.buslivinglab.support.TestObservation;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Druga instanca je simulirana direktnim izmenama baze: povećanjem generacije u cache_generations
+ * i izmenom unit_mappings bez poziva ove instance.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class CacheCoherenceServiceTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private CacheCoherenceService cacheCoherence;
+
+    @Autowired
+    private CacheGenerationRepository cacheGenerationRepository;
+
+    @Autowired
+    private UnitMappingRepository unitMappingRepository;
+
+    @Autowired
+    private UnitMappingService unitMappingService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void metadataCacheIsDroppedWhenAnotherInstanceBumpsItsGeneration() {
+        cacheCoherence.poll();
+        assertThat(repositoryMethods(postObservation("2026-10-19T10:00:00Z"))).contains("SensorRepository.upsert");
+        assertThat(repositoryMethods(postObservation("2026-10-19T10:01:00Z"))).doesNotContain("SensorRepository.upsert");
+
+        transactionTemplate.executeWithoutResult(status ->
+                cacheGenerationRepository.bump(SensorMetadataService.CACHE_NAME, Instant.now()));
+        cacheCoherence.poll();
+
+        assertThat(repositoryMethods(postObservation("2026-10-19T10:02:00Z"))).contains("SensorRepository.upsert");
+    }
+
+    @Test
+    void unitMappingChangedElsewhereIsLoadedAfterGenerationBump() {
+        cacheCoherence.poll();
+        long version = unitMappingService.current().getVersion();
+
+        unitMappingRepository.save(UnitMapping.builder().unitCode("unit:TEST_PPM").unitLabel("ppm").build());
+        assertThat(unitMappingService.current().label("unit:TEST_PPM")).isEmpty();
+        transactionTemplate.executeWithoutResult(status ->
+                cacheGenerationRepository.bump(UnitMappingService.CACHE_NAME, Instant.now()));
+
+        cacheCoherence.poll();
+
+        assertThat(unitMappingService.current().getVersion()).isGreaterThan(version);
+        assertThat(unitMappingService.current().label("unit:TEST_PPM")).isEqualTo("ppm");
+    }
+
+    private static String repositoryMethods(ResponseEntity<String> response) {
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return response.getHeaders().getFirst(QueryStatsResponseAdvice.QUERY_METHODS_HEADER);
+    }
+
+    private ResponseEntity<String> postObservation(String time) {
+        return TestObservation.sensor("sensor-coherence").label("Coherence sensor").temperature(time, 20.5)
+                .post(restTemplate);
+    }
+}
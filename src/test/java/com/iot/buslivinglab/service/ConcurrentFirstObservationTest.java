@@ -0,0 +1,133 @@
+package com.iot.buslivinglab.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iot.buslivinglab.dto.request.SensorObservationRequest;
+import com.iot.buslivinglab.support.TestObservation;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Stres test za istovremene prve opservacije novih senzora i novih tipova merenja: nijedan zahtev ne sme
+ * da padne na primarnom ključu metapodataka, a svako merenje mora biti upisano tačno jednom.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class ConcurrentFirstObservationTest {
+
+    private static final int SENSORS = 6;
+    private static final int PAYLOADS_PER_SENSOR = 8;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private SensorDataService sensorDataService;
+
+    @Autowired
+    private SensorMetadataService sensorMetadataService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void concurrentFirstObservationsOfNewSensorsAllSucceed() throws Exception {
+        String[] types = {"stressTemperature", "stressMoisture", "stressConductivity"};
+        List<Callable<HttpStatus>> tasks = new ArrayList<>();
+        for (int sensor = 0; sensor < SENSORS; sensor++) {
+            for (int payload = 0; payload < PAYLOADS_PER_SENSOR; payload++) {
+                String body = observation("stress-http-" + sensor, types, payload);
+                tasks.add(() -> HttpStatus.valueOf(post(body)));
+            }
+        }
+
+        for (HttpStatus status : runConcurrently(tasks)) {
+            assertThat(status).isEqualTo(HttpStatus.OK);
+        }
+        assertStored("stress-http-", SENSORS, types.length, SENSORS * PAYLOADS_PER_SENSOR * types.length);
+    }
+
+    /**
+     * Bez lock-a senzora (kao da zahteve primaju različite instance) upsert-i moraju sami da izdrže trku
+     */
+    @Test
+    void concurrentTransactionsWithoutSensorLockAllSucceed() throws Exception {
+        String[] types = {"raceTemperature", "raceMoisture"};
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (int payload = 0; payload < PAYLOADS_PER_SENSOR; payload++) {
+            SensorObservationRequest request = objectMapper.readValue(
+                    observation("stress-race-0", types, payload), SensorObservationRequest.class);
+            tasks.add(() -> transactionTemplate.execute(status ->
+                    sensorDataService.processSensorObservation(request).saved() == types.length));
+        }
+
+        assertThat(runConcurrently(tasks)).containsOnly(true);
+        assertStored("stress-race-", 1, types.length, PAYLOADS_PER_SENSOR * types.length);
+    }
+
+    private void assertStored(String sensorPrefix, int sensors, int types, int rows) {
+        sensorMetadataService.flushLastObserved();
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM sensors WHERE sensor_id LIKE ?",
+                Integer.class, sensorPrefix + "%")).isEqualTo(sensors);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM sensor_measurement_types WHERE sensor_id LIKE ?",
+                Integer.class, sensorPrefix + "%")).isEqualTo(sensors * types);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM sensor_data WHERE sensor_id LIKE ?",
+                Integer.class, sensorPrefix + "%")).isEqualTo(rows);
+        assertThat(jdbc.queryForObject("SELECT MAX(last_observed) = MIN(last_observed) FROM sensor_measurement_types " +
+                "WHERE sensor_id LIKE ?", Boolean.class, sensorPrefix + "%")).isTrue();
+    }
+
+    private static <T> List<T> runConcurrently(List<Callable<T>> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (Callable<T> task : tasks) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private int post(String body) {
+        return TestObservation.post(restTemplate, body).getStatusCode().value();
+    }
+
+    private static String observation(String sensorId, String[] types, int payload) {
+        TestObservation observation = TestObservation.sensor(sensorId).label("Stress sensor");
+        for (String type : types) {
+            observation.member("ll:" + type, "2026-10-19T08:" + String.format("%02d", payload) + ":00Z", 20 + payload,
+                    TestObservation.CELSIUS);
+        }
+        return observation.json();
+    }
+}
@@ -0,0 +1,99 @@
+package com.iot.buslivinglab.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iot.buslivinglab.entity.SensorMeasurementType;
+import com.iot.buslivinglab.repository.SensorMeasurementTypeRepository;
+import com.iot.buslivinglab.support.TestObservation;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class DeadbandServiceTest {
+
+    private static final String SENSOR_ID = "sensor-deadband";
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private DeadbandService deadbandService;
+
+    @Autowired
+    private SensorMetadataService metadataService;
+
+    @Autowired
+    private SensorMeasurementTypeRepository sensorMeasurementTypeRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void valuesInsideDeadbandAreNotStoredAndReadsRebuildTheSteps() throws Exception {
+        assertThat(postObservation("2026-10-19T08:00:00Z", 25).path("compressed").asInt()).isZero();
+        SensorMeasurementType series = sensorMeasurementTypeRepository
+                .findBySensorIdAndMeasurementType(SENSOR_ID, "ll:soilTemperature").orElseThrow();
+        series.setDeadbandAbsolute(0.5);
+        sensorMeasurementTypeRepository.save(series);
+        deadbandService.refreshPolicies();
+
+        assertThat(postObservation("2026-10-19T09:00:00Z", 20).path("compressed").asInt()).isZero();
+        assertThat(postObservation("2026-10-19T09:10:00Z", 20.2).path("compressed").asInt()).isEqualTo(1);
+        assertThat(postObservation("2026-10-19T09:20:00Z", 20.4).path("compressed").asInt()).isEqualTo(1);
+        JsonNode repeated = postObservation("2026-10-19T09:20:00Z", 20.4);
+        assertThat(repeated.path("compressed").asInt()).isZero();
+        assertThat(repeated.path("duplicates").asInt()).isEqualTo(1);
+        // retry starije neupisane vrednosti: nema novog reda ni događaja, statistika se ne menja
+        long count = statsCount();
+        JsonNode lateRetry = postObservation("2026-10-19T09:10:00Z", 20.2);
+        assertThat(lateRetry.path("compressed").asInt()).isZero();
+        assertThat(lateRetry.path("duplicates").asInt()).isEqualTo(1);
+        assertThat(statsCount()).isEqualTo(count).isEqualTo(4);
+        metadataService.flushLastObserved();
+
+        // 09:05 - 09:25 nema upisanih tačaka: nivo 20 sa početka traje do kraja perioda
+        JsonNode values = range("2026-10-19T09:05:00Z", "2026-10-19T09:25:00Z");
+        assertThat(values).hasSize(2);
+        assertThat(values.get(0).path("time").asText()).isEqualTo("2026-10-19T09:20:00Z");
+        assertThat(values.get(1).path("time").asText()).isEqualTo("2026-10-19T09:05:00Z");
+        assertThat(values.get(1).path("value").asDouble()).isEqualTo(20);
+
+        // count: nivo do poslednje primljene vrednosti je najnovija od N tačaka
+        JsonNode latest = objectMapper.readTree(restTemplate.getForObject(
+                "/api/sensor-data/" + SENSOR_ID + "?count=2", String.class)).path("data").get(0).path("values");
+        assertThat(latest).hasSize(2);
+        assertThat(latest.get(0).path("time").asText()).isEqualTo("2026-10-19T09:20:00Z");
+        assertThat(latest.get(0).path("value").asDouble()).isEqualTo(20);
+        assertThat(latest.get(1).path("time").asText()).isEqualTo("2026-10-19T09:00:00Z");
+
+        assertThat(postObservation("2026-10-19T09:30:00Z", 21).path("compressed").asInt()).isZero();
+        assertThat(range("2026-10-19T08:30:00Z", "2026-10-19T09:40:00Z")).hasSize(3);
+    }
+
+    private long statsCount() throws Exception {
+        return objectMapper.readTree(restTemplate.getForObject(
+                        "/api/sensor-data/" + SENSOR_ID + "/stats?from=2026-10-19&to=2026-10-19", String.class))
+                .path("data").get(0).path("count").asLong();
+    }
+
+    private JsonNode range(String from, String to) throws Exception {
+        JsonNode response = objectMapper.readTree(restTemplate.getForObject(
+                "/api/sensor-data/" + SENSOR_ID + "?from=" + from + "&to=" + to, String.class));
+        return response.path("data").get(0).path("values");
+    }
+
+    private JsonNode postObservation(String time, double value) throws Exception {
+        ResponseEntity<String> response = TestObservation.sensor(SENSOR_ID).label("Deadband sensor")
+                .temperature(time, value).post(restTemplate);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return objectMapper.readTree(response.getBody());
+    }
+}
@@ -0,0 +1,80 @@
+package com.iot.buslivinglab.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iot.buslivinglab.entity.DerivedMeasurementType;
+import com.iot.buslivinglab.entity.SensorData;
+import com.iot.buslivinglab.repository.DerivedMeasurementTypeRepository;
+import com.iot.buslivinglab.support.TestObservation;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class DerivedMeasurementServiceTest {
+
+    private static final String SENSOR_ID = "sensor-derived";
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private DerivedMeasurementService derivedMeasurementService;
+
+    @Autowired
+    private DerivedMeasurementTypeRepository derivedTypeRepository;
+
+    @Autowired
+    private SensorDataStore sensorDataStore;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void derivedTypesAreComputedAtIngestAndStoredLikeReceivedTypes() throws Exception {
+        derivedTypeRepository.saveAll(List.of(
+                DerivedMeasurementType.builder().typeId("ll:soilConductivity25").function("compensated_ec")
+                        .sourceType("ll:soilConductivity").temperatureType("ll:soilTemperature").sensorId(SENSOR_ID)
+                        .build(),
+                DerivedMeasurementType.builder().typeId("ll:soilConductivityAvg").function("moving_average")
+                        .sourceType("ll:soilConductivity").windowSize(2).sensorId(SENSOR_ID).build()));
+        derivedMeasurementService.refreshDefinitions();
+
+        // temperatura stiže posle EC vrednosti u istoj opservaciji
+        assertThat(postObservation("2026-10-19T09:00:00Z", 1200, 35).path("derived").asInt()).isEqualTo(2);
+        JsonNode retry = postObservation("2026-10-19T09:00:00Z", 1200, 35);
+        assertThat(retry.path("derived").asInt()).isZero();
+        assertThat(postObservation("2026-10-19T09:10:00Z", 1000, 25).path("derived").asInt()).isEqualTo(2);
+
+        List<SensorData> compensated = sensorDataStore.findLatestNBySensorIdAndMeasurementType(SENSOR_ID,
+                "ll:soilConductivity25", 10);
+        assertThat(compensated).hasSize(2);
+        assertThat(compensated.get(1).getValue()).isCloseTo(1000, within(1e-9));
+        assertThat(compensated.get(1).getUnit()).isEqualTo("unit:MicroS-PER-CentiM");
+        assertThat(sensorDataStore.findLatestNBySensorIdAndMeasurementType(SENSOR_ID, "ll:soilConductivityAvg", 1)
+                .get(0).getValue()).isEqualTo(1100);
+
+        JsonNode latest = objectMapper.readTree(restTemplate.getForObject(
+                "/api/sensor-data/" + SENSOR_ID + "/latest", String.class));
+        assertThat(latest.path("data")).hasSize(4);
+    }
+
+    private JsonNode postObservation(String time, double conductivity, double temperature) throws Exception {
+        ResponseEntity<String> response = TestObservation.sensor(SENSOR_ID).label("Derived sensor")
+                .member("ll:soilConductivity", time, conductivity, "unit:MicroS-PER-CentiM")
+                .temperature(time, temperature)
+                .post(restTemplate);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return objectMapper.readTree(response.getBody());
+    }
+}
@@ -0,0 +1,36 @@
+package com.iot.buslivinglab.service;
+
+import com.iot.buslivinglab.support.TestObservation;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "ingest.wal.enabled=true",
+        "ingest.wal.directory=target/wal-validation-test"})
+@ActiveProfiles("test")
+class IngestWalServiceTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    void observationThatReplayWouldRejectIsRefusedBeforeTheWalAppend() {
+        ResponseEntity<String> missingValue = postObservation("null");
+        assertThat(missingValue.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(missingValue.getBody()).contains("Missing numeric value for ll:soilTemperature");
+
+        assertThat(postObservation("20").getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+    }
+
+    private ResponseEntity<String> postObservation(String value) {
+        return TestObservation.sensor("sensor-wal").label("WAL sensor").temperature("2026-10-19T10:00:00Z", value)
+                .post(restTemplate);
+    }
+}
@@ -0,0 +1,88 @@
+package com.iot.buslivinglab.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iot.buslivinglab.repository.SensorMeasurementTypeRepository;
+import com.iot.buslivinglab.repository.SensorRepository;
+import com.iot.buslivinglab.support.TestObservation;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class LivenessServiceTest {
+
+    private static final String SENSOR_ID = "sensor-liveness";
+    private static final String TYPE = "ll:soilMoisture";
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private LivenessService livenessService;
+
+    @Autowired
+    private SensorMetadataService metadataService;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private SensorMeasurementTypeRepository sensorMeasurementTypeRepository;
+
+    @Autowired
+    private SensorDataStore sensorDataStore;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void silentSeriesGetsGapUntilNextValue() throws Exception {
+        postObservation("2025-01-01T00:00:00Z");
+        metadataService.flushLastObserved();
+        livenessService.scan();
+
+        assertThat(sensorMeasurementTypeRepository.findBySensorIdAndMeasurementType(SENSOR_ID, TYPE).orElseThrow()
+                .getIsActive()).isFalse();
+        assertThat(sensorRepository.findById(SENSOR_ID).orElseThrow().getIsActive()).isFalse();
+        JsonNode open = gaps("&open=true");
+        assertThat(open).hasSize(1);
+        assertThat(open.get(0).path("startedAt").asText()).isEqualTo("2025-01-01T00:00:00Z");
+        assertThat(open.get(0).path("endedAt").isNull()).isTrue();
+
+        // nova vrednost zatvara prekid; i ona je stara, pa ista provera otvara sledeći
+        postObservation("2025-03-01T00:00:00Z");
+        livenessService.scan();
+
+        JsonNode all = gaps("");
+        assertThat(all).hasSize(2);
+        assertThat(all.get(0).path("startedAt").asText()).isEqualTo("2025-03-01T00:00:00Z");
+        assertThat(all.get(0).path("endedAt").isNull()).isTrue();
+        assertThat(all.get(1).path("endedAt").asText()).isEqualTo("2025-03-01T00:00:00Z");
+        assertThat(all.get(1).path("durationSeconds").asLong()).isEqualTo(59 * 24 * 3600);
+        assertThat(gaps("&to=2025-02-01T00:00:00Z")).hasSize(1);
+        // kraj prekida koji je zatvorila druga instanca
+        assertThat(sensorDataStore.findFirstTimestampAfter(SENSOR_ID, TYPE, Instant.parse("2025-01-01T00:00:00Z")))
+                .contains(Instant.parse("2025-03-01T00:00:00Z"));
+    }
+
+    private JsonNode gaps(String query) throws Exception {
+        return objectMapper.readTree(restTemplate.getForObject(
+                "/api/sensor-data/gaps?sensorId=" + SENSOR_ID + query, String.class));
+    }
+
+    private void postObservation(String time) {
+        ResponseEntity<String> response = TestObservation.sensor(SENSOR_ID).label("Liveness sensor")
+                .member(TYPE, time, 30, "unit:PERCENT").post(restTemplate);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+}
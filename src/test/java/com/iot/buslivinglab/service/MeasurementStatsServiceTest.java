@@ -0,0 +1,127 @@
+package com.iot.buslivinglab.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iot.buslivinglab.observability.QueryStatsResponseAdvice;
+import com.iot.buslivinglab.repository.MeasurementDailyStatsRepository;
+import com.iot.buslivinglab.support.TestObservation;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class MeasurementStatsServiceTest {
+
+    private static final String SENSOR_ID = "sensor-stats";
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private MeasurementStatsService statsService;
+
+    @Autowired
+    private MeasurementDailyStatsRepository statsRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void rangeStatsMergeDailySummariesAcrossFlushes() throws Exception {
+        postObservation("2026-03-01T10:00:00Z", 10);
+        postObservation("2026-03-01T11:00:00Z", 20);
+        statsService.flush();
+        postObservation("2026-03-01T12:00:00Z", 30);
+        postObservation("2026-03-02T10:00:00Z", 40);
+        statsService.flush();
+
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                "/api/sensor-data/" + SENSOR_ID + "/stats?from=2026-03-01&to=2026-03-02", String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(Integer.parseInt(response.getHeaders().getFirst(QueryStatsResponseAdvice.QUERY_COUNT_HEADER)))
+                .isLessThanOrEqualTo(2);
+
+        JsonNode stats = objectMapper.readTree(response.getBody()).path("data").get(0);
+        assertThat(stats.path("count").asLong()).isEqualTo(4);
+        assertThat(stats.path("days").asInt()).isEqualTo(2);
+        assertThat(stats.path("min").asDouble()).isEqualTo(10);
+        assertThat(stats.path("max").asDouble()).isEqualTo(40);
+        assertThat(stats.path("mean").asDouble()).isCloseTo(25, within(1e-9));
+        assertThat(stats.path("stddev").asDouble()).isCloseTo(Math.sqrt(500.0 / 3), within(1e-9));
+        assertThat(stats.path("p50").asDouble()).isCloseTo(20, within(0.2));
+
+        JsonNode fahrenheit = objectMapper.readTree(restTemplate.getForObject(
+                "/api/sensor-data/" + SENSOR_ID + "/stats?from=2026-03-01&to=2026-03-01&unit=DEG_F", String.class))
+                .path("data").get(0);
+        assertThat(fahrenheit.path("unit").asText()).isEqualTo("°F");
+        assertThat(fahrenheit.path("count").asLong()).isEqualTo(3);
+        assertThat(fahrenheit.path("mean").asDouble()).isCloseTo(68, within(1e-9));
+        assertThat(fahrenheit.path("stddev").asDouble()).isCloseTo(18, within(1e-9));
+    }
+
+    @Test
+    void coverageCountsFlushedAndPendingValuesPerDayAndHour() throws Exception {
+        postObservation("2026-04-01T10:00:00Z", 10);
+        postObservation("2026-04-01T10:30:00Z", 11);
+        statsService.flush();
+        postObservation("2026-04-02T23:00:00Z", 12);
+
+        ResponseEntity<String> response = restTemplate.getForEntity("/api/sensor-data/coverage?sensorIds="
+                + SENSOR_ID + ",sensor-without-data&from=2026-04-01&to=2026-04-03", String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(Integer.parseInt(response.getHeaders().getFirst(QueryStatsResponseAdvice.QUERY_COUNT_HEADER)))
+                .isLessThanOrEqualTo(1);
+        JsonNode sensors = objectMapper.readTree(response.getBody()).path("sensors");
+        assertThat(sensors.get(0).path("counts").toString()).isEqualTo("[2,1,0]");
+        assertThat(sensors.get(1).path("total").asLong()).isZero();
+
+        JsonNode hourly = objectMapper.readTree(restTemplate.getForObject("/api/sensor-data/coverage?sensorIds="
+                + SENSOR_ID + "&from=2026-04-01&to=2026-04-03&resolution=hour", String.class))
+                .path("sensors").get(0).path("counts");
+        assertThat(hourly).hasSize(72);
+        assertThat(hourly.get(10).asLong()).isEqualTo(2);
+        assertThat(hourly.get(24 + 23).asLong()).isEqualTo(1);
+        assertThat(hourly.get(11).asLong()).isZero();
+    }
+
+    @Test
+    void backfillRebuildsMissingDaysFromStoredMeasurements() throws Exception {
+        postObservation("2026-05-01T08:00:00Z", 10);
+        postObservation("2026-05-01T09:00:00Z", 20);
+        postObservation("2026-05-03T09:00:00Z", 30);
+        statsService.flush();
+        // dani iz vremena pre dnevnih statistika
+        statsRepository.deleteAll(statsRepository.findBySensorIdAndDayBetween(SENSOR_ID,
+                LocalDate.parse("2026-05-01"), LocalDate.parse("2026-05-01")));
+
+        String backfill = "/api/admin/stats/backfill?sensorId=" + SENSOR_ID + "&from=2026-05-01&to=2026-05-03";
+        JsonNode first = objectMapper.readTree(restTemplate.postForObject(backfill, null, String.class));
+        assertThat(first.path("rows").asInt()).isEqualTo(1);
+        JsonNode repeated = objectMapper.readTree(restTemplate.postForObject(backfill, null, String.class));
+        assertThat(repeated.path("rows").asInt()).isZero();
+
+        JsonNode counts = objectMapper.readTree(restTemplate.getForObject("/api/sensor-data/coverage?sensorIds="
+                + SENSOR_ID + "&from=2026-05-01&to=2026-05-03", String.class)).path("sensors").get(0).path("counts");
+        assertThat(counts.toString()).isEqualTo("[2,0,1]");
+
+        assertThat(restTemplate.postForEntity("/api/admin/stats/backfill?sensorId=" + SENSOR_ID + "&from=2026-05-01&to="
+                + LocalDate.now(ZoneOffset.UTC), null, String.class).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    private void postObservation(String time, double value) {
+        ResponseEntity<String> response = TestObservation.sensor(SENSOR_ID).label("Stats sensor").temperature(time, value)
+                .post(restTemplate);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+}
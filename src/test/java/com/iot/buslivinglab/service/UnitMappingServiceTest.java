@@ -0,0 +1,67 @@
+package com.iot.buslivinglab.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iot.buslivinglab.entity.UnitMapping;
+import com.iot.buslivinglab.repository.MeasurementTypeRepository;
+import com.iot.buslivinglab.repository.UnitMappingRepository;
+import com.iot.buslivinglab.support.TestObservation;
+import com.iot.buslivinglab.unit.UnitMappingSnapshot;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class UnitMappingServiceTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private UnitMappingService unitMappingService;
+
+    @Autowired
+    private UnitMappingRepository unitMappingRepository;
+
+    @Autowired
+    private MeasurementTypeRepository measurementTypeRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void changedMappingPublishesNewSnapshotAndSyncsStoredLabels() throws Exception {
+        postObservation("sensor-units", "unitTestIlluminance", "unit:TEST_LUX");
+        assertThat(measurementTypeRepository.findById("ll:unitTestIlluminance").orElseThrow().getUnitLabel()).isEmpty();
+
+        UnitMappingSnapshot before = unitMappingService.current();
+        assertThat(unitMappingService.refresh()).isZero();
+        assertThat(unitMappingService.current()).isSameAs(before);
+
+        unitMappingRepository.save(UnitMapping.builder().unitCode("unit:TEST_LUX").unitLabel("lx").build());
+        assertThat(unitMappingService.refresh()).isEqualTo(1);
+        UnitMappingSnapshot after = unitMappingService.current();
+
+        assertThat(after.getVersion()).isEqualTo(before.getVersion() + 1);
+        assertThat(after.label("unit:TEST_LUX")).isEqualTo("lx");
+        assertThat(before.label("unit:TEST_LUX")).isEmpty();
+        assertThat(measurementTypeRepository.findById("ll:unitTestIlluminance").orElseThrow().getUnitLabel())
+                .isEqualTo("lx");
+
+        ResponseEntity<String> latest = restTemplate.getForEntity("/api/sensor-data/sensor-units/latest", String.class);
+        assertThat(latest.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(objectMapper.readTree(latest.getBody()).path("data").get(0).path("unit").asText()).isEqualTo("lx");
+    }
+
+    private void postObservation(String sensorId, String type, String unit) {
+        ResponseEntity<String> response = TestObservation.sensor(sensorId).label("Unit sensor")
+                .member("ll:" + type, "2026-10-19T10:00:00Z", 420, unit).post(restTemplate);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+}
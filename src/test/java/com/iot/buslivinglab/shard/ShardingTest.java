@@ -0,0 +1,168 @@
+package com.iot.buslivinglab.shard;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iot.buslivinglab.entity.SensorData;
+import com.iot.buslivinglab.service.SensorDataStore;
+import com.iot.buslivinglab.support.TestObservation;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sharding sensor_data na dve lokalne H2 baze; metapodaci i dodele ostaju na primary-ju (test profil)
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "sharding.enabled=true",
+        "sharding.shards[0].name=shard-1",
+        "sharding.shards[0].url=jdbc:h2:mem:shard1;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;NON_KEYWORDS=VALUE",
+        "sharding.shards[1].name=shard-2",
+        "sharding.shards[1].url=jdbc:h2:mem:shard2;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;NON_KEYWORDS=VALUE",
+        "sharding.assignment-cache-ttl-ms=0",
+        "sharding.rebalance-batch-size=2"
+})
+@ActiveProfiles("test")
+class ShardingTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ShardSet shardSet;
+
+    @Autowired
+    private SensorDataStore sensorDataStore;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void ringSpreadsSensorsAcrossShardsAndKeepsMostOnAddedShard() {
+        ShardRing two = new ShardRing(List.of("shard-1", "shard-2"), 128);
+        ShardRing three = new ShardRing(List.of("shard-1", "shard-2", "shard-3"), 128);
+        Map<String, Integer> counts = new HashMap<>();
+        int moved = 0;
+        for (int i = 0; i < 10_000; i++) {
+            String sensorId = "sensor-" + i;
+            counts.merge(two.locate(sensorId), 1, Integer::sum);
+            String after = three.locate(sensorId);
+            if (!after.equals(two.locate(sensorId))) {
+                assertThat(after).isEqualTo("shard-3");
+                moved++;
+            }
+        }
+
+        assertThat(counts.get("shard-1")).isBetween(4_000, 6_000);
+        assertThat(moved).isBetween(2_300, 4_300);
+    }
+
+    @Test
+    void sensorIsWrittenToAndReadFromItsShardOnly() throws Exception {
+        String sensorId = "sensor-shard-route";
+        postObservation(sensorId, "2026-10-19T10:00:00Z", 20.0);
+        postObservation(sensorId, "2026-10-19T10:05:00Z", 21.0);
+
+        Shard home = shardSet.ringOwner(sensorId);
+        for (Shard shard : shardSet.getShards()) {
+            assertThat(rowsOn(shard, sensorId)).isEqualTo(shard == home ? 2 : 0);
+        }
+        assertThat(valuesReturned(sensorId)).isEqualTo(2);
+    }
+
+    @Test
+    void shardInsertsCommitAndRollBackWithTheIngestTransaction() {
+        String sensorId = "sensor-shard-rollback";
+        Shard home = shardSet.ringOwner(sensorId);
+        transactionTemplate.executeWithoutResult(status -> {
+            assertThat(sensorDataStore.save(row(sensorId, "2026-10-19T11:00:00Z"))).isTrue();
+            status.setRollbackOnly();
+        });
+        assertThat(rowsOn(home, sensorId)).isZero();
+
+        transactionTemplate.executeWithoutResult(status ->
+                assertThat(sensorDataStore.save(row(sensorId, "2026-10-19T11:00:00Z"))).isTrue());
+        assertThat(rowsOn(home, sensorId)).isEqualTo(1);
+    }
+
+    @Test
+    void rebalanceMovesHistoryAndKeepsSensorReadable() throws Exception {
+        String sensorId = "sensor-shard-move";
+        for (int minute = 0; minute < 5; minute++) {
+            postObservation(sensorId, "2026-10-19T11:0" + minute + ":00Z", 20.0 + minute);
+        }
+        Shard source = shardSet.ringOwner(sensorId);
+        Shard target = shardSet.getShards().stream().filter(shard -> shard != source).findFirst().orElseThrow();
+
+        ResponseEntity<String> response = restTemplate.postForEntity("/api/admin/shards/rebalance?sensorId="
+                + sensorId + "&targetShard=" + target.getName(), null, String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        JsonNode result = objectMapper.readTree(response.getBody());
+        assertThat(result.path("rowsCopied").asLong()).isEqualTo(5);
+        assertThat(result.path("rowsDeleted").asLong()).isEqualTo(5);
+
+        assertThat(rowsOn(source, sensorId)).isZero();
+        assertThat(rowsOn(target, sensorId)).isEqualTo(5);
+
+        postObservation(sensorId, "2026-10-19T11:10:00Z", 30.0);
+        assertThat(rowsOn(target, sensorId)).isEqualTo(6);
+        assertThat(valuesReturned(sensorId)).isEqualTo(6);
+
+        ResponseEntity<String> again = restTemplate.postForEntity("/api/admin/shards/rebalance?sensorId="
+                + sensorId + "&targetShard=" + target.getName(), null, String.class);
+        assertThat(again.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void overviewGathersCountsFromAllShards() throws Exception {
+        postObservation("sensor-shard-overview", "2026-10-19T12:00:00Z", 20.0);
+
+        ResponseEntity<String> response = restTemplate.getForEntity("/api/admin/shards", String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        JsonNode overview = objectMapper.readTree(response.getBody());
+
+        long expected = 0;
+        for (Shard shard : shardSet.getShards()) {
+            expected += shard.getJdbc().queryForObject("SELECT COUNT(*) FROM sensor_data", Long.class);
+        }
+        assertThat(overview.path("shards")).hasSize(2);
+        assertThat(overview.path("totalRows").asLong()).isEqualTo(expected).isPositive();
+    }
+
+    private static SensorData row(String sensorId, String time) {
+        return SensorData.builder().sensorId(sensorId).measurementType("ll:soilTemperature").value(20.0)
+                .unit("unit:DEG_C").timestamp(Instant.parse(time)).location("Test field").rawData("{}").build();
+    }
+
+    private int rowsOn(Shard shard, String sensorId) {
+        return shard.getJdbc().queryForObject("SELECT COUNT(*) FROM sensor_data WHERE sensor_id = ?",
+                Integer.class, sensorId);
+    }
+
+    private int valuesReturned(String sensorId) throws Exception {
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                "/api/sensor-data/" + sensorId + "?count=100", String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return objectMapper.readTree(response.getBody()).path("data").get(0).path("values").size();
+    }
+
+    private void postObservation(String sensorId, String time, double value) {
+        ResponseEntity<String> response = TestObservation.sensor(sensorId).label("Shard sensor").temperature(time, value)
+                .post(restTemplate);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+}
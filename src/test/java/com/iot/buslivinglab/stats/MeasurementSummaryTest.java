@@ -0,0 +1,67 @@
+package com.iot.buslivinglab.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class MeasurementSummaryTest {
+
+    @Test
+    void mergedDailySummariesMatchOneSummaryOverAllValues() {
+        Random random = new Random(42);
+        double[] values = new double[30 * 288];
+        MeasurementSummary whole = new MeasurementSummary();
+        MeasurementSummary merged = new MeasurementSummary();
+        for (int day = 0; day < 30; day++) {
+            MeasurementSummary daily = new MeasurementSummary();
+            for (int i = 0; i < 288; i++) {
+                double value = 12 + day * 0.3 + random.nextGaussian() * 4;
+                values[day * 288 + i] = value;
+                whole.add(value);
+                daily.add(value);
+            }
+            // kao posle upisa u bazu i ponovnog čitanja
+            merged.merge(MeasurementSummary.of(daily.getCount(), daily.getMean(), daily.getM2(),
+                    daily.getMin(), daily.getMax(), daily.sketchBytes()));
+        }
+
+        assertThat(merged.getCount()).isEqualTo(values.length);
+        assertThat(merged.getMean()).isCloseTo(whole.getMean(), within(1e-9));
+        assertThat(merged.getStddev()).isCloseTo(whole.getStddev(), within(1e-9));
+        assertThat(merged.getMin()).isEqualTo(whole.getMin());
+        assertThat(merged.getMax()).isEqualTo(whole.getMax());
+
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double q : new double[]{0.05, 0.5, 0.95}) {
+            double exact = sorted[(int) Math.floor(q * (sorted.length - 1))];
+            assertThat(merged.quantile(q)).isCloseTo(exact, within(Math.abs(exact) * QuantileSketch.RELATIVE_ACCURACY + 1e-9));
+            assertThat(merged.quantile(q)).isEqualTo(whole.quantile(q));
+        }
+    }
+
+    @Test
+    void sketchHandlesNegativeZeroAndWideRangesCompactly() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = -500; i <= 500; i++) {
+            sketch.add(i * 0.1);
+        }
+        byte[] bytes = sketch.toBytes();
+        QuantileSketch restored = QuantileSketch.fromBytes(bytes);
+
+        assertThat(restored.count()).isEqualTo(1001);
+        assertThat(restored.quantile(0)).isCloseTo(-50, within(0.5));
+        assertThat(restored.quantile(0.5)).isZero();
+        assertThat(restored.quantile(1)).isCloseTo(50, within(0.5));
+        assertThat(bytes.length).isLessThan(2000);
+
+        sketch.add(1e-7);
+        sketch.add(1e12);
+        assertThat(sketch.count()).isEqualTo(1003);
+        assertThat(sketch.quantile(1)).isCloseTo(1e12, within(1e10));
+    }
+}
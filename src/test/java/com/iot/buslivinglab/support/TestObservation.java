@@ -0,0 +1,80 @@
+package com.iot.buslivinglab.support;
+
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * SOSA/SSN JSON-LD opservacija za testove (isti oblik koji šalju gateway-i) i POST na /observations.
+ * Vreme i vrednost se upisuju kako su zadati, pa vrednost "null" daje član bez broja.
+ */
+public final class TestObservation {
+
+    public static final String PATH = "/api/sensor-data/observations";
+    public static final String TEMPERATURE = "ll:soilTemperature";
+    public static final String CELSIUS = "unit:DEG_C";
+
+    private final String sensorId;
+    private String label = "Test sensor";
+    private final StringBuilder members = new StringBuilder();
+
+    private TestObservation(String sensorId) {
+        this.sensorId = sensorId;
+    }
+
+    /**
+     * @param sensorId id bez prefiksa; u opservaciju ide kao ll:sensorId
+     */
+    public static TestObservation sensor(String sensorId) {
+        return new TestObservation(sensorId);
+    }
+
+    public TestObservation label(String label) {
+        this.label = label;
+        return this;
+    }
+
+    public TestObservation member(String typeId, Object time, Object value, String unit) {
+        if (!members.isEmpty()) {
+            members.append(',');
+        }
+        members.append("{\"sosa:observedProperty\":{\"@id\":\"").append(typeId).append("\"},")
+                .append("\"sosa:phenomenonTime\":\"").append(time).append("\",")
+                .append("\"sosa:hasResult\":{\"qudt:numericValue\":").append(value)
+                .append(",\"qudt:unit\":\"").append(unit).append("\"}}");
+        return this;
+    }
+
+    /**
+     * Član ll:soilTemperature u °C
+     */
+    public TestObservation temperature(Object time, Object value) {
+        return member(TEMPERATURE, time, value, CELSIUS);
+    }
+
+    public String json() {
+        return "{\"@context\":{\"sosa\":\"http://www.w3.org/ns/sosa/\"},"
+                + "\"sosa:madeBySensor\":{\"@id\":\"ll:" + sensorId + "\",\"rdfs:label\":\"" + label + "\"},"
+                + "\"sosa:hasFeatureOfInterest\":{\"ll:location\":\"Test field\"},"
+                + "\"sosa:hasMember\":[" + members + "]}";
+    }
+
+    public ResponseEntity<String> post(TestRestTemplate restTemplate) {
+        return post(restTemplate, json(), new HttpHeaders());
+    }
+
+    public ResponseEntity<String> post(TestRestTemplate restTemplate, HttpHeaders headers) {
+        return post(restTemplate, json(), headers);
+    }
+
+    public static ResponseEntity<String> post(TestRestTemplate restTemplate, String body) {
+        return post(restTemplate, body, new HttpHeaders());
+    }
+
+    private static ResponseEntity<String> post(TestRestTemplate restTemplate, String body, HttpHeaders headers) {
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return restTemplate.postForEntity(PATH, new HttpEntity<>(body, headers), String.class);
+    }
+}
@@ -0,0 +1,48 @@
+package com.iot.buslivinglab.unit;
+
+import com.iot.buslivinglab.unit.QudtUnits.QudtUnit;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class UnitTargetsTest {
+
+    @Test
+    void convertsBetweenUnitsOfTheSameQuantity() {
+        assertThat(QudtUnits.conversion("unit:DEG_C", "unit:DEG_F").apply(20)).isEqualTo(68.0);
+        assertThat(QudtUnits.conversion("unit:DEG_F", "unit:DEG_C").apply(212)).isCloseTo(100.0, within(1e-9));
+        assertThat(QudtUnits.conversion("unit:DEG_C", "unit:K").apply(-273.15)).isCloseTo(0.0, within(1e-9));
+        assertThat(QudtUnits.conversion("unit:MicroS-PER-CentiM", "unit:MilliS-PER-CentiM").apply(1500))
+                .isCloseTo(1.5, within(1e-9));
+        assertThat(QudtUnits.conversion("unit:PERCENT", "unit:FRACTION").apply(35)).isCloseTo(0.35, within(1e-9));
+        assertThat(QudtUnits.conversion("unit:DEG_C", "unit:DEG_C").isIdentity()).isTrue();
+        assertThat(QudtUnits.conversion("unit:DEG_C", "unit:PERCENT")).isNull();
+    }
+
+    @Test
+    void picksTargetByQuantityAndLeavesOtherUnitsAlone() {
+        UnitTargets targets = UnitTargets.parse("DEG_F, unit:MilliS-PER-CentiM");
+
+        QudtUnit temperature = targets.targetFor("unit:DEG_C");
+        assertThat(temperature.code()).isEqualTo("unit:DEG_F");
+        assertThat(targets.targetFor("unit:MicroS-PER-CentiM").code()).isEqualTo("unit:MilliS-PER-CentiM");
+        assertThat(targets.targetFor("unit:PERCENT")).isNull();
+        assertThat(targets.targetFor("unit:PH")).isNull();
+        assertThat(UnitTargets.parse(null).isEmpty()).isTrue();
+
+        // sačuvana šifra bez prefiksa ili sa razmakom
+        UnitMappingSnapshot snapshot = new UnitMappingSnapshot(1, Map.of(), Instant.now());
+        assertThat(UnitView.of(" DEG_C", "°C", targets, snapshot).apply(20.0)).isEqualTo(68.0);
+    }
+
+    @Test
+    void rejectsUnknownAndConflictingUnits() {
+        assertThatThrownBy(() -> UnitTargets.parse("DEG_X")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> UnitTargets.parse("DEG_F,K")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,137 @@
+package com.iot.buslivinglab.wal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WriteAheadLogTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsSurviveReopenAndReplayResumesAfterCheckpoint() throws Exception {
+        try (WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_SIZE, 0)) {
+            for (int i = 1; i <= 5; i++) {
+                assertThat(wal.append(payload(i))).isEqualTo(i);
+            }
+            wal.checkpoint(2);
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_SIZE, 0)) {
+            assertThat(wal.getCheckpoint()).isEqualTo(2);
+            assertThat(wal.getPending()).isEqualTo(3);
+            assertThat(readAll(wal, wal.getCheckpoint())).containsExactly("record-3", "record-4", "record-5");
+
+            assertThat(wal.append(payload(6))).isEqualTo(6);
+            assertThat(readAll(wal, 5)).containsExactly("record-6");
+        }
+    }
+
+    @Test
+    void rollsSegmentsAndDeletesThemAfterCheckpoint() throws Exception {
+        try (WriteAheadLog wal = new WriteAheadLog(directory, 256, 0)) {
+            for (int i = 1; i <= 40; i++) {
+                wal.append(payload(i));
+            }
+            int segments = wal.getSegmentCount();
+            assertThat(segments).isGreaterThan(3);
+            assertThat(readAll(wal, 0)).hasSize(40).startsWith("record-1").endsWith("record-40");
+
+            wal.checkpoint(40);
+            assertThat(wal.getSegmentCount()).isEqualTo(1);
+            assertThat(segmentFiles()).hasSize(1);
+        }
+    }
+
+    @Test
+    void tornRecordAtEndOfSegmentIsIgnoredOnRecovery() throws Exception {
+        try (WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_SIZE, 0)) {
+            wal.append(payload(1));
+            wal.append(payload(2));
+        }
+
+        // Simulira pad usred upisa: dužina i sequence upisani, CRC i payload ne
+        Path segment = segmentFiles().get(0);
+        int tornPosition = 2 * (WalSegment.HEADER_SIZE + payload(1).length);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(WalSegment.HEADER_SIZE).putInt(0, 100).putLong(8, 3), tornPosition);
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_SIZE, 0)) {
+            assertThat(readAll(wal, 0)).containsExactly("record-1", "record-2");
+            assertThat(wal.append(payload(3))).isEqualTo(3);
+            assertThat(readAll(wal, 2)).containsExactly("record-3");
+        }
+    }
+
+    @Test
+    void concurrentAppendsGetUniqueDurableSequences() throws Exception {
+        int threads = 8;
+        int perThread = 200;
+        Set<Long> sequences = ConcurrentHashMap.newKeySet();
+
+        try (WriteAheadLog wal = new WriteAheadLog(directory, 16 * 1024, 200)) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        sequences.add(wal.append(payload(i)));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+
+            assertThat(sequences).hasSize(threads * perThread);
+            assertThat(wal.getLastSequence()).isEqualTo(threads * perThread);
+            assertThat(readAll(wal, 0)).hasSize(threads * perThread);
+        }
+    }
+
+    private static byte[] payload(int i) {
+        return String.format("record-%d", i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> readAll(WriteAheadLog wal, long afterSequence) throws IOException {
+        List<String> records = new ArrayList<>();
+        try (WriteAheadLog.Reader reader = wal.reader(afterSequence)) {
+            WalRecord record;
+            long expected = afterSequence + 1;
+            while ((record = reader.next()) != null) {
+                assertThat(record.sequence()).isEqualTo(expected++);
+                records.add(new String(record.payload(), StandardCharsets.UTF_8));
+            }
+        }
+        return records;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(WalSegment::isSegmentFile).sorted().toList();
+        }
+    }
+}